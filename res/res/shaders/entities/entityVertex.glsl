@@ -20,31 +20,57 @@ uniform vec4 clipPlane;
 uniform mat4 jointTransforms[MAX_JOINTS];
 uniform bool animated;
 
+uniform bool quantized;
+uniform vec3 positionCentre;
+uniform vec3 positionExtent;
+
 uniform mat4 modelMatrix;
 uniform float atlasRows;
 uniform vec2 atlasOffset;
+uniform vec4 textureTransform;
 
 //---------OUT------------
 out vec4 pass_positionRelativeToCam;
 out vec2 pass_textureCoords;
 out vec3 pass_surfaceNormal;
 
+//---------OCTAHEDRAL------------
+vec3 decodeOctahedral(vec2 encoded) {
+	vec3 v = vec3(encoded, 1.0 - abs(encoded.x) - abs(encoded.y));
+
+	if (v.z < 0.0) {
+		v.xy = (1.0 - abs(v.yx)) * vec2(v.x >= 0.0 ? 1.0 : -1.0, v.y >= 0.0 ? 1.0 : -1.0);
+	}
+
+	return normalize(v);
+}
+
 //---------MAIN------------
 void main(void) {
 	vec4 totalLocalPos = vec4(0.0);
 	vec4 totalNormal = vec4(0.0);
 
+	vec3 position = in_position;
+	vec3 normal = in_normal;
+	vec3 tangent = in_tangent;
+
+	if (quantized) {
+		position = positionCentre + in_position * positionExtent;
+		normal = decodeOctahedral(in_normal.xy);
+		tangent = decodeOctahedral(in_tangent.xy);
+	}
+
     if (animated) {
         for (int i = 0; i < MAX_WEIGHTS; i++){
-            vec4 localPosition = jointTransforms[in_jointIndices[i]] * vec4(in_position, 1.0);
+            vec4 localPosition = jointTransforms[in_jointIndices[i]] * vec4(position, 1.0);
             totalLocalPos += localPosition * in_weights[i];
 
-            vec4 worldNormal = jointTransforms[in_jointIndices[i]] * vec4(in_normal, 0.0);
+            vec4 worldNormal = jointTransforms[in_jointIndices[i]] * vec4(normal, 0.0);
             totalNormal += worldNormal * in_weights[i];
         }
 	} else {
-	    totalLocalPos = vec4(in_position, 1.0);
-	    totalNormal = vec4(in_normal, 0.0);
+	    totalLocalPos = vec4(position, 1.0);
+	    totalNormal = vec4(normal, 0.0);
 	}
 
 	vec4 worldPosition = modelMatrix * totalLocalPos;
@@ -57,10 +83,10 @@ void main(void) {
 	vec3 surfaceNormal = (modelViewMatrix * totalNormal).xyz;
 
 	vec3 norm = normalize(surfaceNormal);
-	vec3 tang = normalize((modelViewMatrix * vec4(in_tangent, 0.0)).xyz);
+	vec3 tang = normalize((modelViewMatrix * vec4(tangent, 0.0)).xyz);
 	vec3 bitang = normalize(cross(norm, tang));
 	mat3 toTangentSpace = mat3(tang.x, bitang.x, norm.x, tang.y, bitang.y, norm.y, tang.z, bitang.z, norm.z);
 
-	pass_textureCoords = (in_textureCoords / atlasRows) + atlasOffset;
+	pass_textureCoords = ((in_textureCoords / atlasRows) + atlasOffset) * textureTransform.xy + textureTransform.zw;
 	pass_surfaceNormal = totalNormal.xyz;//(modelMatrix * totalNormal).xyz; // toTangentSpace * surfaceNormal;
 }
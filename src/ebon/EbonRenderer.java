@@ -1,9 +1,11 @@
 package ebon;
 
 import ebon.entities.*;
+import ebon.models.*;
 import ebon.options.*;
 import ebon.particles.*;
 import ebon.post.*;
+import ebon.rendering.*;
 import ebon.skybox.*;
 import flounder.camera.*;
 import flounder.devices.*;
@@ -60,10 +62,15 @@ public class EbonRenderer extends IRendererMaster {
 		this.pipelineDemo = new PipelineDemo();
 		this.pipelinePaused = new PipelinePaused();
 		this.filterTiltShift = new FilterTiltShift(0.75f, 1.1f, 0.004f, 3.0f);
+
+		RenderStatistics.setRecording(Ebon.configMain.getBooleanWithDefault("render_statistics", false, RenderStatistics::isRecording));
+		PreparedMesh.setQuantized(Ebon.configMain.getBooleanWithDefault("quantized_meshes", false, PreparedMesh::isQuantized));
 	}
 
 	@Override
 	public void render() {
+		RenderStatistics.beginFrame();
+
 		/* Binds the relevant FBO. */
 		bindRelevantFBO();
 
@@ -74,11 +81,18 @@ public class EbonRenderer extends IRendererMaster {
 		renderPost(FlounderGuis.getGuiMaster().isGamePaused(), FlounderGuis.getGuiMaster().getBlurFactor());
 
 		/* Scene independents. */
+		RenderStatistics.beginPass(RenderPass.GUIS);
 		guisRenderer.render(POSITIVE_INFINITY, FlounderCamera.getCamera());
+		RenderStatistics.endPass(RenderPass.GUIS);
+
+		RenderStatistics.beginPass(RenderPass.FONTS);
 		fontRenderer.render(POSITIVE_INFINITY, FlounderCamera.getCamera());
+		RenderStatistics.endPass(RenderPass.FONTS);
 
 		/* Unbinds the FBO. */
 		unbindRelevantFBO();
+
+		RenderStatistics.endFrame();
 	}
 
 	private void bindRelevantFBO() {
@@ -103,13 +117,25 @@ public class EbonRenderer extends IRendererMaster {
 		ICamera camera = FlounderCamera.getCamera();
 		OpenGlUtils.prepareNewRenderParse(clearColour);
 
+		RenderStatistics.beginPass(RenderPass.SKYBOX);
 		skyboxRenderer.render(clipPlane, camera);
+		RenderStatistics.endPass(RenderPass.SKYBOX);
+
+		RenderStatistics.beginPass(RenderPass.ENTITIES);
 		entitiesRenderer.render(clipPlane, camera);
+		RenderStatistics.endPass(RenderPass.ENTITIES);
+
+		RenderStatistics.beginPass(RenderPass.PARTICLES);
 		particleRenderer.render(clipPlane, camera);
+		RenderStatistics.endPass(RenderPass.PARTICLES);
+
+		RenderStatistics.beginPass(RenderPass.BOUNDING);
 		boundingRenderer.render(clipPlane, camera);
+		RenderStatistics.endPass(RenderPass.BOUNDING);
 	}
 
 	private void renderPost(boolean isPaused, float blurFactor) {
+		RenderStatistics.beginPass(RenderPass.POST);
 		FBO output = nonsampledFBO;
 
 		if (OptionsPost.POST_ENABLED) {
@@ -129,11 +155,12 @@ public class EbonRenderer extends IRendererMaster {
 		}
 
 		output.blitToScreen();
+		RenderStatistics.endPass(RenderPass.POST);
 	}
 
 	@Override
 	public void profile() {
-
+		RenderStatistics.profile();
 	}
 
 	public int getSamples() {
@@ -159,6 +186,8 @@ public class EbonRenderer extends IRendererMaster {
 
 		pipelineDemo.dispose();
 		pipelinePaused.dispose();
+
+		RenderStatistics.dispose();
 	}
 
 	@Override
@@ -0,0 +1,184 @@
+package ebon.animation;
+
+import flounder.animation.*;
+
+import java.util.*;
+
+/**
+ * The model space bounds of a skinned mesh through a animation, found once by skinning the mesh on the CPU at every key frame. Playing entities look up and interpolate the bounds for their animation time, so their colliders and culling follow the pose without skinning anything each frame.
+ */
+public class AnimatedBounds {
+	/**
+	 * The number of joints each vertex is weighted to, the same as the entity vertex shader.
+	 */
+	public static final int MAX_WEIGHTS = 3;
+
+	private final BakedAnimation animation;
+	private final float[] times;
+	private final float[] bounds;
+	private final float[] maxBounds;
+
+	/**
+	 * Creates a new bound track by skinning a mesh at every key frame of a animation.
+	 *
+	 * @param animation The baked animation to sample poses from.
+	 * @param vertices The mesh positions, three floats each.
+	 * @param jointIds The joints each vertex is weighted to, {@link #MAX_WEIGHTS} each.
+	 * @param vertexWeights The weight of each of those joints.
+	 */
+	public AnimatedBounds(BakedAnimation animation, float[] vertices, int[] jointIds, float[] vertexWeights) {
+		this.animation = animation;
+		this.times = getKeyTimes(animation);
+		this.bounds = new float[times.length * 6];
+		this.maxBounds = new float[]{Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+
+		Skeleton skeleton = animation.getSkeleton();
+		float[] localTransforms = new float[skeleton.getTransformsLength()];
+		float[] modelTransforms = new float[skeleton.getTransformsLength()];
+		float[] skinTransforms = new float[skeleton.getTransformsLength()];
+
+		for (int key = 0; key < times.length; key++) {
+			animation.sample(times[key], localTransforms);
+			skeleton.concatenate(localTransforms, modelTransforms, skinTransforms);
+			skin(vertices, jointIds, vertexWeights, skinTransforms, bounds, key * 6);
+
+			for (int i = 0; i < 3; i++) {
+				maxBounds[i] = Math.min(maxBounds[i], bounds[key * 6 + i]);
+				maxBounds[i + 3] = Math.max(maxBounds[i + 3], bounds[key * 6 + i + 3]);
+			}
+		}
+	}
+
+	/**
+	 * Gets the times to sample bounds at, the key frames of the animation along with its start and end.
+	 */
+	private static float[] getKeyTimes(BakedAnimation animation) {
+		TreeSet<Float> keyTimes = new TreeSet<>();
+		keyTimes.add(0.0f);
+		keyTimes.add(animation.getLength());
+		KeyFrameJoints[] frames = animation.getAnimation().getKeyFrameJointss();
+
+		if (frames != null) {
+			for (KeyFrameJoints frame : frames) {
+				keyTimes.add(Math.min(Math.max(frame.getTimeStamp(), 0.0f), animation.getLength()));
+			}
+		}
+
+		float[] result = new float[keyTimes.size()];
+		int i = 0;
+
+		for (float time : keyTimes) {
+			result[i++] = time;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Skins every vertex as the entity vertex shader does, and writes the min then max of the skinned positions.
+	 */
+	private static void skin(float[] vertices, int[] jointIds, float[] vertexWeights, float[] skinTransforms, float[] destination, int offset) {
+		float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+		int jointCount = skinTransforms.length / SkeletonMaths.MATRIX_SIZE;
+
+		for (int v = 0; v < vertices.length / 3; v++) {
+			float x = vertices[v * 3];
+			float y = vertices[v * 3 + 1];
+			float z = vertices[v * 3 + 2];
+			float sx = 0.0f, sy = 0.0f, sz = 0.0f;
+
+			for (int w = 0; w < MAX_WEIGHTS; w++) {
+				int joint = jointIds[v * MAX_WEIGHTS + w];
+				float weight = vertexWeights[v * MAX_WEIGHTS + w];
+
+				if (weight == 0.0f || joint < 0 || joint >= jointCount) {
+					continue;
+				}
+
+				int m = joint * SkeletonMaths.MATRIX_SIZE;
+				sx += (skinTransforms[m] * x + skinTransforms[m + 4] * y + skinTransforms[m + 8] * z + skinTransforms[m + 12]) * weight;
+				sy += (skinTransforms[m + 1] * x + skinTransforms[m + 5] * y + skinTransforms[m + 9] * z + skinTransforms[m + 13]) * weight;
+				sz += (skinTransforms[m + 2] * x + skinTransforms[m + 6] * y + skinTransforms[m + 10] * z + skinTransforms[m + 14]) * weight;
+			}
+
+			minX = Math.min(minX, sx);
+			minY = Math.min(minY, sy);
+			minZ = Math.min(minZ, sz);
+			maxX = Math.max(maxX, sx);
+			maxY = Math.max(maxY, sy);
+			maxZ = Math.max(maxZ, sz);
+		}
+
+		if (minX > maxX) {
+			minX = minY = minZ = maxX = maxY = maxZ = 0.0f;
+		}
+
+		destination[offset] = minX;
+		destination[offset + 1] = minY;
+		destination[offset + 2] = minZ;
+		destination[offset + 3] = maxX;
+		destination[offset + 4] = maxY;
+		destination[offset + 5] = maxZ;
+	}
+
+	/**
+	 * Gets the bounds at a point in the animation, interpolated between the key frames either side.
+	 *
+	 * @param time The animation time, between 0 and the animation length.
+	 * @param destination The array to write the min x, y, z then max x, y, z into.
+	 *
+	 * @return The destination.
+	 */
+	public float[] sample(float time, float[] destination) {
+		int next = Arrays.binarySearch(times, time);
+
+		if (next >= 0) {
+			System.arraycopy(bounds, next * 6, destination, 0, 6);
+			return destination;
+		}
+
+		next = Math.min(Math.max(-next - 1, 1), times.length - 1);
+		int previous = next - 1;
+
+		if (previous < 0 || times[next] <= times[previous]) {
+			System.arraycopy(bounds, next * 6, destination, 0, 6);
+			return destination;
+		}
+
+		float progression = Math.min(Math.max((time - times[previous]) / (times[next] - times[previous]), 0.0f), 1.0f);
+
+		for (int i = 0; i < 6; i++) {
+			destination[i] = bounds[previous * 6 + i] + (bounds[next * 6 + i] - bounds[previous * 6 + i]) * progression;
+		}
+
+		return destination;
+	}
+
+	/**
+	 * Gets the bounds that hold the mesh through the whole animation.
+	 *
+	 * @return The min x, y, z then max x, y, z.
+	 */
+	public float[] getMaxBounds() {
+		return maxBounds;
+	}
+
+	/**
+	 * Gets the baked animation these bounds were sampled from.
+	 *
+	 * @return The baked animation.
+	 */
+	public BakedAnimation getAnimation() {
+		return animation;
+	}
+
+	/**
+	 * Gets the number of key frames bounds were sampled at.
+	 *
+	 * @return The number of key frames.
+	 */
+	public int getKeyCount() {
+		return times.length;
+	}
+}
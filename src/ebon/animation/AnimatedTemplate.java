@@ -0,0 +1,71 @@
+package ebon.animation;
+
+import flounder.animation.*;
+import flounder.collada.geometry.*;
+import flounder.collada.joints.*;
+
+/**
+ * The mesh, joints and animation parsed from a animated entity template, shared by every instance of the template so only the first one parses it. Parsing needs no GL, only {@link #getModel()} has to be called on the GL thread.
+ */
+public class AnimatedTemplate {
+	private final String name;
+	private final MeshData meshData;
+	private final JointsData jointsData;
+	private final Animation animation;
+	private ModelAnimated model;
+
+	/**
+	 * Creates a new animated template.
+	 *
+	 * @param name The name of the entity template it was parsed from.
+	 * @param meshData The skinned mesh.
+	 * @param jointsData The joint hierarchy.
+	 * @param animation The animation saved with the template.
+	 */
+	public AnimatedTemplate(String name, MeshData meshData, JointsData jointsData, Animation animation) {
+		this.name = name;
+		this.meshData = meshData;
+		this.jointsData = jointsData;
+		this.animation = animation;
+	}
+
+	/**
+	 * Gets the name of the entity template it was parsed from.
+	 *
+	 * @return The template name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the joint count of the joint hierarchy.
+	 *
+	 * @return The joint count.
+	 */
+	public int getJointCount() {
+		return jointsData.getJointCount();
+	}
+
+	/**
+	 * Gets the animation saved with the template.
+	 *
+	 * @return The animation.
+	 */
+	public Animation getAnimation() {
+		return animation;
+	}
+
+	/**
+	 * Gets the animated model, creating it the first time it is asked for. This has to be called on the GL thread.
+	 *
+	 * @return The animated model.
+	 */
+	public synchronized ModelAnimated getModel() {
+		if (model == null) {
+			model = new ModelAnimated(meshData, jointsData);
+		}
+
+		return model;
+	}
+}
@@ -0,0 +1,109 @@
+package ebon.animation;
+
+import flounder.animation.*;
+
+/**
+ * A animation pre-sampled at a fixed rate into a compact per joint position and rotation table. Baked animations hold no playback state, so one can be shared by every entity playing it, and sampling a pose is two array lookups and a interpolation per joint.
+ */
+public class BakedAnimation {
+	/**
+	 * The number of samples baked per second of animation.
+	 */
+	public static final float SAMPLE_RATE = 30.0f;
+
+	private final Skeleton skeleton;
+	private final Animation animation;
+	private final float length;
+	private final int sampleCount;
+	private final float samplesPerSecond;
+	private final float[] positions;
+	private final float[] rotations;
+	private final boolean[] animated;
+
+	/**
+	 * Creates a new baked animation.
+	 *
+	 * @param skeleton The skeleton the animation will be played on.
+	 * @param animation The animation to bake.
+	 */
+	public BakedAnimation(Skeleton skeleton, Animation animation) {
+		JointAnimation source = new JointAnimation(skeleton, animation);
+		int jointCount = skeleton.getJointCount();
+
+		this.skeleton = skeleton;
+		this.animation = animation;
+		this.length = animation.getLength();
+		this.sampleCount = Math.max((int) Math.ceil(length * SAMPLE_RATE), 1) + 1;
+		this.samplesPerSecond = length > 0.0f ? (sampleCount - 1) / length : 0.0f;
+		this.positions = new float[sampleCount * jointCount * 3];
+		this.rotations = new float[sampleCount * jointCount * 4];
+		this.animated = new boolean[jointCount];
+
+		float[] samplePositions = new float[jointCount * 3];
+		float[] sampleRotations = new float[jointCount * 4];
+
+		for (int i = 0; i < sampleCount; i++) {
+			source.samplePose(samplesPerSecond > 0.0f ? i / samplesPerSecond : 0.0f, samplePositions, sampleRotations);
+			System.arraycopy(samplePositions, 0, positions, i * jointCount * 3, samplePositions.length);
+			System.arraycopy(sampleRotations, 0, rotations, i * jointCount * 4, sampleRotations.length);
+		}
+
+		for (int joint = 0; joint < jointCount; joint++) {
+			animated[joint] = source.isAnimated(joint);
+		}
+	}
+
+	/**
+	 * Samples the local transform of every joint at a point in the animation. Joints this animation does not move keep their local bind transform.
+	 *
+	 * @param time The animation time, between 0 and the animation length.
+	 * @param localTransforms The packed destination, indexed by joint index.
+	 */
+	public void sample(float time, float[] localTransforms) {
+		int jointCount = skeleton.getJointCount();
+		float position = Math.min(Math.max(time * samplesPerSecond, 0.0f), sampleCount - 1);
+		int previous = Math.min((int) position, sampleCount - 2);
+		int next = previous + 1;
+		float progression = position - previous;
+
+		for (int joint = 0; joint < jointCount; joint++) {
+			int offset = joint * SkeletonMaths.MATRIX_SIZE;
+
+			if (!animated[joint]) {
+				System.arraycopy(skeleton.getLocalBindTransforms(), offset, localTransforms, offset, SkeletonMaths.MATRIX_SIZE);
+				continue;
+			}
+
+			int a = previous * jointCount + joint;
+			int b = next * jointCount + joint;
+			SkeletonMaths.interpolate(positions, a * 3, b * 3, rotations, a * 4, b * 4, progression, localTransforms, offset);
+		}
+	}
+
+	/**
+	 * Gets the skeleton this animation was baked for.
+	 *
+	 * @return The skeleton.
+	 */
+	public Skeleton getSkeleton() {
+		return skeleton;
+	}
+
+	/**
+	 * Gets the animation this was baked from.
+	 *
+	 * @return The source animation.
+	 */
+	public Animation getAnimation() {
+		return animation;
+	}
+
+	/**
+	 * Gets the length of the animation in seconds.
+	 *
+	 * @return The animation length.
+	 */
+	public float getLength() {
+		return length;
+	}
+}
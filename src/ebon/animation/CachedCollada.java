@@ -0,0 +1,378 @@
+package ebon.animation;
+
+import flounder.animation.*;
+import flounder.collada.*;
+import flounder.collada.geometry.*;
+import flounder.collada.joints.*;
+import flounder.logger.*;
+import flounder.maths.matrices.*;
+import flounder.maths.vectors.*;
+import flounder.resources.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * A collada file imported once and shared, so every instance of a animated entity uses the same model and animation. Imports are held by the path and modified time of their file, and the parsed mesh, skeleton and animation are written to a binary sidecar next to it so later runs skip the XML.
+ * <p>
+ * The sidecar is laid out as a header that ties it to the collada file, then the mesh, the joints depth first, and the key frames:
+ * <pre>
+ * int magic, int version, long source modified, long source size
+ * float furthest point, float[] vertices, textures, normals, tangents, int[] indices, joint ids, float[] weights
+ * int joint count, per joint: int index, string name, float[16] bind transform, int child count
+ * int frame count (-1 without a animation), float length, per frame: float time, int joint count
+ *     per joint: string name, float[3] position, float[4] rotation
+ * </pre>
+ * Arrays are written as a int count followed by the values (-1 for a missing array), strings as a int byte length followed by UTF-8 bytes.
+ */
+public class CachedCollada {
+	/**
+	 * The extension added to a collada files name for its sidecar.
+	 */
+	public static final String EXTENSION = ".cache";
+
+	public static final int MAGIC = 0x45424E43;
+	public static final int VERSION = 2;
+
+	private static final Map<String, CachedCollada> LOADED = new HashMap<>();
+
+	private final String path;
+	private final long modified;
+	private final ModelAnimated model;
+	private final Animation animation;
+
+	private CachedCollada(String path, long modified, ModelAnimated model, Animation animation) {
+		this.path = path;
+		this.modified = modified;
+		this.model = model;
+		this.animation = animation;
+	}
+
+	/**
+	 * Gets a imported collada file, importing it if it has not been yet or has changed since. This creates the model, so has to be called on the GL thread.
+	 *
+	 * @param colladaFile The collada file to import.
+	 *
+	 * @return The imported model and animation, shared by everything that imports the same file.
+	 */
+	public static synchronized CachedCollada get(MyFile colladaFile) {
+		String path = colladaFile.getPath();
+		Path file = getPath(path);
+		long modified = getModified(file);
+		CachedCollada cached = LOADED.get(path);
+
+		// Models made from a older version of the file are left to the entities still using them.
+		if (cached != null && cached.modified == modified) {
+			return cached;
+		}
+
+		cached = readSidecar(path, file, modified);
+
+		if (cached == null) {
+			ModelAnimated model = FlounderCollada.loadCollada(colladaFile);
+			Animation animation = FlounderAnimation.loadAnimation(FlounderCollada.loadAnimation(colladaFile));
+			cached = new CachedCollada(path, modified, model, animation);
+			writeSidecar(cached, file);
+		}
+
+		LOADED.put(path, cached);
+		return cached;
+	}
+
+	private static Path getPath(String path) {
+		Path file = Paths.get(path);
+
+		// Resource paths start with a slash but are relative to the working directory.
+		if (!Files.exists(file) && path.startsWith("/")) {
+			file = Paths.get(path.substring(1));
+		}
+
+		return file;
+	}
+
+	private static long getModified(Path file) {
+		try {
+			return Files.exists(file) ? Files.getLastModifiedTime(file).toMillis() : 0L;
+		} catch (IOException e) {
+			return 0L;
+		}
+	}
+
+	private static Path getSidecar(Path file) {
+		return file.resolveSibling(file.getFileName() + EXTENSION);
+	}
+
+	/**
+	 * Reads the sidecar of a collada file.
+	 *
+	 * @return The import, or null if there is no sidecar or it was written from a different version of the file.
+	 */
+	private static CachedCollada readSidecar(String path, Path file, long modified) {
+		Path sidecar = getSidecar(file);
+
+		if (modified == 0L || !Files.exists(sidecar)) {
+			return null;
+		}
+
+		try (FileChannel channel = FileChannel.open(sidecar, StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != modified || buffer.getLong() != Files.size(file)) {
+				return null;
+			}
+
+			float furthestPoint = buffer.getFloat();
+			float[] vertices = readFloats(buffer);
+			float[] textures = readFloats(buffer);
+			float[] normals = readFloats(buffer);
+			float[] tangents = readFloats(buffer);
+			int[] indices = readInts(buffer);
+			int[] jointIds = readInts(buffer);
+			float[] weights = readFloats(buffer);
+			MeshData meshData = new MeshData(vertices, textures, normals, tangents, indices, jointIds, weights, furthestPoint);
+
+			int jointCount = buffer.getInt();
+			JointsData jointsData = jointCount == 0 ? null : new JointsData(jointCount, readJoint(buffer));
+
+			int frameCount = buffer.getInt();
+			float length = buffer.getFloat();
+			Animation animation = null;
+
+			if (frameCount != -1) {
+				KeyFrameJoints[] frames = new KeyFrameJoints[frameCount];
+
+				for (int f = 0; f < frameCount; f++) {
+					float timeStamp = buffer.getFloat();
+					int transformCount = buffer.getInt();
+					Map<String, JointTransform> transforms = new HashMap<>();
+
+					for (int t = 0; t < transformCount; t++) {
+						String name = readString(buffer);
+						Vector3f position = new Vector3f(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+						Quaternion rotation = new Quaternion(buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+						transforms.put(name, new JointTransform(position, rotation));
+					}
+
+					frames[f] = new KeyFrameJoints(timeStamp, transforms);
+				}
+
+				animation = new Animation(length, frames);
+			}
+
+			return new CachedCollada(path, modified, new ModelAnimated(meshData, jointsData), animation);
+		} catch (IOException | BufferUnderflowException e) {
+			FlounderLogger.error("Could not read the collada cache " + sidecar + ", the collada file will be imported.");
+			FlounderLogger.exception(e);
+			return null;
+		}
+	}
+
+	/**
+	 * Reads a joint and its children, depth first.
+	 */
+	private static JointData readJoint(ByteBuffer buffer) {
+		int index = buffer.getInt();
+		String name = readString(buffer);
+		float[] bindLocalTransform = new float[16];
+		buffer.asFloatBuffer().get(bindLocalTransform);
+		buffer.position(buffer.position() + 16 * 4);
+		JointData joint = new JointData(index, name, new Matrix4f(bindLocalTransform));
+		int childCount = buffer.getInt();
+
+		for (int i = 0; i < childCount; i++) {
+			joint.addChild(readJoint(buffer));
+		}
+
+		return joint;
+	}
+
+	private static float[] readFloats(ByteBuffer buffer) {
+		int count = buffer.getInt();
+
+		if (count == -1) {
+			return null;
+		}
+
+		float[] values = new float[count];
+		buffer.asFloatBuffer().get(values);
+		buffer.position(buffer.position() + values.length * 4);
+		return values;
+	}
+
+	private static int[] readInts(ByteBuffer buffer) {
+		int count = buffer.getInt();
+
+		if (count == -1) {
+			return null;
+		}
+
+		int[] values = new int[count];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + values.length * 4);
+		return values;
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes the sidecar of a collada file, a file that can not be written next to (such as one inside a jar) is only cached in memory.
+	 */
+	private static void writeSidecar(CachedCollada cached, Path file) {
+		if (cached.modified == 0L || cached.model == null || cached.model.getMeshData() == null) {
+			return;
+		}
+
+		Path sidecar = getSidecar(file);
+
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(sidecar)))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(cached.modified);
+			output.writeLong(Files.size(file));
+
+			MeshData meshData = cached.model.getMeshData();
+			output.writeFloat(meshData.getFurthestPoint());
+			writeFloats(output, meshData.getVertices());
+			writeFloats(output, meshData.getTextures());
+			writeFloats(output, meshData.getNormals());
+			writeFloats(output, meshData.getTangents());
+			writeInts(output, meshData.getIndices());
+			writeInts(output, meshData.getJointIds());
+			writeFloats(output, meshData.getVertexWeights());
+
+			JointsData jointsData = cached.model.getJointsData();
+
+			if (jointsData == null || jointsData.getHeadJoint() == null) {
+				output.writeInt(0);
+			} else {
+				output.writeInt(jointsData.getJointCount());
+				writeJoint(output, jointsData.getHeadJoint());
+			}
+
+			if (cached.animation == null) {
+				output.writeInt(-1);
+				output.writeFloat(0.0f);
+			} else {
+				KeyFrameJoints[] frames = cached.animation.getKeyFrameJointss();
+				output.writeInt(frames.length);
+				output.writeFloat(cached.animation.getLength());
+
+				for (KeyFrameJoints frame : frames) {
+					output.writeFloat(frame.getTimeStamp());
+					output.writeInt(frame.getJointKeyFrames().size());
+
+					for (Map.Entry<String, JointTransform> transform : frame.getJointKeyFrames().entrySet()) {
+						Vector3f position = transform.getValue().getPosition();
+						Quaternion rotation = transform.getValue().getRotation();
+						writeString(output, transform.getKey());
+						output.writeFloat(position.x);
+						output.writeFloat(position.y);
+						output.writeFloat(position.z);
+						output.writeFloat(rotation.x);
+						output.writeFloat(rotation.y);
+						output.writeFloat(rotation.z);
+						output.writeFloat(rotation.w);
+					}
+				}
+			}
+		} catch (IOException e) {
+			FlounderLogger.log("Could not write the collada cache " + sidecar + ", it will only be cached in memory.");
+
+			try {
+				Files.deleteIfExists(sidecar);
+			} catch (IOException ignored) {
+			}
+		}
+	}
+
+	private static void writeJoint(DataOutputStream output, JointData joint) throws IOException {
+		output.writeInt(joint.getIndex());
+		writeString(output, joint.getNameId());
+
+		for (float v : Matrix4f.toArray(joint.getBindLocalTransform())) {
+			output.writeFloat(v);
+		}
+
+		output.writeInt(joint.getChildren().size());
+
+		for (JointData child : joint.getChildren()) {
+			writeJoint(output, child);
+		}
+	}
+
+	private static void writeFloats(DataOutputStream output, float[] values) throws IOException {
+		if (values == null) {
+			output.writeInt(-1);
+			return;
+		}
+
+		output.writeInt(values.length);
+
+		for (float v : values) {
+			output.writeFloat(v);
+		}
+	}
+
+	private static void writeInts(DataOutputStream output, int[] values) throws IOException {
+		if (values == null) {
+			output.writeInt(-1);
+			return;
+		}
+
+		output.writeInt(values.length);
+
+		for (int v : values) {
+			output.writeInt(v);
+		}
+	}
+
+	private static void writeString(DataOutputStream output, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	/**
+	 * Gets the path of the collada file this was imported from.
+	 *
+	 * @return The collada files path.
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Gets the model imported from the collada file, shared by every entity using it.
+	 *
+	 * @return The animated model.
+	 */
+	public ModelAnimated getModel() {
+		return model;
+	}
+
+	/**
+	 * Gets the animation imported from the collada file, shared by every entity using it.
+	 *
+	 * @return The animation, or null if the file has none.
+	 */
+	public Animation getAnimation() {
+		return animation;
+	}
+
+	/**
+	 * Gets the number of collada files imported.
+	 *
+	 * @return The number of imports held.
+	 */
+	public static synchronized int getLoadedCount() {
+		return LOADED.size();
+	}
+}
@@ -0,0 +1,365 @@
+package ebon.animation;
+
+import ebon.entities.components.*;
+import flounder.animation.*;
+import flounder.entities.*;
+import flounder.framework.*;
+import flounder.logger.*;
+import flounder.profiling.*;
+
+import java.lang.ref.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+/**
+ * A manager that evaluates the poses of all animated entities in parallel across a pool of worker threads, and holds the templates, baked animations and bounds shared between entities.
+ */
+public class EbonAnimations extends IModule {
+	private static final EbonAnimations INSTANCE = new EbonAnimations();
+	public static final String PROFILE_TAB_NAME = "Ebon Animations";
+
+	/**
+	 * The smallest number of animations given to one thread, below this splitting the work costs more than it saves.
+	 */
+	public static final int MIN_BATCH_SIZE = 8;
+
+	private static final Comparator<ComponentAnimation> SORT_DISTANCE = (ComponentAnimation a, ComponentAnimation b) -> Float.compare(a.getCameraDistance(), b.getCameraDistance());
+
+	private Map<String, SoftReference<AnimatedTemplate>> templates;
+	private Map<String, SoftReference<BakedAnimation>> baked;
+	private Map<String, SoftReference<AnimatedBounds>> bounds;
+
+	private List<ComponentAnimation> queued;
+	private List<ComponentAnimation> evaluating;
+	private ExecutorService workers;
+	private int workerCount;
+	private int fullRateBudget;
+
+	private double evaluateTime;
+	private int evaluated;
+	private int batches;
+	private int fullRate;
+	private int frozen;
+
+	/**
+	 * Creates a new animation manager.
+	 */
+	public EbonAnimations() {
+		super(ModuleUpdate.UPDATE_POST, PROFILE_TAB_NAME, FlounderLogger.class, FlounderProfiler.class, FlounderEntities.class);
+	}
+
+	@Override
+	public void init() {
+		this.templates = new ConcurrentHashMap<>();
+		this.baked = new ConcurrentHashMap<>();
+		this.bounds = new ConcurrentHashMap<>();
+
+		this.queued = new ArrayList<>();
+		this.evaluating = new ArrayList<>();
+		this.fullRateBudget = 64;
+		setWorkerCount(Math.max(Runtime.getRuntime().availableProcessors() - 1, 0));
+	}
+
+	@Override
+	public void update() {
+		long start = System.nanoTime();
+		evaluating.clear();
+		fullRate = 0;
+		frozen = 0;
+
+		// The closest animations get first claim on full rate updates, the rest are held to a reduced rate.
+		queued.sort(SORT_DISTANCE);
+
+		for (int i = 0; i < queued.size(); i++) {
+			ComponentAnimation animation = queued.get(i);
+			int lodLevel = animation.getDistanceLod();
+
+			if (lodLevel == 0 && i >= fullRateBudget) {
+				lodLevel = 1;
+			}
+
+			if (animation.updateLod(lodLevel)) {
+				evaluating.add(animation);
+			}
+
+			if (animation.isFrozen()) {
+				frozen++;
+			} else if (lodLevel == 0) {
+				fullRate++;
+			}
+		}
+
+		evaluated = evaluating.size();
+		batches = Math.max(Math.min(workerCount + 1, evaluating.size() / MIN_BATCH_SIZE), 1);
+		int batchSize = (evaluating.size() + batches - 1) / batches;
+
+		if (batches == 1) {
+			evaluate(0, evaluating.size());
+		} else {
+			CountDownLatch barrier = new CountDownLatch(batches - 1);
+
+			for (int i = 1; i < batches; i++) {
+				int from = Math.min(i * batchSize, evaluating.size());
+				int to = Math.min(from + batchSize, evaluating.size());
+
+				workers.execute(() -> {
+					try {
+						evaluate(from, to);
+					} finally {
+						barrier.countDown();
+					}
+				});
+			}
+
+			// This thread takes the first batch while the workers run the rest.
+			evaluate(0, Math.min(batchSize, evaluating.size()));
+
+			try {
+				barrier.await();
+			} catch (InterruptedException e) {
+				FlounderLogger.exception(e);
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		// Every pose is finished, publish them to the buffers read by the renderer.
+		for (ComponentAnimation animation : queued) {
+			animation.publishPose();
+		}
+
+		queued.clear();
+		evaluating.clear();
+		evaluateTime = (System.nanoTime() - start) / 1000000.0;
+	}
+
+	private void evaluate(int from, int to) {
+		for (int i = from; i < to; i++) {
+			evaluating.get(i).evaluatePose();
+		}
+	}
+
+	@Override
+	public void profile() {
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Templates", templates.size());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Baked", baked.size());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Bounds", bounds.size());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Workers", workerCount);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Full Rate", fullRate);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Frozen", frozen);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Evaluated", evaluated);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Batches", batches);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Evaluate Time", evaluateTime);
+	}
+
+	/**
+	 * Queues a animation to have its pose evaluated this update.
+	 *
+	 * @param animation The animation to evaluate.
+	 *
+	 * @return If the animation was queued, if false the caller has to evaluate the pose itself.
+	 */
+	public static boolean queue(ComponentAnimation animation) {
+		if (INSTANCE.queued == null) {
+			return false;
+		}
+
+		INSTANCE.queued.add(animation);
+		return true;
+	}
+
+	/**
+	 * Gets the parsed template of a animated entity, parsing it if it has not been shared under the name yet.
+	 *
+	 * @param name The name of the entity template.
+	 * @param parser Parses the template when it is not shared, can return null.
+	 *
+	 * @return The animated template, or null if the parser returned null.
+	 */
+	public static AnimatedTemplate getTemplate(String name, Supplier<AnimatedTemplate> parser) {
+		if (INSTANCE.templates == null) {
+			return parser.get();
+		}
+
+		SoftReference<AnimatedTemplate> ref = INSTANCE.templates.get(name);
+		AnimatedTemplate data = ref == null ? null : ref.get();
+
+		if (data == null) {
+			data = parser.get();
+
+			if (data != null) {
+				INSTANCE.templates.put(name, new SoftReference<>(data));
+			}
+		}
+
+		return data;
+	}
+
+	/**
+	 * Drops the template, baked animation and bounds shared under a name, so the next instance loads them again. Called when the entity file is saved.
+	 *
+	 * @param name The name of the entity template.
+	 */
+	public static void invalidate(String name) {
+		if (INSTANCE.templates != null) {
+			INSTANCE.templates.remove(name);
+			INSTANCE.baked.remove(name);
+			INSTANCE.bounds.remove(name);
+		}
+	}
+
+	/**
+	 * Gets a baked animation that has already been loaded.
+	 *
+	 * @param name The name the animation was baked under.
+	 *
+	 * @return The baked animation, or null if it has not been baked (or was collected).
+	 */
+	public static BakedAnimation getBaked(String name) {
+		if (INSTANCE.baked == null) {
+			return null;
+		}
+
+		SoftReference<BakedAnimation> ref = INSTANCE.baked.get(name);
+		return ref == null ? null : ref.get();
+	}
+
+	/**
+	 * Bakes a animation and shares it under a name, so every entity playing it samples from the same table.
+	 *
+	 * @param name The name to share the animation under, usually the entity or collada file it was loaded from.
+	 * @param skeleton The skeleton the animation will be played on.
+	 * @param animation The animation to bake.
+	 *
+	 * @return The baked animation.
+	 */
+	public static BakedAnimation bake(String name, Skeleton skeleton, Animation animation) {
+		BakedAnimation data = getBaked(name);
+
+		if (data == null || data.getAnimation() != animation || data.getSkeleton().getJointCount() != skeleton.getJointCount()) {
+			FlounderLogger.log(name + " is being baked into a animation right now!");
+			data = new BakedAnimation(skeleton, animation);
+
+			if (INSTANCE.baked != null) {
+				INSTANCE.baked.put(name, new SoftReference<>(data));
+			}
+		}
+
+		return data;
+	}
+
+	/**
+	 * Gets the bounds of a skinned mesh through a baked animation, sampling them if they have not been shared under the name yet.
+	 *
+	 * @param name The name to share the bounds under, the same name the animation was baked under, or null to not share them.
+	 * @param animation The baked animation.
+	 * @param vertices The mesh positions.
+	 * @param jointIds The joints each vertex is weighted to.
+	 * @param vertexWeights The weight of each of those joints.
+	 *
+	 * @return The animated bounds.
+	 */
+	public static AnimatedBounds getBounds(String name, BakedAnimation animation, float[] vertices, int[] jointIds, float[] vertexWeights) {
+		if (name == null || INSTANCE.bounds == null) {
+			return new AnimatedBounds(animation, vertices, jointIds, vertexWeights);
+		}
+
+		SoftReference<AnimatedBounds> ref = INSTANCE.bounds.get(name);
+		AnimatedBounds data = ref == null ? null : ref.get();
+
+		if (data == null || data.getAnimation() != animation) {
+			FlounderLogger.log(name + " is having its animated bounds sampled right now!");
+			data = new AnimatedBounds(animation, vertices, jointIds, vertexWeights);
+			INSTANCE.bounds.put(name, new SoftReference<>(data));
+		}
+
+		return data;
+	}
+
+	/**
+	 * Gets the most animations updated at full rate each update.
+	 *
+	 * @return The full rate budget.
+	 */
+	public static int getFullRateBudget() {
+		return INSTANCE.fullRateBudget;
+	}
+
+	/**
+	 * Sets the most animations updated at full rate each update, animations past the budget (furthest from the camera first) are held to a reduced rate.
+	 *
+	 * @param fullRateBudget The new full rate budget.
+	 */
+	public static void setFullRateBudget(int fullRateBudget) {
+		INSTANCE.fullRateBudget = Math.max(fullRateBudget, 0);
+	}
+
+	/**
+	 * Gets the number of worker threads used, not counting the updating thread.
+	 *
+	 * @return The number of workers.
+	 */
+	public static int getWorkerCount() {
+		return INSTANCE.workerCount;
+	}
+
+	/**
+	 * Sets the number of worker threads used, not counting the updating thread. Useful for comparing how evaluation scales across cores.
+	 *
+	 * @param workerCount The new number of workers, 0 evaluates everything on the updating thread.
+	 */
+	public static void setWorkerCount(int workerCount) {
+		if (INSTANCE.workers != null) {
+			INSTANCE.workers.shutdown();
+			INSTANCE.workers = null;
+		}
+
+		INSTANCE.workerCount = Math.max(workerCount, 0);
+
+		if (INSTANCE.workerCount > 0) {
+			INSTANCE.workers = Executors.newFixedThreadPool(INSTANCE.workerCount, runnable -> {
+				Thread thread = new Thread(runnable, "Ebon Animation Worker");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	@Override
+	public IModule getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public void dispose() {
+		if (templates != null) {
+			templates.clear();
+			templates = null;
+		}
+
+		if (baked != null) {
+			baked.clear();
+			baked = null;
+		}
+
+		if (bounds != null) {
+			bounds.clear();
+			bounds = null;
+		}
+
+		if (workers != null) {
+			workers.shutdownNow();
+			workers = null;
+		}
+
+		if (queued != null) {
+			queued.clear();
+			queued = null;
+		}
+
+		if (evaluating != null) {
+			evaluating.clear();
+			evaluating = null;
+		}
+	}
+}
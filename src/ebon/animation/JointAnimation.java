@@ -0,0 +1,169 @@
+package ebon.animation;
+
+import flounder.animation.*;
+
+import java.util.*;
+
+/**
+ * A animation converted into packed per joint keyframe arrays for a skeleton, so sampling a pose does not look up joints by name. This is the source {@link BakedAnimation}s are sampled from.
+ */
+public class JointAnimation {
+	private final Skeleton skeleton;
+	private final Animation animation;
+	private final float length;
+	private final float[] timeStamps;
+	private final float[] positions;
+	private final float[] rotations;
+	private final boolean[] animated;
+
+	/**
+	 * Creates a new joint animation.
+	 *
+	 * @param skeleton The skeleton the animation will be played on.
+	 * @param animation The animation to convert.
+	 */
+	public JointAnimation(Skeleton skeleton, Animation animation) {
+		KeyFrameJoints[] frames = animation.getKeyFrameJointss();
+		int jointCount = skeleton.getJointCount();
+
+		this.skeleton = skeleton;
+		this.animation = animation;
+		this.length = animation.getLength();
+		this.timeStamps = new float[frames.length];
+		this.positions = new float[frames.length * jointCount * 3];
+		this.rotations = new float[frames.length * jointCount * 4];
+		this.animated = new boolean[jointCount];
+
+		boolean[] set = new boolean[frames.length * jointCount];
+
+		for (int f = 0; f < frames.length; f++) {
+			timeStamps[f] = frames[f].getTimeStamp();
+
+			for (Map.Entry<String, JointTransform> entry : frames[f].getJointKeyFrames().entrySet()) {
+				int joint = skeleton.getIndex(entry.getKey());
+
+				if (joint == -1) {
+					continue;
+				}
+
+				int key = f * jointCount + joint;
+				positions[key * 3] = entry.getValue().getPosition().x;
+				positions[key * 3 + 1] = entry.getValue().getPosition().y;
+				positions[key * 3 + 2] = entry.getValue().getPosition().z;
+				rotations[key * 4] = entry.getValue().getRotation().x;
+				rotations[key * 4 + 1] = entry.getValue().getRotation().y;
+				rotations[key * 4 + 2] = entry.getValue().getRotation().z;
+				rotations[key * 4 + 3] = entry.getValue().getRotation().w;
+				set[key] = true;
+				animated[joint] = true;
+			}
+		}
+
+		// Joints missing from a keyframe hold the closest earlier (or later) keyframe they appear in.
+		for (int joint = 0; joint < jointCount; joint++) {
+			if (!animated[joint]) {
+				continue;
+			}
+
+			int first = 0;
+
+			while (!set[first * jointCount + joint]) {
+				first++;
+			}
+
+			for (int f = 0; f < frames.length; f++) {
+				int key = f * jointCount + joint;
+
+				if (!set[key]) {
+					int from = (f < first ? first : f - 1) * jointCount + joint;
+					System.arraycopy(positions, from * 3, positions, key * 3, 3);
+					System.arraycopy(rotations, from * 4, rotations, key * 4, 4);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Samples the position and rotation of every animated joint at a point in the animation, searching the keyframes. Joints this animation does not move are left untouched.
+	 *
+	 * @param time The animation time, between 0 and the animation length.
+	 * @param jointPositions The destination positions, 3 floats per joint index.
+	 * @param jointRotations The destination rotations, 4 floats per joint index.
+	 */
+	public void samplePose(float time, float[] jointPositions, float[] jointRotations) {
+		int jointCount = skeleton.getJointCount();
+
+		if (timeStamps.length == 0) {
+			return;
+		}
+
+		int previous = 0;
+		int next = 0;
+
+		for (int f = 1; f < timeStamps.length; f++) {
+			next = f;
+
+			if (timeStamps[f] > time) {
+				break;
+			}
+
+			previous = f;
+		}
+
+		float totalTime = timeStamps[next] - timeStamps[previous];
+		float progression = totalTime > 0.0f ? Math.min(Math.max((time - timeStamps[previous]) / totalTime, 0.0f), 1.0f) : 0.0f;
+
+		for (int joint = 0; joint < jointCount; joint++) {
+			if (!animated[joint]) {
+				continue;
+			}
+
+			int a = previous * jointCount + joint;
+			int b = next * jointCount + joint;
+
+			for (int i = 0; i < 3; i++) {
+				jointPositions[joint * 3 + i] = positions[a * 3 + i] + (positions[b * 3 + i] - positions[a * 3 + i]) * progression;
+			}
+
+			SkeletonMaths.nlerp(rotations, a * 4, b * 4, progression, jointRotations, joint * 4);
+		}
+	}
+
+	/**
+	 * Gets if a joint is moved by this animation.
+	 *
+	 * @param joint The joint index.
+	 *
+	 * @return If the joint has keyframes.
+	 */
+	public boolean isAnimated(int joint) {
+		return animated[joint];
+	}
+
+	/**
+	 * Gets the skeleton this animation was built for.
+	 *
+	 * @return The skeleton.
+	 */
+	public Skeleton getSkeleton() {
+		return skeleton;
+	}
+
+	/**
+	 * Gets the animation this was converted from.
+	 *
+	 * @return The source animation.
+	 */
+	public Animation getAnimation() {
+		return animation;
+	}
+
+	/**
+	 * Gets the length of the animation in seconds.
+	 *
+	 * @return The animation length.
+	 */
+	public float getLength() {
+		return length;
+	}
+}
@@ -0,0 +1,103 @@
+package ebon.animation;
+
+import org.lwjgl.*;
+
+import java.nio.*;
+
+/**
+ * A reusable per entity buffer of joint skinning transforms, ready to be uploaded as the jointTransforms uniform array.
+ */
+public class JointPalette {
+	private final Skeleton skeleton;
+	private final float[] localTransforms;
+	private final float[] modelTransforms;
+	private final float[] previousSkinTransforms;
+	private final float[] skinTransforms;
+	private final float[] blendedTransforms;
+	private final FloatBuffer buffer;
+
+	/**
+	 * Creates a new joint palette, initially holding the bind pose.
+	 *
+	 * @param skeleton The skeleton this palette holds transforms for.
+	 */
+	public JointPalette(Skeleton skeleton) {
+		this.skeleton = skeleton;
+		this.localTransforms = new float[skeleton.getTransformsLength()];
+		this.modelTransforms = new float[skeleton.getTransformsLength()];
+		this.previousSkinTransforms = new float[skeleton.getTransformsLength()];
+		this.skinTransforms = new float[skeleton.getTransformsLength()];
+		this.blendedTransforms = new float[skeleton.getTransformsLength()];
+		this.buffer = BufferUtils.createFloatBuffer(skeleton.getTransformsLength());
+
+		for (int i = 0; i < skeleton.getJointCount(); i++) {
+			SkeletonMaths.setIdentity(skinTransforms, i * SkeletonMaths.MATRIX_SIZE);
+		}
+
+		System.arraycopy(skinTransforms, 0, previousSkinTransforms, 0, skinTransforms.length);
+		publish(1.0f);
+	}
+
+	/**
+	 * Evaluates a pose from a animation into this palette and publishes it, discarding any pose being blended from.
+	 *
+	 * @param animation The animation to sample.
+	 * @param time The animation time to sample at.
+	 */
+	public void update(BakedAnimation animation, float time) {
+		evaluate(animation, time);
+		System.arraycopy(skinTransforms, 0, previousSkinTransforms, 0, skinTransforms.length);
+		publish(1.0f);
+	}
+
+	/**
+	 * Evaluates a pose from a animation without touching the published buffer, the last evaluated pose becomes the pose blended from. Different palettes can be evaluated on different threads at the same time.
+	 *
+	 * @param animation The animation to sample.
+	 * @param time The animation time to sample at.
+	 */
+	public void evaluate(BakedAnimation animation, float time) {
+		System.arraycopy(skinTransforms, 0, previousSkinTransforms, 0, skinTransforms.length);
+		animation.sample(time, localTransforms);
+		skeleton.concatenate(localTransforms, modelTransforms, skinTransforms);
+	}
+
+	/**
+	 * Copies a blend of the last two evaluated poses into the buffer read when rendering.
+	 *
+	 * @param blend How far to blend from the previous pose to the last evaluated pose (0 to 1).
+	 */
+	public void publish(float blend) {
+		buffer.clear();
+
+		if (blend >= 1.0f) {
+			buffer.put(skinTransforms);
+		} else {
+			for (int i = 0; i < skinTransforms.length; i++) {
+				blendedTransforms[i] = previousSkinTransforms[i] + (skinTransforms[i] - previousSkinTransforms[i]) * blend;
+			}
+
+			buffer.put(blendedTransforms);
+		}
+
+		buffer.flip();
+	}
+
+	/**
+	 * Gets the skeleton this palette holds transforms for.
+	 *
+	 * @return The skeleton.
+	 */
+	public Skeleton getSkeleton() {
+		return skeleton;
+	}
+
+	/**
+	 * Gets the buffer of skinning transforms, one column major matrix per joint ordered by joint index.
+	 *
+	 * @return The palette buffer.
+	 */
+	public FloatBuffer getBuffer() {
+		return buffer;
+	}
+}
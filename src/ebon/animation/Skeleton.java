@@ -0,0 +1,180 @@
+package ebon.animation;
+
+import flounder.animation.*;
+import flounder.maths.matrices.*;
+
+import java.util.*;
+
+/**
+ * A joint hierarchy flattened into parent indexed arrays, so poses can be evaluated linearly without walking the joint tree.
+ */
+public class Skeleton {
+	private final int jointCount;
+	private final String[] names;
+	private final int[] parents;
+	private final int[] order;
+	private final float[] localBindTransforms;
+	private final float[] inverseBindTransforms;
+	private final Map<String, Integer> indices;
+
+	/**
+	 * Creates a new skeleton by flattening a joint hierarchy.
+	 *
+	 * @param headJoint The root joint of the hierarchy.
+	 * @param jointCount The number of joints the model declares.
+	 * @param correction The transform applied above the head joint when calculating bind transforms.
+	 */
+	public Skeleton(Joint headJoint, int jointCount, Matrix4f correction) {
+		List<Joint> joints = new ArrayList<>();
+		List<Integer> jointParents = new ArrayList<>();
+		joints.add(headJoint);
+		jointParents.add(-1);
+
+		// Breadth first, so every parent is placed in the evaluation order before its children.
+		for (int i = 0; i < joints.size(); i++) {
+			for (Joint child : joints.get(i).getChildren()) {
+				joints.add(child);
+				jointParents.add(joints.get(i).getIndex());
+			}
+		}
+
+		int count = jointCount;
+
+		for (Joint joint : joints) {
+			count = Math.max(count, joint.getIndex() + 1);
+		}
+
+		this.jointCount = count;
+		this.names = new String[count];
+		this.parents = new int[count];
+		this.order = new int[joints.size()];
+		this.localBindTransforms = new float[count * SkeletonMaths.MATRIX_SIZE];
+		this.inverseBindTransforms = new float[count * SkeletonMaths.MATRIX_SIZE];
+		this.indices = new HashMap<>();
+
+		Arrays.fill(parents, -1);
+
+		for (int i = 0; i < count; i++) {
+			SkeletonMaths.setIdentity(localBindTransforms, i * SkeletonMaths.MATRIX_SIZE);
+			SkeletonMaths.setIdentity(inverseBindTransforms, i * SkeletonMaths.MATRIX_SIZE);
+		}
+
+		float[] correctionTransform = new float[SkeletonMaths.MATRIX_SIZE];
+		float[] bindTransforms = new float[count * SkeletonMaths.MATRIX_SIZE];
+		SkeletonMaths.store(correction, correctionTransform, 0);
+
+		for (int i = 0; i < joints.size(); i++) {
+			Joint joint = joints.get(i);
+			int index = joint.getIndex();
+			int parent = jointParents.get(i);
+			int offset = index * SkeletonMaths.MATRIX_SIZE;
+
+			order[i] = index;
+			names[index] = joint.getName();
+			parents[index] = parent;
+			indices.put(joint.getName(), index);
+
+			SkeletonMaths.store(joint.getLocalBindTransform(), localBindTransforms, offset);
+
+			if (parent == -1) {
+				SkeletonMaths.multiply(correctionTransform, 0, localBindTransforms, offset, bindTransforms, offset);
+			} else {
+				SkeletonMaths.multiply(bindTransforms, parent * SkeletonMaths.MATRIX_SIZE, localBindTransforms, offset, bindTransforms, offset);
+			}
+
+			SkeletonMaths.invert(bindTransforms, offset, inverseBindTransforms, offset);
+		}
+	}
+
+	/**
+	 * Concatenates local joint transforms down the hierarchy and writes the skinning transform of every joint.
+	 *
+	 * @param localTransforms The packed local transforms, indexed by joint index.
+	 * @param modelTransforms A scratch array the size of {@link #getTransformsLength()}, receives the model-space transform of each joint.
+	 * @param skinTransforms The packed destination for model-space transforms multiplied by the inverse bind transforms.
+	 */
+	public void concatenate(float[] localTransforms, float[] modelTransforms, float[] skinTransforms) {
+		for (int index : order) {
+			int offset = index * SkeletonMaths.MATRIX_SIZE;
+			int parent = parents[index];
+
+			if (parent == -1) {
+				System.arraycopy(localTransforms, offset, modelTransforms, offset, SkeletonMaths.MATRIX_SIZE);
+			} else {
+				SkeletonMaths.multiply(modelTransforms, parent * SkeletonMaths.MATRIX_SIZE, localTransforms, offset, modelTransforms, offset);
+			}
+
+			SkeletonMaths.multiply(modelTransforms, offset, inverseBindTransforms, offset, skinTransforms, offset);
+		}
+	}
+
+	/**
+	 * Gets the number of joints in this skeleton, joint indices range from 0 to this value.
+	 *
+	 * @return The number of joints.
+	 */
+	public int getJointCount() {
+		return jointCount;
+	}
+
+	/**
+	 * Gets the length of a packed array holding one matrix per joint.
+	 *
+	 * @return The packed transforms length.
+	 */
+	public int getTransformsLength() {
+		return jointCount * SkeletonMaths.MATRIX_SIZE;
+	}
+
+	/**
+	 * Gets the index of a joint from its name.
+	 *
+	 * @param name The joint name.
+	 *
+	 * @return The joint index, or -1 if there is no joint with that name.
+	 */
+	public int getIndex(String name) {
+		Integer index = indices.get(name);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Gets the name of a joint.
+	 *
+	 * @param index The joint index.
+	 *
+	 * @return The joint name, or null if the index is unused.
+	 */
+	public String getName(int index) {
+		return names[index];
+	}
+
+	/**
+	 * Gets the parent of a joint.
+	 *
+	 * @param index The joint index.
+	 *
+	 * @return The parent joint index, or -1 for the head joint.
+	 */
+	public int getParent(int index) {
+		return parents[index];
+	}
+
+	/**
+	 * Gets the joint indices in evaluation order, every parent comes before its children.
+	 *
+	 * @return The evaluation order.
+	 */
+	public int[] getOrder() {
+		return order;
+	}
+
+	/**
+	 * Gets the packed local bind transforms, indexed by joint index.
+	 *
+	 * @return The local bind transforms.
+	 */
+	public float[] getLocalBindTransforms() {
+		return localBindTransforms;
+	}
+}
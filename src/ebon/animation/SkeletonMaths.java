@@ -0,0 +1,241 @@
+package ebon.animation;
+
+import flounder.maths.matrices.*;
+
+/**
+ * Allocation free matrix and quaternion maths used when evaluating joint poses.
+ * <p>
+ * Matrices are stored as 16 floats in column major order (the same order {@link Matrix4f#toArray(Matrix4f)} uses, and what OpenGL expects), at a offset into a larger array.
+ */
+public class SkeletonMaths {
+	/**
+	 * The number of floats used to store one matrix.
+	 */
+	public static final int MATRIX_SIZE = 16;
+
+	/**
+	 * Copies a matrix into a packed array.
+	 *
+	 * @param source The matrix to copy from.
+	 * @param destination The array to copy into.
+	 * @param offset The offset to write the matrix at.
+	 */
+	public static void store(Matrix4f source, float[] destination, int offset) {
+		destination[offset] = source.m00;
+		destination[offset + 1] = source.m01;
+		destination[offset + 2] = source.m02;
+		destination[offset + 3] = source.m03;
+		destination[offset + 4] = source.m10;
+		destination[offset + 5] = source.m11;
+		destination[offset + 6] = source.m12;
+		destination[offset + 7] = source.m13;
+		destination[offset + 8] = source.m20;
+		destination[offset + 9] = source.m21;
+		destination[offset + 10] = source.m22;
+		destination[offset + 11] = source.m23;
+		destination[offset + 12] = source.m30;
+		destination[offset + 13] = source.m31;
+		destination[offset + 14] = source.m32;
+		destination[offset + 15] = source.m33;
+	}
+
+	/**
+	 * Sets a packed matrix to the identity matrix.
+	 *
+	 * @param destination The array to write into.
+	 * @param offset The offset of the matrix.
+	 */
+	public static void setIdentity(float[] destination, int offset) {
+		for (int i = 0; i < MATRIX_SIZE; i++) {
+			destination[offset + i] = (i % 5 == 0) ? 1.0f : 0.0f;
+		}
+	}
+
+	/**
+	 * Multiplies two packed matrices, destination = left * right. The destination must not overlap either source.
+	 *
+	 * @param left The left matrix array.
+	 * @param leftOffset The left matrix offset.
+	 * @param right The right matrix array.
+	 * @param rightOffset The right matrix offset.
+	 * @param destination The destination array.
+	 * @param offset The destination offset.
+	 */
+	public static void multiply(float[] left, int leftOffset, float[] right, int rightOffset, float[] destination, int offset) {
+		for (int column = 0; column < 4; column++) {
+			float r0 = right[rightOffset + column * 4];
+			float r1 = right[rightOffset + column * 4 + 1];
+			float r2 = right[rightOffset + column * 4 + 2];
+			float r3 = right[rightOffset + column * 4 + 3];
+
+			for (int row = 0; row < 4; row++) {
+				destination[offset + column * 4 + row] = left[leftOffset + row] * r0 + left[leftOffset + 4 + row] * r1 + left[leftOffset + 8 + row] * r2 + left[leftOffset + 12 + row] * r3;
+			}
+		}
+	}
+
+	/**
+	 * Inverts a packed matrix. The destination must not overlap the source.
+	 *
+	 * @param source The source array.
+	 * @param sourceOffset The source matrix offset.
+	 * @param destination The destination array.
+	 * @param offset The destination offset.
+	 *
+	 * @return If the matrix could be inverted, if false the destination is unchanged.
+	 */
+	public static boolean invert(float[] source, int sourceOffset, float[] destination, int offset) {
+		float a00 = source[sourceOffset], a01 = source[sourceOffset + 1], a02 = source[sourceOffset + 2], a03 = source[sourceOffset + 3];
+		float a10 = source[sourceOffset + 4], a11 = source[sourceOffset + 5], a12 = source[sourceOffset + 6], a13 = source[sourceOffset + 7];
+		float a20 = source[sourceOffset + 8], a21 = source[sourceOffset + 9], a22 = source[sourceOffset + 10], a23 = source[sourceOffset + 11];
+		float a30 = source[sourceOffset + 12], a31 = source[sourceOffset + 13], a32 = source[sourceOffset + 14], a33 = source[sourceOffset + 15];
+
+		float b00 = a00 * a11 - a01 * a10;
+		float b01 = a00 * a12 - a02 * a10;
+		float b02 = a00 * a13 - a03 * a10;
+		float b03 = a01 * a12 - a02 * a11;
+		float b04 = a01 * a13 - a03 * a11;
+		float b05 = a02 * a13 - a03 * a12;
+		float b06 = a20 * a31 - a21 * a30;
+		float b07 = a20 * a32 - a22 * a30;
+		float b08 = a20 * a33 - a23 * a30;
+		float b09 = a21 * a32 - a22 * a31;
+		float b10 = a21 * a33 - a23 * a31;
+		float b11 = a22 * a33 - a23 * a32;
+
+		float determinant = b00 * b11 - b01 * b10 + b02 * b09 + b03 * b08 - b04 * b07 + b05 * b06;
+
+		if (determinant == 0.0f) {
+			return false;
+		}
+
+		float inverse = 1.0f / determinant;
+		destination[offset] = (a11 * b11 - a12 * b10 + a13 * b09) * inverse;
+		destination[offset + 1] = (a02 * b10 - a01 * b11 - a03 * b09) * inverse;
+		destination[offset + 2] = (a31 * b05 - a32 * b04 + a33 * b03) * inverse;
+		destination[offset + 3] = (a22 * b04 - a21 * b05 - a23 * b03) * inverse;
+		destination[offset + 4] = (a12 * b08 - a10 * b11 - a13 * b07) * inverse;
+		destination[offset + 5] = (a00 * b11 - a02 * b08 + a03 * b07) * inverse;
+		destination[offset + 6] = (a32 * b02 - a30 * b05 - a33 * b01) * inverse;
+		destination[offset + 7] = (a20 * b05 - a22 * b02 + a23 * b01) * inverse;
+		destination[offset + 8] = (a10 * b10 - a11 * b08 + a13 * b06) * inverse;
+		destination[offset + 9] = (a01 * b08 - a00 * b10 - a03 * b06) * inverse;
+		destination[offset + 10] = (a30 * b04 - a31 * b02 + a33 * b00) * inverse;
+		destination[offset + 11] = (a21 * b02 - a20 * b04 - a23 * b00) * inverse;
+		destination[offset + 12] = (a11 * b07 - a10 * b09 - a12 * b06) * inverse;
+		destination[offset + 13] = (a00 * b09 - a01 * b07 + a02 * b06) * inverse;
+		destination[offset + 14] = (a31 * b01 - a30 * b03 - a32 * b00) * inverse;
+		destination[offset + 15] = (a20 * b03 - a21 * b01 + a22 * b00) * inverse;
+		return true;
+	}
+
+	/**
+	 * Builds a packed local joint transform from a position and a rotation, the same as translating by the position and then rotating.
+	 *
+	 * @param px The position x.
+	 * @param py The position y.
+	 * @param pz The position z.
+	 * @param qx The rotation x.
+	 * @param qy The rotation y.
+	 * @param qz The rotation z.
+	 * @param qw The rotation w.
+	 * @param destination The destination array.
+	 * @param offset The destination offset.
+	 */
+	public static void fromPositionRotation(float px, float py, float pz, float qx, float qy, float qz, float qw, float[] destination, int offset) {
+		float xx = qx * qx;
+		float yy = qy * qy;
+		float zz = qz * qz;
+		float xy = qx * qy;
+		float xz = qx * qz;
+		float yz = qy * qz;
+		float xw = qx * qw;
+		float yw = qy * qw;
+		float zw = qz * qw;
+
+		destination[offset] = 1.0f - 2.0f * (yy + zz);
+		destination[offset + 1] = 2.0f * (xy + zw);
+		destination[offset + 2] = 2.0f * (xz - yw);
+		destination[offset + 3] = 0.0f;
+		destination[offset + 4] = 2.0f * (xy - zw);
+		destination[offset + 5] = 1.0f - 2.0f * (xx + zz);
+		destination[offset + 6] = 2.0f * (yz + xw);
+		destination[offset + 7] = 0.0f;
+		destination[offset + 8] = 2.0f * (xz + yw);
+		destination[offset + 9] = 2.0f * (yz - xw);
+		destination[offset + 10] = 1.0f - 2.0f * (xx + yy);
+		destination[offset + 11] = 0.0f;
+		destination[offset + 12] = px;
+		destination[offset + 13] = py;
+		destination[offset + 14] = pz;
+		destination[offset + 15] = 1.0f;
+	}
+
+	/**
+	 * Interpolates between two position/rotation pairs and builds a packed local joint transform from the result. Positions are linearly interpolated, rotations are normalised linearly interpolated along the shortest path.
+	 *
+	 * @param positions The packed positions array, 3 floats per entry.
+	 * @param positionA The offset of the first position.
+	 * @param positionB The offset of the second position.
+	 * @param rotations The packed rotations array, 4 floats per entry.
+	 * @param rotationA The offset of the first rotation.
+	 * @param rotationB The offset of the second rotation.
+	 * @param progression How far between A and B to interpolate (0 to 1).
+	 * @param destination The destination array.
+	 * @param offset The destination offset.
+	 */
+	public static void interpolate(float[] positions, int positionA, int positionB, float[] rotations, int rotationA, int rotationB, float progression, float[] destination, int offset) {
+		float px = positions[positionA] + (positions[positionB] - positions[positionA]) * progression;
+		float py = positions[positionA + 1] + (positions[positionB + 1] - positions[positionA + 1]) * progression;
+		float pz = positions[positionA + 2] + (positions[positionB + 2] - positions[positionA + 2]) * progression;
+
+		// The rotation is staged in the destinations first column, which is overwritten when the matrix is built.
+		nlerp(rotations, rotationA, rotationB, progression, destination, offset);
+		float qx = destination[offset];
+		float qy = destination[offset + 1];
+		float qz = destination[offset + 2];
+		float qw = destination[offset + 3];
+
+		fromPositionRotation(px, py, pz, qx, qy, qz, qw, destination, offset);
+	}
+
+	/**
+	 * Normalised linear interpolation between two rotations, along the shortest path.
+	 *
+	 * @param rotations The packed rotations array, 4 floats per entry.
+	 * @param rotationA The offset of the first rotation.
+	 * @param rotationB The offset of the second rotation.
+	 * @param progression How far between A and B to interpolate (0 to 1).
+	 * @param destination The destination array, receives x, y, z, w.
+	 * @param offset The destination offset.
+	 */
+	public static void nlerp(float[] rotations, int rotationA, int rotationB, float progression, float[] destination, int offset) {
+		float ax = rotations[rotationA], ay = rotations[rotationA + 1], az = rotations[rotationA + 2], aw = rotations[rotationA + 3];
+		float bx = rotations[rotationB], by = rotations[rotationB + 1], bz = rotations[rotationB + 2], bw = rotations[rotationB + 3];
+
+		if (ax * bx + ay * by + az * bz + aw * bw < 0.0f) {
+			bx = -bx;
+			by = -by;
+			bz = -bz;
+			bw = -bw;
+		}
+
+		float qx = ax + (bx - ax) * progression;
+		float qy = ay + (by - ay) * progression;
+		float qz = az + (bz - az) * progression;
+		float qw = aw + (bw - aw) * progression;
+		float length = (float) Math.sqrt(qx * qx + qy * qy + qz * qz + qw * qw);
+
+		if (length > 0.0f) {
+			qx /= length;
+			qy /= length;
+			qz /= length;
+			qw /= length;
+		}
+
+		destination[offset] = qx;
+		destination[offset + 1] = qy;
+		destination[offset + 2] = qz;
+		destination[offset + 3] = qw;
+	}
+}
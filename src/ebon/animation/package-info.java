@@ -0,0 +1,4 @@
+/**
+ * Contains classes for evaluating skeletal animation poses for animated entities.
+ */
+package ebon.animation;
\ No newline at end of file
@@ -0,0 +1,226 @@
+package ebon.batching;
+
+import ebon.entities.components.*;
+import flounder.entities.*;
+import flounder.framework.*;
+import flounder.logger.*;
+import flounder.profiling.*;
+import flounder.textures.*;
+
+import java.util.*;
+
+/**
+ * A manager that merges static entity models into batches per spatial cell and texture, rebuilding only the cells whose members changed.
+ */
+public class EbonBatches extends IModule {
+	private static final EbonBatches INSTANCE = new EbonBatches();
+	public static final String PROFILE_TAB_NAME = "Ebon Batches";
+
+	/**
+	 * The size of the spatial cells static models are grouped into.
+	 */
+	public static final float CELL_SIZE = 64.0f;
+
+	private Map<String, StaticBatch> batches;
+	private Map<ComponentModel, StaticBatch> batched;
+	private Set<ComponentModel> seen;
+	private List<Entity> entities;
+	private boolean enabled;
+
+	private double rebuildTime;
+	private int rebuilt;
+	private long bytes;
+
+	/**
+	 * Creates a new static batch manager.
+	 */
+	public EbonBatches() {
+		super(ModuleUpdate.UPDATE_POST, PROFILE_TAB_NAME, FlounderLogger.class, FlounderProfiler.class, FlounderEntities.class);
+	}
+
+	@Override
+	public void init() {
+		this.batches = new HashMap<>();
+		this.batched = new HashMap<>();
+		this.seen = new HashSet<>();
+		this.entities = new ArrayList<>();
+		this.enabled = true;
+	}
+
+	@Override
+	public void update() {
+		if (FlounderEntities.getEntities() == null) {
+			return;
+		}
+
+		long start = System.nanoTime();
+		seen.clear();
+
+		if (enabled) {
+			for (Entity entity : FlounderEntities.getEntities().getAll(entities)) {
+				ComponentModel componentModel = (ComponentModel) entity.getComponent(ComponentModel.ID);
+
+				// Fading models are drawn on their own so they can be blended.
+				if (componentModel == null || !componentModel.isStatic() || componentModel.getTransparency() != 1.0f || entity.isRemoved() ||
+						componentModel.getModel() == null || componentModel.getModel().getMeshData() == null) {
+					continue;
+				}
+
+				seen.add(componentModel);
+				String key = getKey(entity, componentModel);
+				StaticBatch current = batched.get(componentModel);
+
+				if (current != null && current.getKey().equals(key)) {
+					if (entity.hasMoved()) {
+						current.markDirty();
+					}
+
+					continue;
+				}
+
+				if (current != null) {
+					current.remove(componentModel);
+				}
+
+				StaticBatch batch = batches.get(key);
+
+				if (batch == null) {
+					batch = new StaticBatch(key, componentModel.getTexture(), componentModel.getNormalMap());
+					batches.put(key, batch);
+				}
+
+				batch.add(componentModel);
+				batched.put(componentModel, batch);
+			}
+
+			entities.clear();
+		}
+
+		// Entities that were removed or are no longer static leave their batch.
+		Iterator<Map.Entry<ComponentModel, StaticBatch>> iterator = batched.entrySet().iterator();
+
+		while (iterator.hasNext()) {
+			Map.Entry<ComponentModel, StaticBatch> entry = iterator.next();
+
+			if (!seen.contains(entry.getKey())) {
+				entry.getValue().remove(entry.getKey());
+				iterator.remove();
+			}
+		}
+
+		rebuilt = 0;
+		bytes = 0;
+		Iterator<StaticBatch> batchIterator = batches.values().iterator();
+
+		while (batchIterator.hasNext()) {
+			StaticBatch batch = batchIterator.next();
+
+			if (batch.isDirty()) {
+				batch.rebuild();
+				rebuilt++;
+			}
+
+			if (batch.getMembers().isEmpty()) {
+				batch.delete();
+				batchIterator.remove();
+				continue;
+			}
+
+			bytes += batch.getBytes();
+		}
+
+		if (rebuilt > 0) {
+			rebuildTime = (System.nanoTime() - start) / 1000000.0;
+		}
+	}
+
+	private static String getKey(Entity entity, ComponentModel componentModel) {
+		int cellX = (int) Math.floor(entity.getPosition().x / CELL_SIZE);
+		int cellY = (int) Math.floor(entity.getPosition().y / CELL_SIZE);
+		int cellZ = (int) Math.floor(entity.getPosition().z / CELL_SIZE);
+		return "static_" + cellX + "_" + cellY + "_" + cellZ + "_" + getTextureKey(componentModel.getTexture()) + "_" + getTextureKey(componentModel.getNormalMap());
+	}
+
+	private static String getTextureKey(Texture texture) {
+		return texture == null || texture.getFile() == null ? "null" : texture.getFile().getPath();
+	}
+
+	@Override
+	public void profile() {
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Enabled", enabled);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Batches", batches.size());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Batched Entities", batched.size());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Rebuilt", rebuilt);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Rebuild Time", rebuildTime);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Memory (MB)", bytes / (1024.0 * 1024.0));
+	}
+
+	/**
+	 * Gets the current static batches.
+	 *
+	 * @return The static batches.
+	 */
+	public static Collection<StaticBatch> getBatches() {
+		if (INSTANCE.batches == null) {
+			return Collections.emptyList();
+		}
+
+		return INSTANCE.batches.values();
+	}
+
+	/**
+	 * Gets if a entity is drawn as part of a static batch, and should not be drawn on its own. Entities are drawn on their own until their batch has finished loading.
+	 *
+	 * @param entity The entity to check.
+	 *
+	 * @return If the entity is batched.
+	 */
+	public static boolean isBatched(Entity entity) {
+		if (INSTANCE.batched == null) {
+			return false;
+		}
+
+		StaticBatch batch = INSTANCE.batched.get(entity.getComponent(ComponentModel.ID));
+		return batch != null && batch.getModel() != null && batch.getModel().isLoaded();
+	}
+
+	/**
+	 * Gets if static batching is enabled.
+	 *
+	 * @return If static batching is enabled.
+	 */
+	public static boolean isEnabled() {
+		return INSTANCE.enabled;
+	}
+
+	/**
+	 * Sets if static batching is enabled, when disabled every batch is removed and entities are drawn on their own.
+	 *
+	 * @param enabled If static batching is enabled.
+	 */
+	public static void setEnabled(boolean enabled) {
+		INSTANCE.enabled = enabled;
+	}
+
+	@Override
+	public IModule getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public void dispose() {
+		if (batches != null) {
+			for (StaticBatch batch : batches.values()) {
+				batch.delete();
+			}
+
+			batches.clear();
+			batches = null;
+		}
+
+		if (batched != null) {
+			batched.clear();
+			batched = null;
+		}
+	}
+}
@@ -0,0 +1,301 @@
+package ebon.batching;
+
+import ebon.animation.*;
+import ebon.entities.components.*;
+import flounder.materials.*;
+import flounder.maths.vectors.*;
+import flounder.models.*;
+import flounder.physics.*;
+import flounder.textures.*;
+
+import java.util.*;
+
+/**
+ * The static models in one spatial cell that share a texture and normal map, merged into a single model pre-transformed into world space so they can be drawn at once.
+ */
+public class StaticBatch {
+	private final String key;
+	private final Texture texture;
+	private final Texture normalMap;
+	private final List<ComponentModel> members;
+	private final float[] bounds;
+
+	private Model model;
+	private long bytes;
+	private int revision;
+	private boolean dirty;
+
+	/**
+	 * Creates a new static batch.
+	 *
+	 * @param key The unique key of the batch, made from its cell and textures.
+	 * @param texture The diffuse texture shared by every member, can be null.
+	 * @param normalMap The normal map shared by every member, can be null.
+	 */
+	public StaticBatch(String key, Texture texture, Texture normalMap) {
+		this.key = key;
+		this.texture = texture;
+		this.normalMap = normalMap;
+		this.members = new ArrayList<>();
+		this.bounds = new float[6];
+		this.model = null;
+		this.bytes = 0;
+		this.revision = 0;
+		this.dirty = false;
+	}
+
+	/**
+	 * Adds a model to this batch, the batch is merged again when it is next rebuilt.
+	 *
+	 * @param member The model to add.
+	 */
+	public void add(ComponentModel member) {
+		members.add(member);
+		dirty = true;
+	}
+
+	/**
+	 * Removes a model from this batch, the batch is merged again when it is next rebuilt.
+	 *
+	 * @param member The model to remove.
+	 */
+	public void remove(ComponentModel member) {
+		members.remove(member);
+		dirty = true;
+	}
+
+	/**
+	 * Marks this batch to be merged again, used when a member has moved.
+	 */
+	public void markDirty() {
+		dirty = true;
+	}
+
+	/**
+	 * Merges every member into a new model, deleting the old one.
+	 */
+	public void rebuild() {
+		dirty = false;
+		delete();
+
+		if (members.isEmpty()) {
+			return;
+		}
+
+		int vertexCount = 0;
+		int indexCount = 0;
+
+		for (ComponentModel member : members) {
+			vertexCount += member.getModel().getMeshData().getVertices().length / 3;
+			indexCount += member.getModel().getMeshData().getIndices().length;
+		}
+
+		float[] vertices = new float[vertexCount * 3];
+		float[] textureCoords = new float[vertexCount * 2];
+		float[] normals = new float[vertexCount * 3];
+		float[] tangents = new float[vertexCount * 3];
+		int[] indices = new int[indexCount];
+		float[] matrix = new float[SkeletonMaths.MATRIX_SIZE];
+		int vertexOffset = 0;
+		int indexOffset = 0;
+
+		bounds[0] = bounds[1] = bounds[2] = Float.POSITIVE_INFINITY;
+		bounds[3] = bounds[4] = bounds[5] = Float.NEGATIVE_INFINITY;
+
+		for (ComponentModel member : members) {
+			MeshData meshData = member.getModel().getMeshData();
+			int memberVertices = meshData.getVertices().length / 3;
+			SkeletonMaths.store(member.getModelMatrix(), matrix, 0);
+
+			for (int v = 0; v < memberVertices; v++) {
+				int destination = vertexOffset + v;
+				transform(matrix, meshData.getVertices(), v, 1.0f, vertices, destination, false);
+				transform(matrix, meshData.getNormals(), v, 0.0f, normals, destination, true);
+				transform(matrix, meshData.getTangents(), v, 0.0f, tangents, destination, true);
+
+				for (int i = 0; i < 3; i++) {
+					bounds[i] = Math.min(bounds[i], vertices[destination * 3 + i]);
+					bounds[i + 3] = Math.max(bounds[i + 3], vertices[destination * 3 + i]);
+				}
+
+				// The members atlas cell and texture transform are baked in, so the batch is drawn with a single row and no offset.
+				if (meshData.getTextures() != null && meshData.getTextures().length >= memberVertices * 2) {
+					float rows = member.getTexture() == null ? 1.0f : member.getTexture().getNumberOfRows();
+					float offsetX = member.getTexture() == null ? 0.0f : member.getTextureOffset().x;
+					float offsetY = member.getTexture() == null ? 0.0f : member.getTextureOffset().y;
+					Vector4f transform = member.getTextureTransform();
+					textureCoords[destination * 2] = (meshData.getTextures()[v * 2] / rows + offsetX) * transform.x + transform.z;
+					textureCoords[destination * 2 + 1] = (meshData.getTextures()[v * 2 + 1] / rows + offsetY) * transform.y + transform.w;
+				}
+			}
+
+			for (int index : meshData.getIndices()) {
+				indices[indexOffset++] = index + vertexOffset;
+			}
+
+			vertexOffset += memberVertices;
+		}
+
+		this.bytes = (vertices.length + textureCoords.length + normals.length + tangents.length + indices.length) * 4L;
+		this.revision++;
+
+		String name = key + "#" + revision;
+		this.model = Model.newModel(new ModelBuilder.LoadManual() {
+			@Override
+			public String getModelName() {
+				return name;
+			}
+
+			@Override
+			public float[] getVertices() {
+				return vertices;
+			}
+
+			@Override
+			public float[] getTextureCoords() {
+				return textureCoords;
+			}
+
+			@Override
+			public float[] getNormals() {
+				return normals;
+			}
+
+			@Override
+			public float[] getTangents() {
+				return tangents;
+			}
+
+			@Override
+			public int[] getIndices() {
+				return indices;
+			}
+
+			@Override
+			public Material[] getMaterials() {
+				return new Material[]{};
+			}
+
+			@Override
+			public AABB getAABB() {
+				return null;
+			}
+
+			@Override
+			public QuickHull getHull() {
+				return null;
+			}
+		}).create();
+	}
+
+	private static void transform(float[] matrix, float[] source, int vertex, float w, float[] destination, int destinationVertex, boolean normalize) {
+		if (source == null || source.length < (vertex + 1) * 3) {
+			return;
+		}
+
+		float x = source[vertex * 3];
+		float y = source[vertex * 3 + 1];
+		float z = source[vertex * 3 + 2];
+		float rx = matrix[0] * x + matrix[4] * y + matrix[8] * z + matrix[12] * w;
+		float ry = matrix[1] * x + matrix[5] * y + matrix[9] * z + matrix[13] * w;
+		float rz = matrix[2] * x + matrix[6] * y + matrix[10] * z + matrix[14] * w;
+
+		if (normalize) {
+			float length = (float) Math.sqrt(rx * rx + ry * ry + rz * rz);
+
+			if (length > 0.0f) {
+				rx /= length;
+				ry /= length;
+				rz /= length;
+			}
+		}
+
+		destination[destinationVertex * 3] = rx;
+		destination[destinationVertex * 3 + 1] = ry;
+		destination[destinationVertex * 3 + 2] = rz;
+	}
+
+	/**
+	 * Deletes the merged model.
+	 */
+	public void delete() {
+		if (model != null) {
+			model.delete();
+			model = null;
+		}
+
+		bytes = 0;
+	}
+
+	/**
+	 * Gets the unique key of this batch.
+	 *
+	 * @return The batch key.
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * Gets the diffuse texture shared by every member.
+	 *
+	 * @return The diffuse texture, can be null.
+	 */
+	public Texture getTexture() {
+		return texture;
+	}
+
+	/**
+	 * Gets the normal map shared by every member.
+	 *
+	 * @return The normal map, can be null.
+	 */
+	public Texture getNormalMap() {
+		return normalMap;
+	}
+
+	/**
+	 * Gets the models merged into this batch.
+	 *
+	 * @return The batch members.
+	 */
+	public List<ComponentModel> getMembers() {
+		return members;
+	}
+
+	/**
+	 * Gets the merged model.
+	 *
+	 * @return The merged model, or null if the batch is empty.
+	 */
+	public Model getModel() {
+		return model;
+	}
+
+	/**
+	 * Gets the world space bounds of the merged model, as min x, y, z then max x, y, z.
+	 *
+	 * @return The batch bounds.
+	 */
+	public float[] getBounds() {
+		return bounds;
+	}
+
+	/**
+	 * Gets the number of bytes of mesh data uploaded for the merged model.
+	 *
+	 * @return The size in bytes.
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Gets if this batch has to be merged again.
+	 *
+	 * @return If the batch is dirty.
+	 */
+	public boolean isDirty() {
+		return dirty;
+	}
+}
@@ -0,0 +1,326 @@
+package ebon.culling;
+
+import ebon.animation.*;
+import ebon.entities.components.*;
+import flounder.camera.*;
+import flounder.entities.*;
+import flounder.framework.*;
+import flounder.logger.*;
+import flounder.profiling.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A manager that rasterizes the largest occluder meshes on screen into a small software depth buffer each update, so entities hidden behind them can be skipped before they are submitted for rendering.
+ */
+public class EbonOcclusion extends IModule {
+	private static final EbonOcclusion INSTANCE = new EbonOcclusion();
+	public static final String PROFILE_TAB_NAME = "Ebon Occlusion";
+
+	/**
+	 * The width of the occlusion depth buffer.
+	 */
+	public static final int BUFFER_WIDTH = 256;
+
+	/**
+	 * The height of the occlusion depth buffer.
+	 */
+	public static final int BUFFER_HEIGHT = 128;
+
+	private static final Comparator<ComponentModel> SORT_SCREEN_SIZE = (ComponentModel a, ComponentModel b) -> Float.compare(b.getScreenSize(FlounderCamera.getCamera()), a.getScreenSize(FlounderCamera.getCamera()));
+
+	private OcclusionBuffer buffer;
+	private float[] projection;
+	private float[] view;
+	private float[] viewProjection;
+	private float[] modelMatrix;
+	private float[] modelViewProjection;
+	private List<Entity> entities;
+	private List<ComponentModel> occluders;
+	private List<float[]> clipVertices;
+	private ExecutorService workers;
+	private int workerCount;
+	private int maxOccluders;
+	private boolean enabled;
+	private boolean ready;
+
+	private double rasterizeTime;
+	private int occluderCount;
+	private int triangles;
+	private int tested;
+	private int culled;
+
+	/**
+	 * Creates a new occlusion manager.
+	 */
+	public EbonOcclusion() {
+		super(ModuleUpdate.UPDATE_POST, PROFILE_TAB_NAME, FlounderLogger.class, FlounderProfiler.class, FlounderCamera.class, FlounderEntities.class);
+	}
+
+	@Override
+	public void init() {
+		this.buffer = new OcclusionBuffer(BUFFER_WIDTH, BUFFER_HEIGHT);
+		this.projection = new float[SkeletonMaths.MATRIX_SIZE];
+		this.view = new float[SkeletonMaths.MATRIX_SIZE];
+		this.viewProjection = new float[SkeletonMaths.MATRIX_SIZE];
+		this.modelMatrix = new float[SkeletonMaths.MATRIX_SIZE];
+		this.modelViewProjection = new float[SkeletonMaths.MATRIX_SIZE];
+		this.entities = new ArrayList<>();
+		this.occluders = new ArrayList<>();
+		this.clipVertices = new ArrayList<>();
+		this.maxOccluders = 32;
+		this.enabled = true;
+		this.ready = false;
+		setWorkerCount(Math.max(Math.min(Runtime.getRuntime().availableProcessors() - 1, 4), 0));
+	}
+
+	@Override
+	public void update() {
+		long start = System.nanoTime();
+		ICamera camera = FlounderCamera.getCamera();
+		ready = false;
+		tested = 0;
+		culled = 0;
+
+		if (!enabled || camera == null || camera.getPosition() == null || FlounderEntities.getEntities() == null) {
+			return;
+		}
+
+		SkeletonMaths.store(camera.getProjectionMatrix(), projection, 0);
+		SkeletonMaths.store(camera.getViewMatrix(), view, 0);
+		SkeletonMaths.multiply(projection, 0, view, 0, viewProjection, 0);
+
+		// Only the occluders covering the most of the screen are drawn.
+		occluders.clear();
+
+		for (Entity entity : FlounderEntities.getEntities().getAll(entities)) {
+			ComponentModel componentModel = (ComponentModel) entity.getComponent(ComponentModel.ID);
+
+			if (componentModel != null && componentModel.isOccluder()) {
+				occluders.add(componentModel);
+			}
+		}
+
+		entities.clear();
+		occluders.sort(SORT_SCREEN_SIZE);
+		occluderCount = Math.min(occluders.size(), maxOccluders);
+		triangles = 0;
+
+		for (int i = 0; i < occluderCount; i++) {
+			ComponentModel occluder = occluders.get(i);
+			float[] vertices = occluder.getOccluderVertices();
+
+			if (clipVertices.size() <= i) {
+				clipVertices.add(new float[0]);
+			}
+
+			if (clipVertices.get(i).length < vertices.length / 3 * 4) {
+				clipVertices.set(i, new float[vertices.length / 3 * 4]);
+			}
+
+			SkeletonMaths.store(occluder.getModelMatrix(), modelMatrix, 0);
+			SkeletonMaths.multiply(viewProjection, 0, modelMatrix, 0, modelViewProjection, 0);
+			transform(modelViewProjection, vertices, clipVertices.get(i));
+			triangles += occluder.getOccluderIndices().length / 3;
+		}
+
+		// Each thread clears and rasterizes its own band of rows, so no two threads write the same texels.
+		int bands = workerCount + 1;
+		int bandHeight = (BUFFER_HEIGHT + bands - 1) / bands;
+
+		if (bands == 1) {
+			rasterize(0, BUFFER_HEIGHT);
+		} else {
+			CountDownLatch barrier = new CountDownLatch(bands - 1);
+
+			for (int i = 1; i < bands; i++) {
+				int minY = Math.min(i * bandHeight, BUFFER_HEIGHT);
+				int maxY = Math.min(minY + bandHeight, BUFFER_HEIGHT);
+
+				workers.execute(() -> {
+					try {
+						rasterize(minY, maxY);
+					} finally {
+						barrier.countDown();
+					}
+				});
+			}
+
+			rasterize(0, Math.min(bandHeight, BUFFER_HEIGHT));
+
+			try {
+				barrier.await();
+			} catch (InterruptedException e) {
+				FlounderLogger.exception(e);
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+
+		buffer.buildPyramid();
+		ready = occluderCount > 0;
+		rasterizeTime = (System.nanoTime() - start) / 1000000.0;
+	}
+
+	private void rasterize(int minY, int maxY) {
+		buffer.clear(minY, maxY);
+
+		for (int i = 0; i < occluderCount; i++) {
+			buffer.rasterize(clipVertices.get(i), occluders.get(i).getOccluderIndices(), minY, maxY);
+		}
+	}
+
+	private static void transform(float[] matrix, float[] vertices, float[] destination) {
+		for (int v = 0; v < vertices.length / 3; v++) {
+			float x = vertices[v * 3];
+			float y = vertices[v * 3 + 1];
+			float z = vertices[v * 3 + 2];
+
+			for (int row = 0; row < 4; row++) {
+				destination[v * 4 + row] = matrix[row] * x + matrix[4 + row] * y + matrix[8 + row] * z + matrix[12 + row];
+			}
+		}
+	}
+
+	@Override
+	public void profile() {
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Enabled", enabled);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Workers", workerCount);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Occluders", occluderCount);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Occluder Triangles", triangles);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Tested", tested);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Culled", culled);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Rasterize Time", rasterizeTime);
+	}
+
+	/**
+	 * Tests if a entity is hidden behind this updates occluders, using a box around its models bounding sphere. Occluders never hide themselves.
+	 *
+	 * @param entity The entity to test.
+	 *
+	 * @return If the entity is hidden and does not need to be rendered.
+	 */
+	public static boolean isOccluded(Entity entity) {
+		ComponentModel componentModel = (ComponentModel) entity.getComponent(ComponentModel.ID);
+
+		if (componentModel == null || componentModel.isOccluder()) {
+			return false;
+		}
+
+		float radius = componentModel.getRadius() * componentModel.getScale();
+
+		if (radius <= 0.0f) {
+			return false;
+		}
+
+		return isOccluded(
+				entity.getPosition().x - radius, entity.getPosition().y - radius, entity.getPosition().z - radius,
+				entity.getPosition().x + radius, entity.getPosition().y + radius, entity.getPosition().z + radius
+		);
+	}
+
+	/**
+	 * Tests if a world space bounding box is hidden behind this updates occluders.
+	 *
+	 * @param minX The boxes minimum x.
+	 * @param minY The boxes minimum y.
+	 * @param minZ The boxes minimum z.
+	 * @param maxX The boxes maximum x.
+	 * @param maxY The boxes maximum y.
+	 * @param maxZ The boxes maximum z.
+	 *
+	 * @return If the box is hidden, false if occlusion culling is disabled or there are no occluders.
+	 */
+	public static boolean isOccluded(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		if (!INSTANCE.ready) {
+			return false;
+		}
+
+		INSTANCE.tested++;
+
+		if (INSTANCE.buffer.isOccluded(INSTANCE.viewProjection, minX, minY, minZ, maxX, maxY, maxZ)) {
+			INSTANCE.culled++;
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Gets if occlusion culling is enabled.
+	 *
+	 * @return If occlusion culling is enabled.
+	 */
+	public static boolean isEnabled() {
+		return INSTANCE.enabled;
+	}
+
+	/**
+	 * Sets if occlusion culling is enabled.
+	 *
+	 * @param enabled If occlusion culling is enabled.
+	 */
+	public static void setEnabled(boolean enabled) {
+		INSTANCE.enabled = enabled;
+	}
+
+	/**
+	 * Gets the most occluders drawn each update.
+	 *
+	 * @return The most occluders.
+	 */
+	public static int getMaxOccluders() {
+		return INSTANCE.maxOccluders;
+	}
+
+	/**
+	 * Sets the most occluders drawn each update, the occluders covering the most of the screen are drawn first.
+	 *
+	 * @param maxOccluders The new most occluders.
+	 */
+	public static void setMaxOccluders(int maxOccluders) {
+		INSTANCE.maxOccluders = Math.max(maxOccluders, 0);
+	}
+
+	/**
+	 * Sets the number of worker threads used to rasterize, not counting the updating thread.
+	 *
+	 * @param workerCount The new number of workers, 0 rasterizes everything on the updating thread.
+	 */
+	public static void setWorkerCount(int workerCount) {
+		if (INSTANCE.workers != null) {
+			INSTANCE.workers.shutdown();
+			INSTANCE.workers = null;
+		}
+
+		INSTANCE.workerCount = Math.max(workerCount, 0);
+
+		if (INSTANCE.workerCount > 0) {
+			INSTANCE.workers = Executors.newFixedThreadPool(INSTANCE.workerCount, runnable -> {
+				Thread thread = new Thread(runnable, "Ebon Occlusion Worker");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	@Override
+	public IModule getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public void dispose() {
+		if (workers != null) {
+			workers.shutdownNow();
+			workers = null;
+		}
+
+		ready = false;
+		buffer = null;
+		entities = null;
+		occluders = null;
+		clipVertices = null;
+	}
+}
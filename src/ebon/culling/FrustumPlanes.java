@@ -0,0 +1,58 @@
+package ebon.culling;
+
+/**
+ * The six planes of a view frustum, extracted from a packed column major view projection matrix, for testing bounding boxes without building bounding objects.
+ */
+public class FrustumPlanes {
+	private final float[] planes;
+
+	/**
+	 * Creates a new set of frustum planes, all boxes are inside until {@link #update(float[])} is called.
+	 */
+	public FrustumPlanes() {
+		this.planes = new float[24];
+	}
+
+	/**
+	 * Extracts the planes from a view projection matrix.
+	 *
+	 * @param viewProjection The packed column major view projection matrix.
+	 */
+	public void update(float[] viewProjection) {
+		for (int row = 0; row < 3; row++) {
+			for (int i = 0; i < 4; i++) {
+				float w = viewProjection[i * 4 + 3];
+				float v = viewProjection[i * 4 + row];
+				planes[row * 8 + i] = w + v;
+				planes[row * 8 + 4 + i] = w - v;
+			}
+		}
+	}
+
+	/**
+	 * Tests if a box is at least partly inside the frustum. Boxes near a corner of the frustum can be reported as inside when they are not.
+	 *
+	 * @param minX The boxes minimum x.
+	 * @param minY The boxes minimum y.
+	 * @param minZ The boxes minimum z.
+	 * @param maxX The boxes maximum x.
+	 * @param maxY The boxes maximum y.
+	 * @param maxZ The boxes maximum z.
+	 *
+	 * @return If the box is inside the frustum.
+	 */
+	public boolean inFrustum(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		for (int p = 0; p < 24; p += 4) {
+			// Only the corner furthest along the planes normal needs testing.
+			float x = planes[p] >= 0.0f ? maxX : minX;
+			float y = planes[p + 1] >= 0.0f ? maxY : minY;
+			float z = planes[p + 2] >= 0.0f ? maxZ : minZ;
+
+			if (planes[p] * x + planes[p + 1] * y + planes[p + 2] * z + planes[p + 3] < 0.0f) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
@@ -0,0 +1,257 @@
+package ebon.culling;
+
+/**
+ * A small software depth buffer that occluder triangles are rasterized into, and a hierarchical depth pyramid built from it that bounding boxes are tested against.
+ * <p>
+ * Depths are normalized device depths (-1 near to 1 far). Each pyramid level stores the furthest depth of the 2x2 texels below it, so a box is only hidden when its nearest point is behind everything drawn over its screen area.
+ */
+public class OcclusionBuffer {
+	/**
+	 * The closest clip space w a occluder vertex can have, triangles crossing the near plane are skipped rather than clipped.
+	 */
+	public static final float NEAR_W = 0.001f;
+
+	private final int width;
+	private final int height;
+	private final float[][] levels;
+	private final int[] levelWidths;
+	private final int[] levelHeights;
+
+	/**
+	 * Creates a new occlusion buffer.
+	 *
+	 * @param width The width in texels, should be a power of two.
+	 * @param height The height in texels, should be a power of two.
+	 */
+	public OcclusionBuffer(int width, int height) {
+		int levelCount = 1;
+
+		while ((width >> levelCount) > 0 && (height >> levelCount) > 0) {
+			levelCount++;
+		}
+
+		this.width = width;
+		this.height = height;
+		this.levels = new float[levelCount][];
+		this.levelWidths = new int[levelCount];
+		this.levelHeights = new int[levelCount];
+
+		for (int i = 0; i < levelCount; i++) {
+			levelWidths[i] = Math.max(width >> i, 1);
+			levelHeights[i] = Math.max(height >> i, 1);
+			levels[i] = new float[levelWidths[i] * levelHeights[i]];
+		}
+
+		clear(0, height);
+	}
+
+	/**
+	 * Clears a band of rows of the depth buffer to the far plane.
+	 *
+	 * @param minY The first row.
+	 * @param maxY The row after the last row.
+	 */
+	public void clear(int minY, int maxY) {
+		for (int i = minY * width; i < maxY * width; i++) {
+			levels[0][i] = 1.0f;
+		}
+	}
+
+	/**
+	 * Rasterizes triangles into a band of rows of the depth buffer. Bands that do not overlap can be rasterized from different threads at the same time.
+	 *
+	 * @param clipVertices The vertices in clip space, 4 floats per vertex.
+	 * @param indices The triangle indices.
+	 * @param minY The first row to write.
+	 * @param maxY The row after the last row to write.
+	 *
+	 * @return The number of triangles that touched the band.
+	 */
+	public int rasterize(float[] clipVertices, int[] indices, int minY, int maxY) {
+		float[] depth = levels[0];
+		int drawn = 0;
+
+		for (int t = 0; t + 2 < indices.length; t += 3) {
+			int a = indices[t] * 4;
+			int b = indices[t + 1] * 4;
+			int c = indices[t + 2] * 4;
+
+			if (clipVertices[a + 3] < NEAR_W || clipVertices[b + 3] < NEAR_W || clipVertices[c + 3] < NEAR_W) {
+				continue;
+			}
+
+			float ax = toScreenX(clipVertices, a), ay = toScreenY(clipVertices, a), az = clipVertices[a + 2] / clipVertices[a + 3];
+			float bx = toScreenX(clipVertices, b), by = toScreenY(clipVertices, b), bz = clipVertices[b + 2] / clipVertices[b + 3];
+			float cx = toScreenX(clipVertices, c), cy = toScreenY(clipVertices, c), cz = clipVertices[c + 2] / clipVertices[c + 3];
+
+			float area = (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+
+			if (area == 0.0f) {
+				continue;
+			}
+
+			int x0 = Math.max((int) Math.floor(Math.min(ax, Math.min(bx, cx))), 0);
+			int x1 = Math.min((int) Math.ceil(Math.max(ax, Math.max(bx, cx))), width);
+			int y0 = Math.max((int) Math.floor(Math.min(ay, Math.min(by, cy))), minY);
+			int y1 = Math.min((int) Math.ceil(Math.max(ay, Math.max(by, cy))), maxY);
+
+			if (x0 >= x1 || y0 >= y1) {
+				continue;
+			}
+
+			drawn++;
+
+			// Occluders are drawn from both sides, so the barycentric weights are normalized by the signed area.
+			float inverseArea = 1.0f / area;
+
+			for (int y = y0; y < y1; y++) {
+				float py = y + 0.5f;
+
+				for (int x = x0; x < x1; x++) {
+					float px = x + 0.5f;
+					float wa = ((bx - px) * (cy - py) - (by - py) * (cx - px)) * inverseArea;
+					float wb = ((cx - px) * (ay - py) - (cy - py) * (ax - px)) * inverseArea;
+					float wc = 1.0f - wa - wb;
+
+					if (wa < 0.0f || wb < 0.0f || wc < 0.0f) {
+						continue;
+					}
+
+					float z = wa * az + wb * bz + wc * cz;
+					int index = y * width + x;
+
+					if (z < depth[index]) {
+						depth[index] = z;
+					}
+				}
+			}
+		}
+
+		return drawn;
+	}
+
+	/**
+	 * Builds the depth pyramid from the rasterized depth buffer, call after every band is rasterized.
+	 */
+	public void buildPyramid() {
+		for (int level = 1; level < levels.length; level++) {
+			float[] source = levels[level - 1];
+			float[] destination = levels[level];
+			int sourceWidth = levelWidths[level - 1];
+			int sourceHeight = levelHeights[level - 1];
+
+			for (int y = 0; y < levelHeights[level]; y++) {
+				for (int x = 0; x < levelWidths[level]; x++) {
+					int sx = x * 2;
+					int sy = y * 2;
+					int sx1 = Math.min(sx + 1, sourceWidth - 1);
+					int sy1 = Math.min(sy + 1, sourceHeight - 1);
+					destination[y * levelWidths[level] + x] = Math.max(
+							Math.max(source[sy * sourceWidth + sx], source[sy * sourceWidth + sx1]),
+							Math.max(source[sy1 * sourceWidth + sx], source[sy1 * sourceWidth + sx1])
+					);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests if a world space bounding box is hidden behind the rasterized occluders.
+	 *
+	 * @param viewProjection The packed column major view projection matrix the occluders were drawn with.
+	 * @param minX The boxes minimum x.
+	 * @param minY The boxes minimum y.
+	 * @param minZ The boxes minimum z.
+	 * @param maxX The boxes maximum x.
+	 * @param maxY The boxes maximum y.
+	 * @param maxZ The boxes maximum z.
+	 *
+	 * @return If the box is completely hidden.
+	 */
+	public boolean isOccluded(float[] viewProjection, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		float screenMinX = Float.POSITIVE_INFINITY;
+		float screenMinY = Float.POSITIVE_INFINITY;
+		float screenMaxX = Float.NEGATIVE_INFINITY;
+		float screenMaxY = Float.NEGATIVE_INFINITY;
+		float nearest = Float.POSITIVE_INFINITY;
+
+		for (int corner = 0; corner < 8; corner++) {
+			float x = (corner & 1) == 0 ? minX : maxX;
+			float y = (corner & 2) == 0 ? minY : maxY;
+			float z = (corner & 4) == 0 ? minZ : maxZ;
+			float w = viewProjection[3] * x + viewProjection[7] * y + viewProjection[11] * z + viewProjection[15];
+
+			if (w < NEAR_W) {
+				// The box crosses the near plane, so it covers the camera and can not be hidden.
+				return false;
+			}
+
+			float clipX = viewProjection[0] * x + viewProjection[4] * y + viewProjection[8] * z + viewProjection[12];
+			float clipY = viewProjection[1] * x + viewProjection[5] * y + viewProjection[9] * z + viewProjection[13];
+			float clipZ = viewProjection[2] * x + viewProjection[6] * y + viewProjection[10] * z + viewProjection[14];
+			float screenX = (clipX / w * 0.5f + 0.5f) * width;
+			float screenY = (0.5f - clipY / w * 0.5f) * height;
+			screenMinX = Math.min(screenMinX, screenX);
+			screenMinY = Math.min(screenMinY, screenY);
+			screenMaxX = Math.max(screenMaxX, screenX);
+			screenMaxY = Math.max(screenMaxY, screenY);
+			nearest = Math.min(nearest, clipZ / w);
+		}
+
+		int x0 = Math.max((int) Math.floor(screenMinX), 0);
+		int y0 = Math.max((int) Math.floor(screenMinY), 0);
+		int x1 = Math.min((int) Math.ceil(screenMaxX), width) - 1;
+		int y1 = Math.min((int) Math.ceil(screenMaxY), height) - 1;
+
+		if (x0 > x1 || y0 > y1) {
+			// Off screen boxes are left to frustum culling.
+			return false;
+		}
+
+		// Pick the level where the box covers at most a few texels.
+		int level = 0;
+
+		while (level < levels.length - 1 && ((x1 >> level) - (x0 >> level) > 1 || (y1 >> level) - (y0 >> level) > 1)) {
+			level++;
+		}
+
+		float[] depth = levels[level];
+		int levelWidth = levelWidths[level];
+
+		for (int y = y0 >> level; y <= y1 >> level; y++) {
+			for (int x = x0 >> level; x <= x1 >> level; x++) {
+				if (nearest <= depth[y * levelWidth + x]) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private float toScreenX(float[] clipVertices, int vertex) {
+		return (clipVertices[vertex] / clipVertices[vertex + 3] * 0.5f + 0.5f) * width;
+	}
+
+	private float toScreenY(float[] clipVertices, int vertex) {
+		return (0.5f - clipVertices[vertex + 1] / clipVertices[vertex + 3] * 0.5f) * height;
+	}
+
+	/**
+	 * Gets the width of the depth buffer.
+	 *
+	 * @return The width in texels.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Gets the height of the depth buffer.
+	 *
+	 * @return The height in texels.
+	 */
+	public int getHeight() {
+		return height;
+	}
+}
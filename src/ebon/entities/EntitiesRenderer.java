@@ -1,12 +1,18 @@
 package ebon.entities;
 
+import ebon.animation.*;
+import ebon.batching.*;
+import ebon.culling.*;
 import ebon.entities.components.*;
+import ebon.models.*;
+import ebon.rendering.*;
 import ebon.world.*;
 import flounder.animation.*;
 import flounder.camera.*;
 import flounder.devices.*;
 import flounder.entities.*;
 import flounder.helpers.*;
+import flounder.maths.matrices.*;
 import flounder.maths.vectors.*;
 import flounder.profiling.*;
 import flounder.renderer.*;
@@ -14,6 +20,7 @@ import flounder.resources.*;
 import flounder.shaders.*;
 import flounder.textures.*;
 
+import java.nio.*;
 import java.util.*;
 
 import static org.lwjgl.opengl.GL11.*;
@@ -28,8 +35,24 @@ public class EntitiesRenderer extends IRenderer {
 	private static final MyFile VERTEX_SHADER = new MyFile(Shader.SHADERS_LOC, "entities", "entityVertex.glsl");
 	private static final MyFile FRAGMENT_SHADER = new MyFile(Shader.SHADERS_LOC, "entities", "entityFragment.glsl");
 
+	private static final Matrix4f IDENTITY = new Matrix4f().setIdentity();
+	private static final Vector4f NO_TEXTURE_TRANSFORM = new Vector4f(1.0f, 1.0f, 0.0f, 0.0f);
+
 	private Shader shader;
 	private Texture textureUndefined;
+	private int jointTransformsLocation;
+
+	private float[] projection;
+	private float[] view;
+	private float[] viewProjection;
+	private FrustumPlanes frustum;
+	private int batchesRendered;
+
+	private List<Entity> entities;
+	private List<Entity> opaque;
+	private List<Entity> transparent;
+	private Vector3f cameraPosition;
+	private final Comparator<Entity> sortFrontToBack = (Entity a, Entity b) -> Float.compare(getDistanceSquared(a), getDistanceSquared(b));
 
 	/**
 	 * Creates a new entity renderer.
@@ -40,6 +63,16 @@ public class EntitiesRenderer extends IRenderer {
 				new ShaderType(GL_FRAGMENT_SHADER, FRAGMENT_SHADER)
 		).create();
 		textureUndefined = Texture.newTexture(new MyFile(MyFile.RES_FOLDER, "undefined.png")).create();
+		jointTransformsLocation = -1;
+
+		projection = new float[SkeletonMaths.MATRIX_SIZE];
+		view = new float[SkeletonMaths.MATRIX_SIZE];
+		viewProjection = new float[SkeletonMaths.MATRIX_SIZE];
+		frustum = new FrustumPlanes();
+
+		entities = new ArrayList<>();
+		opaque = new ArrayList<>();
+		transparent = new ArrayList<>();
 	}
 
 	@Override
@@ -50,19 +83,82 @@ public class EntitiesRenderer extends IRenderer {
 
 		prepareRendering(clipPlane, camera);
 
-		for (Entity entity : FlounderEntities.getEntities().getAll(new ArrayList<>())) { // .queryInFrustum(new ArrayList<>(), FlounderCamera.getCamera().getViewFrustum())
+		// The occlusion buffer is only drawn from the main camera.
+		boolean occlusionCulling = camera == FlounderCamera.getCamera();
+		sortEntities(camera, occlusionCulling);
+
+		// Opaque entities are drawn front to back with blending off, so the depth test rejects as much hidden work as it can.
+		OpenGlUtils.disableBlending();
+		renderBatches(camera, occlusionCulling);
+
+		for (Entity entity : opaque) {
 			if (entity.getComponent(ComponentModel.ID) != null) {
 				renderEntity(entity);
-			} else if (entity.getComponent(ComponentAnimation.ID) != null) {
+			} else {
 				renderEntityAnimated(entity);
 			}
 		}
 
+		// Transparent entities are then drawn back to front over the opaque scene, without writing depth so they do not hide each other.
+		if (!transparent.isEmpty()) {
+			OpenGlUtils.enableAlphaBlending();
+			glDepthMask(false);
+
+			for (Entity entity : transparent) {
+				renderEntity(entity);
+			}
+
+			glDepthMask(true);
+		}
+
 		endRendering();
 	}
 
+	private void sortEntities(ICamera camera, boolean occlusionCulling) {
+		opaque.clear();
+		transparent.clear();
+		cameraPosition = camera.getPosition();
+
+		for (Entity entity : FlounderEntities.getEntities().getAll(entities)) { // .queryInFrustum(new ArrayList<>(), FlounderCamera.getCamera().getViewFrustum())
+			ComponentModel componentModel = (ComponentModel) entity.getComponent(ComponentModel.ID);
+
+			if (componentModel != null) {
+				if (EbonBatches.isBatched(entity) || (occlusionCulling && EbonOcclusion.isOccluded(entity))) {
+					continue;
+				}
+
+				if (componentModel.getTransparency() < 1.0f) {
+					transparent.add(entity);
+				} else {
+					opaque.add(entity);
+				}
+			} else if (entity.getComponent(ComponentAnimation.ID) != null) {
+				opaque.add(entity);
+			}
+		}
+
+		entities.clear();
+
+		if (cameraPosition != null) {
+			opaque.sort(sortFrontToBack);
+			transparent.sort(sortFrontToBack.reversed());
+		}
+	}
+
+	private float getDistanceSquared(Entity entity) {
+		float dx = entity.getPosition().x - cameraPosition.x;
+		float dy = entity.getPosition().y - cameraPosition.y;
+		float dz = entity.getPosition().z - cameraPosition.z;
+		return dx * dx + dy * dy + dz * dz;
+	}
+
 	private void prepareRendering(Vector4f clipPlane, ICamera camera) {
 		shader.start();
+
+		if (jointTransformsLocation == -1) {
+			jointTransformsLocation = glGetUniformLocation(shader.getProgramID(), "jointTransforms");
+		}
+
 		shader.getUniformMat4("projectionMatrix").loadMat4(camera.getProjectionMatrix());
 		shader.getUniformMat4("viewMatrix").loadMat4(camera.getViewMatrix());
 		shader.getUniformVec4("clipPlane").loadVec4(clipPlane);
@@ -81,17 +177,66 @@ public class EntitiesRenderer extends IRenderer {
 
 		OpenGlUtils.antialias(FlounderDisplay.isAntialiasing());
 		OpenGlUtils.enableDepthTesting();
-		OpenGlUtils.enableAlphaBlending();
+		RenderStatistics.uniformUploads(7);
+	}
+
+	private void renderBatches(ICamera camera, boolean occlusionCulling) {
+		SkeletonMaths.store(camera.getProjectionMatrix(), projection, 0);
+		SkeletonMaths.store(camera.getViewMatrix(), view, 0);
+		SkeletonMaths.multiply(projection, 0, view, 0, viewProjection, 0);
+		frustum.update(viewProjection);
+		batchesRendered = 0;
+
+		for (StaticBatch batch : EbonBatches.getBatches()) {
+			float[] bounds = batch.getBounds();
+
+			if (batch.getModel() == null || !batch.getModel().isLoaded() || !frustum.inFrustum(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]) ||
+					(occlusionCulling && EbonOcclusion.isOccluded(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]))) {
+				continue;
+			}
+
+			OpenGlUtils.bindVAO(batch.getModel().getVaoID(), 0, 1, 2, 3);
+			OpenGlUtils.bindTexture(batch.getTexture() != null ? batch.getTexture() : textureUndefined, 0);
+			OpenGlUtils.cullBackFaces(true);
+
+			// Each members atlas cell and texture transform are already baked into the batch.
+			shader.getUniformFloat("atlasRows").loadFloat(1.0f);
+			shader.getUniformVec2("atlasOffset").loadVec2(0, 0);
+			shader.getUniformVec4("textureTransform").loadVec4(NO_TEXTURE_TRANSFORM);
+
+			if (batch.getNormalMap() != null) {
+				OpenGlUtils.bindTexture(batch.getNormalMap(), 1);
+				shader.getUniformBool("useNormalMap").loadBoolean(true);
+			} else {
+				shader.getUniformBool("useNormalMap").loadBoolean(false);
+			}
+
+			shader.getUniformMat4("modelMatrix").loadMat4(IDENTITY);
+			shader.getUniformFloat("transparency").loadFloat(1.0f);
+			shader.getUniformBool("animated").loadBoolean(false);
+			shader.getUniformBool("quantized").loadBoolean(false);
+
+			glDrawElements(GL_TRIANGLES, batch.getModel().getVaoLength(), GL_UNSIGNED_INT, 0);
+			OpenGlUtils.unbindVAO(0, 1, 2, 3);
+			batchesRendered++;
+
+			RenderStatistics.drawCall(batch.getModel().getVaoLength() / 3);
+			RenderStatistics.textureBinds(batch.getNormalMap() != null ? 2 : 1);
+			RenderStatistics.uniformUploads(8);
+		}
 	}
 
 	private void renderEntity(Entity entity) {
 		ComponentModel componentModel = (ComponentModel) entity.getComponent(ComponentModel.ID);
 
-		if (componentModel == null || componentModel.getModel() == null) {
+		if (componentModel == null || (componentModel.getModel() == null && componentModel.getQuantizedLodModel() == null)) {
 			return;
 		}
 
-		OpenGlUtils.bindVAO(componentModel.getModel().getVaoID(), 0, 1, 2, 3);
+		// Quantized models are bound to the same attributes, the shader decodes them within the models bounds.
+		QuantizedModel quantizedModel = componentModel.getQuantizedLodModel();
+		int vaoLength = quantizedModel != null ? quantizedModel.getVaoLength() : componentModel.getLodModel().getVaoLength();
+		OpenGlUtils.bindVAO(quantizedModel != null ? quantizedModel.getVaoID() : componentModel.getLodModel().getVaoID(), 0, 1, 2, 3);
 
 		if (componentModel.getTexture() != null) {
 			OpenGlUtils.bindTexture(componentModel.getTexture(), 0);
@@ -114,12 +259,25 @@ public class EntitiesRenderer extends IRenderer {
 			shader.getUniformBool("useNormalMap").loadBoolean(false);
 		}
 
+		shader.getUniformVec4("textureTransform").loadVec4(componentModel.getTextureTransform());
 		shader.getUniformMat4("modelMatrix").loadMat4(componentModel.getModelMatrix());
 		shader.getUniformFloat("transparency").loadFloat(componentModel.getTransparency());
 		shader.getUniformBool("animated").loadBoolean(false);
+		shader.getUniformBool("quantized").loadBoolean(quantizedModel != null);
+
+		if (quantizedModel != null) {
+			float[] bounds = quantizedModel.getBounds();
+			shader.getUniformVec3("positionCentre").loadVec3(bounds[0], bounds[1], bounds[2]);
+			shader.getUniformVec3("positionExtent").loadVec3(bounds[3], bounds[4], bounds[5]);
+			RenderStatistics.uniformUploads(2);
+		}
 
-		glDrawElements(GL_TRIANGLES, componentModel.getModel().getVaoLength(), GL_UNSIGNED_INT, 0);
+		glDrawElements(GL_TRIANGLES, vaoLength, quantizedModel != null ? quantizedModel.getIndexType() : GL_UNSIGNED_INT, 0);
 		OpenGlUtils.unbindVAO(0, 1, 2, 3);
+
+		RenderStatistics.drawCall(vaoLength / 3);
+		RenderStatistics.textureBinds(componentModel.getNormalMap() != null ? 2 : 1);
+		RenderStatistics.uniformUploads(8);
 	}
 
 	private void renderEntityAnimated(Entity entity) {
@@ -142,16 +300,26 @@ public class EntitiesRenderer extends IRenderer {
 			OpenGlUtils.cullBackFaces(false);
 		}
 
-		for (int i = 0; i < componentAnimation.getJointTransforms().length; i++) {
-			shader.getUniformMat4("jointTransforms[" + i + "]").loadMat4(componentAnimation.getJointTransforms()[i]);
+		FloatBuffer jointTransforms = componentAnimation.getJointTransforms();
+
+		if (jointTransforms != null) {
+			RenderStatistics.bytesUploaded(jointTransforms.remaining() * 4L);
+			RenderStatistics.uniformUploads(1);
+			glUniformMatrix4fv(jointTransformsLocation, false, jointTransforms);
 		}
 
+		shader.getUniformVec4("textureTransform").loadVec4(NO_TEXTURE_TRANSFORM);
 		shader.getUniformMat4("modelMatrix").loadMat4(componentAnimation.getModelMatrix());
 		shader.getUniformFloat("transparency").loadFloat(1.0f);
 		shader.getUniformBool("animated").loadBoolean(true);
+		shader.getUniformBool("quantized").loadBoolean(false);
 
 		glDrawElements(GL_TRIANGLES, componentAnimation.getModel().getVaoLength(), GL_UNSIGNED_INT, 0);
 		OpenGlUtils.unbindVAO(0, 1, 2, 3, 4, 5);
+
+		RenderStatistics.drawCall(componentAnimation.getModel().getVaoLength() / 3);
+		RenderStatistics.textureBinds(1);
+		RenderStatistics.uniformUploads(7);
 	}
 
 	private void endRendering() {
@@ -161,6 +329,9 @@ public class EntitiesRenderer extends IRenderer {
 	@Override
 	public void profile() {
 		FlounderProfiler.add(FlounderEntities.PROFILE_TAB_NAME, "Render Time", super.getRenderTime());
+		FlounderProfiler.add(FlounderEntities.PROFILE_TAB_NAME, "Batches Rendered", batchesRendered);
+		FlounderProfiler.add(FlounderEntities.PROFILE_TAB_NAME, "Opaque Rendered", opaque.size());
+		FlounderProfiler.add(FlounderEntities.PROFILE_TAB_NAME, "Transparent Rendered", transparent.size());
 	}
 
 	@Override
@@ -1,9 +1,7 @@
 package ebon.entities;
 
+import ebon.animation.*;
 import ebon.entities.components.*;
-import flounder.animation.*;
-import flounder.collada.*;
-import flounder.collada.animation.*;
 import flounder.entities.*;
 import flounder.maths.vectors.*;
 import flounder.resources.*;
@@ -15,16 +13,13 @@ public class InstanceCowboy extends Entity {
 
 		MyFile colladaFile = new MyFile(FlounderEntities.ENTITIES_FOLDER, "cowboy", "cowboy.dae");
 
-		ModelAnimated modelAnimated = FlounderCollada.loadCollada(colladaFile);
-
-		AnimationData animationData = FlounderCollada.loadAnimation(colladaFile);
-		Animation animation = FlounderAnimation.loadAnimation(animationData);
+		CachedCollada collada = CachedCollada.get(colladaFile);
 
 		//	Texture texture = Texture.newTexture(new MyFile(FlounderEntities.ENTITIES_FOLDER, "cowboy", "cowboy.png")).create();
 
-		//	new ComponentCollision(this);
-		//	new ComponentCollider(this);
-		ComponentAnimation componentAnimation = new ComponentAnimation(this, modelAnimated, 1.0f, null, 1);
-		componentAnimation.doAnimation(animation);
+		new ComponentCollision(this);
+		new ComponentCollider(this);
+		ComponentAnimation componentAnimation = new ComponentAnimation(this, collada.getModel(), 1.0f, null, 1);
+		componentAnimation.doAnimation(colladaFile.getPath(), collada.getAnimation());
 	}
 }
@@ -1,12 +1,17 @@
 package ebon.entities.components;
 
+import ebon.animation.*;
+import ebon.entities.loading.*;
+import ebon.textures.*;
 import flounder.animation.*;
+import flounder.camera.*;
 import flounder.collada.*;
 import flounder.collada.geometry.*;
 import flounder.collada.joints.*;
 import flounder.entities.*;
 import flounder.entities.components.*;
 import flounder.entities.template.*;
+import flounder.framework.*;
 import flounder.helpers.*;
 import flounder.maths.matrices.*;
 import flounder.maths.vectors.*;
@@ -14,7 +19,9 @@ import flounder.physics.*;
 import flounder.resources.*;
 import flounder.textures.*;
 
+import java.nio.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Creates a animation used to set animation properties.
@@ -22,14 +29,39 @@ import java.util.*;
 public class ComponentAnimation extends IComponentEntity {
 	public static final int ID = EntityIDAssigner.getId();
 
+	/**
+	 * The camera distances where animations drop to the next level of detail, past the last distance animations freeze.
+	 */
+	public static final float[] LOD_DISTANCES = {30.0f, 80.0f, 200.0f};
+
+	/**
+	 * The time between pose evaluations at each level of detail, the last two poses are blended between evaluations.
+	 */
+	public static final float[] LOD_INTERVALS = {0.0f, 1.0f / 15.0f, 1.0f / 5.0f};
+
+	private static final Matrix4f CORRECTION = Matrix4f.rotate(new Matrix4f(), new Vector3f(1.0f, 0.0f, 0.0f), (float) Math.toRadians(-90.0f), null);
+
 	private ModelAnimated model;
+	private Skeleton skeleton;
+	private JointPalette jointPalette;
 	private float scale;
 	private Matrix4f modelMatrix;
 
 	private Texture texture;
 	private int textureIndex;
 
-	private Animator animator;
+	private Animation animation;
+	private String animationName;
+	private BakedAnimation bakedAnimation;
+	private AnimatedBounds animatedBounds;
+	private float animationTime;
+	private float animationOffset;
+
+	private int lodLevel;
+	private float lodElapsed;
+	private float lodInterval;
+	private float sampleTime;
+	private float cameraDistance;
 
 	/**
 	 * Creates a new ComponentAnimation.
@@ -50,8 +82,7 @@ public class ComponentAnimation extends IComponentEntity {
 		this.textureIndex = textureIndex;
 
 		if (model != null) {
-			model.getHeadJoint().calculateInverseBindTransform(Matrix4f.rotate(new Matrix4f(), new Vector3f(1.0f, 0.0f, 0.0f), (float) Math.toRadians(-90.0f), null));
-			this.animator = new Animator(model.getHeadJoint());
+			loadSkeleton(new Skeleton(model.getHeadJoint(), model.getJointsData().getJointCount(), CORRECTION));
 		}
 	}
 
@@ -64,213 +95,473 @@ public class ComponentAnimation extends IComponentEntity {
 	public ComponentAnimation(Entity entity, EntityTemplate template) {
 		super(entity, ID);
 
-		{
-			String[] jointsData = template.getSectionData(ComponentAnimation.this, "Joints");
-			Pair<JointData, List<String>> headJoint = null;
-			Map<JointData, List<String>> allJoints = new HashMap<>();
-
-			boolean isHeadJoint = false;
-			int index = 0;
-			String name = "";
-			float[] localBindTransform = new float[16];
-			List<String> children = new ArrayList<>();
-
-			int id = 0;
-
-			for (int i = 0; i <= jointsData.length; i++) {
-				switch (id) {
-					case 0:
-						isHeadJoint = Boolean.parseBoolean(jointsData[i]);
-						break;
-					case 1:
-						index = Integer.parseInt(jointsData[i]);
-						break;
-					case 2:
-						name = jointsData[i];
-						break;
-					case 3:
-					case 4:
-					case 5:
-					case 6:
-					case 7:
-					case 8:
-					case 9:
-					case 10:
-					case 11:
-					case 12:
-					case 13:
-					case 14:
-					case 15:
-					case 16:
-					case 17:
-					case 18:
-						localBindTransform[id - 3] = Float.parseFloat(jointsData[i]);
-						break;
-					case 19:
-						if (i < jointsData.length) {
-							Collections.addAll(children, jointsData[i].split("\\|"));
-						}
-
-						if (isHeadJoint) {
-							headJoint = new Pair<>(new JointData(index, name, new Matrix4f(localBindTransform)), new ArrayList<>(children));
-						} else {
-							allJoints.put(new JointData(index, name, new Matrix4f(localBindTransform)), new ArrayList<>(children));
-						}
-
-						isHeadJoint = false;
-						index = 0;
-						name = "";
-						localBindTransform = new float[16];
-						children = new ArrayList<>();
-						id = -1;
-						break;
-				}
+		// Every instance of a template shares its parsed mesh, joints and animation, so only the first instance (or a loading thread) parses them.
+		AnimatedTemplate shared = EbonAnimations.getTemplate(template.getEntityName(), () -> prepareTemplate(template));
+		this.model = shared.getModel();
 
-				id++;
-			}
+		BakedAnimation sharedAnimation = EbonAnimations.getBaked(template.getEntityName());
 
-			addChildren(headJoint.getFirst(), headJoint.getSecond(), allJoints);
-
-			this.model = new ModelAnimated(
-					new MeshData(
-							EntityTemplate.toFloatArray(template.getSectionData(ComponentAnimation.this, "Vertices")),
-							EntityTemplate.toFloatArray(template.getSectionData(ComponentAnimation.this, "TextureCoords")),
-							EntityTemplate.toFloatArray(template.getSectionData(ComponentAnimation.this, "Normals")),
-							EntityTemplate.toFloatArray(template.getSectionData(ComponentAnimation.this, "Tangents")),
-							EntityTemplate.toIntArray(template.getSectionData(ComponentAnimation.this, "Indices")),
-							EntityTemplate.toIntArray(template.getSectionData(ComponentAnimation.this, "JointIds")),
-							EntityTemplate.toFloatArray(template.getSectionData(ComponentAnimation.this, "VertexWeights")),
-							Float.parseFloat(template.getValue(this, "FurthestPoint"))
-					),
-					new JointsData(
-							Integer.parseInt(template.getValue(this, "JointCount")),
-							headJoint.getFirst()
-					)
-			);
+		if (sharedAnimation != null && sharedAnimation.getAnimation() == shared.getAnimation()) {
+			// Another instance of this entity has already baked the animation, so share it and its skeleton.
+			loadSkeleton(sharedAnimation.getSkeleton());
+			this.animationName = template.getEntityName();
+			doAnimation(sharedAnimation);
+		} else {
+			loadSkeleton(new Skeleton(model.getHeadJoint(), shared.getJointCount(), CORRECTION));
+			doAnimation(template.getEntityName(), shared.getAnimation());
 		}
 
-		{
-			float animationLength = Float.parseFloat(template.getValue(this, "AnimationLength"));
-			String[] animationData = template.getSectionData(ComponentAnimation.this, "Animation");
-
-			List<KeyFrameJoints> keyFrameJoints = new ArrayList<>();
-
-			float timeStamp = 0.0f;
-			String name = "";
-			Vector3f position = new Vector3f();
-			Quaternion rotation = new Quaternion();
-
-			int id = 0;
-
-			for (int i = 0; i < animationData.length; i++) {
-				switch (id) {
-					case 0:
-						timeStamp = Float.parseFloat(animationData[i]);
-						break;
-					case 1:
-						name = animationData[i];
-						break;
-					case 2:
-						position.x = Float.parseFloat(animationData[i]);
-						break;
-					case 3:
-						position.y = Float.parseFloat(animationData[i]);
-						break;
-					case 4:
-						position.z = Float.parseFloat(animationData[i]);
-						break;
-					case 5:
-						rotation.x = Float.parseFloat(animationData[i]);
-						break;
-					case 6:
-						rotation.y = Float.parseFloat(animationData[i]);
-						break;
-					case 7:
-						rotation.z = Float.parseFloat(animationData[i]);
-						break;
-					case 8:
-						rotation.w = Float.parseFloat(animationData[i]);
-						boolean set = false;
-
-						for (KeyFrameJoints frame : keyFrameJoints) {
-							if (frame.getTimeStamp() == timeStamp) {
-								frame.getJointKeyFrames().put(name, new JointTransform(new Vector3f(position), new Quaternion(rotation)));
-								set = true;
-							}
-						}
-
-						if (!set) {
-							KeyFrameJoints newFrame = new KeyFrameJoints(timeStamp, new HashMap<>());
-							newFrame.getJointKeyFrames().put(name, new JointTransform(new Vector3f(position), new Quaternion(rotation)));
-							keyFrameJoints.add(newFrame);
-						}
-
-						timeStamp = 0.0f;
-						name = "";
-						position = new Vector3f();
-						rotation = new Quaternion();
-						id = -1;
-						break;
-				}
+		this.scale = Float.parseFloat(template.getValue(this, "Scale"));
 
-				id++;
-			}
+		if (!template.getValue(this, "Texture").equals("null")) {
+			this.texture = TextureRegistry.get(template.getValue(this, "Texture"), Integer.parseInt(template.getValue(this, "TextureNumRows")));
+		}
+	}
+
+	/**
+	 * Parses the mesh, joints and animation of a template without creating the model, so it can be done on any thread.
+	 *
+	 * @param template The entity template to load data from.
+	 *
+	 * @return The animated template, or null if the template has no animated model.
+	 */
+	public static AnimatedTemplate prepare(EntityTemplate template) {
+		// The component only identifies which sections of the template to read.
+		return new ComponentAnimation(null, null, 1.0f, null, 0).prepareTemplate(template);
+	}
+
+	private AnimatedTemplate prepareTemplate(EntityTemplate template) {
+		// The mesh sections are parsed on pooled threads while the joints and animation are read.
+		CompletableFuture<float[]> textureCoords = CompiledEntity.getFloatArrayAsync(template, ComponentAnimation.this, "TextureCoords");
+		CompletableFuture<float[]> normals = CompiledEntity.getFloatArrayAsync(template, ComponentAnimation.this, "Normals");
+		CompletableFuture<float[]> tangents = CompiledEntity.getFloatArrayAsync(template, ComponentAnimation.this, "Tangents");
+		CompletableFuture<int[]> indices = CompiledEntity.getIntArrayAsync(template, ComponentAnimation.this, "Indices");
+		CompletableFuture<int[]> jointIds = CompiledEntity.getIntArrayAsync(template, ComponentAnimation.this, "JointIds");
+		CompletableFuture<float[]> vertexWeights = CompiledEntity.getFloatArrayAsync(template, ComponentAnimation.this, "VertexWeights");
+		float[] vertices = CompiledEntity.getFloatArray(template, ComponentAnimation.this, "Vertices");
+
+		if (vertices == null) {
+			return null;
+		}
 
-			keyFrameJoints.sort((KeyFrameJoints p1, KeyFrameJoints p2) -> (int) (p1.getTimeStamp() - p2.getTimeStamp()));
-			KeyFrameJoints[] frames = new KeyFrameJoints[keyFrameJoints.size()];
+		JointData headJoint = loadJoints(template);
+		Animation animation = loadAnimation(template);
+
+		return new AnimatedTemplate(
+				template.getEntityName(),
+				new MeshData(
+						vertices,
+						textureCoords.join(),
+						normals.join(),
+						tangents.join(),
+						indices.join(),
+						jointIds.join(),
+						vertexWeights.join(),
+						Float.parseFloat(template.getValue(this, "FurthestPoint"))
+				),
+				new JointsData(
+						Integer.parseInt(template.getValue(this, "JointCount")),
+						headJoint
+				),
+				animation
+		);
+	}
 
-			for (int i = 0; i < frames.length; i++) {
-				frames[i] = keyFrameJoints.get(i);
+	private JointData loadJoints(EntityTemplate template) {
+		String[] jointsData = template.getSectionData(ComponentAnimation.this, "Joints");
+		Pair<JointData, List<String>> headJoint = null;
+		Map<String, Pair<JointData, List<String>>> allJoints = new HashMap<>();
+
+		boolean isHeadJoint = false;
+		int index = 0;
+		String name = "";
+		float[] localBindTransform = new float[16];
+		List<String> children = new ArrayList<>();
+
+		int id = 0;
+
+		for (int i = 0; i <= jointsData.length; i++) {
+			switch (id) {
+				case 0:
+					isHeadJoint = Boolean.parseBoolean(jointsData[i]);
+					break;
+				case 1:
+					index = Integer.parseInt(jointsData[i]);
+					break;
+				case 2:
+					name = jointsData[i];
+					break;
+				case 3:
+				case 4:
+				case 5:
+				case 6:
+				case 7:
+				case 8:
+				case 9:
+				case 10:
+				case 11:
+				case 12:
+				case 13:
+				case 14:
+				case 15:
+				case 16:
+				case 17:
+				case 18:
+					localBindTransform[id - 3] = Float.parseFloat(jointsData[i]);
+					break;
+				case 19:
+					if (i < jointsData.length) {
+						Collections.addAll(children, jointsData[i].split("\\|"));
+					}
+
+					// Joints are indexed by name, so the hierarchy can be linked without searching.
+					if (isHeadJoint) {
+						headJoint = new Pair<>(new JointData(index, name, new Matrix4f(localBindTransform)), children);
+					} else {
+						allJoints.put(name, new Pair<>(new JointData(index, name, new Matrix4f(localBindTransform)), children));
+					}
+
+					isHeadJoint = false;
+					index = 0;
+					name = "";
+					localBindTransform = new float[16];
+					children = new ArrayList<>();
+					id = -1;
+					break;
 			}
 
-			model.getHeadJoint().calculateInverseBindTransform(Matrix4f.rotate(new Matrix4f(), new Vector3f(1.0f, 0.0f, 0.0f), (float) Math.toRadians(-90.0f), null));
-			this.animator = new Animator(model.getHeadJoint());
-
-			Animation animation = new Animation(animationLength, frames);
-			doAnimation(animation);
+			id++;
 		}
 
-		this.scale = Float.parseFloat(template.getValue(this, "Scale"));
+		addChildren(headJoint, allJoints);
+		return headJoint.getFirst();
+	}
 
-		if (!template.getValue(this, "Texture").equals("null")) {
-			this.texture = Texture.newTexture(new MyFile(template.getValue(this, "Texture"))).create();
-			this.texture.setNumberOfRows(Integer.parseInt(template.getValue(this, "TextureNumRows")));
+	private Animation loadAnimation(EntityTemplate template) {
+		float animationLength = Float.parseFloat(template.getValue(this, "AnimationLength"));
+		String[] animationData = template.getSectionData(ComponentAnimation.this, "Animation");
+
+		// Samples are grouped into key frames by their time stamp as they are read.
+		Map<Float, KeyFrameJoints> keyFrameJoints = new HashMap<>();
+
+		float timeStamp = 0.0f;
+		String name = "";
+		Vector3f position = new Vector3f();
+		Quaternion rotation = new Quaternion();
+
+		int id = 0;
+
+		for (int i = 0; i < animationData.length; i++) {
+			switch (id) {
+				case 0:
+					timeStamp = Float.parseFloat(animationData[i]);
+					break;
+				case 1:
+					name = animationData[i];
+					break;
+				case 2:
+					position.x = Float.parseFloat(animationData[i]);
+					break;
+				case 3:
+					position.y = Float.parseFloat(animationData[i]);
+					break;
+				case 4:
+					position.z = Float.parseFloat(animationData[i]);
+					break;
+				case 5:
+					rotation.x = Float.parseFloat(animationData[i]);
+					break;
+				case 6:
+					rotation.y = Float.parseFloat(animationData[i]);
+					break;
+				case 7:
+					rotation.z = Float.parseFloat(animationData[i]);
+					break;
+				case 8:
+					rotation.w = Float.parseFloat(animationData[i]);
+					KeyFrameJoints frame = keyFrameJoints.get(timeStamp);
+
+					if (frame == null) {
+						frame = new KeyFrameJoints(timeStamp, new HashMap<>());
+						keyFrameJoints.put(timeStamp, frame);
+					}
+
+					// The position and rotation are replaced below, so they are not copied.
+					frame.getJointKeyFrames().put(name, new JointTransform(position, rotation));
+
+					timeStamp = 0.0f;
+					name = "";
+					position = new Vector3f();
+					rotation = new Quaternion();
+					id = -1;
+					break;
+			}
+
+			id++;
 		}
+
+		// Compared as floats, the difference cast to a int treated frames less than a second apart as equal.
+		KeyFrameJoints[] frames = keyFrameJoints.values().toArray(new KeyFrameJoints[keyFrameJoints.size()]);
+		Arrays.sort(frames, (KeyFrameJoints p1, KeyFrameJoints p2) -> Float.compare(p1.getTimeStamp(), p2.getTimeStamp()));
+
+		return new Animation(animationLength, frames);
 	}
 
 	/**
-	 * Adds children from a JointData/Children map.
+	 * Links every joint to its parent, looking each child up by name so the whole hierarchy is built in one pass over the joints.
 	 *
-	 * @param datasJoint The joint to add children too.
-	 * @param dataChild The children to be searching for.
+	 * @param headJoint The root joint and the names of its children.
 	 * @param allJoints The joint map to match the child's name with, and to get the JointData from.
 	 */
-	private void addChildren(JointData datasJoint, List<String> dataChild, Map<JointData, List<String>> allJoints) {
-		for (JointData data : allJoints.keySet()) {
-			if (dataChild.contains(data.getNameId())) {
-				datasJoint.addChild(data);
+	private static void addChildren(Pair<JointData, List<String>> headJoint, Map<String, Pair<JointData, List<String>>> allJoints) {
+		Deque<Pair<JointData, List<String>>> parents = new ArrayDeque<>();
+		parents.push(headJoint);
+
+		while (!parents.isEmpty()) {
+			Pair<JointData, List<String>> parent = parents.pop();
+
+			for (String childName : parent.getSecond()) {
+				// Each joint is removed as it is linked, so a joint listed by more than one parent is only added once.
+				Pair<JointData, List<String>> child = allJoints.remove(childName);
+
+				if (child != null) {
+					parent.getFirst().addChild(child.getFirst());
+					parents.push(child);
+				}
 			}
 		}
+	}
+
+	/**
+	 * Sets the flattened joint hierarchy and creates the joint palette, called whenever the model changes.
+	 *
+	 * @param skeleton The skeleton of the current model.
+	 */
+	private void loadSkeleton(Skeleton skeleton) {
+		this.skeleton = skeleton;
+		this.jointPalette = new JointPalette(skeleton);
+		this.bakedAnimation = null;
 
-		for (JointData child : datasJoint.getChildren()) {
-			addChildren(child, allJoints.get(child), allJoints);
+		if (animation != null) {
+			doAnimation(animationName, animation);
 		}
 	}
 
 	@Override
 	public void update() {
-		if (animator != null) {
-			animator.update();
+		if (bakedAnimation != null && bakedAnimation.getLength() > 0.0f) {
+			animationTime += FlounderFramework.getDelta();
+			animationTime %= bakedAnimation.getLength();
+			lodElapsed += FlounderFramework.getDelta();
+			cameraDistance = calculateCameraDistance();
+
+			if (!EbonAnimations.queue(this)) {
+				if (updateLod(getDistanceLod())) {
+					evaluatePose();
+				}
+
+				publishPose();
+			}
+		}
+	}
+
+	private float calculateCameraDistance() {
+		ICamera camera = FlounderCamera.getCamera();
+
+		if (camera == null || camera.getPosition() == null) {
+			return 0.0f;
+		}
+
+		float dx = camera.getPosition().x - super.getEntity().getPosition().x;
+		float dy = camera.getPosition().y - super.getEntity().getPosition().y;
+		float dz = camera.getPosition().z - super.getEntity().getPosition().z;
+		return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+
+	/**
+	 * Gets the level of detail wanted from the camera distance alone.
+	 *
+	 * @return The distance level of detail, {@link #LOD_DISTANCES} length when frozen.
+	 */
+	public int getDistanceLod() {
+		for (int i = 0; i < LOD_DISTANCES.length; i++) {
+			if (cameraDistance < LOD_DISTANCES[i]) {
+				return i;
+			}
 		}
+
+		return LOD_DISTANCES.length;
 	}
 
 	/**
-	 * Instructs this entity to carry out a given animation.
+	 * Sets the level of detail for this update and works out if a new pose has to be evaluated. When a pose is needed at a reduced rate it is sampled one interval ahead, so blending towards it does not lag behind the animation.
+	 *
+	 * @param lodLevel The level of detail to use, {@link #LOD_DISTANCES} length or more freezes the animation.
+	 *
+	 * @return If {@link #evaluatePose()} has to be called this update.
+	 */
+	public boolean updateLod(int lodLevel) {
+		this.lodLevel = lodLevel;
+
+		if (isFrozen()) {
+			return false;
+		}
+
+		float interval = LOD_INTERVALS[lodLevel];
+
+		if (interval == 0.0f || lodElapsed >= lodInterval || interval < lodInterval) {
+			lodElapsed = 0.0f;
+			lodInterval = interval;
+			sampleTime = (animationTime + animationOffset + interval) % bakedAnimation.getLength();
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Evaluates the pose for the sample time picked by {@link #updateLod(int)}. This is called from animation worker threads, and only writes to this components joint palette.
+	 */
+	public void evaluatePose() {
+		jointPalette.evaluate(bakedAnimation, sampleTime);
+	}
+
+	/**
+	 * Publishes the pose used when rendering, blending between the last two evaluated poses at reduced levels of detail.
+	 */
+	public void publishPose() {
+		if (!isFrozen()) {
+			jointPalette.publish(lodInterval == 0.0f ? 1.0f : Math.min(lodElapsed / lodInterval, 1.0f));
+		}
+	}
+
+	/**
+	 * Gets the level of detail used in the last update.
+	 *
+	 * @return The level of detail.
+	 */
+	public int getLodLevel() {
+		return lodLevel;
+	}
+
+	/**
+	 * Gets if the animation was frozen in the last update.
+	 *
+	 * @return If the animation is frozen.
+	 */
+	public boolean isFrozen() {
+		return lodLevel >= LOD_INTERVALS.length;
+	}
+
+	/**
+	 * Gets the distance to the camera from the last update.
+	 *
+	 * @return The camera distance.
+	 */
+	public float getCameraDistance() {
+		return cameraDistance;
+	}
+
+	/**
+	 * Instructs this entity to carry out a given animation, baked only for this entity.
 	 *
 	 * @param animation The animation to be carried out.
 	 */
 	public void doAnimation(Animation animation) {
-		animator.doAnimation(animation);
+		doAnimation(null, animation);
+	}
+
+	/**
+	 * Instructs this entity to carry out a given animation, sharing the baked animation with every entity that plays it under the same name.
+	 *
+	 * @param name The name to share the baked animation under, or null to not share it.
+	 * @param animation The animation to be carried out.
+	 */
+	public void doAnimation(String name, Animation animation) {
+		this.animation = animation;
+		this.animationName = name;
+
+		if (skeleton != null) {
+			doAnimation(name == null ? new BakedAnimation(skeleton, animation) : EbonAnimations.bake(name, skeleton, animation));
+		}
+	}
+
+	/**
+	 * Instructs this entity to carry out a already baked animation.
+	 *
+	 * @param bakedAnimation The baked animation to be carried out, it must be baked for this entities skeleton.
+	 */
+	public void doAnimation(BakedAnimation bakedAnimation) {
+		this.animation = bakedAnimation.getAnimation();
+		this.bakedAnimation = bakedAnimation;
+		this.animatedBounds = null;
+		this.animationTime = 0.0f;
+		this.lodElapsed = 0.0f;
+		this.lodInterval = 0.0f;
+
+		// The bounds are sampled while the animation loads, not when the collider first asks for them.
+		getAnimatedBounds();
+
+		if (jointPalette != null) {
+			jointPalette.update(bakedAnimation, bakedAnimation.getLength() > 0.0f ? animationOffset % bakedAnimation.getLength() : 0.0f);
+		}
+	}
+
+	/**
+	 * Gets the model space bounds of the mesh through the current animation, sampled when the animation is set and shared under the animations name.
+	 *
+	 * @return The animated bounds, or null if there is no animation or the model has no skinning data.
+	 */
+	public AnimatedBounds getAnimatedBounds() {
+		if (animatedBounds == null && bakedAnimation != null && model != null && model.getMeshData() != null) {
+			MeshData meshData = model.getMeshData();
+
+			if (meshData.getVertices() != null && meshData.getJointIds() != null && meshData.getVertexWeights() != null) {
+				animatedBounds = EbonAnimations.getBounds(animationName, bakedAnimation, meshData.getVertices(), meshData.getJointIds(), meshData.getVertexWeights());
+			}
+		}
+
+		return animatedBounds;
+	}
+
+	/**
+	 * Gets the time in the current animation the shown pose is at, including the animation offset.
+	 *
+	 * @return The pose time in seconds.
+	 */
+	public float getPoseTime() {
+		if (bakedAnimation == null || bakedAnimation.getLength() <= 0.0f) {
+			return 0.0f;
+		}
+
+		return (animationTime + animationOffset) % bakedAnimation.getLength();
+	}
+
+	/**
+	 * Gets the animation currently being carried out.
+	 *
+	 * @return The current animation, or null if there is none.
+	 */
+	public Animation getAnimation() {
+		return animation;
+	}
+
+	/**
+	 * Gets the time offset this entity plays its animation at.
+	 *
+	 * @return The animation offset in seconds.
+	 */
+	public float getAnimationOffset() {
+		return animationOffset;
+	}
+
+	/**
+	 * Sets the time offset this entity plays its animation at, so crowds sharing a animation are not all in step.
+	 *
+	 * @param animationOffset The animation offset in seconds.
+	 */
+	public void setAnimationOffset(float animationOffset) {
+		this.animationOffset = Math.max(animationOffset, 0.0f);
 	}
 
 	/**
@@ -316,37 +607,18 @@ public class ComponentAnimation extends IComponentEntity {
 	public void setModel(ModelAnimated model) {
 		if (this.model != model) {
 			this.model = model;
-			this.model.getHeadJoint().calculateInverseBindTransform(Matrix4f.rotate(new Matrix4f(), new Vector3f(1.0f, 0.0f, 0.0f), (float) Math.toRadians(-90.0f), null));
-			this.animator = new Animator(this.model.getHeadJoint());
+			loadSkeleton(new Skeleton(model.getHeadJoint(), model.getJointsData().getJointCount(), CORRECTION));
 		}
 	}
 
 	/**
-	 * Gets an array of the model-space transforms of all the joints (with the current animation pose applied) in the entity.
-	 * The joints are ordered in the array based on their joint index.
-	 * The position of each joint's transform in the array is equal to the joint's index.
-	 *
-	 * @return The array of model-space transforms of the joints in the current animation pose.
-	 */
-	public Matrix4f[] getJointTransforms() {
-		Matrix4f[] jointMatrices = new Matrix4f[model.getJointsData().getJointCount()];
-		addJointsToArray(model.getHeadJoint(), jointMatrices);
-		return jointMatrices;
-	}
-
-	/**
-	 * This adds the current model-space transform of a joint (and all of its descendants) into an array of transforms.
-	 * The joint's transform is added into the array at the position equal to the joint's index.
+	 * Gets the skinning transforms of all the joints (with the current animation pose applied) in the entity.
+	 * The buffer holds one column major matrix per joint, ordered by joint index, and is reused every frame.
 	 *
-	 * @param headJoint The head joint to add children to.
-	 * @param jointMatrices The matrices transformation to add with.
+	 * @return The joint palette buffer, or null if there is no model.
 	 */
-	private void addJointsToArray(Joint headJoint, Matrix4f[] jointMatrices) {
-		jointMatrices[headJoint.getIndex()] = headJoint.getAnimatedTransform();
-
-		for (Joint childJoint : headJoint.getChildren()) {
-			addJointsToArray(childJoint, jointMatrices);
-		}
+	public FloatBuffer getJointTransforms() {
+		return jointPalette == null ? null : jointPalette.getBuffer();
 	}
 
 	/**
@@ -362,10 +634,6 @@ public class ComponentAnimation extends IComponentEntity {
 		this.texture = texture;
 	}
 
-	public void setAnimator(Animator animator) {
-		this.animator = animator;
-	}
-
 	public int getTextureIndex() {
 		return textureIndex;
 	}
@@ -385,10 +653,6 @@ public class ComponentAnimation extends IComponentEntity {
 		return new Vector2f((float) row / (float) texture.getNumberOfRows(), (float) column / (float) texture.getNumberOfRows());
 	}
 
-	public Animator getAnimator() {
-		return animator;
-	}
-
 	@Override
 	public IBounding getBounding() {
 		return null;
@@ -1,8 +1,11 @@
 package ebon.entities.components;
 
+import ebon.animation.*;
+import ebon.physics.*;
 import flounder.entities.*;
 import flounder.entities.components.*;
 import flounder.entities.template.*;
+import flounder.maths.vectors.*;
 import flounder.physics.*;
 import flounder.physics.bounding.*;
 
@@ -16,7 +19,15 @@ public class ComponentCollider extends IComponentEntity {
 
 	private AABB aabb;
 	private QuickHull hull;
+	private QuickHull convexSource;
+	private ConvexHull convexHull;
+	private boolean hullMoved;
+	private float[] poseBounds;
+	private AABB poseAABB;
+	private ConvexHull poseHull;
 	private boolean renderAABB;
+	private Vector3f placedPosition;
+	private boolean placed;
 
 	/**
 	 * Creates a new ComponentCollider.
@@ -27,7 +38,12 @@ public class ComponentCollider extends IComponentEntity {
 		super(entity, ID);
 		this.aabb = new AABB();
 		this.hull = new QuickHull();
+		this.convexSource = null;
+		this.convexHull = null;
+		this.hullMoved = false;
 		this.renderAABB = true;
+		this.placedPosition = new Vector3f();
+		this.placed = false;
 	}
 
 	/**
@@ -40,7 +56,12 @@ public class ComponentCollider extends IComponentEntity {
 		super(entity, ID);
 		this.aabb = new AABB();
 		this.hull = new QuickHull();
+		this.convexSource = null;
+		this.convexHull = null;
+		this.hullMoved = false;
 		this.renderAABB = true;
+		this.placedPosition = new Vector3f();
+		this.placed = false;
 	}
 
 	/**
@@ -51,14 +72,33 @@ public class ComponentCollider extends IComponentEntity {
 	}
 
 	/**
-	 * Gets the models convex hull.
+	 * Gets the models convex hull. The hull is only transformed when it is asked for after the entity moves, as most hulls are never tested.
 	 *
 	 * @return The models convex hull.
 	 */
 	public QuickHull getHull() {
+		if (hullMoved) {
+			ComponentModel componentModel = (ComponentModel) getEntity().getComponent(ComponentModel.ID);
+
+			if (componentModel != null && componentModel.getHull() != null) {
+				QuickHull.recalculate(componentModel.getHull(), hull, super.getEntity().getPosition(), super.getEntity().getRotation(), componentModel.getScale());
+			}
+
+			hullMoved = false;
+		}
+
 		return hull;
 	}
 
+	/**
+	 * Gets the models convex hull placed in the world, used by {@link GJK} to find collisions.
+	 *
+	 * @return The convex hull, or null if the model has none.
+	 */
+	public ConvexHull getConvexHull() {
+		return convexHull;
+	}
+
 	/**
 	 * Gets if the AABB should be rendered.
 	 *
@@ -79,21 +119,33 @@ public class ComponentCollider extends IComponentEntity {
 
 	@Override
 	public void update() {
-		if (super.getEntity().hasMoved()) {
+		ComponentAnimation componentAnimation = (ComponentAnimation) getEntity().getComponent(ComponentAnimation.ID);
+		AnimatedBounds animatedBounds = componentAnimation == null ? null : componentAnimation.getAnimatedBounds();
+
+		if (animatedBounds != null) {
+			// Animated bounds change with the pose, so they are looked up every update even when the entity has not moved.
+			updateAnimated(componentAnimation, animatedBounds);
+		} else if (super.getEntity().hasMoved() || !placed || EbonCollisions.needsPlacing(this)) {
 			ComponentModel componentModel = (ComponentModel) getEntity().getComponent(ComponentModel.ID);
 
-			if (componentModel != null && componentModel.getModel() != null && componentModel.getModel().getMeshData() != null && componentModel.getModel().getMeshData().getAABB() != null) {
-				AABB.recalculate(componentModel.getModel().getMeshData().getAABB(), super.getEntity().getPosition(), super.getEntity().getRotation(), componentModel.getScale(), aabb);
-				QuickHull.recalculate(componentModel.getModel().getMeshData().getHull(), hull, super.getEntity().getPosition(), super.getEntity().getRotation(), componentModel.getScale());
+			if (componentModel != null && componentModel.getAABB() != null) {
+				AABB.recalculate(componentModel.getAABB(), super.getEntity().getPosition(), super.getEntity().getRotation(), componentModel.getScale(), aabb);
+				place();
 			}
 
-			// TODO: Calculate the AABBs and Hulls from animated models.
-			/*ComponentAnimation componentAnimation = (ComponentAnimation) getEntity().getComponent(ComponentAnimation.ID);
+			if (componentModel != null && componentModel.getHull() != null) {
+				hullMoved = true;
 
-			if (componentAnimation != null && componentAnimation.getModel() != null && componentAnimation.getModel().getAABB() != null) {
-				AABB.recalculate(componentAnimation.getModel().getAABB(), super.getEntity().getPosition(), super.getEntity().getRotation(), componentAnimation.getScale(), aabb);
-				QuickHull.recalculate(componentAnimation.getModel().getHull(), hull, super.getEntity().getPosition(), super.getEntity().getRotation(), componentAnimation.getScale());
-			}*/
+				// The corners are copied once for each model hull, then only the placement changes as the entity moves.
+				if (convexSource != componentModel.getHull()) {
+					convexSource = componentModel.getHull();
+					convexHull = convexSource.getHullPoints() == null || convexSource.getHullPoints().isEmpty() ? null : new ConvexHull(convexSource);
+				}
+
+				if (convexHull != null) {
+					convexHull.setTransform(super.getEntity().getPosition(), super.getEntity().getRotation(), componentModel.getScale());
+				}
+			}
 		}
 
 		if (renderAABB) {
@@ -101,6 +153,39 @@ public class ComponentCollider extends IComponentEntity {
 		}
 	}
 
+	/**
+	 * Sets the bounds and hull from the bounds of the animation at the shown pose. The hull is the box around the pose, as the skinned mesh itself is never built on the CPU.
+	 */
+	private void updateAnimated(ComponentAnimation componentAnimation, AnimatedBounds animatedBounds) {
+		if (poseAABB == null) {
+			this.poseBounds = new float[6];
+			this.poseAABB = new AABB();
+			this.poseHull = new ConvexHull(new float[24]);
+		}
+
+		animatedBounds.sample(componentAnimation.getPoseTime(), poseBounds);
+		poseAABB.setMinExtents(poseBounds[0], poseBounds[1], poseBounds[2]);
+		poseAABB.setMaxExtents(poseBounds[3], poseBounds[4], poseBounds[5]);
+		AABB.recalculate(poseAABB, super.getEntity().getPosition(), super.getEntity().getRotation(), componentAnimation.getScale(), aabb);
+		place();
+
+		poseHull.setBox(poseBounds);
+		poseHull.setTransform(super.getEntity().getPosition(), super.getEntity().getRotation(), componentAnimation.getScale());
+		convexSource = null;
+		convexHull = poseHull;
+		hullMoved = false;
+	}
+
+	/**
+	 * Places the collider in the broadphase after its bounds change. The broadphase is told how far the collider moved, so its bounds there are stretched in that direction.
+	 */
+	private void place() {
+		Vector3f position = super.getEntity().getPosition();
+		EbonCollisions.place(this, aabb, position.x - placedPosition.x, position.y - placedPosition.y, position.z - placedPosition.z);
+		placedPosition.set(position);
+		placed = true;
+	}
+
 	@Override
 	public IBounding getBounding() {
 		return aabb;
@@ -108,5 +193,7 @@ public class ComponentCollider extends IComponentEntity {
 
 	@Override
 	public void dispose() {
+		EbonCollisions.remove(this);
+		placed = false;
 	}
 }
@@ -1,11 +1,14 @@
 package ebon.entities.components;
 
+import ebon.physics.*;
 import flounder.entities.*;
 import flounder.entities.components.*;
 import flounder.entities.template.*;
 import flounder.maths.vectors.*;
 import flounder.physics.*;
 
+import java.util.*;
+
 /**
  * Component that detects collision between two engine.entities.
  * <p>
@@ -14,6 +17,12 @@ import flounder.physics.*;
 public class ComponentCollision extends IComponentEntity implements IComponentMove {
 	public static final int ID = EntityIDAssigner.getId();
 
+	private Map<ConvexHull, GJKCache> caches;
+	private ConvexHull cachedHull;
+	private int cachedVersion;
+	private Penetration penetration;
+	private ComponentCollider physicsCollider;
+
 	/**
 	 * Creates a new ComponentCollision.
 	 *
@@ -21,6 +30,8 @@ public class ComponentCollision extends IComponentEntity implements IComponentMo
 	 */
 	public ComponentCollision(Entity entity) {
 		super(entity, ID);
+		this.caches = new WeakHashMap<>();
+		this.penetration = new Penetration();
 	}
 
 	/**
@@ -31,10 +42,18 @@ public class ComponentCollision extends IComponentEntity implements IComponentMo
 	 */
 	public ComponentCollision(Entity entity, EntityTemplate template) {
 		super(entity, ID);
+		this.caches = new WeakHashMap<>();
+		this.penetration = new Penetration();
 	}
 
 	@Override
 	public void update() {
+		ComponentCollider collider = (ComponentCollider) getEntity().getComponent(ComponentCollider.ID);
+
+		if (collider != null) {
+			EbonPhysics.sync(collider);
+			physicsCollider = collider;
+		}
 	}
 
 	/**
@@ -52,33 +71,64 @@ public class ComponentCollision extends IComponentEntity implements IComponentMo
 			return result;
 		}
 
-		AABB aabb1 = collider1.getAABB();
-		QuickHull hull1 = collider1.getHull();
-		final AABB collisionRange = AABB.stretch(aabb1, null, amount); // The range in where there can be collisions!
+		final AABB collisionRange = AABB.stretch(collider1.getAABB(), null, amount); // The range in where there can be collisions!
 
-		getEntity().visitInRange(ComponentCollision.ID, collisionRange, (Entity entity, IComponentEntity component) -> {
-			if (entity.equals(getEntity())) {
-				return;
+		// The collision broadphase is used when the collider is in it, otherwise the entities spatial structure is searched.
+		boolean visited = EbonCollisions.visitInRange(collider1, collisionRange, (ComponentCollider collider2) -> {
+			if (collider2.getEntity().getComponent(ComponentCollision.ID) != null) {
+				resolveCollision(collider1, collider2, collisionRange, result);
 			}
+		});
 
-			ComponentCollider collider2 = (ComponentCollider) entity.getComponent(ComponentCollider.ID);
+		if (!visited) {
+			getEntity().visitInRange(ComponentCollision.ID, collisionRange, (Entity entity, IComponentEntity component) -> {
+				ComponentCollider collider2 = (ComponentCollider) entity.getComponent(ComponentCollider.ID);
 
-			if (collider2 == null) {
-				return;
-			}
+				if (collider2 != null) {
+					resolveCollision(collider1, collider2, collisionRange, result);
+				}
+			});
+		}
 
-			AABB aabb2 = collider2.getAABB();
-			QuickHull hull2 = collider2.getHull();
+		return result;
+	}
 
-			if (aabb2 != null && aabb2.intersects(collisionRange).isIntersection()) {
-				if (hull1.intersects(hull2)) {
-					// TODO: Mesh collision maths not from AABB.
-					result.set((float) resolveCollisionX(aabb1, aabb2, result.getX()), (float) resolveCollisionY(aabb1, aabb2, result.getY()), (float) resolveCollisionZ(aabb1, aabb2, result.getZ()));
-				}
+	/**
+	 * Shortens a move so it does not collide with another collider.
+	 *
+	 * @param collider1 The collider being moved.
+	 * @param collider2 The collider that may be collided with.
+	 * @param collisionRange The range in where there can be collisions.
+	 * @param result The move vector to shorten.
+	 */
+	private void resolveCollision(ComponentCollider collider1, ComponentCollider collider2, AABB collisionRange, Vector3f result) {
+		if (collider2.getEntity().equals(getEntity())) {
+			return;
+		}
+
+		AABB aabb1 = collider1.getAABB();
+		AABB aabb2 = collider2.getAABB();
+
+		if (aabb2 == null || !aabb2.intersects(collisionRange).isIntersection()) {
+			return;
+		}
+
+		ConvexHull convex1 = collider1.getConvexHull();
+		ConvexHull convex2 = collider2.getConvexHull();
+
+		if (convex1 != null && convex2 != null) {
+			if (convex1 != cachedHull || convex1.getVersion() != cachedVersion) {
+				// This colliders hull was replaced or reshaped, so the simplices it ended with are no use.
+				caches.clear();
+				cachedHull = convex1;
+				cachedVersion = convex1.getVersion();
 			}
-		});
 
-		return result;
+			// The hulls are tested where this one would be after the move, starting from the simplex the last test between them ended with. Caches are held by the other hull, so a collider that changes its hull starts again.
+			GJK.resolveMove(convex1, convex2, caches.computeIfAbsent(convex2, k -> new GJKCache()), penetration, result);
+		} else if (collider1.getHull().intersects(collider2.getHull())) {
+			result.set((float) resolveCollisionX(aabb1, aabb2, result.getX()), (float) resolveCollisionY(aabb1, aabb2, result.getY()), (float) resolveCollisionZ(aabb1, aabb2, result.getZ()));
+		}
 	}
 
 	public double resolveCollisionX(AABB thisAABB, AABB other, double moveAmountX) {
@@ -148,6 +198,14 @@ public class ComponentCollision extends IComponentEntity implements IComponentMo
 
 	@Override
 	public void move(Entity entity, Vector3f moveAmount, Vector3f rotateAmount) {
+		ComponentCollider collider = (ComponentCollider) getEntity().getComponent(ComponentCollider.ID);
+
+		// When the physics world is running the move is resolved in its next step, and the entity is moved there as steps are published.
+		if (collider != null && EbonPhysics.move(collider, moveAmount, rotateAmount)) {
+			physicsCollider = collider;
+			return;
+		}
+
 		Vector3f move = resolveAABBCollisions(moveAmount);
 		Vector3f rotate = rotateAmount; // TODO: Stop some rotations?
 		entity.getPosition().set(entity.getPosition().x + move.x, entity.getPosition().y + move.y, entity.getPosition().z + move.z);
@@ -156,5 +214,12 @@ public class ComponentCollision extends IComponentEntity implements IComponentMo
 
 	@Override
 	public void dispose() {
+		if (physicsCollider != null) {
+			EbonPhysics.remove(physicsCollider);
+			physicsCollider = null;
+		}
+
+		caches.clear();
+		cachedHull = null;
 	}
 }
@@ -1,9 +1,13 @@
 package ebon.entities.components;
 
+import ebon.entities.loading.*;
+import ebon.models.*;
+import ebon.textures.*;
+import flounder.camera.*;
 import flounder.entities.*;
 import flounder.entities.components.*;
 import flounder.entities.template.*;
-import flounder.materials.*;
+import flounder.logger.*;
 import flounder.maths.matrices.*;
 import flounder.maths.vectors.*;
 import flounder.models.*;
@@ -11,18 +15,44 @@ import flounder.physics.*;
 import flounder.resources.*;
 import flounder.textures.*;
 
+import java.util.*;
+import java.util.concurrent.*;
+
 /**
  * Creates a model with a texture that can be rendered into the world.
  */
 public class ComponentModel extends IComponentEntity {
 	public static final int ID = EntityIDAssigner.getId();
 
+	/**
+	 * The projected screen size below which each simplified level is used, the first entry is for level 1.
+	 */
+	public static final float[] LOD_SCREEN_SIZES = {0.3f, 0.12f, 0.05f};
+
+	/**
+	 * How far past a screen size threshold a model has to be before its level of detail changes.
+	 */
+	public static final float LOD_HYSTERESIS = 0.15f;
+
 	private Model model;
+	private SharedMesh sharedMesh;
+	private Model[] lods;
+	private QuantizedModel[] quantizedLods;
+	private float radius;
+	private AABB aabb;
+	private QuickHull hull;
+	private int lodLevel;
+
+	private boolean isStatic;
+	private boolean occluder;
+	private float[] occluderVertices;
+	private int[] occluderIndices;
 	private float scale;
 	private Matrix4f modelMatrix;
 
 	private Texture texture;
 	private Texture normalMap;
+	private Vector4f textureTransform;
 	private float transparency;
 	private int textureIndex;
 
@@ -38,12 +68,13 @@ public class ComponentModel extends IComponentEntity {
 	 */
 	public ComponentModel(Entity entity, Model model, float scale, Texture texture, Texture normalMap, int textureIndex) {
 		super(entity, ID);
-		this.model = model;
+		setModel(model);
 		this.scale = scale;
 		this.modelMatrix = new Matrix4f();
 
 		this.texture = texture;
 		this.normalMap = normalMap;
+		this.textureTransform = new Vector4f(1.0f, 1.0f, 0.0f, 0.0f);
 		this.transparency = 1.0f;
 		this.textureIndex = textureIndex;
 	}
@@ -57,71 +88,206 @@ public class ComponentModel extends IComponentEntity {
 	public ComponentModel(Entity entity, EntityTemplate template) {
 		super(entity, ID);
 
-		this.model = Model.newModel(new ModelBuilder.LoadManual() {
-			@Override
-			public String getModelName() {
-				return template.getEntityName();
-			}
+		// Every instance of a template draws the same models, so only the first instance loads them, unless they were prepared on a loading thread.
+		this.sharedMesh = MeshRegistry.acquire(template.getEntityName(), () -> {
+			PreparedMesh prepared = MeshRegistry.takePrepared(template.getEntityName());
+			return (prepared != null ? prepared : prepareMesh(template)).upload();
+		});
+		this.model = sharedMesh.getModel();
+		this.lods = sharedMesh.getLods();
+		this.quantizedLods = sharedMesh.getQuantizedLods();
+		this.radius = sharedMesh.getRadius();
+		this.aabb = sharedMesh.getAABB();
+		this.hull = sharedMesh.getHull();
+		this.isStatic = Boolean.parseBoolean(template.getValue(this, "Static"));
+
+		if (sharedMesh.getOccluderIndices() != null) {
+			this.occluderVertices = sharedMesh.getOccluderVertices();
+			this.occluderIndices = sharedMesh.getOccluderIndices();
+			this.occluder = true;
+		}
 
-			@Override
-			public float[] getVertices() {
-				return EntityTemplate.toFloatArray(template.getSectionData(ComponentModel.this, "Vertices"));
-			}
+		this.scale = Float.parseFloat(template.getValue(this, "Scale"));
+		this.modelMatrix = new Matrix4f();
 
-			@Override
-			public float[] getTextureCoords() {
-				return EntityTemplate.toFloatArray(template.getSectionData(ComponentModel.this, "TextureCoords"));
+		String texturePath = template.getValue(this, "Texture");
+		String normalMapPath = template.getValue(this, "NormalMap");
+		AtlasRegion region = texturePath.equals("null") ? null : TextureRegistry.getRegion(texturePath);
+		this.textureTransform = new Vector4f(1.0f, 1.0f, 0.0f, 0.0f);
+
+		if (region != null) {
+			// The texture was packed into a atlas page, so it is shared with every other packed entity.
+			this.texture = TextureRegistry.get(region.getDiffusePage(), 1);
+			this.normalMap = normalMapPath.equals("null") ? null : TextureRegistry.get(region.getNormalPage(), 1);
+			this.textureTransform.set(region.getScaleX(), region.getScaleY(), region.getOffsetX(), region.getOffsetY());
+		} else {
+			if (!texturePath.equals("null")) {
+				this.texture = TextureRegistry.get(texturePath, Integer.parseInt(template.getValue(this, "TextureNumRows")));
 			}
 
-			@Override
-			public float[] getNormals() {
-				return EntityTemplate.toFloatArray(template.getSectionData(ComponentModel.this, "Normals"));
+			if (!normalMapPath.equals("null")) {
+				this.normalMap = TextureRegistry.get(normalMapPath, Integer.parseInt(template.getValue(this, "NormalMapNumRows")));
 			}
+		}
 
-			@Override
-			public float[] getTangents() {
-				return EntityTemplate.toFloatArray(template.getSectionData(ComponentModel.this, "Tangents"));
-			}
+		this.transparency = 1.0f;
+	}
 
-			@Override
-			public int[] getIndices() {
-				return EntityTemplate.toIntArray(template.getSectionData(ComponentModel.this, "Indices"));
-			}
+	/**
+	 * Parses and processes the mesh of a template without uploading it, so it can be run on a worker thread before the entity is created.
+	 *
+	 * @param template The entity template to load data from.
+	 *
+	 * @return The prepared mesh, or null if the template has no model.
+	 */
+	public static PreparedMesh prepare(EntityTemplate template) {
+		// The component only identifies which sections of the template to read.
+		return new ComponentModel(null, null, 1.0f, null, null, 0).prepareMesh(template);
+	}
 
-			@Override
-			public Material[] getMaterials() {
-				return new Material[]{}; // TODO: Save and load materials!
-			}
+	private PreparedMesh prepareMesh(EntityTemplate template) {
+		short[] quantizedVertices = CompiledEntity.getShortArray(template, ComponentModel.this, "QuantizedVertices");
 
-			@Override
-			public AABB getAABB() {
-				return null; // TODO: Load AABB.
-			}
+		if (quantizedVertices != null) {
+			return prepareQuantizedMesh(template, quantizedVertices);
+		}
 
-			@Override
-			public QuickHull getHull() {
-				return null; // TODO: Load hull.
-			}
-		}).create();
+		// The sections are independent, so they are parsed at the same time.
+		CompletableFuture<float[]> textureCoordsFuture = CompiledEntity.getFloatArrayAsync(template, ComponentModel.this, "TextureCoords");
+		CompletableFuture<float[]> normalsFuture = CompiledEntity.getFloatArrayAsync(template, ComponentModel.this, "Normals");
+		CompletableFuture<float[]> tangentsFuture = CompiledEntity.getFloatArrayAsync(template, ComponentModel.this, "Tangents");
+		CompletableFuture<int[]> indicesFuture = CompiledEntity.getIntArrayAsync(template, ComponentModel.this, "Indices");
+		float[] vertices = CompiledEntity.getFloatArray(template, ComponentModel.this, "Vertices");
 
-		this.scale = Float.parseFloat(template.getValue(this, "Scale"));
-		this.modelMatrix = new Matrix4f();
+		if (vertices == null) {
+			return null;
+		}
+
+		float[] textureCoords = textureCoordsFuture.join();
+		float[] normals = normalsFuture.join();
+		float[] tangents = tangentsFuture.join();
+		int[] indices = indicesFuture.join();
+		int[][] lodIndices = loadLodIndices(template, vertices, textureCoords, indices);
+		return new PreparedMesh(template.getEntityName(), vertices, textureCoords, normals, tangents, indices, lodIndices, loadAABB(template, vertices), loadHullPoints(template, vertices), Boolean.parseBoolean(template.getValue(this, "Occluder")));
+	}
+
+	/**
+	 * Decodes a mesh compiled with quantized vertices, the levels of detail and occluder are built from the decoded vertices.
+	 */
+	private PreparedMesh prepareQuantizedMesh(EntityTemplate template, short[] quantizedVertices) {
+		float[] bounds = CompiledEntity.getFloatArray(template, ComponentModel.this, "QuantizedBounds");
+		short[] quantizedTextureCoords = CompiledEntity.getShortArray(template, ComponentModel.this, "QuantizedTextureCoords");
+		short[] quantizedNormals = CompiledEntity.getShortArray(template, ComponentModel.this, "QuantizedNormals");
+		short[] quantizedTangents = CompiledEntity.getShortArray(template, ComponentModel.this, "QuantizedTangents");
+		int[] indices = CompiledEntity.getIntArray(template, ComponentModel.this, "Indices");
+
+		float[] vertices = VertexQuantizer.decodePositions(quantizedVertices, bounds);
+		float[] textureCoords = quantizedTextureCoords == null ? null : VertexQuantizer.decodeHalfFloats(quantizedTextureCoords);
+		float[] normals = quantizedNormals == null ? null : VertexQuantizer.decodeOctahedral(quantizedNormals);
+		float[] tangents = quantizedTangents == null ? null : VertexQuantizer.decodeOctahedral(quantizedTangents);
+		int[][] lodIndices = loadLodIndices(template, vertices, textureCoords, indices);
+		return new PreparedMesh(template.getEntityName(), vertices, textureCoords, normals, tangents, indices, lodIndices, loadAABB(template, vertices), loadHullPoints(template, vertices), Boolean.parseBoolean(template.getValue(this, "Occluder")));
+	}
+
+	/**
+	 * Loads the bounding box saved with the entity, or calculates it now if the entity was saved without one.
+	 */
+	private float[] loadAABB(EntityTemplate template, float[] vertices) {
+		float[] aabb = CompiledEntity.getFloatArray(template, ComponentModel.this, "AABB");
 
-		if (!template.getValue(this, "Texture").equals("null")) {
-			this.texture = Texture.newTexture(new MyFile(template.getValue(this, "Texture"))).create();
-			this.texture.setNumberOfRows(Integer.parseInt(template.getValue(this, "TextureNumRows")));
+		if (aabb == null || aabb.length < 6) {
+			FlounderLogger.log(template.getEntityName() + " has no saved AABB, it is being calculated right now!");
+			return MeshBounds.getAABB(vertices);
 		}
 
-		if (!template.getValue(this, "NormalMap").equals("null")) {
-			this.normalMap = Texture.newTexture(new MyFile(template.getValue(this, "NormalMap"))).create();
-			this.normalMap.setNumberOfRows(Integer.parseInt(template.getValue(this, "NormalMapNumRows")));
+		return aabb;
+	}
+
+	/**
+	 * Loads the convex hull saved with the entity, or calculates it now if the entity was saved without one.
+	 */
+	private float[] loadHullPoints(EntityTemplate template, float[] vertices) {
+		float[] hullPoints = CompiledEntity.getFloatArray(template, ComponentModel.this, "QuickHull");
+
+		if (hullPoints == null || hullPoints.length < 3) {
+			FlounderLogger.log(template.getEntityName() + " has no saved hull, it is being calculated right now!");
+			return MeshBounds.getHullPoints(vertices);
 		}
 
-		this.transparency = 1.0f;
+		return hullPoints;
+	}
+
+	/**
+	 * Keeps a compacted copy of a low detail mesh, already pulled inside the full mesh, on the CPU to be rasterized as a occluder.
+	 */
+	private void loadOccluder(float[] vertices, int[] indices) {
+		int[] remap = new int[vertices.length / 3];
+		this.occluderIndices = MeshSimplifier.compactIndices(indices, remap);
+		this.occluderVertices = MeshSimplifier.compactAttribute(vertices, 3, remap);
+		this.occluder = true;
+	}
+
+	/**
+	 * Loads the indices of each level of detail saved with the entity, or simplifies the mesh now if the entity was saved without them.
+	 */
+	private int[][] loadLodIndices(EntityTemplate template, float[] vertices, float[] textureCoords, int[] indices) {
+		int[] data = CompiledEntity.getIntArray(template, ComponentModel.this, "LodIndices");
+
+		if (data == null || data.length == 0) {
+			FlounderLogger.log(template.getEntityName() + " has no saved LODs, they are being generated right now!");
+			return MeshSimplifier.simplify(vertices, textureCoords, indices, MeshSimplifier.DEFAULT_RATIOS);
+		}
+
+		// Saved as the number of levels, then the length and indices of each level.
+		int[][] lodIndices = new int[Math.min(data[0], LOD_SCREEN_SIZES.length)][];
+		int pointer = 1;
+
+		for (int i = 0; i < lodIndices.length; i++) {
+			lodIndices[i] = Arrays.copyOfRange(data, pointer + 1, pointer + 1 + data[pointer]);
+			pointer += data[pointer] + 1;
+		}
+
+		return lodIndices;
 	}
 
 	@Override
 	public void update() {
+		ICamera camera = FlounderCamera.getCamera();
+
+		if (getLodCount() > 1 && camera != null && camera.getPosition() != null) {
+			float screenSize = getScreenSize(camera);
+
+			// A level is only changed once the model is past the threshold by the hysteresis, so models sitting on a threshold do not flicker between levels.
+			while (lodLevel < getLodCount() - 1 && screenSize < LOD_SCREEN_SIZES[lodLevel] * (1.0f - LOD_HYSTERESIS)) {
+				lodLevel++;
+			}
+
+			while (lodLevel > 0 && screenSize > LOD_SCREEN_SIZES[lodLevel - 1] * (1.0f + LOD_HYSTERESIS)) {
+				lodLevel--;
+			}
+		}
+	}
+
+	/**
+	 * Gets the projected size of the models bounding sphere, as a fraction of the screens height.
+	 *
+	 * @param camera The camera to project with.
+	 *
+	 * @return The projected screen size.
+	 */
+	public float getScreenSize(ICamera camera) {
+		float dx = super.getEntity().getPosition().x - camera.getPosition().x;
+		float dy = super.getEntity().getPosition().y - camera.getPosition().y;
+		float dz = super.getEntity().getPosition().z - camera.getPosition().z;
+		float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+		float worldRadius = radius * scale;
+
+		if (distance <= worldRadius) {
+			return 1.0f;
+		}
+
+		// The projections m11 is 1 / tan(fov / 2), so this is the spheres radius over the half height of the view at that distance.
+		return worldRadius * camera.getProjectionMatrix().m11 / distance;
 	}
 
 	public Model getModel() {
@@ -129,7 +295,157 @@ public class ComponentModel extends IComponentEntity {
 	}
 
 	public void setModel(Model model) {
+		boolean wasOccluder = occluder;
+		MeshRegistry.release(sharedMesh);
+		this.sharedMesh = null;
 		this.model = model;
+		this.lods = new Model[]{model};
+		this.quantizedLods = null;
+		this.lodLevel = 0;
+		this.radius = 0.0f;
+		this.aabb = model == null || model.getMeshData() == null ? null : model.getMeshData().getAABB();
+		this.hull = model == null || model.getMeshData() == null ? null : model.getMeshData().getHull();
+		this.occluder = false;
+		this.occluderVertices = null;
+		this.occluderIndices = null;
+
+		if (model != null && model.getMeshData() != null && model.getMeshData().getVertices() != null) {
+			float[] vertices = model.getMeshData().getVertices();
+
+			for (int i = 0; i < vertices.length / 3; i++) {
+				radius = Math.max(radius, (float) Math.sqrt(vertices[i * 3] * vertices[i * 3] + vertices[i * 3 + 1] * vertices[i * 3 + 1] + vertices[i * 3 + 2] * vertices[i * 3 + 2]));
+			}
+		}
+
+		setOccluder(wasOccluder);
+	}
+
+	/**
+	 * Gets the model for the current level of detail, this is the model that should be rendered.
+	 *
+	 * @return The level of detail model, or null if the mesh is quantized.
+	 */
+	public Model getLodModel() {
+		return lods == null ? null : lods[lodLevel];
+	}
+
+	/**
+	 * Gets the quantized model for the current level of detail, this is rendered in place of {@link #getLodModel()} when the mesh was loaded quantized.
+	 *
+	 * @return The quantized level of detail model, or null if the mesh is not quantized.
+	 */
+	public QuantizedModel getQuantizedLodModel() {
+		return quantizedLods == null ? null : quantizedLods[lodLevel];
+	}
+
+	/**
+	 * Gets the current level of detail, 0 is the full detail model.
+	 *
+	 * @return The level of detail.
+	 */
+	public int getLodLevel() {
+		return lodLevel;
+	}
+
+	/**
+	 * Gets the radius of the models bounding sphere, before scaling.
+	 *
+	 * @return The bounding radius.
+	 */
+	public float getRadius() {
+		return radius;
+	}
+
+	/**
+	 * Gets the models bounding box, before it is transformed. This is loaded with the template so it is known from the first frame, and is shared between instances so must not be changed.
+	 *
+	 * @return The bounding box, or null if the model has none.
+	 */
+	public AABB getAABB() {
+		return aabb;
+	}
+
+	/**
+	 * Gets the models convex hull, before it is transformed. This is loaded with the template so it is known from the first frame, and is shared between instances so must not be changed.
+	 *
+	 * @return The convex hull, or null if the model has none.
+	 */
+	public QuickHull getHull() {
+		return hull;
+	}
+
+	/**
+	 * Gets if this entity never moves, static models are merged with their neighbours into batches.
+	 *
+	 * @return If this model is static.
+	 */
+	public boolean isStatic() {
+		return isStatic;
+	}
+
+	/**
+	 * Sets if this entity never moves, static models are merged with their neighbours into batches.
+	 *
+	 * @param isStatic If this model is static.
+	 */
+	public void setStatic(boolean isStatic) {
+		this.isStatic = isStatic;
+	}
+
+	/**
+	 * Gets if this model is drawn into the occlusion buffer to hide entities behind it.
+	 *
+	 * @return If this model is a occluder.
+	 */
+	public boolean isOccluder() {
+		return occluder;
+	}
+
+	/**
+	 * Sets if this model is drawn into the occlusion buffer to hide entities behind it. A low detail copy of the mesh is generated and kept on the CPU the first time.
+	 *
+	 * @param occluder If this model is a occluder.
+	 */
+	public void setOccluder(boolean occluder) {
+		if (occluder && occluderIndices == null) {
+			if (model == null || model.getMeshData() == null || model.getMeshData().getVertices() == null) {
+				return;
+			}
+
+			MeshData meshData = model.getMeshData();
+			float lowestRatio = MeshSimplifier.DEFAULT_RATIOS[MeshSimplifier.DEFAULT_RATIOS.length - 1];
+			int[] coarseIndices = MeshSimplifier.simplify(meshData.getVertices(), null, meshData.getIndices(), lowestRatio)[0];
+			loadOccluder(MeshSimplifier.shrinkInside(meshData.getVertices(), meshData.getIndices(), coarseIndices), coarseIndices);
+		}
+
+		this.occluder = occluder && occluderIndices != null;
+	}
+
+	/**
+	 * Gets the occluder mesh vertex positions, in model space.
+	 *
+	 * @return The occluder vertices, or null if this is not a occluder.
+	 */
+	public float[] getOccluderVertices() {
+		return occluderVertices;
+	}
+
+	/**
+	 * Gets the occluder mesh triangle indices.
+	 *
+	 * @return The occluder indices, or null if this is not a occluder.
+	 */
+	public int[] getOccluderIndices() {
+		return occluderIndices;
+	}
+
+	/**
+	 * Gets the number of levels of detail this model has, including the full detail model.
+	 *
+	 * @return The number of levels.
+	 */
+	public int getLodCount() {
+		return lods != null ? lods.length : quantizedLods.length;
 	}
 
 	public float getScale() {
@@ -159,6 +475,7 @@ public class ComponentModel extends IComponentEntity {
 
 	public void setTexture(Texture texture) {
 		this.texture = texture;
+		this.textureTransform.set(1.0f, 1.0f, 0.0f, 0.0f);
 	}
 
 	/**
@@ -172,6 +489,15 @@ public class ComponentModel extends IComponentEntity {
 		return new Vector2f((float) row / (float) texture.getNumberOfRows(), (float) column / (float) texture.getNumberOfRows());
 	}
 
+	/**
+	 * Gets the transform from the models texture coordinates to where its texture was packed into a atlas page.
+	 *
+	 * @return The texture coordinate scale (x, y) and offset (z, w).
+	 */
+	public Vector4f getTextureTransform() {
+		return textureTransform;
+	}
+
 	public Texture getNormalMap() {
 		return normalMap;
 	}
@@ -199,5 +525,7 @@ public class ComponentModel extends IComponentEntity {
 
 	@Override
 	public void dispose() {
+		MeshRegistry.release(sharedMesh);
+		sharedMesh = null;
 	}
 }
@@ -1,9 +1,8 @@
 package ebon.entities.editing;
 
+import ebon.animation.*;
 import ebon.entities.components.*;
 import flounder.animation.*;
-import flounder.collada.*;
-import flounder.collada.animation.*;
 import flounder.entities.*;
 import flounder.entities.components.*;
 import flounder.entities.template.*;
@@ -97,11 +96,9 @@ public class EditorAnimation extends IComponentEditor {
 		if (component != null) {
 			if (pathCollada != null/*  && (component.getModel() == null|| !component.getModel().getFile().equals(pathCollada.getPath()))*/) {
 				if (pathCollada.getPath().contains(".dae")) {
-					ModelAnimated modelAnimated = FlounderCollada.loadCollada(pathCollada);
-					AnimationData animationData = FlounderCollada.loadAnimation(pathCollada);
-					Animation animation = FlounderAnimation.loadAnimation(animationData);
-					component.setModel(modelAnimated);
-					component.doAnimation(animation);
+					CachedCollada collada = CachedCollada.get(pathCollada);
+					component.setModel(collada.getModel());
+					component.doAnimation(collada.getAnimation());
 				}
 
 				pathCollada = null;
@@ -121,39 +118,14 @@ public class EditorAnimation extends IComponentEditor {
 	@Override
 	public Pair<String[], EntitySaverFunction[]> getSavableValues(String entityName) {
 		if (component.getTexture() != null) {
-			try {
-				File file = new File("entities/" + entityName + "/" + entityName + "Diffuse.png");
-
-				if (file.exists()) {
-					file.delete();
-				}
-
-				file.createNewFile();
-
-				InputStream input = component.getTexture().getFile().getInputStream();
-				OutputStream output = new FileOutputStream(file);
-				byte[] buf = new byte[1024];
-				int bytesRead;
-
-				while ((bytesRead = input.read(buf)) > 0) {
-					output.write(buf, 0, bytesRead);
-				}
-
-				input.close();
-				output.close();
-			} catch (IOException e) {
-				FlounderLogger.exception(e);
-			}
+			EntityWriter.copyFile(component.getTexture().getFile(), EntityWriter.getSavePath(entityName, entityName + "Diffuse.png"));
 		}
 
 		EntitySaverFunction saveVertices = new EntitySaverFunction("Vertices") {
 			@Override
 			public void writeIntoSection(FileWriterHelper entityFileWriter) throws IOException {
 				if (component.getModel() != null) {
-					for (float v : component.getModel().getMeshData().getVertices()) {
-						String s = v + ",";
-						entityFileWriter.writeSegmentData(s);
-					}
+					EntityWriter.writeFloats(entityFileWriter, component.getModel().getMeshData().getVertices());
 				}
 			}
 		};
@@ -161,10 +133,7 @@ public class EditorAnimation extends IComponentEditor {
 			@Override
 			public void writeIntoSection(FileWriterHelper entityFileWriter) throws IOException {
 				if (component.getModel() != null) {
-					for (float v : component.getModel().getMeshData().getTextures()) {
-						String s = v + ",";
-						entityFileWriter.writeSegmentData(s);
-					}
+					EntityWriter.writeFloats(entityFileWriter, component.getModel().getMeshData().getTextures());
 				}
 			}
 		};
@@ -172,10 +141,7 @@ public class EditorAnimation extends IComponentEditor {
 			@Override
 			public void writeIntoSection(FileWriterHelper entityFileWriter) throws IOException {
 				if (component.getModel() != null) {
-					for (float v : component.getModel().getMeshData().getNormals()) {
-						String s = v + ",";
-						entityFileWriter.writeSegmentData(s);
-					}
+					EntityWriter.writeFloats(entityFileWriter, component.getModel().getMeshData().getNormals());
 				}
 			}
 		};
@@ -183,10 +149,7 @@ public class EditorAnimation extends IComponentEditor {
 			@Override
 			public void writeIntoSection(FileWriterHelper entityFileWriter) throws IOException {
 				if (component.getModel() != null) {
-					for (float v : component.getModel().getMeshData().getTangents()) {
-						String s = v + ",";
-						entityFileWriter.writeSegmentData(s);
-					}
+					EntityWriter.writeFloats(entityFileWriter, component.getModel().getMeshData().getTangents());
 				}
 			}
 		};
@@ -194,10 +157,7 @@ public class EditorAnimation extends IComponentEditor {
 			@Override
 			public void writeIntoSection(FileWriterHelper entityFileWriter) throws IOException {
 				if (component.getModel() != null) {
-					for (int i : component.getModel().getMeshData().getIndices()) {
-						String s = i + ",";
-						entityFileWriter.writeSegmentData(s);
-					}
+					EntityWriter.writeInts(entityFileWriter, component.getModel().getMeshData().getIndices());
 				}
 			}
 		};
@@ -205,10 +165,7 @@ public class EditorAnimation extends IComponentEditor {
 			@Override
 			public void writeIntoSection(FileWriterHelper entityFileWriter) throws IOException {
 				if (component.getModel() != null) {
-					for (int i : component.getModel().getMeshData().getJointIds()) {
-						String s = i + ",";
-						entityFileWriter.writeSegmentData(s);
-					}
+					EntityWriter.writeInts(entityFileWriter, component.getModel().getMeshData().getJointIds());
 				}
 			}
 		};
@@ -216,10 +173,7 @@ public class EditorAnimation extends IComponentEditor {
 			@Override
 			public void writeIntoSection(FileWriterHelper entityFileWriter) throws IOException {
 				if (component.getModel() != null) {
-					for (float v : component.getModel().getMeshData().getVertexWeights()) {
-						String s = v + ",";
-						entityFileWriter.writeSegmentData(s);
-					}
+					EntityWriter.writeFloats(entityFileWriter, component.getModel().getMeshData().getVertexWeights());
 				}
 			}
 		};
@@ -231,20 +185,21 @@ public class EditorAnimation extends IComponentEditor {
 					List<Joint> joints = new ArrayList<>();
 					headJoint.addSelfAndChildren(joints);
 
-					for (Joint joint : joints) {
-						String s = (joint == headJoint ? "true," : "false,") + joint.getIndex() + "," + joint.getName() + ",";
+					StringBuilder builder = new StringBuilder(joints.size() * 256);
 
-						for (float v : Matrix4f.toArray(joint.getLocalBindTransform())) {
-							s += v + ",";
-						}
+					for (Joint joint : joints) {
+						builder.append(joint == headJoint ? "true," : "false,").append(joint.getIndex()).append(',').append(joint.getName()).append(',');
+						EntityWriter.appendFloats(builder, Matrix4f.toArray(joint.getLocalBindTransform()));
 
 						for (Joint c : joint.getChildren()) {
-							s += c.getName() + "|";
+							builder.append(c.getName()).append('|');
 						}
 
-						entityFileWriter.writeSegmentData(s + ",");
+						builder.append(',');
 					}
 
+					entityFileWriter.writeSegmentData(builder.toString());
+
 					//public final int index;
 					//public final String name;
 					//public final List<Joint> children;
@@ -255,18 +210,22 @@ public class EditorAnimation extends IComponentEditor {
 		EntitySaverFunction saveAnimation = new EntitySaverFunction("Animation") {
 			@Override
 			public void writeIntoSection(FileWriterHelper entityFileWriter) throws IOException {
-				if (component.getAnimator() != null && component.getAnimator().getCurrentAnimation() != null) {
-					Animation animation = component.getAnimator().getCurrentAnimation();
+				if (component.getAnimation() != null) {
+					Animation animation = component.getAnimation();
+
+					StringBuilder builder = new StringBuilder();
 
 					for (KeyFrameJoints frame : animation.getKeyFrameJointss()) {
-						for (String name : frame.getJointKeyFrames().keySet()) {
-							JointTransform joint = frame.getJointKeyFrames().get(name);
-							Vector3f position = joint.getPosition();
-							Quaternion rotation = joint.getRotation();
-							String s = frame.getTimeStamp() + "," + name + "," + position.x + "," + position.y + "," + position.z + "," + rotation.x + "," + rotation.y + "," + rotation.z + "," + rotation.w + ",";
-							entityFileWriter.writeSegmentData(s);
+						for (Map.Entry<String, JointTransform> joint : frame.getJointKeyFrames().entrySet()) {
+							Vector3f position = joint.getValue().getPosition();
+							Quaternion rotation = joint.getValue().getRotation();
+							builder.append(frame.getTimeStamp()).append(',').append(joint.getKey()).append(',');
+							builder.append(position.x).append(',').append(position.y).append(',').append(position.z).append(',');
+							builder.append(rotation.x).append(',').append(rotation.y).append(',').append(rotation.z).append(',').append(rotation.w).append(',');
 						}
 					}
+
+					entityFileWriter.writeSegmentData(builder.toString());
 				}
 			}
 		};
@@ -278,7 +237,7 @@ public class EditorAnimation extends IComponentEditor {
 		String saveTexture = "Texture: " + (component.getTexture() == null ? null : "res/entities/" + entityName + "/" + entityName + "Diffuse.png");
 		String saveTextureNumRows = "TextureNumRows: " + (component.getTexture() == null ? 1 : component.getTexture().getNumberOfRows());
 
-		String saveAnimationLength = "AnimationLength: " + (component.getAnimator() != null && component.getAnimator().getCurrentAnimation() != null ? component.getAnimator().getCurrentAnimation().getLength() : null);
+		String saveAnimationLength = "AnimationLength: " + (component.getAnimation() != null ? component.getAnimation().getLength() : null);
 		String saveJointCount = "JointCount: " + (component.getModel() != null && component.getModel().getJointsData() != null ? component.getModel().getJointsData().getJointCount() : null);
 
 		return new Pair<>(
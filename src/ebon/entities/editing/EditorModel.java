@@ -1,12 +1,12 @@
 package ebon.entities.editing;
 
 import ebon.entities.components.*;
+import ebon.models.*;
 import flounder.entities.*;
 import flounder.entities.components.*;
 import flounder.entities.template.*;
 import flounder.helpers.*;
 import flounder.logger.*;
-import flounder.maths.vectors.*;
 import flounder.models.*;
 import flounder.resources.*;
 import flounder.textures.*;
@@ -15,8 +15,9 @@ import javax.swing.*;
 import javax.swing.event.*;
 import java.awt.event.*;
 import java.io.*;
+import java.util.*;
 
-public class EditorModel extends IComponentEditor {
+public class EditorModel extends IComponentEditor implements EditorSnapshot.Deferred {
 	public ComponentModel component;
 
 	private MyFile pathModel;
@@ -102,6 +103,22 @@ public class EditorModel extends IComponentEditor {
 		scaleSlider.setPaintTicks(true);
 		scaleSlider.setPaintLabels(true);
 		panel.add(scaleSlider);
+
+		// Static Checkbox.
+		JCheckBox isStatic = new JCheckBox("Static");
+		isStatic.setSelected(component.isStatic());
+		isStatic.addItemListener((ItemEvent e) -> {
+			component.setStatic(isStatic.isSelected());
+		});
+		panel.add(isStatic);
+
+		// Occluder Checkbox.
+		JCheckBox occluder = new JCheckBox("Occluder");
+		occluder.setSelected(component.isOccluder());
+		occluder.addItemListener((ItemEvent e) -> {
+			component.setOccluder(occluder.isSelected());
+		});
+		panel.add(occluder);
 	}
 
 	@Override
@@ -138,137 +155,156 @@ public class EditorModel extends IComponentEditor {
 
 	@Override
 	public Pair<String[], EntitySaverFunction[]> getSavableValues(String entityName) {
-		if (component.getTexture() != null) {
-			try {
-				File file = new File("entities/" + entityName + "/" + entityName + "Diffuse.png");
-
-				if (file.exists()) {
-					file.delete();
-				}
-
-				file.createNewFile();
-
-				InputStream input = component.getTexture().getFile().getInputStream();
-				OutputStream output = new FileOutputStream(file);
-				byte[] buf = new byte[1024];
-				int bytesRead;
-
-				while ((bytesRead = input.read(buf)) > 0) {
-					output.write(buf, 0, bytesRead);
-				}
+		EditorSnapshot snapshot = getSnapshot(entityName);
 
-				input.close();
-				output.close();
-			} catch (IOException e) {
-				FlounderLogger.exception(e);
-			}
+		for (EditorSnapshot.Step step : snapshot.getSteps()) {
+			step.run();
 		}
 
-		if (component.getNormalMap() != null) {
-			try {
-				File file = new File("entities/" + entityName + "/" + entityName + "Normal.png");
+		return snapshot.getSavableValues(entityName);
+	}
 
-				if (file.exists()) {
-					file.delete();
+	@Override
+	public EditorSnapshot getSnapshot(String entityName) {
+		// Only the mesh arrays and texture files are copied here, optimising the mesh and copying the textures are left to the steps.
+		MyFile textureFile = component.getTexture() == null ? null : component.getTexture().getFile();
+		MyFile normalMapFile = component.getNormalMap() == null ? null : component.getNormalMap().getFile();
+		MeshData meshData = component.getModel() == null ? null : component.getModel().getMeshData();
+		SavedMesh saved = new SavedMesh();
+		List<EditorSnapshot.Step> steps = new ArrayList<>();
+
+		if (meshData != null && meshData.getVertices() != null && meshData.getIndices() != null) {
+			float[] vertices = meshData.getVertices().clone();
+			float[] textureCoords = meshData.getTextures() == null ? null : meshData.getTextures().clone();
+			float[] normals = meshData.getNormals() == null ? null : meshData.getNormals().clone();
+			float[] tangents = meshData.getTangents() == null ? null : meshData.getTangents().clone();
+			int[] indices = meshData.getIndices().clone();
+
+			steps.add(new EditorSnapshot.Step("Optimising " + entityName) {
+				@Override
+				public void run() {
+					// The mesh is saved in the order it is best drawn in, the saved sections below all use this order.
+					saved.mesh = new OptimizedMesh(vertices, textureCoords, normals, tangents, indices);
+					FlounderLogger.log("Optimised " + entityName + " for the vertex cache, ACMR " + saved.mesh.getAcmrBefore() + " to " + saved.mesh.getAcmrAfter() + ".");
 				}
+			});
+			steps.add(new EditorSnapshot.Step("Simplifying " + entityName) {
+				@Override
+				public void run() {
+					// The levels of detail are generated here so loading the entity does not have to simplify the mesh.
+					saved.lodIndices = MeshSimplifier.simplify(saved.mesh.getVertices(), saved.mesh.getTextureCoords(), saved.mesh.getIndices(), MeshSimplifier.DEFAULT_RATIOS);
+
+					for (int i = 0; i < saved.lodIndices.length; i++) {
+						saved.lodIndices[i] = VertexCacheOptimizer.optimize(saved.lodIndices[i], saved.mesh.getVertices().length / 3);
+					}
+				}
+			});
+			steps.add(new EditorSnapshot.Step("Building the hull of " + entityName) {
+				@Override
+				public void run() {
+					// The hull is calculated here so loading the entity does not have to.
+					saved.hullPoints = MeshBounds.getHullPoints(saved.mesh.getVertices());
+				}
+			});
+		}
 
-				file.createNewFile();
-
-				InputStream input = component.getNormalMap().getFile().getInputStream();
-				OutputStream output = new FileOutputStream(file);
-				byte[] buf = new byte[1024];
-				int bytesRead;
+		if (textureFile != null || normalMapFile != null) {
+			steps.add(new EditorSnapshot.Step("Copying the textures of " + entityName) {
+				@Override
+				public void run() {
+					if (textureFile != null) {
+						EntityWriter.copyFile(textureFile, EntityWriter.getSavePath(entityName, entityName + "Diffuse.png"));
+					}
 
-				while ((bytesRead = input.read(buf)) > 0) {
-					output.write(buf, 0, bytesRead);
+					if (normalMapFile != null) {
+						EntityWriter.copyFile(normalMapFile, EntityWriter.getSavePath(entityName, entityName + "Normal.png"));
+					}
 				}
-
-				input.close();
-				output.close();
-			} catch (IOException e) {
-				FlounderLogger.exception(e);
-			}
+			});
 		}
 
 		EntitySaverFunction saveVertices = new EntitySaverFunction("Vertices") {
 			@Override
 			public void writeIntoSection(FileWriterHelper entityFileWriter) throws IOException {
-				if (component.getModel() != null) {
-					for (float v : component.getModel().getMeshData().getVertices()) {
-						String s = v + ",";
-						entityFileWriter.writeSegmentData(s);
-					}
+				if (saved.mesh != null) {
+					EntityWriter.writeFloats(entityFileWriter, saved.mesh.getVertices());
 				}
 			}
 		};
 		EntitySaverFunction saveTextureCoords = new EntitySaverFunction("TextureCoords") {
 			@Override
 			public void writeIntoSection(FileWriterHelper entityFileWriter) throws IOException {
-				if (component.getModel() != null) {
-					for (float v : component.getModel().getMeshData().getTextures()) {
-						String s = v + ",";
-						entityFileWriter.writeSegmentData(s);
-					}
+				if (saved.mesh != null) {
+					EntityWriter.writeFloats(entityFileWriter, saved.mesh.getTextureCoords());
 				}
 			}
 		};
 		EntitySaverFunction saveNormals = new EntitySaverFunction("Normals") {
 			@Override
 			public void writeIntoSection(FileWriterHelper entityFileWriter) throws IOException {
-				if (component.getModel() != null) {
-					for (float v : component.getModel().getMeshData().getNormals()) {
-						String s = v + ",";
-						entityFileWriter.writeSegmentData(s);
-					}
+				if (saved.mesh != null) {
+					EntityWriter.writeFloats(entityFileWriter, saved.mesh.getNormals());
 				}
 			}
 		};
 		EntitySaverFunction saveTangents = new EntitySaverFunction("Tangents") {
 			@Override
 			public void writeIntoSection(FileWriterHelper entityFileWriter) throws IOException {
-				if (component.getModel() != null) {
-					for (float v : component.getModel().getMeshData().getTangents()) {
-						String s = v + ",";
-						entityFileWriter.writeSegmentData(s);
-					}
+				if (saved.mesh != null) {
+					EntityWriter.writeFloats(entityFileWriter, saved.mesh.getTangents());
 				}
 			}
 		};
 		EntitySaverFunction saveIndices = new EntitySaverFunction("Indices") {
 			@Override
 			public void writeIntoSection(FileWriterHelper entityFileWriter) throws IOException {
-				if (component.getModel() != null) {
-					for (int i : component.getModel().getMeshData().getIndices()) {
-						String s = i + ",";
-						entityFileWriter.writeSegmentData(s);
+				if (saved.mesh != null) {
+					EntityWriter.writeInts(entityFileWriter, saved.mesh.getIndices());
+				}
+			}
+		};
+		EntitySaverFunction saveLodIndices = new EntitySaverFunction("LodIndices") {
+			@Override
+			public void writeIntoSection(FileWriterHelper entityFileWriter) throws IOException {
+				if (saved.lodIndices != null) {
+					int size = 1;
+
+					for (int[] indices : saved.lodIndices) {
+						size += indices.length + 1;
+					}
+
+					StringBuilder builder = new StringBuilder(size * 8);
+					builder.append(saved.lodIndices.length).append(',');
+
+					for (int[] indices : saved.lodIndices) {
+						builder.append(indices.length).append(',');
+						EntityWriter.appendInts(builder, indices);
 					}
+
+					entityFileWriter.writeSegmentData(builder.toString());
 				}
 			}
 		};
 		EntitySaverFunction saveAABB = new EntitySaverFunction("AABB") {
 			@Override
 			public void writeIntoSection(FileWriterHelper entityFileWriter) throws IOException {
-				if (component.getModel() != null && component.getModel().getMeshData() != null && component.getModel().getMeshData().getAABB() != null) {
-					Vector3f min = component.getModel().getMeshData().getAABB().getMinExtents();
-					Vector3f max = component.getModel().getMeshData().getAABB().getMaxExtents();
-					String s = min.x + "," + min.y + "," + min.z + "," + max.x + "," + max.y + "," + max.z + ",";
-					entityFileWriter.writeSegmentData(s);
+				if (saved.mesh != null) {
+					EntityWriter.writeFloats(entityFileWriter, MeshBounds.getAABB(saved.mesh.getVertices()));
 				}
 			}
 		};
 		EntitySaverFunction saveQuickHull = new EntitySaverFunction("QuickHull") {
 			@Override
 			public void writeIntoSection(FileWriterHelper entityFileWriter) throws IOException {
-				if (component.getModel() != null && component.getModel().getMeshData() != null && component.getModel().getMeshData().getHull() != null && component.getModel().getMeshData().getHull().getHullPoints() != null) {
-					for (Vector3f v : component.getModel().getMeshData().getHull().getHullPoints()) {
-						String s = v.x + "," + v.y + "," + v.z + ",";
-						entityFileWriter.writeSegmentData(s);
-					}
+				if (saved.hullPoints != null) {
+					EntityWriter.writeFloats(entityFileWriter, saved.hullPoints);
 				}
 			}
 		};
 
 		String saveScale = "Scale: " + component.getScale();
+		String saveStatic = "Static: " + component.isStatic();
+		String saveOccluder = "Occluder: " + component.isOccluder();
 
 		String saveTexture = "Texture: " + (component.getTexture() == null ? null : "res/entities/" + entityName + "/" + entityName + "Diffuse.png");
 		String saveTextureNumRows = "TextureNumRows: " + (component.getTexture() == null ? 1 : component.getTexture().getNumberOfRows());
@@ -276,9 +312,20 @@ public class EditorModel extends IComponentEditor {
 		String saveNormalMap = "NormalMap: " + (component.getNormalMap() == null ? null : "res/entities/" + entityName + "/" + entityName + "Normal.png");
 		String saveNormalMapNumRows = "NormalMapNumRows: " + (component.getNormalMap() == null ? 1 : component.getNormalMap().getNumberOfRows());
 
-		return new Pair<>(
-				new String[]{saveScale, saveTexture, saveTextureNumRows, saveNormalMap, saveNormalMapNumRows},
-				new EntitySaverFunction[]{saveVertices, saveTextureCoords, saveNormals, saveTangents, saveIndices, saveAABB, saveQuickHull}
+		return new EditorSnapshot(
+				this,
+				new String[]{saveScale, saveStatic, saveOccluder, saveTexture, saveTextureNumRows, saveNormalMap, saveNormalMapNumRows},
+				new EntitySaverFunction[]{saveVertices, saveTextureCoords, saveNormals, saveTangents, saveIndices, saveLodIndices, saveAABB, saveQuickHull},
+				steps.toArray(new EditorSnapshot.Step[steps.size()])
 		);
 	}
+
+	/**
+	 * What the save steps work out from the copied mesh, written into the sections once every step has run.
+	 */
+	private static class SavedMesh {
+		private OptimizedMesh mesh;
+		private int[][] lodIndices;
+		private float[] hullPoints;
+	}
 }
@@ -0,0 +1,218 @@
+package ebon.entities.editing;
+
+import flounder.entities.components.*;
+import flounder.entities.template.*;
+import flounder.helpers.*;
+
+import javax.swing.*;
+import java.io.*;
+import java.util.*;
+
+/**
+ * A copy of what a component editor saves, taken on the editor thread so the entity can be written on a background thread while the editor keeps changing the component.
+ * <p>
+ * Editors that are {@link Deferred} copy only their raw data, and leave the slow work to {@link Step}s run on the background thread. For other editors each section is recorded by running its saver into a {@link SectionRecorder}. Arrays written through {@link EntityWriter} are only copied, so formatting them still happens on the background thread.
+ */
+public class EditorSnapshot extends IComponentEditor {
+	private final String tabName;
+	private final IComponentEntity component;
+	private final String[] values;
+	private final EntitySaverFunction[] sections;
+	private final List<Step> steps;
+
+	/**
+	 * Creates a new snapshot of what a component editor saves, on the editor thread.
+	 *
+	 * @param editor The editor to copy the savable values of.
+	 * @param entityName The name the entity is being saved as.
+	 *
+	 * @return The snapshot.
+	 *
+	 * @throws IOException If a section could not be recorded.
+	 */
+	public static EditorSnapshot of(IComponentEditor editor, String entityName) throws IOException {
+		return editor instanceof Deferred ? ((Deferred) editor).getSnapshot(entityName) : new EditorSnapshot(editor, entityName);
+	}
+
+	/**
+	 * Creates a new snapshot from data a {@link Deferred} editor has already copied. The sections are written as they are on the background thread after the steps have run, so they must only use the copied data and what the steps work out.
+	 *
+	 * @param editor The editor the data was copied from.
+	 * @param values The savable values.
+	 * @param sections The section savers.
+	 * @param steps The slow work to do before the sections are written.
+	 */
+	public EditorSnapshot(IComponentEditor editor, String[] values, EntitySaverFunction[] sections, Step... steps) {
+		this.tabName = editor.getTabName();
+		this.component = editor.getComponent();
+		this.values = values;
+		this.sections = sections;
+		this.steps = Arrays.asList(steps);
+	}
+
+	/**
+	 * Creates a new snapshot of a component editor, recording every section.
+	 *
+	 * @param editor The editor to copy the savable values of.
+	 * @param entityName The name the entity is being saved as.
+	 *
+	 * @throws IOException If a section could not be recorded.
+	 */
+	public EditorSnapshot(IComponentEditor editor, String entityName) throws IOException {
+		Pair<String[], EntitySaverFunction[]> savable = editor.getSavableValues(entityName);
+		this.tabName = editor.getTabName();
+		this.component = editor.getComponent();
+		this.values = savable.getFirst() == null ? new String[]{} : savable.getFirst().clone();
+		this.sections = new EntitySaverFunction[savable.getSecond() == null ? 0 : savable.getSecond().length];
+		this.steps = Collections.emptyList();
+
+		for (int i = 0; i < sections.length; i++) {
+			SectionRecorder recorder = new SectionRecorder();
+			savable.getSecond()[i].writeIntoSection(recorder);
+			sections[i] = new EntitySaverFunction(savable.getSecond()[i].getSectionName()) {
+				@Override
+				public void writeIntoSection(FileWriterHelper entityFileWriter) throws IOException {
+					recorder.replay(entityFileWriter);
+				}
+			};
+		}
+	}
+
+	/**
+	 * Gets the slow work to do on the background thread before the entity is written.
+	 *
+	 * @return The steps, in the order they have to run.
+	 */
+	public List<Step> getSteps() {
+		return steps;
+	}
+
+	@Override
+	public String getTabName() {
+		return tabName;
+	}
+
+	@Override
+	public IComponentEntity getComponent() {
+		return component;
+	}
+
+	@Override
+	public void addToPanel(JPanel panel) {
+	}
+
+	@Override
+	public void update() {
+	}
+
+	@Override
+	public Pair<String[], EntitySaverFunction[]> getSavableValues(String entityName) {
+		return new Pair<>(values, sections);
+	}
+
+	/**
+	 * A writer that keeps what a section saver writes, so it can be written into the real file later.
+	 */
+	public static class SectionRecorder extends FileWriterHelper {
+		private final List<SectionWrite> writes;
+
+		/**
+		 * Creates a new empty recorder.
+		 */
+		public SectionRecorder() {
+			super(null);
+			this.writes = new ArrayList<>();
+		}
+
+		@Override
+		public void writeSegmentData(String line) {
+			writes.add((FileWriterHelper writer) -> writer.writeSegmentData(line));
+		}
+
+		@Override
+		public void writeSegmentData(String line, boolean endLine) {
+			writes.add((FileWriterHelper writer) -> writer.writeSegmentData(line, endLine));
+		}
+
+		/**
+		 * Keeps a copy of a float section, to be formatted when it is replayed.
+		 *
+		 * @param values The values to write.
+		 */
+		public void recordFloats(float[] values) {
+			float[] copy = values.clone();
+			writes.add((FileWriterHelper writer) -> EntityWriter.writeFloats(writer, copy));
+		}
+
+		/**
+		 * Keeps a copy of a int section, to be formatted when it is replayed.
+		 *
+		 * @param values The values to write.
+		 */
+		public void recordInts(int[] values) {
+			int[] copy = values.clone();
+			writes.add((FileWriterHelper writer) -> EntityWriter.writeInts(writer, copy));
+		}
+
+		/**
+		 * Writes everything that was recorded.
+		 *
+		 * @param entityFileWriter The writer of the entity file.
+		 *
+		 * @throws IOException If the section could not be written.
+		 */
+		public void replay(FileWriterHelper entityFileWriter) throws IOException {
+			for (SectionWrite write : writes) {
+				write.to(entityFileWriter);
+			}
+		}
+	}
+
+	/**
+	 * A component editor that copies what it saves without doing any of the slow work, so the slow work can be left to the saving thread.
+	 */
+	public interface Deferred {
+		/**
+		 * Copies the raw data the editor saves, called on the editor thread.
+		 *
+		 * @param entityName The name the entity is being saved as.
+		 *
+		 * @return The snapshot, with the slow work left as steps.
+		 */
+		EditorSnapshot getSnapshot(String entityName);
+	}
+
+	/**
+	 * A named part of the slow work of saving, run on the saving thread so the progress of each step can be shown.
+	 */
+	public static abstract class Step {
+		private final String name;
+
+		/**
+		 * Creates a new step.
+		 *
+		 * @param name The name shown while the step runs.
+		 */
+		public Step(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Gets the name shown while the step runs.
+		 *
+		 * @return The step name.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Does the work of this step.
+		 */
+		public abstract void run();
+	}
+
+	private interface SectionWrite {
+		void to(FileWriterHelper writer) throws IOException;
+	}
+}
@@ -0,0 +1,160 @@
+package ebon.entities.editing;
+
+import ebon.entities.loading.*;
+import flounder.helpers.*;
+import flounder.logger.*;
+import flounder.resources.*;
+
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ * Helpers used by the component editors to save entities. Whole sections are formatted into one buffer and written with a single call, rather than one write per value, and files are copied by the file system rather than through a byte loop.
+ */
+public class EntityWriter {
+	/**
+	 * The characters reserved in a section buffer for each value, enough for most floats so the buffer rarely has to grow.
+	 */
+	private static final int CHARS_PER_VALUE = 12;
+
+	/**
+	 * Writes a float section, formatted the same as one value at a time but written at once. Writing into a {@link EditorSnapshot.SectionRecorder} only copies the values.
+	 *
+	 * @param entityFileWriter The writer of the entity file.
+	 * @param values The values to write, nothing is written if null.
+	 *
+	 * @throws IOException If the section could not be written.
+	 */
+	public static void writeFloats(FileWriterHelper entityFileWriter, float[] values) throws IOException {
+		if (entityFileWriter instanceof EditorSnapshot.SectionRecorder) {
+			if (values != null && values.length > 0) {
+				((EditorSnapshot.SectionRecorder) entityFileWriter).recordFloats(values);
+			}
+
+			return;
+		}
+
+		if (values != null && values.length > 0) {
+			entityFileWriter.writeSegmentData(appendFloats(new StringBuilder(values.length * CHARS_PER_VALUE), values).toString());
+		}
+	}
+
+	/**
+	 * Writes a int section, formatted the same as one value at a time but written at once. Writing into a {@link EditorSnapshot.SectionRecorder} only copies the values.
+	 *
+	 * @param entityFileWriter The writer of the entity file.
+	 * @param values The values to write, nothing is written if null.
+	 *
+	 * @throws IOException If the section could not be written.
+	 */
+	public static void writeInts(FileWriterHelper entityFileWriter, int[] values) throws IOException {
+		if (entityFileWriter instanceof EditorSnapshot.SectionRecorder) {
+			if (values != null && values.length > 0) {
+				((EditorSnapshot.SectionRecorder) entityFileWriter).recordInts(values);
+			}
+
+			return;
+		}
+
+		if (values != null && values.length > 0) {
+			entityFileWriter.writeSegmentData(appendInts(new StringBuilder(values.length * CHARS_PER_VALUE), values).toString());
+		}
+	}
+
+	/**
+	 * Appends comma terminated floats to a buffer.
+	 *
+	 * @param builder The buffer to append to.
+	 * @param values The values to append.
+	 *
+	 * @return The buffer.
+	 */
+	public static StringBuilder appendFloats(StringBuilder builder, float[] values) {
+		for (float v : values) {
+			builder.append(v).append(',');
+		}
+
+		return builder;
+	}
+
+	/**
+	 * Appends comma terminated ints to a buffer.
+	 *
+	 * @param builder The buffer to append to.
+	 * @param values The values to append.
+	 *
+	 * @return The buffer.
+	 */
+	public static StringBuilder appendInts(StringBuilder builder, int[] values) {
+		for (int v : values) {
+			builder.append(v).append(',');
+		}
+
+		return builder;
+	}
+
+	/**
+	 * Gets the path a entity file is saved to by the editor.
+	 *
+	 * @param entityName The name of the entity.
+	 * @param fileName The name of the file in the entities folder.
+	 *
+	 * @return The path to save to.
+	 */
+	public static Path getSavePath(String entityName, String fileName) {
+		return Paths.get("entities", entityName, fileName);
+	}
+
+	/**
+	 * Copies a file, such as a texture, into a entities folder. Files on disk are copied by the file system, files inside a jar are streamed.
+	 *
+	 * @param source The file to copy.
+	 * @param destination Where to copy the file to, it is replaced if it exists.
+	 */
+	public static void copyFile(MyFile source, Path destination) {
+		try {
+			Files.createDirectories(destination.toAbsolutePath().getParent());
+			String path = source.getPath();
+			Path sourcePath = Paths.get(path.startsWith("/") ? path.substring(1) : path);
+
+			if (Files.exists(sourcePath)) {
+				if (!Files.exists(destination) || !Files.isSameFile(sourcePath, destination)) {
+					Files.copy(sourcePath, destination, StandardCopyOption.REPLACE_EXISTING);
+				}
+			} else {
+				try (InputStream input = source.getInputStream()) {
+					Files.copy(input, destination, StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+		} catch (IOException e) {
+			FlounderLogger.error("Could not copy " + source.getPath() + " to " + destination + "!");
+			FlounderLogger.exception(e);
+		}
+	}
+
+	/**
+	 * Compiles a entity the editor has saved into a {@link CompiledEntity} file next to it, so the game loads it without parsing.
+	 *
+	 * @param entityName The name of the saved entity.
+	 *
+	 * @return If the entity was compiled.
+	 */
+	public static boolean compile(String entityName) {
+		Path entityFile = getSavePath(entityName, entityName + ".entity");
+
+		if (!Files.exists(entityFile)) {
+			FlounderLogger.error("Could not compile " + entityName + ", " + entityFile + " does not exist!");
+			return false;
+		}
+
+		try {
+			EntityCompiler.compile(entityFile, getSavePath(entityName, entityName + CompiledEntity.EXTENSION));
+			CompiledEntity.invalidate(entityName);
+			return true;
+		} catch (IOException e) {
+			FlounderLogger.error("Could not compile the entity " + entityName + "!");
+			FlounderLogger.exception(e);
+			return false;
+		}
+	}
+}
@@ -0,0 +1,413 @@
+package ebon.entities.loading;
+
+import flounder.entities.components.*;
+import flounder.entities.template.*;
+import flounder.logger.*;
+import flounder.resources.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The numeric sections of a entity file compiled by {@link EntityCompiler}, mapped into memory and read as little endian float and int buffers without parsing.
+ * <p>
+ * The compiled file is laid out as a header, then a component table naming each section with its type, length and offset, then the section data each aligned to {@link #ALIGNMENT} bytes:
+ * <pre>
+ * int magic, int version, int component count, int data offset
+ * per component: string class name, int section count
+ *     per section: string name, int type, int count, int offset
+ * section data
+ * </pre>
+ * Float and int sections take 4 bytes a value, short sections (such as quantized vertices) take 2.
+ * Strings are written as a int byte length followed by UTF-8 bytes.
+ */
+public class CompiledEntity {
+	/**
+	 * The extension of compiled entity files, written next to the text file they were compiled from.
+	 */
+	public static final String EXTENSION = ".entityc";
+
+	public static final int MAGIC = 0x45424E45;
+	public static final int VERSION = 2;
+	public static final int ALIGNMENT = 16;
+
+	public static final int TYPE_FLOAT = 0;
+	public static final int TYPE_INT = 1;
+	public static final int TYPE_SHORT = 2;
+
+	private static final Map<String, CompiledEntity> LOADED = new ConcurrentHashMap<>();
+	private static final Set<String> MISSING = ConcurrentHashMap.newKeySet();
+	private static volatile boolean enabled = true;
+
+	private final String name;
+	private final ByteBuffer buffer;
+	private final Map<String, Section> sections;
+
+	private CompiledEntity(String name, ByteBuffer buffer) throws IOException {
+		this.name = name;
+		this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+		this.sections = new HashMap<>();
+
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException("Compiled entity " + name + " has a unknown header!");
+		}
+
+		ByteBuffer table = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		table.position(8);
+		int componentCount = table.getInt();
+		table.getInt();
+
+		for (int c = 0; c < componentCount; c++) {
+			String component = readString(table);
+			int sectionCount = table.getInt();
+
+			for (int s = 0; s < sectionCount; s++) {
+				String section = readString(table);
+				sections.put(component + "/" + section, new Section(table.getInt(), table.getInt(), table.getInt()));
+			}
+		}
+	}
+
+	/**
+	 * Gets the compiled data of a entity, mapping its file the first time it is used. Once mapped the files are not looked at again until the entity is {@link #invalidate(String) invalidated}, which the editor does when it saves.
+	 *
+	 * @param entityName The name of the entity.
+	 *
+	 * @return The compiled entity, or null if there is no compiled file or it is older than the text file.
+	 */
+	public static CompiledEntity get(String entityName) {
+		if (!enabled || entityName == null) {
+			return null;
+		}
+
+		// Section reads from every loading thread land here, so entities already looked up take no lock.
+		CompiledEntity compiled = LOADED.get(entityName);
+
+		if (compiled != null || MISSING.contains(entityName)) {
+			return compiled;
+		}
+
+		return load(entityName);
+	}
+
+	private static synchronized CompiledEntity load(String entityName) {
+		CompiledEntity compiled = LOADED.get(entityName);
+
+		if (compiled != null || MISSING.contains(entityName)) {
+			return compiled;
+		}
+
+		try {
+			ByteBuffer buffer = map(entityName);
+
+			if (buffer != null) {
+				compiled = new CompiledEntity(entityName, buffer);
+			}
+		} catch (IOException e) {
+			FlounderLogger.error("Could not load the compiled entity " + entityName + ", the text file will be used.");
+			FlounderLogger.exception(e);
+		}
+
+		if (compiled != null) {
+			LOADED.put(entityName, compiled);
+		} else {
+			MISSING.add(entityName);
+		}
+
+		return compiled;
+	}
+
+	private static ByteBuffer map(String entityName) throws IOException {
+		Path compiled = getPath(entityName, EXTENSION);
+		Path text = getPath(entityName, ".entity");
+
+		if (Files.exists(compiled)) {
+			// Entities saved from the editor after being compiled have to be compiled again.
+			if (Files.exists(text) && Files.getLastModifiedTime(text).compareTo(Files.getLastModifiedTime(compiled)) > 0) {
+				FlounderLogger.log("Compiled entity " + entityName + " is older than its text file, the text file will be used.");
+				return null;
+			}
+
+			try (FileChannel channel = FileChannel.open(compiled, StandardOpenOption.READ)) {
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+		}
+
+		// When packaged the file can not be mapped, so it is read into a direct buffer instead.
+		InputStream inputStream = getFile(entityName, EXTENSION).getInputStream();
+
+		if (inputStream == null) {
+			return null;
+		}
+
+		try (InputStream input = inputStream) {
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			byte[] read = new byte[8192];
+			int length;
+
+			while ((length = input.read(read)) != -1) {
+				output.write(read, 0, length);
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocateDirect(output.size());
+			buffer.put(output.toByteArray()).flip();
+			return buffer;
+		}
+	}
+
+	/**
+	 * Gets the file a entity is loaded from.
+	 *
+	 * @param entityName The name of the entity.
+	 * @param extension The files extension, including the dot.
+	 *
+	 * @return The entity file.
+	 */
+	public static MyFile getFile(String entityName, String extension) {
+		return new MyFile(MyFile.RES_FOLDER, "entities", entityName, entityName + extension);
+	}
+
+	private static Path getPath(String entityName, String extension) {
+		String path = getFile(entityName, extension).getPath();
+		return Paths.get(path.startsWith("/") ? path.substring(1) : path);
+	}
+
+	/**
+	 * Gets a float section of a entity, from its compiled file if it has one, or parsed from its text file.
+	 *
+	 * @param template The template the entity was loaded from.
+	 * @param component The component the section belongs to.
+	 * @param section The sections name.
+	 *
+	 * @return The sections values, or null if the section does not exist.
+	 */
+	public static float[] getFloatArray(EntityTemplate template, IComponentEntity component, String section) {
+		CompiledEntity compiled = get(template.getEntityName());
+		FloatBuffer floats = compiled == null ? null : compiled.getFloats(component.getClass().getName(), section);
+
+		if (floats != null) {
+			float[] result = new float[floats.remaining()];
+			floats.get(result);
+			return result;
+		}
+
+		// Without a compiled file the text is parsed straight from its bytes, the templates split strings are only a last resort.
+		TextEntity text = TextEntity.get(template.getEntityName());
+
+		if (text != null) {
+			return text.getFloats(component.getClass().getName(), section);
+		}
+
+		String[] data = template.getSectionData(component, section);
+		return data == null ? null : EntityTemplate.toFloatArray(data);
+	}
+
+	/**
+	 * Gets a float section of a entity on a pooled thread, so independent sections can be parsed at the same time.
+	 *
+	 * @param template The template the entity was loaded from.
+	 * @param component The component the section belongs to.
+	 * @param section The sections name.
+	 *
+	 * @return A future of the sections values.
+	 */
+	public static CompletableFuture<float[]> getFloatArrayAsync(EntityTemplate template, IComponentEntity component, String section) {
+		return CompletableFuture.supplyAsync(() -> getFloatArray(template, component, section));
+	}
+
+	/**
+	 * Gets a int section of a entity, from its compiled file if it has one, or parsed from its text file.
+	 *
+	 * @param template The template the entity was loaded from.
+	 * @param component The component the section belongs to.
+	 * @param section The sections name.
+	 *
+	 * @return The sections values, or null if the section does not exist.
+	 */
+	public static int[] getIntArray(EntityTemplate template, IComponentEntity component, String section) {
+		CompiledEntity compiled = get(template.getEntityName());
+		IntBuffer ints = compiled == null ? null : compiled.getInts(component.getClass().getName(), section);
+
+		if (ints != null) {
+			int[] result = new int[ints.remaining()];
+			ints.get(result);
+			return result;
+		}
+
+		TextEntity text = TextEntity.get(template.getEntityName());
+
+		if (text != null) {
+			return text.getInts(component.getClass().getName(), section);
+		}
+
+		String[] data = template.getSectionData(component, section);
+		return data == null ? null : EntityTemplate.toIntArray(data);
+	}
+
+	/**
+	 * Gets a int section of a entity on a pooled thread, so independent sections can be parsed at the same time.
+	 *
+	 * @param template The template the entity was loaded from.
+	 * @param component The component the section belongs to.
+	 * @param section The sections name.
+	 *
+	 * @return A future of the sections values.
+	 */
+	public static CompletableFuture<int[]> getIntArrayAsync(EntityTemplate template, IComponentEntity component, String section) {
+		return CompletableFuture.supplyAsync(() -> getIntArray(template, component, section));
+	}
+
+	/**
+	 * Gets a short section of a entity from its compiled file, short sections are only written by the compiler so are never parsed from text.
+	 *
+	 * @param template The template the entity was loaded from.
+	 * @param component The component the section belongs to.
+	 * @param section The sections name.
+	 *
+	 * @return The sections values, or null if the entity has no compiled file or it has no such section.
+	 */
+	public static short[] getShortArray(EntityTemplate template, IComponentEntity component, String section) {
+		CompiledEntity compiled = get(template.getEntityName());
+		ShortBuffer shorts = compiled == null ? null : compiled.getShorts(component.getClass().getName(), section);
+
+		if (shorts == null) {
+			return null;
+		}
+
+		short[] result = new short[shorts.remaining()];
+		shorts.get(result);
+		return result;
+	}
+
+	/**
+	 * Gets a view of a float section.
+	 *
+	 * @param component The class name of the component the section belongs to.
+	 * @param section The sections name.
+	 *
+	 * @return A view of the sections values, or null if the section was not compiled as floats.
+	 */
+	public FloatBuffer getFloats(String component, String section) {
+		Section found = sections.get(component + "/" + section);
+
+		if (found == null || found.type != TYPE_FLOAT) {
+			return null;
+		}
+
+		return slice(found).asFloatBuffer();
+	}
+
+	/**
+	 * Gets a view of a int section.
+	 *
+	 * @param component The class name of the component the section belongs to.
+	 * @param section The sections name.
+	 *
+	 * @return A view of the sections values, or null if the section was not compiled as ints.
+	 */
+	public IntBuffer getInts(String component, String section) {
+		Section found = sections.get(component + "/" + section);
+
+		if (found == null || found.type != TYPE_INT) {
+			return null;
+		}
+
+		return slice(found).asIntBuffer();
+	}
+
+	/**
+	 * Gets a view of a short section.
+	 *
+	 * @param component The class name of the component the section belongs to.
+	 * @param section The sections name.
+	 *
+	 * @return A view of the sections values, or null if the section was not compiled as shorts.
+	 */
+	public ShortBuffer getShorts(String component, String section) {
+		Section found = sections.get(component + "/" + section);
+
+		if (found == null || found.type != TYPE_SHORT) {
+			return null;
+		}
+
+		return slice(found).asShortBuffer();
+	}
+
+	private ByteBuffer slice(Section section) {
+		ByteBuffer view = buffer.duplicate();
+		view.position(section.offset);
+		view.limit(section.offset + section.count * getSize(section.type));
+		return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Gets the number of bytes each value of a section type takes.
+	 *
+	 * @param type The section type.
+	 *
+	 * @return The size of a value in bytes.
+	 */
+	public static int getSize(int type) {
+		return type == TYPE_SHORT ? 2 : 4;
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Gets the name of the compiled entity.
+	 *
+	 * @return The entities name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Sets if compiled entity files are used, the editor disables this so entities are always loaded from the text it saves.
+	 *
+	 * @param enabled If compiled files are used.
+	 */
+	public static synchronized void setEnabled(boolean enabled) {
+		CompiledEntity.enabled = enabled;
+		clear();
+	}
+
+	/**
+	 * Forgets a entities compiled data, so it is mapped again the next time it is used.
+	 *
+	 * @param entityName The name of the entity.
+	 */
+	public static synchronized void invalidate(String entityName) {
+		LOADED.remove(entityName);
+		MISSING.remove(entityName);
+	}
+
+	/**
+	 * Forgets every entities compiled data.
+	 */
+	public static synchronized void clear() {
+		LOADED.clear();
+		MISSING.clear();
+	}
+
+	private static class Section {
+		private final int type;
+		private final int count;
+		private final int offset;
+
+		private Section(int type, int count, int offset) {
+			this.type = type;
+			this.count = count;
+			this.offset = offset;
+		}
+	}
+}
@@ -0,0 +1,256 @@
+package ebon.entities.loading;
+
+import ebon.animation.*;
+import ebon.entities.components.*;
+import ebon.models.*;
+import ebon.textures.*;
+import flounder.entities.*;
+import flounder.entities.template.*;
+import flounder.framework.*;
+import flounder.logger.*;
+import flounder.maths.vectors.*;
+import flounder.profiling.*;
+
+import java.util.concurrent.*;
+
+/**
+ * A manager that spawns entities without stalling the frame. Entity files are read and their meshes and animations prepared on worker threads, then handed through a bounded queue to the update thread, which creates the entities and uploads their meshes within a time budget each frame.
+ */
+public class EbonLoading extends IModule {
+	private static final EbonLoading INSTANCE = new EbonLoading();
+	public static final String PROFILE_TAB_NAME = "Ebon Loading";
+
+	/**
+	 * The number of loaded entities that can wait to be created, workers wait for room once it is full.
+	 */
+	public static final int READY_CAPACITY = 16;
+
+	private ExecutorService workers;
+	private BlockingQueue<SpawnRequest> ready;
+	private int workerCount;
+	private double uploadBudget;
+
+	private int loading;
+	private int spawned;
+	private double uploadTime;
+
+	/**
+	 * Creates a new entity loading manager.
+	 */
+	public EbonLoading() {
+		super(ModuleUpdate.UPDATE_POST, PROFILE_TAB_NAME, FlounderLogger.class, FlounderProfiler.class, FlounderEntities.class);
+	}
+
+	@Override
+	public void init() {
+		this.ready = new ArrayBlockingQueue<>(READY_CAPACITY);
+		this.uploadBudget = 4.0;
+		setWorkerCount(Math.max(Math.min(Runtime.getRuntime().availableProcessors() - 1, 2), 1));
+	}
+
+	@Override
+	public void update() {
+		long start = System.nanoTime();
+		spawned = 0;
+
+		// At least one entity is created each frame, so a single large entity can not be held back forever by the budget.
+		SpawnRequest request;
+
+		while ((spawned == 0 || (System.nanoTime() - start) / 1000000.0 < uploadBudget) && (request = ready.poll()) != null) {
+			create(request);
+			spawned++;
+		}
+
+		if (spawned > 0) {
+			uploadTime = (System.nanoTime() - start) / 1000000.0;
+		}
+	}
+
+	private void create(SpawnRequest request) {
+		synchronized (this) {
+			loading--;
+		}
+
+		try {
+			Entity entity = request.template.createEntity(FlounderEntities.getEntities(), request.position, request.rotation);
+			request.future.complete(entity);
+		} catch (Exception e) {
+			FlounderLogger.error("Could not create the entity " + request.name + "!");
+			FlounderLogger.exception(e);
+			request.future.completeExceptionally(e);
+		}
+	}
+
+	private void load(SpawnRequest request, boolean queued) {
+		try {
+			request.template = loadTemplate(request.name);
+			MeshRegistry.prepare(request.name, () -> ComponentModel.prepare(request.template));
+			// Animated templates are parsed and shared here too, so creating the entity only has to upload the model.
+			EbonAnimations.getTemplate(request.name, () -> ComponentAnimation.prepare(request.template));
+
+			if (!queued) {
+				create(request);
+			} else {
+				ready.put(request);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			synchronized (this) {
+				loading--;
+			}
+
+			request.future.cancel(false);
+		} catch (Exception e) {
+			FlounderLogger.error("Could not load the entity " + request.name + "!");
+			FlounderLogger.exception(e);
+
+			synchronized (this) {
+				loading--;
+			}
+
+			request.future.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * Loads a entity template. Flounder keeps the templates it has loaded in a map that is not safe to change from more than one thread, so every load goes through here one at a time; anything loading templates while workers are running should use this over {@link FlounderEntities#load(String)}.
+	 *
+	 * @param name The name of the entity file to load.
+	 *
+	 * @return The entity template.
+	 */
+	public static EntityTemplate loadTemplate(String name) {
+		synchronized (FlounderEntities.class) {
+			return FlounderEntities.load(name);
+		}
+	}
+
+	@Override
+	public void profile() {
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Loading", loading);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Ready", ready.size());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Spawned", spawned);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Upload Time", uploadTime);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Upload Budget", uploadBudget);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Shared Meshes", MeshRegistry.getMeshCount());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Prepared Meshes", MeshRegistry.getPreparedCount());
+	}
+
+	/**
+	 * Loads and spawns a entity in the background. The entity file is read and its mesh prepared on a worker thread, and the entity is created on the update thread.
+	 *
+	 * @param name The name of the entity file to load.
+	 * @param position The position to spawn the entity at.
+	 * @param rotation The rotation to spawn the entity with.
+	 *
+	 * @return A future completed with the entity on the update thread once it has been created, so actions chained onto it can use GL.
+	 */
+	public static CompletableFuture<Entity> spawn(String name, Vector3f position, Vector3f rotation) {
+		SpawnRequest request = new SpawnRequest(name, position, rotation);
+
+		synchronized (INSTANCE) {
+			INSTANCE.loading++;
+		}
+
+		if (INSTANCE.workers == null) {
+			// Without workers the entity is loaded and created right away, on this thread.
+			INSTANCE.load(request, false);
+		} else {
+			INSTANCE.workers.execute(() -> INSTANCE.load(request, true));
+		}
+
+		return request.future;
+	}
+
+	/**
+	 * Gets the number of entities being loaded or waiting to be created.
+	 *
+	 * @return The number of entities loading.
+	 */
+	public static int getLoading() {
+		synchronized (INSTANCE) {
+			return INSTANCE.loading;
+		}
+	}
+
+	/**
+	 * Gets the time spent creating entities each frame before no more are created.
+	 *
+	 * @return The upload budget in milliseconds.
+	 */
+	public static double getUploadBudget() {
+		return INSTANCE.uploadBudget;
+	}
+
+	/**
+	 * Sets the time spent creating entities each frame before no more are created.
+	 *
+	 * @param uploadBudget The upload budget in milliseconds.
+	 */
+	public static void setUploadBudget(double uploadBudget) {
+		INSTANCE.uploadBudget = uploadBudget;
+	}
+
+	/**
+	 * Sets the number of worker threads entities are loaded on.
+	 *
+	 * @param workerCount The new number of workers, 0 loads entities on the thread that spawns them.
+	 */
+	public static void setWorkerCount(int workerCount) {
+		if (INSTANCE.workers != null) {
+			INSTANCE.workers.shutdown();
+			INSTANCE.workers = null;
+		}
+
+		INSTANCE.workerCount = Math.max(workerCount, 0);
+
+		if (INSTANCE.workerCount > 0) {
+			INSTANCE.workers = Executors.newFixedThreadPool(INSTANCE.workerCount, runnable -> {
+				Thread thread = new Thread(runnable, "Ebon Loading Worker");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	@Override
+	public IModule getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public void dispose() {
+		if (workers != null) {
+			workers.shutdownNow();
+			workers = null;
+		}
+
+		if (ready != null) {
+			for (SpawnRequest request : ready) {
+				request.future.cancel(false);
+			}
+
+			ready.clear();
+		}
+
+		loading = 0;
+		CompiledEntity.clear();
+		TextureRegistry.clear();
+	}
+
+	private static class SpawnRequest {
+		private final String name;
+		private final Vector3f position;
+		private final Vector3f rotation;
+		private final CompletableFuture<Entity> future;
+		private EntityTemplate template;
+
+		private SpawnRequest(String name, Vector3f position, Vector3f rotation) {
+			this.name = name;
+			this.position = position;
+			this.rotation = rotation;
+			this.future = new CompletableFuture<>();
+		}
+	}
+}
@@ -0,0 +1,354 @@
+package ebon.entities.loading;
+
+import ebon.entities.components.*;
+import ebon.models.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * A asset time tool that compiles the numeric sections of every entity file under res/entities into a {@link CompiledEntity} file next to it. Sections holding anything other than numbers, and single values, are left to the text file.
+ * <p>
+ * Run with the resources folder that contains res/entities as the argument, defaulting to "res". Entities saved from the editor afterwards are loaded from text until they are compiled again. Models saved without a AABB or convex hull have them calculated here, so they are not calculated when the entity is loaded. With "--quantize" the model vertices are stored in the compact format of {@link VertexQuantizer} instead of as floats, and the error of the encoding is reported.
+ */
+public class EntityCompiler {
+	/**
+	 * The model sections replaced by quantized sections, and the sections they are replaced with.
+	 */
+	private static final String[] FLOAT_SECTIONS = {"Vertices", "TextureCoords", "Normals", "Tangents"};
+	private static final String[] QUANTIZED_SECTIONS = {"QuantizedVertices", "QuantizedTextureCoords", "QuantizedNormals", "QuantizedTangents"};
+
+	public static void main(String[] args) throws IOException {
+		String resources = "res";
+		boolean quantize = false;
+
+		for (String arg : args) {
+			if (arg.equals("--quantize")) {
+				quantize = true;
+			} else {
+				resources = arg;
+			}
+		}
+
+		Path root = Paths.get(resources).resolve("res").resolve("entities");
+		int compiled = 0;
+		long textBytes = 0;
+		long compiledBytes = 0;
+
+		try (DirectoryStream<Path> folders = Files.newDirectoryStream(root)) {
+			for (Path folder : folders) {
+				Path entityFile = folder.resolve(folder.getFileName() + ".entity");
+
+				if (!Files.isDirectory(folder) || !Files.exists(entityFile)) {
+					continue;
+				}
+
+				Path output = folder.resolve(folder.getFileName() + CompiledEntity.EXTENSION);
+				compile(entityFile, output, quantize);
+				textBytes += Files.size(entityFile);
+				compiledBytes += Files.size(output);
+				compiled++;
+			}
+		}
+
+		System.out.println("Compiled " + compiled + " entities, " + textBytes / 1024 + "KB of text into " + compiledBytes / 1024 + "KB.");
+	}
+
+	/**
+	 * Compiles a entity file.
+	 *
+	 * @param entityFile The text entity file.
+	 * @param output The compiled file to write.
+	 *
+	 * @throws IOException If the files could not be read or written.
+	 */
+	public static void compile(Path entityFile, Path output) throws IOException {
+		compile(entityFile, output, false);
+	}
+
+	/**
+	 * Compiles a entity file.
+	 *
+	 * @param entityFile The text entity file.
+	 * @param output The compiled file to write.
+	 * @param quantize If the model vertices should be quantized.
+	 *
+	 * @throws IOException If the files could not be read or written.
+	 */
+	public static void compile(Path entityFile, Path output, boolean quantize) throws IOException {
+		Map<String, Map<String, String>> components = readSections(entityFile);
+		Map<String, Map<String, Number[]>> numeric = new LinkedHashMap<>();
+		Map<String, Map<String, Integer>> types = new LinkedHashMap<>();
+
+		for (Map.Entry<String, Map<String, String>> component : components.entrySet()) {
+			for (Map.Entry<String, String> section : component.getValue().entrySet()) {
+				int type = getType(section.getValue());
+
+				if (type != -1) {
+					numeric.computeIfAbsent(component.getKey(), k -> new LinkedHashMap<>()).put(section.getKey(), parse(section.getValue(), type));
+					types.computeIfAbsent(component.getKey(), k -> new LinkedHashMap<>()).put(section.getKey(), type);
+				}
+			}
+		}
+
+		addBounds(entityFile.getFileName().toString(), numeric.get(ComponentModel.class.getName()), types.get(ComponentModel.class.getName()));
+
+		if (quantize) {
+			quantize(entityFile.getFileName().toString(), numeric.get(ComponentModel.class.getName()), types.get(ComponentModel.class.getName()));
+		}
+
+		// The table is measured first so the data offsets are known when it is written.
+		int tableSize = 16;
+
+		for (Map.Entry<String, Map<String, Number[]>> component : numeric.entrySet()) {
+			tableSize += 8 + component.getKey().getBytes(StandardCharsets.UTF_8).length;
+
+			for (String section : component.getValue().keySet()) {
+				tableSize += 16 + section.getBytes(StandardCharsets.UTF_8).length;
+			}
+		}
+
+		int dataOffset = align(tableSize);
+		int fileSize = dataOffset;
+
+		for (Map.Entry<String, Map<String, Number[]>> component : numeric.entrySet()) {
+			for (Map.Entry<String, Number[]> section : component.getValue().entrySet()) {
+				fileSize += align(section.getValue().length * CompiledEntity.getSize(types.get(component.getKey()).get(section.getKey())));
+			}
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(fileSize).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(CompiledEntity.MAGIC);
+		buffer.putInt(CompiledEntity.VERSION);
+		buffer.putInt(numeric.size());
+		buffer.putInt(dataOffset);
+		int offset = dataOffset;
+
+		for (Map.Entry<String, Map<String, Number[]>> component : numeric.entrySet()) {
+			putString(buffer, component.getKey());
+			buffer.putInt(component.getValue().size());
+
+			for (Map.Entry<String, Number[]> section : component.getValue().entrySet()) {
+				putString(buffer, section.getKey());
+				buffer.putInt(types.get(component.getKey()).get(section.getKey()));
+				buffer.putInt(section.getValue().length);
+				buffer.putInt(offset);
+				offset += align(section.getValue().length * CompiledEntity.getSize(types.get(component.getKey()).get(section.getKey())));
+			}
+		}
+
+		buffer.position(dataOffset);
+
+		for (Map.Entry<String, Map<String, Number[]>> component : numeric.entrySet()) {
+			for (Map.Entry<String, Number[]> section : component.getValue().entrySet()) {
+				int start = buffer.position();
+
+				for (Number value : section.getValue()) {
+					if (value instanceof Short) {
+						buffer.putShort(value.shortValue());
+					} else if (value instanceof Integer) {
+						buffer.putInt(value.intValue());
+					} else {
+						buffer.putFloat(value.floatValue());
+					}
+				}
+
+				buffer.position(start + align(section.getValue().length * CompiledEntity.getSize(types.get(component.getKey()).get(section.getKey()))));
+			}
+		}
+
+		buffer.rewind();
+
+		try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Adds the AABB and convex hull sections to a model that was saved without them, calculated from its vertices.
+	 */
+	private static void addBounds(String entityName, Map<String, Number[]> sections, Map<String, Integer> types) {
+		if (sections == null || !sections.containsKey("Vertices")) {
+			return;
+		}
+
+		float[] vertices = toFloats(sections.get("Vertices"));
+
+		if (!sections.containsKey("AABB")) {
+			sections.put("AABB", toNumbers(MeshBounds.getAABB(vertices)));
+			types.put("AABB", CompiledEntity.TYPE_FLOAT);
+		}
+
+		if (!sections.containsKey("QuickHull")) {
+			float[] hullPoints = MeshBounds.getHullPoints(vertices);
+			sections.put("QuickHull", toNumbers(hullPoints));
+			types.put("QuickHull", CompiledEntity.TYPE_FLOAT);
+			System.out.println("Calculated the hull of " + entityName + ", " + hullPoints.length / 3 + " of " + vertices.length / 3 + " vertices.");
+		}
+	}
+
+	/**
+	 * Replaces the float vertex sections of a model with quantized sections, and the bounds they were quantized within, reporting the largest error of each.
+	 */
+	private static void quantize(String entityName, Map<String, Number[]> sections, Map<String, Integer> types) {
+		if (sections == null || !sections.containsKey("Vertices")) {
+			return;
+		}
+
+		float[][] original = new float[FLOAT_SECTIONS.length][];
+
+		for (int i = 0; i < FLOAT_SECTIONS.length; i++) {
+			Number[] values = sections.get(FLOAT_SECTIONS[i]);
+			original[i] = values == null ? null : toFloats(values);
+		}
+
+		float[] bounds = VertexQuantizer.getBounds(original[0]);
+		short[][] quantized = new short[FLOAT_SECTIONS.length][];
+		quantized[0] = VertexQuantizer.encodePositions(original[0], bounds);
+		quantized[1] = original[1] == null ? null : VertexQuantizer.encodeHalfFloats(original[1]);
+		quantized[2] = original[2] == null ? null : VertexQuantizer.encodeOctahedral(original[2]);
+		quantized[3] = original[3] == null ? null : VertexQuantizer.encodeOctahedral(original[3]);
+
+		sections.put("QuantizedBounds", toNumbers(bounds));
+		types.put("QuantizedBounds", CompiledEntity.TYPE_FLOAT);
+
+		for (int i = 0; i < FLOAT_SECTIONS.length; i++) {
+			sections.remove(FLOAT_SECTIONS[i]);
+			types.remove(FLOAT_SECTIONS[i]);
+
+			if (quantized[i] != null) {
+				Number[] values = new Number[quantized[i].length];
+
+				for (int j = 0; j < values.length; j++) {
+					values[j] = quantized[i][j];
+				}
+
+				sections.put(QUANTIZED_SECTIONS[i], values);
+				types.put(QUANTIZED_SECTIONS[i], CompiledEntity.TYPE_SHORT);
+			}
+		}
+
+		float positionError = VertexQuantizer.getMaxError(original[0], VertexQuantizer.decodePositions(quantized[0], bounds), 3);
+		float textureError = quantized[1] == null ? 0.0f : VertexQuantizer.getMaxError(original[1], VertexQuantizer.decodeHalfFloats(quantized[1]), 2);
+		float normalError = quantized[2] == null ? 0.0f : VertexQuantizer.getMaxError(VertexQuantizer.normalize(original[2]), VertexQuantizer.decodeOctahedral(quantized[2]), 3);
+		float tangentError = quantized[3] == null ? 0.0f : VertexQuantizer.getMaxError(VertexQuantizer.normalize(original[3]), VertexQuantizer.decodeOctahedral(quantized[3]), 3);
+		System.out.println("Quantized " + entityName + ": position error " + positionError + " (step " + VertexQuantizer.getPositionError(bounds) * 2.0f + "), texture error " + textureError + ", normal error " + normalError + ", tangent error " + tangentError + ".");
+	}
+
+	private static float[] toFloats(Number[] values) {
+		float[] result = new float[values.length];
+
+		for (int i = 0; i < values.length; i++) {
+			result[i] = values[i].floatValue();
+		}
+
+		return result;
+	}
+
+	private static Number[] toNumbers(float[] values) {
+		Number[] result = new Number[values.length];
+
+		for (int i = 0; i < values.length; i++) {
+			result[i] = values[i];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Reads every section inside each component of a entity file, as the sections text with line breaks removed.
+	 */
+	private static Map<String, Map<String, String>> readSections(Path entityFile) throws IOException {
+		Map<String, Map<String, String>> components = new LinkedHashMap<>();
+		List<String> blocks = new ArrayList<>();
+		StringBuilder content = null;
+
+		for (String line : Files.readAllLines(entityFile, StandardCharsets.UTF_8)) {
+			String trimmed = line.trim();
+
+			if (trimmed.endsWith("{")) {
+				blocks.add(trimmed.substring(0, trimmed.length() - 1).trim());
+
+				// Components are the blocks inside "Components", their sections are one level deeper.
+				if (blocks.size() == 3 && blocks.get(0).equals("Components")) {
+					content = new StringBuilder();
+				}
+			} else if (trimmed.equals("};")) {
+				if (content != null && blocks.size() == 3) {
+					components.computeIfAbsent(blocks.get(1), k -> new LinkedHashMap<>()).put(blocks.get(2), content.toString());
+					content = null;
+				}
+
+				if (!blocks.isEmpty()) {
+					blocks.remove(blocks.size() - 1);
+				}
+			} else if (content != null) {
+				content.append(trimmed);
+			}
+		}
+
+		return components;
+	}
+
+	/**
+	 * Gets if a sections values are all ints or all numbers, ints are only used if none of the values are written as floats.
+	 */
+	private static int getType(String data) {
+		String[] values = data.split(",");
+		boolean integers = true;
+		int count = 0;
+
+		for (String value : values) {
+			value = value.trim();
+
+			if (value.isEmpty()) {
+				continue;
+			}
+
+			try {
+				Float.parseFloat(value);
+			} catch (NumberFormatException e) {
+				return -1;
+			}
+
+			integers &= value.matches("-?\\d+");
+			count++;
+		}
+
+		if (count == 0) {
+			return -1;
+		}
+
+		return integers ? CompiledEntity.TYPE_INT : CompiledEntity.TYPE_FLOAT;
+	}
+
+	private static Number[] parse(String data, int type) {
+		List<Number> result = new ArrayList<>();
+
+		for (String value : data.split(",")) {
+			value = value.trim();
+
+			if (!value.isEmpty()) {
+				result.add(type == CompiledEntity.TYPE_INT ? (Number) Integer.parseInt(value) : (Number) Float.parseFloat(value));
+			}
+		}
+
+		return result.toArray(new Number[result.size()]);
+	}
+
+	private static void putString(ByteBuffer buffer, String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+	}
+
+	private static int align(int size) {
+		return (size + CompiledEntity.ALIGNMENT - 1) / CompiledEntity.ALIGNMENT * CompiledEntity.ALIGNMENT;
+	}
+}
@@ -0,0 +1,366 @@
+package ebon.entities.loading;
+
+import flounder.logger.*;
+
+import java.io.*;
+import java.lang.ref.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * The raw bytes of a text entity file, with the position of every section inside its components indexed, so numeric sections can be parsed straight into primitive arrays without splitting them into strings first.
+ */
+public class TextEntity {
+	private static final Map<String, SoftReference<TextEntity>> LOADED = new HashMap<>();
+
+	/**
+	 * The largest mantissa a float holds exactly.
+	 */
+	private static final long FLOAT_EXACT_MANTISSA = 1L << 24;
+
+	/**
+	 * The largest integer a double holds exactly.
+	 */
+	private static final long DOUBLE_EXACT_MANTISSA = 1L << 53;
+
+	private static final float[] FLOAT_POWERS_OF_TEN = new float[11];
+	private static final double[] POWERS_OF_TEN = new double[23];
+
+	static {
+		FLOAT_POWERS_OF_TEN[0] = 1.0f;
+		POWERS_OF_TEN[0] = 1.0;
+
+		for (int i = 1; i < FLOAT_POWERS_OF_TEN.length; i++) {
+			FLOAT_POWERS_OF_TEN[i] = FLOAT_POWERS_OF_TEN[i - 1] * 10.0f;
+		}
+
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+		}
+	}
+
+	private final String name;
+	private final byte[] data;
+	private final long modified;
+	private final Map<String, int[]> sections;
+
+	/**
+	 * Creates a new text entity, indexing its sections.
+	 *
+	 * @param name The name of the entity.
+	 * @param data The bytes of the entity file.
+	 * @param modified When the file was last modified, or 0 if it is not known.
+	 */
+	public TextEntity(String name, byte[] data, long modified) {
+		this.name = name;
+		this.data = data;
+		this.modified = modified;
+		this.sections = new HashMap<>();
+		index();
+	}
+
+	/**
+	 * Gets the text file of a entity, reading and indexing it if it is not still held from a earlier load.
+	 *
+	 * @param entityName The name of the entity.
+	 *
+	 * @return The text entity, or null if the file could not be read.
+	 */
+	public static synchronized TextEntity get(String entityName) {
+		SoftReference<TextEntity> reference = LOADED.get(entityName);
+		TextEntity textEntity = reference == null ? null : reference.get();
+		Path file = getPath(entityName);
+		long modified = getModified(file);
+
+		// A file saved by the editor since it was last read is read again.
+		if (textEntity == null || textEntity.modified != modified) {
+			byte[] data = read(entityName, file);
+
+			if (data == null) {
+				return null;
+			}
+
+			textEntity = new TextEntity(entityName, data, modified);
+			LOADED.put(entityName, new SoftReference<>(textEntity));
+		}
+
+		return textEntity;
+	}
+
+	private static Path getPath(String entityName) {
+		String path = CompiledEntity.getFile(entityName, ".entity").getPath();
+		return Paths.get(path.startsWith("/") ? path.substring(1) : path);
+	}
+
+	private static long getModified(Path file) {
+		try {
+			return Files.exists(file) ? Files.getLastModifiedTime(file).toMillis() : 0L;
+		} catch (IOException e) {
+			return 0L;
+		}
+	}
+
+	private static byte[] read(String entityName, Path file) {
+		try {
+			if (Files.exists(file)) {
+				return Files.readAllBytes(file);
+			}
+
+			InputStream inputStream = CompiledEntity.getFile(entityName, ".entity").getInputStream();
+
+			if (inputStream == null) {
+				return null;
+			}
+
+			try (InputStream input = inputStream) {
+				ByteArrayOutputStream output = new ByteArrayOutputStream();
+				byte[] read = new byte[8192];
+				int length;
+
+				while ((length = input.read(read)) != -1) {
+					output.write(read, 0, length);
+				}
+
+				return output.toByteArray();
+			}
+		} catch (IOException e) {
+			FlounderLogger.error("Could not read the entity file " + entityName + "!");
+			FlounderLogger.exception(e);
+			return null;
+		}
+	}
+
+	/**
+	 * Finds the start and end of every section one level inside a component, components being the blocks inside "Components".
+	 */
+	private void index() {
+		List<String> blocks = new ArrayList<>();
+		int lineStart = 0;
+		int sectionStart = -1;
+
+		for (int i = 0; i <= data.length; i++) {
+			if (i < data.length && data[i] != '\n') {
+				continue;
+			}
+
+			int start = lineStart;
+			int end = i;
+			lineStart = i + 1;
+
+			while (start < end && data[start] <= ' ') {
+				start++;
+			}
+
+			while (end > start && data[end - 1] <= ' ') {
+				end--;
+			}
+
+			if (end > start && data[end - 1] == '{') {
+				blocks.add(new String(data, start, end - 1 - start, StandardCharsets.UTF_8).trim());
+
+				if (blocks.size() == 3 && blocks.get(0).equals("Components")) {
+					sectionStart = lineStart;
+				}
+			} else if (end - start == 2 && data[start] == '}' && data[start + 1] == ';') {
+				if (sectionStart != -1 && blocks.size() == 3) {
+					sections.put(blocks.get(1) + "/" + blocks.get(2), new int[]{sectionStart, start});
+					sectionStart = -1;
+				}
+
+				if (!blocks.isEmpty()) {
+					blocks.remove(blocks.size() - 1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Parses a section as floats.
+	 *
+	 * @param component The class name of the component the section belongs to.
+	 * @param section The sections name.
+	 *
+	 * @return The parsed values, or null if the section does not exist.
+	 */
+	public float[] getFloats(String component, String section) {
+		int[] range = sections.get(component + "/" + section);
+
+		if (range == null) {
+			return null;
+		}
+
+		float[] result = new float[countValues(range[0], range[1])];
+		int count = 0;
+		int i = range[0];
+
+		while (i < range[1]) {
+			byte c = data[i];
+
+			if (c == ',' || c <= ' ') {
+				i++;
+				continue;
+			}
+
+			int end = i;
+
+			while (end < range[1] && data[end] != ',' && data[end] > ' ') {
+				end++;
+			}
+
+			result[count++] = parseFloat(i, end);
+			i = end;
+		}
+
+		return count == result.length ? result : Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Parses a section as ints.
+	 *
+	 * @param component The class name of the component the section belongs to.
+	 * @param section The sections name.
+	 *
+	 * @return The parsed values, or null if the section does not exist.
+	 */
+	public int[] getInts(String component, String section) {
+		int[] range = sections.get(component + "/" + section);
+
+		if (range == null) {
+			return null;
+		}
+
+		int[] result = new int[countValues(range[0], range[1])];
+		int count = 0;
+		int i = range[0];
+
+		while (i < range[1]) {
+			byte c = data[i];
+
+			if (c == ',' || c <= ' ') {
+				i++;
+				continue;
+			}
+
+			boolean negative = c == '-';
+
+			if (negative || c == '+') {
+				i++;
+			}
+
+			int value = 0;
+
+			while (i < range[1] && data[i] >= '0' && data[i] <= '9') {
+				value = value * 10 + (data[i++] - '0');
+			}
+
+			if (i < range[1] && data[i] != ',' && data[i] > ' ') {
+				throw new NumberFormatException("Section " + section + " of " + name + " has a value that is not a int!");
+			}
+
+			result[count++] = negative ? -value : value;
+		}
+
+		return count == result.length ? result : Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Counts the values in a range, so the result array can be allocated once.
+	 */
+	private int countValues(int start, int end) {
+		int count = 0;
+		boolean inValue = false;
+
+		for (int i = start; i < end; i++) {
+			boolean separator = data[i] == ',' || data[i] <= ' ';
+
+			if (!separator && !inValue) {
+				count++;
+			}
+
+			inValue = !separator;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Parses a float written by {@link Float#toString(float)}. The mantissa and power of ten are only combined here when both are exact and there is a single rounding, so the result matches {@link Float#parseFloat(String)}: in float when the mantissa fits in 24 bits and the exponent is at most 10 either way, or in double when a positive exponent scales the mantissa to a integer a double still holds exactly. Everything else, such as values with 9 significant digits or more that do not fit, is left to {@link Float#parseFloat(String)}.
+	 */
+	private float parseFloat(int start, int end) {
+		int i = start;
+		boolean negative = data[i] == '-';
+
+		if (negative || data[i] == '+') {
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean fraction = false;
+
+		for (; i < end; i++) {
+			byte c = data[i];
+
+			if (c >= '0' && c <= '9') {
+				if (mantissa != 0 || c != '0') {
+					digits++;
+				}
+
+				mantissa = mantissa * 10 + (c - '0');
+
+				if (fraction) {
+					exponent--;
+				}
+			} else if (c == '.' && !fraction) {
+				fraction = true;
+			} else {
+				break;
+			}
+		}
+
+		if (i < end - 1 && (data[i] == 'E' || data[i] == 'e')) {
+			i++;
+			boolean negativeExponent = data[i] == '-';
+
+			if (negativeExponent || data[i] == '+') {
+				i++;
+			}
+
+			int written = 0;
+
+			while (i < end && data[i] >= '0' && data[i] <= '9') {
+				written = written * 10 + (data[i++] - '0');
+			}
+
+			exponent += negativeExponent ? -written : written;
+		}
+
+		if (i == end && digits <= 18) {
+			if (mantissa <= FLOAT_EXACT_MANTISSA && exponent >= -10 && exponent <= 10) {
+				// Both operands are exact floats, so the one float operation rounds correctly.
+				float value = exponent < 0 ? mantissa / FLOAT_POWERS_OF_TEN[-exponent] : mantissa * FLOAT_POWERS_OF_TEN[exponent];
+				return negative ? -value : value;
+			}
+
+			if (exponent >= 0 && exponent <= 22 && mantissa <= DOUBLE_EXACT_MANTISSA / (long) POWERS_OF_TEN[exponent]) {
+				// The product is a exact double, so the only rounding is down to float.
+				double value = mantissa * POWERS_OF_TEN[exponent];
+				return (float) (negative ? -value : value);
+			}
+		}
+
+		// NaN, Infinity and anything that would be rounded more than once.
+		return Float.parseFloat(new String(data, start, end - start, StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * Gets the name of the entity.
+	 *
+	 * @return The entities name.
+	 */
+	public String getName() {
+		return name;
+	}
+}
@@ -0,0 +1,4 @@
+/**
+ * Contains classes for compiling entity files and loading the compiled mesh sections.
+ */
+package ebon.entities.loading;
@@ -0,0 +1,415 @@
+package ebon.models;
+
+import java.util.*;
+
+/**
+ * Computes the bounds of a mesh from its vertex positions, in the layout they are saved in entity files: a AABB as its min then max extents, and a convex hull as the positions of its corners. These are computed once when a entity is compiled, so they do not have to be at runtime.
+ */
+public class MeshBounds {
+	/**
+	 * The distance a point has to be outside a hull face to be added to the hull, relative to the size of the mesh.
+	 */
+	private static final double HULL_EPSILON = 1.0e-6;
+
+	/**
+	 * Gets the axis aligned bounding box of a mesh.
+	 *
+	 * @param vertices The vertex positions.
+	 *
+	 * @return The min x, y, z followed by the max x, y, z, or null if there are no vertices.
+	 */
+	public static float[] getAABB(float[] vertices) {
+		if (vertices == null || vertices.length < 3) {
+			return null;
+		}
+
+		float[] aabb = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+
+		for (int i = 0; i + 2 < vertices.length; i += 3) {
+			for (int j = 0; j < 3; j++) {
+				aabb[j] = Math.min(aabb[j], vertices[i + j]);
+				aabb[j + 3] = Math.max(aabb[j + 3], vertices[i + j]);
+			}
+		}
+
+		return aabb;
+	}
+
+	/**
+	 * Gets the corners of the convex hull of a mesh using quickhull: starting from a tetrahedron of extreme points, the point furthest outside a face replaces every face it can see with faces joining it to their horizon, until no points are left outside.
+	 *
+	 * @param vertices The vertex positions.
+	 *
+	 * @return The x, y, z of each hull corner, or null if there are no vertices. A flat mesh has no volume, so the corners of its outline are returned instead.
+	 */
+	public static float[] getHullPoints(float[] vertices) {
+		if (vertices == null || vertices.length < 3) {
+			return null;
+		}
+
+		int count = vertices.length / 3;
+		float[] aabb = getAABB(vertices);
+		double epsilon = HULL_EPSILON * Math.max(1.0, Math.max(aabb[3] - aabb[0], Math.max(aabb[4] - aabb[1], aabb[5] - aabb[2])));
+		int[] tetrahedron = getTetrahedron(vertices, count, epsilon);
+
+		if (tetrahedron.length == 3) {
+			return getPoints(vertices, getOutline(vertices, count, tetrahedron));
+		} else if (tetrahedron.length < 3) {
+			boolean[] used = new boolean[count];
+
+			for (int corner : tetrahedron) {
+				used[corner] = true;
+			}
+
+			return getPoints(vertices, used);
+		}
+
+		List<HullFace> faces = new ArrayList<>();
+		Map<Long, HullFace> edges = new HashMap<>();
+
+		for (int i = 0; i < 4; i++) {
+			int a = tetrahedron[i];
+			int b = tetrahedron[(i + 1) % 4];
+			int c = tetrahedron[(i + 2) % 4];
+			int opposite = tetrahedron[(i + 3) % 4];
+
+			// Faces are wound so their normal points away from the opposite corner.
+			if (getDistance(getPlane(vertices, a, b, c), vertices, opposite) > 0.0) {
+				faces.add(new HullFace(vertices, edges, a, c, b));
+			} else {
+				faces.add(new HullFace(vertices, edges, a, b, c));
+			}
+		}
+
+		List<Integer> points = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			points.add(i);
+		}
+
+		assignOutside(vertices, faces, points, epsilon);
+		Deque<HullFace> pending = new ArrayDeque<>(faces);
+		List<HullFace> visible = new ArrayList<>();
+		List<int[]> horizon = new ArrayList<>();
+
+		while (!pending.isEmpty()) {
+			HullFace face = pending.poll();
+
+			if (face.removed || face.outside.isEmpty()) {
+				continue;
+			}
+
+			int furthest = face.outside.get(0);
+
+			for (int point : face.outside) {
+				if (getDistance(face.plane, vertices, point) > getDistance(face.plane, vertices, furthest)) {
+					furthest = point;
+				}
+			}
+
+			// The faces the point can see are found by walking out from this face, so they are always connected and share one horizon.
+			visible.clear();
+			horizon.clear();
+			face.removed = true;
+			visible.add(face);
+
+			for (int i = 0; i < visible.size(); i++) {
+				HullFace current = visible.get(i);
+
+				for (int e = 0; e < 3; e++) {
+					int from = current.corners[e];
+					int to = current.corners[(e + 1) % 3];
+					HullFace neighbour = edges.get(getEdge(to, from));
+
+					if (neighbour == null || (!neighbour.removed && getDistance(neighbour.plane, vertices, furthest) <= epsilon)) {
+						horizon.add(new int[]{from, to});
+					} else if (!neighbour.removed) {
+						neighbour.removed = true;
+						visible.add(neighbour);
+					}
+				}
+			}
+
+			points.clear();
+
+			for (HullFace removed : visible) {
+				for (int e = 0; e < 3; e++) {
+					edges.remove(getEdge(removed.corners[e], removed.corners[(e + 1) % 3]));
+				}
+
+				for (int point : removed.outside) {
+					if (point != furthest) {
+						points.add(point);
+					}
+				}
+			}
+
+			List<HullFace> created = new ArrayList<>(horizon.size());
+
+			for (int[] edge : horizon) {
+				created.add(new HullFace(vertices, edges, edge[0], edge[1], furthest));
+			}
+
+			assignOutside(vertices, created, points, epsilon);
+			faces.addAll(created);
+			pending.addAll(created);
+		}
+
+		boolean[] used = new boolean[count];
+
+		for (HullFace face : faces) {
+			if (!face.removed) {
+				for (int corner : face.corners) {
+					used[corner] = true;
+				}
+			}
+		}
+
+		return getPoints(vertices, used);
+	}
+
+	/**
+	 * Gives each point to the first face it is outside of, points inside every face are no longer needed.
+	 */
+	private static void assignOutside(float[] vertices, List<HullFace> faces, List<Integer> points, double epsilon) {
+		for (int point : points) {
+			for (HullFace face : faces) {
+				if (getDistance(face.plane, vertices, point) > epsilon) {
+					face.outside.add(point);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds four points that are not on the same plane, starting from the two furthest apart of the extreme points on each axis.
+	 *
+	 * @return The four points, or fewer if every point is on the same plane, line, or position.
+	 */
+	private static int[] getTetrahedron(float[] vertices, int count, double epsilon) {
+		boolean[] extremes = getExtremes(vertices, count);
+		List<Integer> candidates = new ArrayList<>();
+
+		for (int i = 0; i < count; i++) {
+			if (extremes[i]) {
+				candidates.add(i);
+			}
+		}
+
+		int a = -1;
+		int b = -1;
+		double furthest = -1.0;
+
+		for (int i = 0; i < candidates.size(); i++) {
+			for (int j = i + 1; j < candidates.size(); j++) {
+				double distance = getDistanceSquared(vertices, candidates.get(i), candidates.get(j));
+
+				if (distance > furthest) {
+					furthest = distance;
+					a = candidates.get(i);
+					b = candidates.get(j);
+				}
+			}
+		}
+
+		if (a == -1 || furthest <= epsilon * epsilon) {
+			return new int[]{0};
+		}
+
+		// The third point is the furthest from the line through the first two.
+		double[] ab = getVector(vertices, a, b);
+		int c = -1;
+		furthest = epsilon;
+
+		for (int i = 0; i < count; i++) {
+			double[] ai = getVector(vertices, a, i);
+			double distance = getLength(getCross(ab, ai)) / getLength(ab);
+
+			if (distance > furthest) {
+				furthest = distance;
+				c = i;
+			}
+		}
+
+		if (c == -1) {
+			return new int[]{a, b};
+		}
+
+		// The fourth point is the furthest from the plane through the first three.
+		double[] plane = getPlane(vertices, a, b, c);
+		int d = -1;
+		furthest = epsilon;
+
+		for (int i = 0; i < count; i++) {
+			double distance = Math.abs(getDistance(plane, vertices, i));
+
+			if (distance > furthest) {
+				furthest = distance;
+				d = i;
+			}
+		}
+
+		return d == -1 ? new int[]{a, b, c} : new int[]{a, b, c, d};
+	}
+
+	/**
+	 * Gets the corners of the outline of points that are all on one plane, with a monotone chain hull of the points projected onto the plane.
+	 */
+	private static boolean[] getOutline(float[] vertices, int count, int[] triangle) {
+		double[] u = getVector(vertices, triangle[0], triangle[1]);
+		double[] v = getCross(getCross(u, getVector(vertices, triangle[0], triangle[2])), u);
+		double uLength = getLength(u);
+		double vLength = getLength(v);
+		double[][] projected = new double[count][];
+		Integer[] sorted = new Integer[count];
+
+		for (int i = 0; i < count; i++) {
+			double[] offset = getVector(vertices, triangle[0], i);
+			projected[i] = new double[]{(offset[0] * u[0] + offset[1] * u[1] + offset[2] * u[2]) / uLength, (offset[0] * v[0] + offset[1] * v[1] + offset[2] * v[2]) / vLength};
+			sorted[i] = i;
+		}
+
+		Arrays.sort(sorted, (Integer a, Integer b) -> projected[a][0] != projected[b][0] ? Double.compare(projected[a][0], projected[b][0]) : Double.compare(projected[a][1], projected[b][1]));
+		int[] chain = new int[count * 2];
+		int size = 0;
+
+		// The lower chain is built left to right then the upper chain right to left, dropping points that do not turn left.
+		for (int pass = 0; pass < 2; pass++) {
+			int start = size;
+
+			for (int j = 0; j < count; j++) {
+				int point = sorted[pass == 0 ? j : count - 1 - j];
+
+				while (size >= start + 2 && getTurn(projected[chain[size - 2]], projected[chain[size - 1]], projected[point]) <= 0.0) {
+					size--;
+				}
+
+				chain[size++] = point;
+			}
+
+			size--;
+		}
+
+		boolean[] used = new boolean[count];
+
+		for (int i = 0; i < Math.max(size, 1); i++) {
+			used[chain[i]] = true;
+		}
+
+		return used;
+	}
+
+	private static double getTurn(double[] a, double[] b, double[] c) {
+		return (b[0] - a[0]) * (c[1] - a[1]) - (b[1] - a[1]) * (c[0] - a[0]);
+	}
+
+	/**
+	 * Marks the points with the smallest and largest value on each axis.
+	 */
+	private static boolean[] getExtremes(float[] vertices, int count) {
+		int[] extremes = new int[6];
+
+		for (int i = 1; i < count; i++) {
+			for (int j = 0; j < 3; j++) {
+				if (vertices[i * 3 + j] < vertices[extremes[j] * 3 + j]) {
+					extremes[j] = i;
+				}
+
+				if (vertices[i * 3 + j] > vertices[extremes[j + 3] * 3 + j]) {
+					extremes[j + 3] = i;
+				}
+			}
+		}
+
+		boolean[] used = new boolean[count];
+
+		for (int extreme : extremes) {
+			used[extreme] = true;
+		}
+
+		return used;
+	}
+
+	private static float[] getPoints(float[] vertices, boolean[] used) {
+		int count = 0;
+
+		for (boolean u : used) {
+			count += u ? 1 : 0;
+		}
+
+		float[] points = new float[count * 3];
+		int pointer = 0;
+
+		for (int i = 0; i < used.length; i++) {
+			if (used[i]) {
+				points[pointer++] = vertices[i * 3];
+				points[pointer++] = vertices[i * 3 + 1];
+				points[pointer++] = vertices[i * 3 + 2];
+			}
+		}
+
+		return points;
+	}
+
+	private static long getEdge(int from, int to) {
+		return ((long) from << 32) | (to & 0xffffffffL);
+	}
+
+	/**
+	 * Gets the plane through three points, as a unit normal following their winding and the distance of the plane from the origin.
+	 */
+	private static double[] getPlane(float[] vertices, int a, int b, int c) {
+		double[] normal = getCross(getVector(vertices, a, b), getVector(vertices, a, c));
+		double length = getLength(normal);
+
+		if (length > 0.0) {
+			normal[0] /= length;
+			normal[1] /= length;
+			normal[2] /= length;
+		}
+
+		return new double[]{normal[0], normal[1], normal[2], normal[0] * vertices[a * 3] + normal[1] * vertices[a * 3 + 1] + normal[2] * vertices[a * 3 + 2]};
+	}
+
+	private static double getDistance(double[] plane, float[] vertices, int point) {
+		return plane[0] * vertices[point * 3] + plane[1] * vertices[point * 3 + 1] + plane[2] * vertices[point * 3 + 2] - plane[3];
+	}
+
+	private static double getDistanceSquared(float[] vertices, int a, int b) {
+		double[] v = getVector(vertices, a, b);
+		return v[0] * v[0] + v[1] * v[1] + v[2] * v[2];
+	}
+
+	private static double[] getVector(float[] vertices, int from, int to) {
+		return new double[]{vertices[to * 3] - vertices[from * 3], vertices[to * 3 + 1] - vertices[from * 3 + 1], vertices[to * 3 + 2] - vertices[from * 3 + 2]};
+	}
+
+	private static double[] getCross(double[] a, double[] b) {
+		return new double[]{a[1] * b[2] - a[2] * b[1], a[2] * b[0] - a[0] * b[2], a[0] * b[1] - a[1] * b[0]};
+	}
+
+	private static double getLength(double[] v) {
+		return Math.sqrt(v[0] * v[0] + v[1] * v[1] + v[2] * v[2]);
+	}
+
+	/**
+	 * A triangle of a hull being built, with the points that are still outside of it.
+	 */
+	private static class HullFace {
+		private final int[] corners;
+		private final double[] plane;
+		private final List<Integer> outside;
+		private boolean removed;
+
+		private HullFace(float[] vertices, Map<Long, HullFace> edges, int a, int b, int c) {
+			this.corners = new int[]{a, b, c};
+			this.plane = getPlane(vertices, a, b, c);
+			this.outside = new ArrayList<>();
+			this.removed = false;
+			edges.put(getEdge(a, b), this);
+			edges.put(getEdge(b, c), this);
+			edges.put(getEdge(c, a), this);
+		}
+	}
+}
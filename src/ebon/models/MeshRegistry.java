@@ -0,0 +1,123 @@
+package ebon.models;
+
+import flounder.logger.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+/**
+ * Shares the models loaded for a entity template between every instance of it, so a template is only parsed and uploaded once. A mesh is deleted once the last component using it releases it.
+ * <p>
+ * Meshes can also be prepared ahead of time on a worker thread, leaving only the upload for when the first instance is created.
+ */
+public class MeshRegistry {
+	private static final Map<String, SharedMesh> MESHES = new HashMap<>();
+	private static final Map<String, PreparedMesh> PREPARED = new ConcurrentHashMap<>();
+	private static boolean enabled = true;
+
+	/**
+	 * Gets the mesh of a entity template, loading it if no instance of the template is using it.
+	 *
+	 * @param name The name of the entity template.
+	 * @param loader Loads the mesh if it is not already shared.
+	 *
+	 * @return The shared mesh, which must be given back to {@link #release(SharedMesh)} when it is no longer used.
+	 */
+	public static synchronized SharedMesh acquire(String name, Supplier<SharedMesh> loader) {
+		SharedMesh mesh = enabled ? MESHES.get(name) : null;
+
+		if (mesh == null) {
+			mesh = loader.get();
+
+			if (enabled) {
+				MESHES.put(name, mesh);
+			}
+		}
+
+		mesh.addReference();
+		return mesh;
+	}
+
+	/**
+	 * Prepares the mesh of a entity template so creating its first instance only has to upload it. Does nothing if the mesh is already shared or prepared. This can be called from any thread.
+	 *
+	 * @param name The name of the entity template.
+	 * @param preparer Parses and processes the mesh, returning null if the template has no mesh.
+	 */
+	public static void prepare(String name, Supplier<PreparedMesh> preparer) {
+		synchronized (MeshRegistry.class) {
+			if (!enabled || MESHES.containsKey(name) || PREPARED.containsKey(name)) {
+				return;
+			}
+		}
+
+		// Two threads may prepare the same template at once, the second result is simply dropped.
+		PreparedMesh prepared = preparer.get();
+
+		if (prepared != null) {
+			synchronized (MeshRegistry.class) {
+				// The mesh may have been loaded and shared while it was being prepared, then there is nothing left to upload.
+				if (enabled && !MESHES.containsKey(name)) {
+					PREPARED.putIfAbsent(name, prepared);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Takes the mesh prepared for a entity template, so it can be uploaded.
+	 *
+	 * @param name The name of the entity template.
+	 *
+	 * @return The prepared mesh, or null if it was not prepared.
+	 */
+	public static PreparedMesh takePrepared(String name) {
+		return PREPARED.remove(name);
+	}
+
+	/**
+	 * Stops a component using a shared mesh, deleting the mesh if nothing else is using it.
+	 *
+	 * @param mesh The mesh to release.
+	 */
+	public static synchronized void release(SharedMesh mesh) {
+		if (mesh == null || mesh.removeReference() > 0) {
+			return;
+		}
+
+		if (MESHES.get(mesh.getName()) == mesh) {
+			MESHES.remove(mesh.getName());
+		}
+
+		mesh.delete();
+		FlounderLogger.log("Deleted the shared mesh for " + mesh.getName() + ".");
+	}
+
+	/**
+	 * Gets the number of meshes being shared.
+	 *
+	 * @return The number of meshes.
+	 */
+	public static synchronized int getMeshCount() {
+		return MESHES.size();
+	}
+
+	/**
+	 * Gets the number of meshes prepared and waiting to be uploaded.
+	 *
+	 * @return The number of prepared meshes.
+	 */
+	public static int getPreparedCount() {
+		return PREPARED.size();
+	}
+
+	/**
+	 * Sets if meshes are shared between instances, the editor disables this so a entity is loaded again after it is saved.
+	 *
+	 * @param enabled If meshes are shared.
+	 */
+	public static synchronized void setEnabled(boolean enabled) {
+		MeshRegistry.enabled = enabled;
+	}
+}
@@ -0,0 +1,658 @@
+package ebon.models;
+
+import java.util.*;
+
+/**
+ * Simplifies a mesh into lower detail levels using quadric error metrics. Vertices that share a position are welded, and each step collapses the position whose removal adds the least error into a neighbouring position (a half edge collapse). Because no new vertices are created, every level is just a new index list into the original vertices.
+ * <p>
+ * Open boundaries and seams (edges where the welded vertices on either side differ, such as a texture or normal split) are held by planes perpendicular to their faces. Seams are weighted less than open boundaries, so they resist being collapsed across but can still move when nothing cheaper is left.
+ */
+public class MeshSimplifier {
+	/**
+	 * The default fraction of triangles kept for each level of detail, from the finest to the coarsest.
+	 */
+	public static final float[] DEFAULT_RATIOS = {0.5f, 0.25f, 0.1f};
+
+	/**
+	 * The fewest triangles a level will be simplified down to.
+	 */
+	public static final int MIN_TRIANGLES = 12;
+
+	private static final double BOUNDARY_WEIGHT = 1000.0;
+	private static final double SEAM_WEIGHT = 100.0;
+
+	/**
+	 * The barycentric points a simplified triangle is compared to the original surface at, a grid of quarters without the corners.
+	 */
+	private static final float[] DEVIATION_SAMPLES = getDeviationSamples(4);
+
+	private final float[] textureCoords;
+	private final float[] positions;
+	private final int[][] positionVertices;
+	private final double[] quadrics;
+	private final int[] triangles;
+	private final int[] corners;
+	private final boolean[] removed;
+	private final List<List<Integer>> positionTriangles;
+	private final int[] collapsedInto;
+	private final int[] versions;
+	private final PriorityQueue<Collapse> queue;
+	private int liveTriangles;
+
+	private MeshSimplifier(float[] vertices, float[] textureCoords, int[] indices) {
+		int vertexCount = vertices.length / 3;
+		this.textureCoords = textureCoords != null && textureCoords.length >= vertexCount * 2 ? textureCoords : null;
+
+		// Weld vertices that share a position, so texture seams do not split the mesh apart.
+		Integer[] sorted = new Integer[vertexCount];
+
+		for (int i = 0; i < vertexCount; i++) {
+			sorted[i] = i;
+		}
+
+		Arrays.sort(sorted, (Integer a, Integer b) -> {
+			for (int i = 0; i < 3; i++) {
+				int compare = Float.compare(vertices[a * 3 + i], vertices[b * 3 + i]);
+
+				if (compare != 0) {
+					return compare;
+				}
+			}
+
+			return 0;
+		});
+
+		int[] positionOf = new int[vertexCount];
+		List<int[]> welded = new ArrayList<>();
+		int start = 0;
+
+		for (int i = 1; i <= vertexCount; i++) {
+			if (i == vertexCount || !samePosition(vertices, sorted[start], sorted[i])) {
+				int[] group = new int[i - start];
+
+				for (int j = start; j < i; j++) {
+					group[j - start] = sorted[j];
+					positionOf[sorted[j]] = welded.size();
+				}
+
+				welded.add(group);
+				start = i;
+			}
+		}
+
+		int positionCount = welded.size();
+		this.positions = new float[positionCount * 3];
+		this.positionVertices = welded.toArray(new int[positionCount][]);
+
+		for (int p = 0; p < positionCount; p++) {
+			System.arraycopy(vertices, positionVertices[p][0] * 3, positions, p * 3, 3);
+		}
+
+		this.quadrics = new double[positionCount * 10];
+		this.triangles = new int[indices.length - indices.length % 3];
+		this.corners = Arrays.copyOf(indices, triangles.length);
+		this.removed = new boolean[triangles.length / 3];
+		this.positionTriangles = new ArrayList<>(positionCount);
+		this.collapsedInto = new int[positionCount];
+		this.versions = new int[positionCount];
+		this.queue = new PriorityQueue<>();
+		this.liveTriangles = removed.length;
+
+		for (int p = 0; p < positionCount; p++) {
+			positionTriangles.add(new ArrayList<>());
+			collapsedInto[p] = -1;
+		}
+
+		Map<Long, Integer> edgeUses = new HashMap<>();
+		Map<Long, Long> edgeVertices = new HashMap<>();
+		Set<Long> seams = new HashSet<>();
+
+		for (int t = 0; t < removed.length; t++) {
+			for (int k = 0; k < 3; k++) {
+				triangles[t * 3 + k] = positionOf[indices[t * 3 + k]];
+				positionTriangles.get(triangles[t * 3 + k]).add(t);
+			}
+
+			for (int k = 0; k < 3; k++) {
+				int a = triangles[t * 3 + k];
+				int b = triangles[t * 3 + (k + 1) % 3];
+				long key = edgeKey(a, b);
+				edgeUses.merge(key, 1, Integer::sum);
+
+				// A edge whose triangles use different vertices at the same positions splits a attribute, so it is a seam.
+				int vertexA = indices[t * 3 + k];
+				int vertexB = indices[t * 3 + (k + 1) % 3];
+				long cornerPair = a < b ? ((long) vertexA << 32) | vertexB : ((long) vertexB << 32) | vertexA;
+				Long first = edgeVertices.putIfAbsent(key, cornerPair);
+
+				if (first != null && first != cornerPair) {
+					seams.add(key);
+				}
+			}
+
+			addTriangleQuadric(t);
+		}
+
+		// Edges used by only one triangle are on a open boundary and seam edges split attributes, both are held in place by a plane perpendicular to the face.
+		for (int t = 0; t < removed.length; t++) {
+			for (int k = 0; k < 3; k++) {
+				int a = triangles[t * 3 + k];
+				int b = triangles[t * 3 + (k + 1) % 3];
+				long key = edgeKey(a, b);
+
+				if (edgeUses.get(key) == 1) {
+					addBoundaryQuadric(t, a, b, BOUNDARY_WEIGHT);
+				} else if (seams.contains(key)) {
+					addBoundaryQuadric(t, a, b, SEAM_WEIGHT);
+				}
+			}
+		}
+
+		for (int p = 0; p < positionCount; p++) {
+			pushCollapses(p);
+		}
+	}
+
+	/**
+	 * Simplifies a mesh into a number of lower detail levels.
+	 *
+	 * @param vertices The vertex positions, 3 floats per vertex.
+	 * @param textureCoords The texture coordinates, 2 floats per vertex, used to pick the vertex a collapsed corner takes on. Can be null.
+	 * @param indices The triangle indices.
+	 * @param ratios The fraction of triangles kept for each level, from the finest to the coarsest.
+	 *
+	 * @return The indices of each level, in the same order as the ratios.
+	 */
+	public static int[][] simplify(float[] vertices, float[] textureCoords, int[] indices, float... ratios) {
+		MeshSimplifier simplifier = new MeshSimplifier(vertices, textureCoords, indices);
+		int triangleCount = indices.length / 3;
+		int[][] levels = new int[ratios.length][];
+
+		for (int i = 0; i < ratios.length; i++) {
+			simplifier.simplify(Math.max((int) (triangleCount * ratios[i]), MIN_TRIANGLES));
+			levels[i] = simplifier.getIndices();
+		}
+
+		return levels;
+	}
+
+	/**
+	 * Removes the vertices not used by a set of indices.
+	 *
+	 * @param indices The indices into the original vertices.
+	 * @param remap The array to fill with the new index of each original vertex, or -1 if it is unused. Its length is the original vertex count.
+	 *
+	 * @return The indices into the compacted vertices.
+	 */
+	public static int[] compactIndices(int[] indices, int[] remap) {
+		int[] result = new int[indices.length];
+		int count = 0;
+		Arrays.fill(remap, -1);
+
+		for (int i = 0; i < indices.length; i++) {
+			if (remap[indices[i]] == -1) {
+				remap[indices[i]] = count++;
+			}
+
+			result[i] = remap[indices[i]];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Removes the vertices not used by a set of indices from a vertex attribute.
+	 *
+	 * @param attribute The attribute of the original vertices.
+	 * @param size The number of floats per vertex.
+	 * @param remap The new index of each original vertex, from {@link #compactIndices(int[], int[])}.
+	 *
+	 * @return The attribute of the compacted vertices, or the original attribute if it does not have a value per vertex.
+	 */
+	public static float[] compactAttribute(float[] attribute, int size, int[] remap) {
+		if (attribute == null || attribute.length < remap.length * size) {
+			return attribute;
+		}
+
+		int count = 0;
+
+		for (int index : remap) {
+			if (index != -1) {
+				count++;
+			}
+		}
+
+		float[] result = new float[count * size];
+
+		for (int i = 0; i < remap.length; i++) {
+			if (remap[i] != -1) {
+				System.arraycopy(attribute, i * size, result, remap[i] * size, size);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Pulls a simplified level back inside the mesh it was simplified from, so it can be drawn as a conservative occluder. A simplified level cuts across concave parts of the original and can sit in front of it, which would hide things the full mesh does not.
+	 * <p>
+	 * The largest distance from the simplified triangles (sampled on a grid over each) to the original surface is measured, and each vertex the level uses is moved that far against its normal. The level ends up thinner than the original rather than in front of it. It is not exact: where the surface is strongly curved, a little can still poke out, but by a small fraction of the measured distance rather than all of it.
+	 *
+	 * @param vertices The vertex positions, 3 floats per vertex.
+	 * @param indices The full detail triangle indices.
+	 * @param simplifiedIndices The indices of the simplified level, into the same vertices.
+	 *
+	 * @return A copy of the vertex positions with the ones used by the simplified level moved inwards.
+	 */
+	public static float[] shrinkInside(float[] vertices, int[] indices, int[] simplifiedIndices) {
+		float[] result = Arrays.copyOf(vertices, vertices.length);
+		int vertexCount = vertices.length / 3;
+		List<List<Integer>> vertexTriangles = new ArrayList<>(vertexCount);
+
+		for (int i = 0; i < vertexCount; i++) {
+			vertexTriangles.add(new ArrayList<>());
+		}
+
+		for (int t = 0; t < indices.length / 3; t++) {
+			for (int k = 0; k < 3; k++) {
+				vertexTriangles.get(indices[t * 3 + k]).add(t);
+			}
+		}
+
+		// The largest distance from the simplified surface to the original.
+		float deviation = 0.0f;
+		float[] sample = new float[3];
+
+		for (int t = 0; t < simplifiedIndices.length / 3; t++) {
+			int a = simplifiedIndices[t * 3];
+			int b = simplifiedIndices[t * 3 + 1];
+			int c = simplifiedIndices[t * 3 + 2];
+
+			for (int s = 0; s < DEVIATION_SAMPLES.length; s += 2) {
+				float u = DEVIATION_SAMPLES[s];
+				float v = DEVIATION_SAMPLES[s + 1];
+
+				for (int i = 0; i < 3; i++) {
+					sample[i] = vertices[a * 3 + i] * (1.0f - u - v) + vertices[b * 3 + i] * u + vertices[c * 3 + i] * v;
+				}
+
+				// The original triangles around the corners are usually closest, which lets most of the full search stop early.
+				float closest = Float.POSITIVE_INFINITY;
+
+				for (int corner : new int[]{a, b, c}) {
+					for (int original : vertexTriangles.get(corner)) {
+						closest = Math.min(closest, distanceSquared(sample, vertices, indices, original));
+					}
+				}
+
+				for (int original = 0; original < indices.length / 3 && closest > deviation * deviation; original++) {
+					closest = Math.min(closest, distanceSquared(sample, vertices, indices, original));
+				}
+
+				deviation = Math.max(deviation, (float) Math.sqrt(closest));
+			}
+		}
+
+		if (deviation == 0.0f) {
+			return result;
+		}
+
+		// Vertices that share a position move together, so seams do not open up.
+		Map<List<Float>, Integer> firstAt = new HashMap<>();
+		int[] weld = new int[vertexCount];
+
+		for (int v = 0; v < vertexCount; v++) {
+			Integer first = firstAt.putIfAbsent(Arrays.asList(vertices[v * 3], vertices[v * 3 + 1], vertices[v * 3 + 2]), v);
+			weld[v] = first != null ? first : v;
+		}
+
+		float[] normals = new float[vertices.length];
+
+		for (int t = 0; t < simplifiedIndices.length / 3; t++) {
+			// Area weighted vertex normals.
+			float[] normal = faceNormal(vertices, simplifiedIndices[t * 3], simplifiedIndices[t * 3 + 1], simplifiedIndices[t * 3 + 2]);
+
+			for (int k = 0; k < 3; k++) {
+				int v = weld[simplifiedIndices[t * 3 + k]];
+				normals[v * 3] += normal[0];
+				normals[v * 3 + 1] += normal[1];
+				normals[v * 3 + 2] += normal[2];
+			}
+		}
+
+		for (int v = 0; v < vertexCount; v++) {
+			int w = weld[v];
+			float length = (float) Math.sqrt(normals[w * 3] * normals[w * 3] + normals[w * 3 + 1] * normals[w * 3 + 1] + normals[w * 3 + 2] * normals[w * 3 + 2]);
+
+			if (length > 0.0f) {
+				result[v * 3] -= normals[w * 3] / length * deviation;
+				result[v * 3 + 1] -= normals[w * 3 + 1] / length * deviation;
+				result[v * 3 + 2] -= normals[w * 3 + 2] / length * deviation;
+			}
+		}
+
+		return result;
+	}
+
+	private static float[] getDeviationSamples(int divisions) {
+		List<Float> samples = new ArrayList<>();
+
+		for (int i = 0; i <= divisions; i++) {
+			for (int j = 0; i + j <= divisions; j++) {
+				if (i + j != 0 && i != divisions && j != divisions) {
+					samples.add((float) i / divisions);
+					samples.add((float) j / divisions);
+				}
+			}
+		}
+
+		float[] result = new float[samples.size()];
+
+		for (int i = 0; i < result.length; i++) {
+			result[i] = samples.get(i);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gets the squared distance from a point to a triangle, from the closest point on the triangle to it.
+	 */
+	private static float distanceSquared(float[] point, float[] vertices, int[] indices, int triangle) {
+		int a = indices[triangle * 3] * 3, b = indices[triangle * 3 + 1] * 3, c = indices[triangle * 3 + 2] * 3;
+		float abx = vertices[b] - vertices[a], aby = vertices[b + 1] - vertices[a + 1], abz = vertices[b + 2] - vertices[a + 2];
+		float acx = vertices[c] - vertices[a], acy = vertices[c + 1] - vertices[a + 1], acz = vertices[c + 2] - vertices[a + 2];
+		float apx = point[0] - vertices[a], apy = point[1] - vertices[a + 1], apz = point[2] - vertices[a + 2];
+		float d1 = abx * apx + aby * apy + abz * apz;
+		float d2 = acx * apx + acy * apy + acz * apz;
+		float v, w;
+
+		if (d1 <= 0.0f && d2 <= 0.0f) {
+			v = 0.0f;
+			w = 0.0f;
+		} else {
+			float bpx = point[0] - vertices[b], bpy = point[1] - vertices[b + 1], bpz = point[2] - vertices[b + 2];
+			float d3 = abx * bpx + aby * bpy + abz * bpz;
+			float d4 = acx * bpx + acy * bpy + acz * bpz;
+			float cpx = point[0] - vertices[c], cpy = point[1] - vertices[c + 1], cpz = point[2] - vertices[c + 2];
+			float d5 = abx * cpx + aby * cpy + abz * cpz;
+			float d6 = acx * cpx + acy * cpy + acz * cpz;
+			float vc = d1 * d4 - d3 * d2;
+			float vb = d5 * d2 - d1 * d6;
+			float va = d3 * d6 - d5 * d4;
+
+			if (d3 >= 0.0f && d4 <= d3) {
+				v = 1.0f;
+				w = 0.0f;
+			} else if (d6 >= 0.0f && d5 <= d6) {
+				v = 0.0f;
+				w = 1.0f;
+			} else if (vc <= 0.0f && d1 >= 0.0f && d3 <= 0.0f) {
+				v = d1 / (d1 - d3);
+				w = 0.0f;
+			} else if (vb <= 0.0f && d2 >= 0.0f && d6 <= 0.0f) {
+				v = 0.0f;
+				w = d2 / (d2 - d6);
+			} else if (va <= 0.0f && (d4 - d3) >= 0.0f && (d5 - d6) >= 0.0f) {
+				w = (d4 - d3) / ((d4 - d3) + (d5 - d6));
+				v = 1.0f - w;
+			} else {
+				float denominator = va + vb + vc;
+				v = denominator == 0.0f ? 0.0f : vb / denominator;
+				w = denominator == 0.0f ? 0.0f : vc / denominator;
+			}
+		}
+
+		float dx = apx - abx * v - acx * w;
+		float dy = apy - aby * v - acy * w;
+		float dz = apz - abz * v - acz * w;
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	private static float[] faceNormal(float[] vertices, int a, int b, int c) {
+		float abx = vertices[b * 3] - vertices[a * 3], aby = vertices[b * 3 + 1] - vertices[a * 3 + 1], abz = vertices[b * 3 + 2] - vertices[a * 3 + 2];
+		float acx = vertices[c * 3] - vertices[a * 3], acy = vertices[c * 3 + 1] - vertices[a * 3 + 1], acz = vertices[c * 3 + 2] - vertices[a * 3 + 2];
+		return new float[]{aby * acz - abz * acy, abz * acx - abx * acz, abx * acy - aby * acx};
+	}
+
+	private void simplify(int targetTriangles) {
+		while (liveTriangles > targetTriangles && !queue.isEmpty()) {
+			Collapse collapse = queue.poll();
+
+			if (collapsedInto[collapse.from] != -1 || collapsedInto[collapse.to] != -1 || versions[collapse.from] != collapse.fromVersion || versions[collapse.to] != collapse.toVersion) {
+				continue;
+			}
+
+			if (!flips(collapse.from, collapse.to)) {
+				collapse(collapse.from, collapse.to);
+			}
+		}
+	}
+
+	private int[] getIndices() {
+		int[] result = new int[liveTriangles * 3];
+		int pointer = 0;
+
+		for (int t = 0; t < removed.length; t++) {
+			if (!removed[t]) {
+				System.arraycopy(corners, t * 3, result, pointer, 3);
+				pointer += 3;
+			}
+		}
+
+		return result;
+	}
+
+	private void collapse(int from, int to) {
+		collapsedInto[from] = to;
+		versions[from]++;
+		versions[to]++;
+
+		for (int i = 0; i < 10; i++) {
+			quadrics[to * 10 + i] += quadrics[from * 10 + i];
+		}
+
+		for (int t : positionTriangles.get(from)) {
+			if (removed[t]) {
+				continue;
+			}
+
+			if (triangles[t * 3] == to || triangles[t * 3 + 1] == to || triangles[t * 3 + 2] == to) {
+				removed[t] = true;
+				liveTriangles--;
+				continue;
+			}
+
+			for (int k = 0; k < 3; k++) {
+				if (triangles[t * 3 + k] == from) {
+					triangles[t * 3 + k] = to;
+					corners[t * 3 + k] = closestVertex(to, corners[t * 3 + k]);
+				}
+			}
+
+			positionTriangles.get(to).add(t);
+		}
+
+		positionTriangles.get(from).clear();
+		positionTriangles.get(to).removeIf((Integer t) -> removed[t]);
+		pushCollapses(to);
+	}
+
+	private boolean flips(int from, int to) {
+		for (int t : positionTriangles.get(from)) {
+			if (removed[t] || triangles[t * 3] == to || triangles[t * 3 + 1] == to || triangles[t * 3 + 2] == to) {
+				continue;
+			}
+
+			float[] before = normal(triangles[t * 3], triangles[t * 3 + 1], triangles[t * 3 + 2]);
+			float[] after = normal(
+					triangles[t * 3] == from ? to : triangles[t * 3],
+					triangles[t * 3 + 1] == from ? to : triangles[t * 3 + 1],
+					triangles[t * 3 + 2] == from ? to : triangles[t * 3 + 2]
+			);
+
+			if (before[0] * after[0] + before[1] * after[1] + before[2] * after[2] <= 0.0f) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private void pushCollapses(int position) {
+		for (int t : positionTriangles.get(position)) {
+			if (removed[t]) {
+				continue;
+			}
+
+			for (int k = 0; k < 3; k++) {
+				int other = triangles[t * 3 + k];
+
+				if (other != position) {
+					queue.add(new Collapse(position, other, versions[position], versions[other], collapseError(position, other)));
+					queue.add(new Collapse(other, position, versions[other], versions[position], collapseError(other, position)));
+				}
+			}
+		}
+	}
+
+	private double collapseError(int from, int to) {
+		double x = positions[to * 3];
+		double y = positions[to * 3 + 1];
+		double z = positions[to * 3 + 2];
+		double error = 0.0;
+
+		for (int q : new int[]{from * 10, to * 10}) {
+			error += quadrics[q] * x * x + 2.0 * quadrics[q + 1] * x * y + 2.0 * quadrics[q + 2] * x * z + 2.0 * quadrics[q + 3] * x +
+					quadrics[q + 4] * y * y + 2.0 * quadrics[q + 5] * y * z + 2.0 * quadrics[q + 6] * y +
+					quadrics[q + 7] * z * z + 2.0 * quadrics[q + 8] * z + quadrics[q + 9];
+		}
+
+		return error;
+	}
+
+	private void addTriangleQuadric(int t) {
+		float[] normal = normal(triangles[t * 3], triangles[t * 3 + 1], triangles[t * 3 + 2]);
+		double area = Math.sqrt(normal[0] * normal[0] + normal[1] * normal[1] + normal[2] * normal[2]);
+
+		if (area == 0.0) {
+			return;
+		}
+
+		double a = normal[0] / area;
+		double b = normal[1] / area;
+		double c = normal[2] / area;
+		int p = triangles[t * 3];
+		double d = -(a * positions[p * 3] + b * positions[p * 3 + 1] + c * positions[p * 3 + 2]);
+
+		for (int k = 0; k < 3; k++) {
+			addPlane(triangles[t * 3 + k], a, b, c, d, area);
+		}
+	}
+
+	private void addBoundaryQuadric(int t, int a, int b, double boundaryWeight) {
+		float[] normal = normal(triangles[t * 3], triangles[t * 3 + 1], triangles[t * 3 + 2]);
+		double ex = positions[b * 3] - positions[a * 3];
+		double ey = positions[b * 3 + 1] - positions[a * 3 + 1];
+		double ez = positions[b * 3 + 2] - positions[a * 3 + 2];
+		double nx = ey * normal[2] - ez * normal[1];
+		double ny = ez * normal[0] - ex * normal[2];
+		double nz = ex * normal[1] - ey * normal[0];
+		double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+
+		if (length == 0.0) {
+			return;
+		}
+
+		nx /= length;
+		ny /= length;
+		nz /= length;
+		double d = -(nx * positions[a * 3] + ny * positions[a * 3 + 1] + nz * positions[a * 3 + 2]);
+		double weight = boundaryWeight * (ex * ex + ey * ey + ez * ez);
+		addPlane(a, nx, ny, nz, d, weight);
+		addPlane(b, nx, ny, nz, d, weight);
+	}
+
+	private void addPlane(int position, double a, double b, double c, double d, double weight) {
+		int q = position * 10;
+		quadrics[q] += weight * a * a;
+		quadrics[q + 1] += weight * a * b;
+		quadrics[q + 2] += weight * a * c;
+		quadrics[q + 3] += weight * a * d;
+		quadrics[q + 4] += weight * b * b;
+		quadrics[q + 5] += weight * b * c;
+		quadrics[q + 6] += weight * b * d;
+		quadrics[q + 7] += weight * c * c;
+		quadrics[q + 8] += weight * c * d;
+		quadrics[q + 9] += weight * d * d;
+	}
+
+	/**
+	 * Gets the unnormalized normal of a triangle, its length is twice the triangles area.
+	 */
+	private float[] normal(int a, int b, int c) {
+		float abx = positions[b * 3] - positions[a * 3];
+		float aby = positions[b * 3 + 1] - positions[a * 3 + 1];
+		float abz = positions[b * 3 + 2] - positions[a * 3 + 2];
+		float acx = positions[c * 3] - positions[a * 3];
+		float acy = positions[c * 3 + 1] - positions[a * 3 + 1];
+		float acz = positions[c * 3 + 2] - positions[a * 3 + 2];
+		return new float[]{aby * acz - abz * acy, abz * acx - abx * acz, abx * acy - aby * acx};
+	}
+
+	/**
+	 * Picks the vertex at a position with the closest texture coordinate to a vertex being collapsed into it.
+	 */
+	private int closestVertex(int position, int vertex) {
+		int[] candidates = positionVertices[position];
+
+		if (textureCoords == null || candidates.length == 1) {
+			return candidates[0];
+		}
+
+		int closest = candidates[0];
+		float closestDistance = Float.POSITIVE_INFINITY;
+
+		for (int candidate : candidates) {
+			float du = textureCoords[candidate * 2] - textureCoords[vertex * 2];
+			float dv = textureCoords[candidate * 2 + 1] - textureCoords[vertex * 2 + 1];
+			float distance = du * du + dv * dv;
+
+			if (distance < closestDistance) {
+				closest = candidate;
+				closestDistance = distance;
+			}
+		}
+
+		return closest;
+	}
+
+	private static boolean samePosition(float[] vertices, int a, int b) {
+		return vertices[a * 3] == vertices[b * 3] && vertices[a * 3 + 1] == vertices[b * 3 + 1] && vertices[a * 3 + 2] == vertices[b * 3 + 2];
+	}
+
+	private static long edgeKey(int a, int b) {
+		return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+	}
+
+	private static class Collapse implements Comparable<Collapse> {
+		private final int from;
+		private final int to;
+		private final int fromVersion;
+		private final int toVersion;
+		private final double error;
+
+		private Collapse(int from, int to, int fromVersion, int toVersion, double error) {
+			this.from = from;
+			this.to = to;
+			this.fromVersion = fromVersion;
+			this.toVersion = toVersion;
+			this.error = error;
+		}
+
+		@Override
+		public int compareTo(Collapse other) {
+			return Double.compare(error, other.error);
+		}
+	}
+}
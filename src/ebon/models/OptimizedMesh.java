@@ -0,0 +1,77 @@
+package ebon.models;
+
+/**
+ * A mesh reordered for drawing when it is saved: triangles are put in vertex cache order by {@link VertexCacheOptimizer}, clusters of them sorted to lower overdraw, and then vertices are put in the order they are first used so they are fetched from memory in order. Vertices no triangle uses are dropped.
+ */
+public class OptimizedMesh {
+	private final float[] vertices;
+	private final float[] textureCoords;
+	private final float[] normals;
+	private final float[] tangents;
+	private final int[] indices;
+	private final float acmrBefore;
+	private final float acmrAfter;
+
+	/**
+	 * Creates a new optimised mesh.
+	 *
+	 * @param vertices The vertex positions.
+	 * @param textureCoords The texture coords, can be null.
+	 * @param normals The normals, can be null.
+	 * @param tangents The tangents, can be null.
+	 * @param indices The triangle indices, in authoring order.
+	 */
+	public OptimizedMesh(float[] vertices, float[] textureCoords, float[] normals, float[] tangents, int[] indices) {
+		int vertexCount = vertices.length / 3;
+		int[] ordered = VertexCacheOptimizer.optimize(indices, vertexCount);
+		ordered = VertexCacheOptimizer.optimizeOverdraw(ordered, vertices, VertexCacheOptimizer.DEFAULT_OVERDRAW_THRESHOLD);
+
+		int[] remap = new int[vertexCount];
+		this.indices = MeshSimplifier.compactIndices(ordered, remap);
+		this.vertices = MeshSimplifier.compactAttribute(vertices, 3, remap);
+		this.textureCoords = MeshSimplifier.compactAttribute(textureCoords, 2, remap);
+		this.normals = MeshSimplifier.compactAttribute(normals, 3, remap);
+		this.tangents = MeshSimplifier.compactAttribute(tangents, 3, remap);
+
+		this.acmrBefore = VertexCacheOptimizer.getACMR(indices, vertexCount, VertexCacheOptimizer.REPORT_CACHE_SIZE);
+		this.acmrAfter = VertexCacheOptimizer.getACMR(this.indices, this.vertices.length / 3, VertexCacheOptimizer.REPORT_CACHE_SIZE);
+	}
+
+	public float[] getVertices() {
+		return vertices;
+	}
+
+	public float[] getTextureCoords() {
+		return textureCoords;
+	}
+
+	public float[] getNormals() {
+		return normals;
+	}
+
+	public float[] getTangents() {
+		return tangents;
+	}
+
+	public int[] getIndices() {
+		return indices;
+	}
+
+	/**
+	 * Gets the average cache miss ratio of the triangles in the order they were authored.
+	 *
+	 * @return The ACMR before optimising.
+	 */
+	public float getAcmrBefore() {
+		return acmrBefore;
+	}
+
+	/**
+	 * Gets the average cache miss ratio of the optimised triangles.
+	 *
+	 * @return The ACMR after optimising.
+	 */
+	public float getAcmrAfter() {
+		return acmrAfter;
+	}
+}
@@ -0,0 +1,235 @@
+package ebon.models;
+
+import flounder.materials.*;
+import flounder.maths.vectors.*;
+import flounder.models.*;
+import flounder.physics.*;
+
+import java.util.*;
+
+/**
+ * The CPU side mesh data of a entity template, with each level of detail compacted and the occluder mesh built, ready to be uploaded. Preparing can be done on any thread, only {@link #upload()} has to run on the GL thread.
+ */
+public class PreparedMesh {
+	private static volatile boolean quantized = false;
+
+	private final String name;
+	private final float[][] vertices;
+	private final float[][] textureCoords;
+	private final float[][] normals;
+	private final float[][] tangents;
+	private final int[][] indices;
+	private final float radius;
+	private final AABB aabb;
+	private final QuickHull hull;
+	private final float[] occluderVertices;
+	private final int[] occluderIndices;
+	private final QuantizedModel[] quantizedLods;
+
+	/**
+	 * Creates a new prepared mesh, compacting each level of detail to only the vertices it uses.
+	 *
+	 * @param name The name of the entity template the mesh was loaded from.
+	 * @param vertices The full detail vertices.
+	 * @param textureCoords The full detail texture coords.
+	 * @param normals The full detail normals.
+	 * @param tangents The full detail tangents.
+	 * @param indices The full detail indices.
+	 * @param lodIndices The indices of each simplified level of detail, into the full detail vertices.
+	 * @param aabb The bounding box saved with the template, as the min then max extents.
+	 * @param hullPoints The corners of the convex hull saved with the template, three floats each.
+	 * @param occluder If the coarsest level should be kept on the CPU as a occluder, see {@link MeshSimplifier#shrinkInside(float[], int[], int[])}.
+	 */
+	public PreparedMesh(String name, float[] vertices, float[] textureCoords, float[] normals, float[] tangents, int[] indices, int[][] lodIndices, float[] aabb, float[] hullPoints, boolean occluder) {
+		this.name = name;
+		this.vertices = new float[lodIndices.length + 1][];
+		this.textureCoords = new float[lodIndices.length + 1][];
+		this.normals = new float[lodIndices.length + 1][];
+		this.tangents = new float[lodIndices.length + 1][];
+		this.indices = new int[lodIndices.length + 1][];
+
+		this.vertices[0] = vertices;
+		this.textureCoords[0] = textureCoords;
+		this.normals[0] = normals;
+		this.tangents[0] = tangents;
+		this.indices[0] = indices;
+
+		for (int i = 0; i < lodIndices.length; i++) {
+			// Each level only keeps the vertices its indices use.
+			int[] remap = new int[vertices.length / 3];
+			this.indices[i + 1] = MeshSimplifier.compactIndices(lodIndices[i], remap);
+			this.vertices[i + 1] = MeshSimplifier.compactAttribute(vertices, 3, remap);
+			this.textureCoords[i + 1] = MeshSimplifier.compactAttribute(textureCoords, 2, remap);
+			this.normals[i + 1] = MeshSimplifier.compactAttribute(normals, 3, remap);
+			this.tangents[i + 1] = MeshSimplifier.compactAttribute(tangents, 3, remap);
+		}
+
+		float radius = 0.0f;
+
+		for (int i = 0; i < vertices.length / 3; i++) {
+			radius = Math.max(radius, (float) Math.sqrt(vertices[i * 3] * vertices[i * 3] + vertices[i * 3 + 1] * vertices[i * 3 + 1] + vertices[i * 3 + 2] * vertices[i * 3 + 2]));
+		}
+
+		this.radius = radius;
+		this.aabb = new AABB(new Vector3f(aabb[0], aabb[1], aabb[2]), new Vector3f(aabb[3], aabb[4], aabb[5]));
+		List<Vector3f> points = new ArrayList<>(hullPoints.length / 3);
+
+		for (int i = 0; i < hullPoints.length / 3; i++) {
+			points.add(new Vector3f(hullPoints[i * 3], hullPoints[i * 3 + 1], hullPoints[i * 3 + 2]));
+		}
+
+		this.hull = new QuickHull(points);
+
+		// The coarsest level, pulled inside the full detail mesh, is what gets drawn into the occlusion buffer.
+		if (occluder && lodIndices.length > 0) {
+			int[] remap = new int[vertices.length / 3];
+			this.occluderIndices = MeshSimplifier.compactIndices(lodIndices[lodIndices.length - 1], remap);
+			this.occluderVertices = MeshSimplifier.compactAttribute(MeshSimplifier.shrinkInside(vertices, indices, lodIndices[lodIndices.length - 1]), 3, remap);
+		} else {
+			this.occluderVertices = occluder ? vertices : null;
+			this.occluderIndices = occluder ? indices : null;
+		}
+
+		if (quantized) {
+			// Every level is encoded within the full detail bounds, so they can be drawn with the same shader values.
+			float[] bounds = VertexQuantizer.getBounds(vertices);
+			this.quantizedLods = new QuantizedModel[this.indices.length];
+
+			for (int i = 0; i < quantizedLods.length; i++) {
+				quantizedLods[i] = new QuantizedModel(i == 0 ? name : name + "Lod" + i, bounds, this.vertices[i], this.textureCoords[i], this.normals[i], this.tangents[i], this.indices[i]);
+			}
+		} else {
+			this.quantizedLods = null;
+		}
+	}
+
+	/**
+	 * Uploads every level of detail, this has to be called on the GL thread.
+	 *
+	 * @return The uploaded mesh, ready to be shared.
+	 */
+	public SharedMesh upload() {
+		if (quantizedLods != null) {
+			for (QuantizedModel lod : quantizedLods) {
+				lod.create();
+			}
+
+			return new SharedMesh(name, quantizedLods, radius, aabb, hull, occluderVertices, occluderIndices);
+		}
+
+		Model[] lods = new Model[indices.length];
+
+		for (int i = 0; i < lods.length; i++) {
+			lods[i] = createModel(i == 0 ? name : name + "Lod" + i, vertices[i], textureCoords[i], normals[i], tangents[i], indices[i], aabb, hull);
+		}
+
+		return new SharedMesh(name, lods, radius, aabb, hull, occluderVertices, occluderIndices);
+	}
+
+	/**
+	 * Creates a model from loaded mesh data. Every level of detail is given the full detail bounds, so colliding does not change with the level drawn.
+	 */
+	private static Model createModel(String name, float[] vertices, float[] textureCoords, float[] normals, float[] tangents, int[] indices, AABB aabb, QuickHull hull) {
+		return Model.newModel(new ModelBuilder.LoadManual() {
+			@Override
+			public String getModelName() {
+				return name;
+			}
+
+			@Override
+			public float[] getVertices() {
+				return vertices;
+			}
+
+			@Override
+			public float[] getTextureCoords() {
+				return textureCoords;
+			}
+
+			@Override
+			public float[] getNormals() {
+				return normals;
+			}
+
+			@Override
+			public float[] getTangents() {
+				return tangents;
+			}
+
+			@Override
+			public int[] getIndices() {
+				return indices;
+			}
+
+			@Override
+			public Material[] getMaterials() {
+				return new Material[]{}; // TODO: Save and load materials!
+			}
+
+			@Override
+			public AABB getAABB() {
+				return aabb;
+			}
+
+			@Override
+			public QuickHull getHull() {
+				return hull;
+			}
+		}).create();
+	}
+
+	/**
+	 * Gets the name of the entity template the mesh was loaded from.
+	 *
+	 * @return The template name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the number of bytes of mesh data that will be uploaded.
+	 *
+	 * @return The size in bytes.
+	 */
+	public long getBytes() {
+		long bytes = 0;
+
+		if (quantizedLods != null) {
+			for (QuantizedModel lod : quantizedLods) {
+				bytes += lod.getBytes();
+			}
+
+			return bytes;
+		}
+
+		for (int i = 0; i < indices.length; i++) {
+			bytes += (long) (length(vertices[i]) + length(textureCoords[i]) + length(normals[i]) + length(tangents[i])) * 4L;
+			bytes += indices[i] == null ? 0L : indices[i].length * 4L;
+		}
+
+		return bytes;
+	}
+
+	private static int length(float[] data) {
+		return data == null ? 0 : data.length;
+	}
+
+	/**
+	 * Gets if meshes prepared from now on are uploaded in the compact vertex format of {@link VertexQuantizer}.
+	 *
+	 * @return If meshes are quantized.
+	 */
+	public static boolean isQuantized() {
+		return quantized;
+	}
+
+	/**
+	 * Sets if meshes prepared from now on are uploaded in the compact vertex format of {@link VertexQuantizer}. Quantized meshes have no float model, so they are not merged into static batches.
+	 *
+	 * @param quantized If meshes are quantized.
+	 */
+	public static void setQuantized(boolean quantized) {
+		PreparedMesh.quantized = quantized;
+	}
+}
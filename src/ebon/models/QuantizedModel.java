@@ -0,0 +1,177 @@
+package ebon.models;
+
+import org.lwjgl.*;
+
+import java.nio.*;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * A mesh stored in the compact vertex format of {@link VertexQuantizer}, bound to the same attribute locations as a float model so the entity shader can draw either. Vertices are encoded when this is created, which can be done on any thread, and uploaded by {@link #create()} on the GL thread.
+ */
+public class QuantizedModel {
+	private final String name;
+	private final float[] bounds;
+	private final int vertexCount;
+	private final int indexCount;
+
+	private ByteBuffer vertexData;
+	private int[] indices;
+
+	private int vaoID;
+	private int vboID;
+	private int iboID;
+	private boolean loaded;
+
+	/**
+	 * Creates a new quantized model, encoding its vertices.
+	 *
+	 * @param name The name of the model.
+	 * @param bounds The bounds positions are encoded within, shared by every level of detail of a mesh.
+	 * @param vertices The vertex positions.
+	 * @param textureCoords The texture coords, can be null.
+	 * @param normals The normals, can be null.
+	 * @param tangents The tangents, can be null.
+	 * @param indices The triangle indices.
+	 */
+	public QuantizedModel(String name, float[] bounds, float[] vertices, float[] textureCoords, float[] normals, float[] tangents, int[] indices) {
+		this.name = name;
+		this.bounds = bounds;
+		this.vertexCount = vertices.length / 3;
+		this.indexCount = indices.length;
+		this.indices = indices;
+
+		short[] positions = VertexQuantizer.encodePositions(vertices, bounds);
+		short[] textures = textureCoords == null ? null : VertexQuantizer.encodeHalfFloats(textureCoords);
+		short[] normalVectors = normals == null ? null : VertexQuantizer.encodeOctahedral(normals);
+		short[] tangentVectors = tangents == null ? null : VertexQuantizer.encodeOctahedral(tangents);
+
+		this.vertexData = BufferUtils.createByteBuffer(vertexCount * VertexQuantizer.VERTEX_SIZE);
+
+		for (int i = 0; i < vertexCount; i++) {
+			vertexData.putShort(positions[i * 3]).putShort(positions[i * 3 + 1]).putShort(positions[i * 3 + 2]).putShort((short) 0);
+			putPair(vertexData, textures, i);
+			putPair(vertexData, normalVectors, i);
+			putPair(vertexData, tangentVectors, i);
+		}
+
+		vertexData.flip();
+	}
+
+	private static void putPair(ByteBuffer buffer, short[] values, int vertex) {
+		boolean has = values != null && values.length >= vertex * 2 + 2;
+		buffer.putShort(has ? values[vertex * 2] : 0).putShort(has ? values[vertex * 2 + 1] : 0);
+	}
+
+	/**
+	 * Uploads the model, this has to be called on the GL thread. The CPU copy of the vertices is released once uploaded.
+	 *
+	 * @return This model.
+	 */
+	public QuantizedModel create() {
+		if (loaded) {
+			return this;
+		}
+
+		vaoID = glGenVertexArrays();
+		glBindVertexArray(vaoID);
+
+		vboID = glGenBuffers();
+		glBindBuffer(GL_ARRAY_BUFFER, vboID);
+		glBufferData(GL_ARRAY_BUFFER, vertexData, GL_STATIC_DRAW);
+		glVertexAttribPointer(0, 3, GL_SHORT, true, VertexQuantizer.VERTEX_SIZE, VertexQuantizer.POSITION_OFFSET);
+		glVertexAttribPointer(1, 2, GL_HALF_FLOAT, false, VertexQuantizer.VERTEX_SIZE, VertexQuantizer.TEXTURE_OFFSET);
+		glVertexAttribPointer(2, 2, GL_SHORT, true, VertexQuantizer.VERTEX_SIZE, VertexQuantizer.NORMAL_OFFSET);
+		glVertexAttribPointer(3, 2, GL_SHORT, true, VertexQuantizer.VERTEX_SIZE, VertexQuantizer.TANGENT_OFFSET);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+
+		// The index buffer is bound while the VAO is, so it is stored with it.
+		iboID = glGenBuffers();
+		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, iboID);
+
+		if (getIndexType() == GL_UNSIGNED_SHORT) {
+			ShortBuffer indexData = BufferUtils.createShortBuffer(indexCount);
+
+			for (int index : indices) {
+				indexData.put((short) index);
+			}
+
+			indexData.flip();
+			glBufferData(GL_ELEMENT_ARRAY_BUFFER, indexData, GL_STATIC_DRAW);
+		} else {
+			IntBuffer indexData = BufferUtils.createIntBuffer(indexCount);
+			indexData.put(indices).flip();
+			glBufferData(GL_ELEMENT_ARRAY_BUFFER, indexData, GL_STATIC_DRAW);
+		}
+
+		glBindVertexArray(0);
+
+		vertexData = null;
+		indices = null;
+		loaded = true;
+		return this;
+	}
+
+	/**
+	 * Gets the name of the model.
+	 *
+	 * @return The models name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the bounds positions are encoded within, loaded into the entity shader to decode them.
+	 *
+	 * @return The centre, followed by the half size on each axis.
+	 */
+	public float[] getBounds() {
+		return bounds;
+	}
+
+	public int getVaoID() {
+		return vaoID;
+	}
+
+	public int getVaoLength() {
+		return indexCount;
+	}
+
+	/**
+	 * Gets the type of the index buffer, shorts are used when every vertex can be indexed by one.
+	 *
+	 * @return The GL index type.
+	 */
+	public int getIndexType() {
+		return vertexCount <= 65536 ? GL_UNSIGNED_SHORT : GL_UNSIGNED_INT;
+	}
+
+	/**
+	 * Gets the number of bytes the model takes on the GPU.
+	 *
+	 * @return The size in bytes.
+	 */
+	public long getBytes() {
+		return (long) vertexCount * VertexQuantizer.VERTEX_SIZE + (long) indexCount * (getIndexType() == GL_UNSIGNED_SHORT ? 2 : 4);
+	}
+
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Deletes the models buffers.
+	 */
+	public void delete() {
+		if (loaded) {
+			glDeleteBuffers(vboID);
+			glDeleteBuffers(iboID);
+			glDeleteVertexArrays(vaoID);
+			loaded = false;
+		}
+	}
+}
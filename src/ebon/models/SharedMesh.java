@@ -0,0 +1,187 @@
+package ebon.models;
+
+import flounder.models.*;
+import flounder.physics.*;
+
+/**
+ * The models loaded for a entity template, shared by every instance of it through the {@link MeshRegistry}.
+ */
+public class SharedMesh {
+	private final String name;
+	private final Model[] lods;
+	private final QuantizedModel[] quantizedLods;
+	private final float radius;
+	private final AABB aabb;
+	private final QuickHull hull;
+	private final float[] occluderVertices;
+	private final int[] occluderIndices;
+	private int references;
+
+	/**
+	 * Creates a new shared mesh.
+	 *
+	 * @param name The name of the entity template the mesh was loaded from.
+	 * @param lods The full detail model, followed by each simplified level of detail.
+	 * @param radius The radius of the models bounding sphere, before scaling.
+	 * @param aabb The models bounding box, before it is transformed.
+	 * @param hull The models convex hull, before it is transformed.
+	 * @param occluderVertices The vertices of the occluder mesh, or null if the template is not a occluder.
+	 * @param occluderIndices The indices of the occluder mesh, or null if the template is not a occluder.
+	 */
+	public SharedMesh(String name, Model[] lods, float radius, AABB aabb, QuickHull hull, float[] occluderVertices, int[] occluderIndices) {
+		this(name, lods, null, radius, aabb, hull, occluderVertices, occluderIndices);
+	}
+
+	/**
+	 * Creates a new shared mesh stored in the compact vertex format.
+	 *
+	 * @param name The name of the entity template the mesh was loaded from.
+	 * @param quantizedLods The full detail model, followed by each simplified level of detail.
+	 * @param radius The radius of the models bounding sphere, before scaling.
+	 * @param aabb The models bounding box, before it is transformed.
+	 * @param hull The models convex hull, before it is transformed.
+	 * @param occluderVertices The vertices of the occluder mesh, or null if the template is not a occluder.
+	 * @param occluderIndices The indices of the occluder mesh, or null if the template is not a occluder.
+	 */
+	public SharedMesh(String name, QuantizedModel[] quantizedLods, float radius, AABB aabb, QuickHull hull, float[] occluderVertices, int[] occluderIndices) {
+		this(name, null, quantizedLods, radius, aabb, hull, occluderVertices, occluderIndices);
+	}
+
+	private SharedMesh(String name, Model[] lods, QuantizedModel[] quantizedLods, float radius, AABB aabb, QuickHull hull, float[] occluderVertices, int[] occluderIndices) {
+		this.name = name;
+		this.lods = lods;
+		this.quantizedLods = quantizedLods;
+		this.radius = radius;
+		this.aabb = aabb;
+		this.hull = hull;
+		this.occluderVertices = occluderVertices;
+		this.occluderIndices = occluderIndices;
+		this.references = 0;
+	}
+
+	/**
+	 * Gets the name of the entity template the mesh was loaded from.
+	 *
+	 * @return The template name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the full detail model.
+	 *
+	 * @return The model, or null if the mesh is quantized.
+	 */
+	public Model getModel() {
+		return lods == null ? null : lods[0];
+	}
+
+	/**
+	 * Gets the full detail model, followed by each simplified level of detail. The array is shared and must not be changed.
+	 *
+	 * @return The level of detail models, or null if the mesh is quantized.
+	 */
+	public Model[] getLods() {
+		return lods;
+	}
+
+	/**
+	 * Gets the full detail quantized model, followed by each simplified level of detail. The array is shared and must not be changed.
+	 *
+	 * @return The level of detail models, or null if the mesh is not quantized.
+	 */
+	public QuantizedModel[] getQuantizedLods() {
+		return quantizedLods;
+	}
+
+	/**
+	 * Gets the number of levels of detail, including the full detail model.
+	 *
+	 * @return The number of levels.
+	 */
+	public int getLodCount() {
+		return lods != null ? lods.length : quantizedLods.length;
+	}
+
+	/**
+	 * Gets the radius of the models bounding sphere, before scaling.
+	 *
+	 * @return The bounding radius.
+	 */
+	public float getRadius() {
+		return radius;
+	}
+
+	/**
+	 * Gets the models bounding box loaded with the template, before it is transformed. This is shared and must not be changed.
+	 *
+	 * @return The bounding box.
+	 */
+	public AABB getAABB() {
+		return aabb;
+	}
+
+	/**
+	 * Gets the models convex hull loaded with the template, before it is transformed. This is shared and must not be changed.
+	 *
+	 * @return The convex hull.
+	 */
+	public QuickHull getHull() {
+		return hull;
+	}
+
+	/**
+	 * Gets the vertices of the occluder mesh.
+	 *
+	 * @return The occluder vertices, or null if the template is not a occluder.
+	 */
+	public float[] getOccluderVertices() {
+		return occluderVertices;
+	}
+
+	/**
+	 * Gets the indices of the occluder mesh.
+	 *
+	 * @return The occluder indices, or null if the template is not a occluder.
+	 */
+	public int[] getOccluderIndices() {
+		return occluderIndices;
+	}
+
+	/**
+	 * Gets the number of components using this mesh.
+	 *
+	 * @return The number of references.
+	 */
+	public int getReferences() {
+		return references;
+	}
+
+	protected void addReference() {
+		references++;
+	}
+
+	protected int removeReference() {
+		return --references;
+	}
+
+	/**
+	 * Deletes every level of detail model.
+	 */
+	protected void delete() {
+		if (lods != null) {
+			for (Model lod : lods) {
+				if (lod != null) {
+					lod.delete();
+				}
+			}
+		}
+
+		if (quantizedLods != null) {
+			for (QuantizedModel lod : quantizedLods) {
+				lod.delete();
+			}
+		}
+	}
+}
@@ -0,0 +1,371 @@
+package ebon.models;
+
+import java.util.*;
+
+/**
+ * Reorders triangles so the GPU post transform vertex cache is hit more often, using Tom Forsyth's linear speed vertex cache optimisation. Each vertex is scored by its position in a simulated cache and by how few triangles still use it, and the triangle with the highest score is drawn next. The order can then be split into clusters that are sorted to draw outward facing triangles first, which lowers overdraw for a small cost in cache hits.
+ * <p>
+ * The average cache miss ratio (ACMR) is the number of vertices transformed per triangle, it is 3 with no cache and approaches 0.5 on a large regular mesh.
+ */
+public class VertexCacheOptimizer {
+	/**
+	 * The size of the cache triangles are scored against.
+	 */
+	public static final int CACHE_SIZE = 32;
+
+	/**
+	 * The size of the FIFO cache the average cache miss ratio is reported for, smaller than most GPUs so the report is not optimistic.
+	 */
+	public static final int REPORT_CACHE_SIZE = 16;
+
+	/**
+	 * How much higher the miss ratio of a overdraw cluster is allowed to be than the order it was split from.
+	 */
+	public static final float DEFAULT_OVERDRAW_THRESHOLD = 1.05f;
+
+	private static final float CACHE_DECAY_POWER = 1.5f;
+	private static final float LAST_TRIANGLE_SCORE = 0.75f;
+	private static final float VALENCE_BOOST_SCALE = 2.0f;
+	private static final float VALENCE_BOOST_POWER = 0.5f;
+	private static final int MAX_VALENCE_SCORE = 32;
+
+	private static final float[] CACHE_SCORES = new float[CACHE_SIZE];
+	private static final float[] VALENCE_SCORES = new float[MAX_VALENCE_SCORE];
+
+	static {
+		for (int i = 0; i < CACHE_SIZE; i++) {
+			// The last triangles vertices are given a fixed score, so the next triangle does not always reuse the same edge and form long strips.
+			CACHE_SCORES[i] = i < 3 ? LAST_TRIANGLE_SCORE : (float) Math.pow(1.0f - (i - 3) / (float) (CACHE_SIZE - 3), CACHE_DECAY_POWER);
+		}
+
+		for (int i = 1; i < MAX_VALENCE_SCORE; i++) {
+			// Vertices with few triangles left are boosted, so they are finished off rather than left lonely.
+			VALENCE_SCORES[i] = VALENCE_BOOST_SCALE * (float) Math.pow(i, -VALENCE_BOOST_POWER);
+		}
+	}
+
+	/**
+	 * Reorders triangles for the vertex cache.
+	 *
+	 * @param indices The triangle indices.
+	 * @param vertexCount The number of vertices the indices refer to.
+	 *
+	 * @return The reordered indices, each triangle keeps its winding.
+	 */
+	public static int[] optimize(int[] indices, int vertexCount) {
+		int triangleCount = indices.length / 3;
+
+		if (triangleCount == 0) {
+			return indices.clone();
+		}
+
+		// The triangles using each vertex, with the ones not drawn yet kept at the front of each vertices range.
+		int[] valence = new int[vertexCount];
+
+		for (int i = 0; i < triangleCount * 3; i++) {
+			valence[indices[i]]++;
+		}
+
+		int[] offsets = new int[vertexCount + 1];
+
+		for (int v = 0; v < vertexCount; v++) {
+			offsets[v + 1] = offsets[v] + valence[v];
+		}
+
+		int[] adjacency = new int[triangleCount * 3];
+		int[] filled = new int[vertexCount];
+
+		for (int t = 0; t < triangleCount; t++) {
+			for (int c = 0; c < 3; c++) {
+				int v = indices[t * 3 + c];
+				adjacency[offsets[v] + filled[v]++] = t;
+			}
+		}
+
+		int[] cachePosition = new int[vertexCount];
+		float[] vertexScores = new float[vertexCount];
+		Arrays.fill(cachePosition, -1);
+
+		for (int v = 0; v < vertexCount; v++) {
+			vertexScores[v] = getVertexScore(-1, valence[v]);
+		}
+
+		boolean[] emitted = new boolean[triangleCount];
+		int bestTriangle = 0;
+		float bestScore = -1.0f;
+
+		for (int t = 0; t < triangleCount; t++) {
+			float score = vertexScores[indices[t * 3]] + vertexScores[indices[t * 3 + 1]] + vertexScores[indices[t * 3 + 2]];
+
+			if (score > bestScore) {
+				bestScore = score;
+				bestTriangle = t;
+			}
+		}
+
+		int[] cache = new int[CACHE_SIZE + 3];
+		int[] nextCache = new int[CACHE_SIZE + 3];
+		int cacheCount = 0;
+		int[] result = new int[triangleCount * 3];
+		int cursor = 0;
+
+		for (int drawn = 0; drawn < triangleCount; drawn++) {
+			if (bestTriangle == -1) {
+				// Nothing in the cache has triangles left, so the next triangle not drawn is started from.
+				while (emitted[cursor]) {
+					cursor++;
+				}
+
+				bestTriangle = cursor;
+			}
+
+			int t = bestTriangle;
+			emitted[t] = true;
+			System.arraycopy(indices, t * 3, result, drawn * 3, 3);
+
+			// The triangle is removed from its vertices, and its vertices moved to the front of the cache.
+			int nextCount = 0;
+
+			for (int c = 0; c < 3; c++) {
+				int v = indices[t * 3 + c];
+				int end = offsets[v] + valence[v] - 1;
+
+				for (int a = offsets[v]; a <= end; a++) {
+					if (adjacency[a] == t) {
+						adjacency[a] = adjacency[end];
+						adjacency[end] = t;
+						break;
+					}
+				}
+
+				valence[v]--;
+				nextCache[nextCount++] = v;
+			}
+
+			for (int i = 0; i < cacheCount; i++) {
+				int v = cache[i];
+
+				if (v != indices[t * 3] && v != indices[t * 3 + 1] && v != indices[t * 3 + 2]) {
+					nextCache[nextCount++] = v;
+				}
+			}
+
+			int[] swap = cache;
+			cache = nextCache;
+			nextCache = swap;
+			cacheCount = Math.min(nextCount, CACHE_SIZE);
+
+			for (int i = 0; i < nextCount; i++) {
+				int v = cache[i];
+				cachePosition[v] = i < CACHE_SIZE ? i : -1;
+				vertexScores[v] = getVertexScore(cachePosition[v], valence[v]);
+			}
+
+			// Only triangles of vertices in the cache changed score, so the next best triangle is one of them.
+			bestTriangle = -1;
+			bestScore = -1.0f;
+
+			for (int i = 0; i < cacheCount; i++) {
+				int v = cache[i];
+
+				for (int a = offsets[v]; a < offsets[v] + valence[v]; a++) {
+					int u = adjacency[a];
+					float score = vertexScores[indices[u * 3]] + vertexScores[indices[u * 3 + 1]] + vertexScores[indices[u * 3 + 2]];
+
+					if (score > bestScore) {
+						bestScore = score;
+						bestTriangle = u;
+					}
+				}
+			}
+		}
+
+		return result;
+	}
+
+	private static float getVertexScore(int cachePosition, int remaining) {
+		if (remaining == 0) {
+			return -1.0f;
+		}
+
+		float score = cachePosition >= 0 ? CACHE_SCORES[cachePosition] : 0.0f;
+		return score + VALENCE_SCORES[Math.min(remaining, MAX_VALENCE_SCORE - 1)];
+	}
+
+	/**
+	 * Reorders clusters of a cache optimised triangle order so triangles facing out from the centre of the mesh are drawn first, and hide more of what is drawn after them.
+	 *
+	 * @param indices The cache optimised triangle indices.
+	 * @param vertices The vertex positions.
+	 * @param threshold How much higher the miss ratio of a cluster may be than the order it was split from, 1 only splits where the cache is emptied anyway.
+	 *
+	 * @return The reordered indices.
+	 */
+	public static int[] optimizeOverdraw(int[] indices, float[] vertices, float threshold) {
+		int triangleCount = indices.length / 3;
+
+		if (triangleCount == 0) {
+			return indices.clone();
+		}
+
+		List<int[]> clusters = getClusters(indices, vertices.length / 3, threshold);
+		float[] centre = new float[3];
+
+		for (int i = 0; i < indices.length; i++) {
+			for (int c = 0; c < 3; c++) {
+				centre[c] += vertices[indices[i] * 3 + c] / indices.length;
+			}
+		}
+
+		// Each cluster is keyed by how much its area weighted normal points away from the centre of the mesh.
+		float[] keys = new float[clusters.size()];
+		Integer[] order = new Integer[clusters.size()];
+
+		for (int k = 0; k < clusters.size(); k++) {
+			int[] cluster = clusters.get(k);
+			float[] clusterCentre = new float[3];
+			float[] normal = new float[3];
+			float area = 0.0f;
+
+			for (int t = cluster[0]; t < cluster[1]; t++) {
+				int a = indices[t * 3] * 3;
+				int b = indices[t * 3 + 1] * 3;
+				int c = indices[t * 3 + 2] * 3;
+				float e1x = vertices[b] - vertices[a], e1y = vertices[b + 1] - vertices[a + 1], e1z = vertices[b + 2] - vertices[a + 2];
+				float e2x = vertices[c] - vertices[a], e2y = vertices[c + 1] - vertices[a + 1], e2z = vertices[c + 2] - vertices[a + 2];
+				float nx = e1y * e2z - e1z * e2y;
+				float ny = e1z * e2x - e1x * e2z;
+				float nz = e1x * e2y - e1y * e2x;
+				float triangleArea = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+
+				normal[0] += nx;
+				normal[1] += ny;
+				normal[2] += nz;
+
+				for (int i = 0; i < 3; i++) {
+					clusterCentre[i] += (vertices[a + i] + vertices[b + i] + vertices[c + i]) / 3.0f * triangleArea;
+				}
+
+				area += triangleArea;
+			}
+
+			float length = (float) Math.sqrt(normal[0] * normal[0] + normal[1] * normal[1] + normal[2] * normal[2]);
+			float key = 0.0f;
+
+			if (area > 0.0f && length > 0.0f) {
+				for (int i = 0; i < 3; i++) {
+					key += (clusterCentre[i] / area - centre[i]) * normal[i] / length;
+				}
+			}
+
+			keys[k] = key;
+			order[k] = k;
+		}
+
+		Arrays.sort(order, (Integer a, Integer b) -> Float.compare(keys[b], keys[a]));
+		int[] result = new int[indices.length];
+		int pointer = 0;
+
+		for (Integer k : order) {
+			int[] cluster = clusters.get(k);
+			int length = (cluster[1] - cluster[0]) * 3;
+			System.arraycopy(indices, cluster[0] * 3, result, pointer, length);
+			pointer += length;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Splits a triangle order into clusters that can be drawn in any order. Each cluster is measured with a cache that starts empty, as it will once the clusters are sorted. A cluster ends where every vertex of a triangle misses its cache anyway, or where its miss ratio is within the threshold of the whole order and the next triangle would miss its cache.
+	 *
+	 * @return The first and last plus one triangle of each cluster.
+	 */
+	private static List<int[]> getClusters(int[] indices, int vertexCount, float threshold) {
+		int triangleCount = indices.length / 3;
+		float limit = getACMR(indices, vertexCount, REPORT_CACHE_SIZE) * threshold;
+		List<int[]> clusters = new ArrayList<>();
+		int[] inserted = new int[vertexCount];
+		Arrays.fill(inserted, -1);
+		int misses = 0;
+		int start = 0;
+		int startMisses = 0;
+
+		for (int t = 0; t < triangleCount; t++) {
+			int triangleMisses = 0;
+
+			for (int c = 0; c < 3; c++) {
+				int v = indices[t * 3 + c];
+
+				// Vertices inserted before the cluster started are not in its cache.
+				if (inserted[v] < startMisses || misses - inserted[v] >= REPORT_CACHE_SIZE) {
+					inserted[v] = misses++;
+					triangleMisses++;
+				}
+			}
+
+			if (triangleMisses == 3 && t > start) {
+				clusters.add(new int[]{start, t});
+				start = t;
+				startMisses = misses - 3;
+			}
+
+			// Splitting where the next triangle misses anyway costs least.
+			if (threshold > 1.0f && t + 1 < triangleCount && (misses - startMisses) / (float) (t + 1 - start) <= limit &&
+					!isCached(indices, t + 1, inserted, misses, startMisses)) {
+				clusters.add(new int[]{start, t + 1});
+				start = t + 1;
+				startMisses = misses;
+			}
+		}
+
+		if (start < triangleCount) {
+			clusters.add(new int[]{start, triangleCount});
+		}
+
+		return clusters;
+	}
+
+	/**
+	 * Gets if any vertex of a triangle is in a clusters cache.
+	 */
+	private static boolean isCached(int[] indices, int triangle, int[] inserted, int misses, int startMisses) {
+		for (int c = 0; c < 3; c++) {
+			int v = indices[triangle * 3 + c];
+
+			if (inserted[v] >= startMisses && misses - inserted[v] < REPORT_CACHE_SIZE) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Gets the average number of vertices transformed per triangle with a FIFO cache.
+	 *
+	 * @param indices The triangle indices.
+	 * @param vertexCount The number of vertices the indices refer to.
+	 * @param cacheSize The number of vertices in the cache.
+	 *
+	 * @return The average cache miss ratio.
+	 */
+	public static float getACMR(int[] indices, int vertexCount, int cacheSize) {
+		if (indices.length < 3) {
+			return 0.0f;
+		}
+
+		// A vertex is in the cache if fewer than the caches size vertices have missed since it was inserted.
+		int[] inserted = new int[vertexCount];
+		Arrays.fill(inserted, Integer.MIN_VALUE / 2);
+		int misses = 0;
+
+		for (int index : indices) {
+			if (misses - inserted[index] >= cacheSize) {
+				inserted[index] = misses++;
+			}
+		}
+
+		return misses / (float) (indices.length / 3);
+	}
+}
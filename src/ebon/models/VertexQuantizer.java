@@ -0,0 +1,327 @@
+package ebon.models;
+
+/**
+ * Encodes entity vertices into a compact format, and decodes them again the same way the entity vertex shader does so the error can be checked without a GPU.
+ * <p>
+ * Positions are normalised shorts relative to the centre and extent of the meshes bounds, texture coords are half floats, and normals and tangents are octahedral encoded into two normalised shorts. A vertex takes {@link #VERTEX_SIZE} bytes, against 44 bytes as floats:
+ * <pre>
+ * short[3] position, short padding, half[2] texture coords, short[2] normal, short[2] tangent
+ * </pre>
+ */
+public class VertexQuantizer {
+	/**
+	 * The size of a quantized vertex in bytes.
+	 */
+	public static final int VERTEX_SIZE = 20;
+
+	public static final int POSITION_OFFSET = 0;
+	public static final int TEXTURE_OFFSET = 8;
+	public static final int NORMAL_OFFSET = 12;
+	public static final int TANGENT_OFFSET = 16;
+
+	/**
+	 * The largest value of a normalised short, which decodes to 1.
+	 */
+	private static final float SNORM_MAX = 32767.0f;
+
+	/**
+	 * Gets the bounds positions are quantized within.
+	 *
+	 * @param vertices The vertex positions.
+	 *
+	 * @return The centre, followed by the half size on each axis. A flat axis is given a half size of 1 so it can still be divided by.
+	 */
+	public static float[] getBounds(float[] vertices) {
+		float[] min = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY};
+		float[] max = {Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+
+		for (int i = 0; i < vertices.length; i++) {
+			min[i % 3] = Math.min(min[i % 3], vertices[i]);
+			max[i % 3] = Math.max(max[i % 3], vertices[i]);
+		}
+
+		float[] bounds = new float[6];
+
+		for (int i = 0; i < 3; i++) {
+			if (min[i] > max[i]) {
+				min[i] = max[i] = 0.0f;
+			}
+
+			bounds[i] = (min[i] + max[i]) * 0.5f;
+			bounds[i + 3] = max[i] > min[i] ? (max[i] - min[i]) * 0.5f : 1.0f;
+		}
+
+		return bounds;
+	}
+
+	/**
+	 * Encodes positions as normalised shorts within bounds.
+	 *
+	 * @param vertices The vertex positions.
+	 * @param bounds The bounds from {@link #getBounds(float[])}.
+	 *
+	 * @return Three shorts for each vertex.
+	 */
+	public static short[] encodePositions(float[] vertices, float[] bounds) {
+		short[] encoded = new short[vertices.length];
+
+		for (int i = 0; i < vertices.length; i++) {
+			encoded[i] = toSnorm((vertices[i] - bounds[i % 3]) / bounds[i % 3 + 3]);
+		}
+
+		return encoded;
+	}
+
+	/**
+	 * Decodes positions encoded by {@link #encodePositions(float[], float[])}.
+	 *
+	 * @param encoded Three shorts for each vertex.
+	 * @param bounds The bounds the positions were encoded within.
+	 *
+	 * @return The vertex positions.
+	 */
+	public static float[] decodePositions(short[] encoded, float[] bounds) {
+		float[] vertices = new float[encoded.length];
+
+		for (int i = 0; i < encoded.length; i++) {
+			vertices[i] = bounds[i % 3] + fromSnorm(encoded[i]) * bounds[i % 3 + 3];
+		}
+
+		return vertices;
+	}
+
+	/**
+	 * Gets the largest error a position can be decoded with, half a step on the longest axis.
+	 *
+	 * @param bounds The bounds the positions were encoded within.
+	 *
+	 * @return The largest position error.
+	 */
+	public static float getPositionError(float[] bounds) {
+		return Math.max(bounds[3], Math.max(bounds[4], bounds[5])) / SNORM_MAX * 0.5f;
+	}
+
+	/**
+	 * Encodes values as half floats.
+	 *
+	 * @param values The values to encode.
+	 *
+	 * @return The half floats.
+	 */
+	public static short[] encodeHalfFloats(float[] values) {
+		short[] encoded = new short[values.length];
+
+		for (int i = 0; i < values.length; i++) {
+			encoded[i] = toHalfFloat(values[i]);
+		}
+
+		return encoded;
+	}
+
+	/**
+	 * Decodes half floats.
+	 *
+	 * @param encoded The half floats.
+	 *
+	 * @return The decoded values.
+	 */
+	public static float[] decodeHalfFloats(short[] encoded) {
+		float[] values = new float[encoded.length];
+
+		for (int i = 0; i < encoded.length; i++) {
+			values[i] = fromHalfFloat(encoded[i]);
+		}
+
+		return values;
+	}
+
+	/**
+	 * Converts a float to the nearest half float.
+	 *
+	 * @param value The value to convert.
+	 *
+	 * @return The half float bits.
+	 */
+	public static short toHalfFloat(float value) {
+		int bits = Float.floatToIntBits(value);
+		int sign = (bits >>> 16) & 0x8000;
+		int rounded = (bits & 0x7fffffff) + 0x1000;
+
+		if (rounded >= 0x47800000) {
+			// Too large to be a half, or already infinite or NaN.
+			if ((bits & 0x7fffffff) >= 0x47800000) {
+				return (short) (rounded < 0x7f800000 ? sign | 0x7c00 : sign | 0x7c00 | ((bits & 0x007fffff) >>> 13));
+			}
+
+			return (short) (sign | 0x7bff);
+		}
+
+		if (rounded >= 0x38800000) {
+			return (short) (sign | ((rounded - 0x38000000) >>> 13));
+		}
+
+		if (rounded < 0x33000000) {
+			return (short) sign;
+		}
+
+		// Small enough to be a denormalized half.
+		int exponent = (bits & 0x7fffffff) >>> 23;
+		return (short) (sign | ((((bits & 0x7fffff) | 0x800000) + (0x800000 >>> (exponent - 102))) >>> (126 - exponent)));
+	}
+
+	/**
+	 * Converts a half float to a float.
+	 *
+	 * @param half The half float bits.
+	 *
+	 * @return The value.
+	 */
+	public static float fromHalfFloat(short half) {
+		int bits = half & 0xffff;
+		int mantissa = bits & 0x03ff;
+		int exponent = bits & 0x7c00;
+
+		if (exponent == 0x7c00) {
+			exponent = 0x3fc00;
+		} else if (exponent != 0) {
+			exponent += 0x1c000;
+		} else if (mantissa != 0) {
+			// Denormalized halves are normalized floats.
+			exponent = 0x1c400;
+
+			do {
+				mantissa <<= 1;
+				exponent -= 0x400;
+			} while ((mantissa & 0x400) == 0);
+
+			mantissa &= 0x3ff;
+		}
+
+		return Float.intBitsToFloat(((bits & 0x8000) << 16) | ((exponent | mantissa) << 13));
+	}
+
+	/**
+	 * Encodes unit vectors with a octahedral mapping, the vector is projected onto a octahedron and the lower half folded over the upper half onto a square.
+	 *
+	 * @param vectors The vectors, three floats each.
+	 *
+	 * @return Two shorts for each vector.
+	 */
+	public static short[] encodeOctahedral(float[] vectors) {
+		short[] encoded = new short[vectors.length / 3 * 2];
+
+		for (int i = 0; i < vectors.length / 3; i++) {
+			float x = vectors[i * 3];
+			float y = vectors[i * 3 + 1];
+			float z = vectors[i * 3 + 2];
+			float length = Math.abs(x) + Math.abs(y) + Math.abs(z);
+
+			if (length == 0.0f) {
+				continue;
+			}
+
+			float px = x / length;
+			float py = y / length;
+
+			if (z < 0.0f) {
+				float folded = (1.0f - Math.abs(py)) * signNotZero(px);
+				py = (1.0f - Math.abs(px)) * signNotZero(py);
+				px = folded;
+			}
+
+			encoded[i * 2] = toSnorm(px);
+			encoded[i * 2 + 1] = toSnorm(py);
+		}
+
+		return encoded;
+	}
+
+	/**
+	 * Decodes vectors encoded by {@link #encodeOctahedral(float[])}, the same way as the entity vertex shader.
+	 *
+	 * @param encoded Two shorts for each vector.
+	 *
+	 * @return The unit vectors, three floats each.
+	 */
+	public static float[] decodeOctahedral(short[] encoded) {
+		float[] vectors = new float[encoded.length / 2 * 3];
+
+		for (int i = 0; i < encoded.length / 2; i++) {
+			float x = fromSnorm(encoded[i * 2]);
+			float y = fromSnorm(encoded[i * 2 + 1]);
+			float z = 1.0f - Math.abs(x) - Math.abs(y);
+
+			if (z < 0.0f) {
+				float unfolded = (1.0f - Math.abs(y)) * signNotZero(x);
+				y = (1.0f - Math.abs(x)) * signNotZero(y);
+				x = unfolded;
+			}
+
+			float length = (float) Math.sqrt(x * x + y * y + z * z);
+			vectors[i * 3] = x / length;
+			vectors[i * 3 + 1] = y / length;
+			vectors[i * 3 + 2] = z / length;
+		}
+
+		return vectors;
+	}
+
+	/**
+	 * Gets the largest difference between two arrays of values, used to check the error of a encoding.
+	 *
+	 * @param expected The original values.
+	 * @param actual The values after encoding and decoding.
+	 * @param stride The number of values in each element, the error of a element is the distance between them.
+	 *
+	 * @return The largest error.
+	 */
+	public static float getMaxError(float[] expected, float[] actual, int stride) {
+		float maxError = 0.0f;
+
+		for (int i = 0; i + stride <= Math.min(expected.length, actual.length); i += stride) {
+			float distance = 0.0f;
+
+			for (int j = 0; j < stride; j++) {
+				float difference = expected[i + j] - actual[i + j];
+				distance += difference * difference;
+			}
+
+			maxError = Math.max(maxError, (float) Math.sqrt(distance));
+		}
+
+		return maxError;
+	}
+
+	/**
+	 * Normalizes vectors, so a encoded vector can be compared to the unit vector it was decoded from.
+	 *
+	 * @param vectors The vectors, three floats each.
+	 *
+	 * @return The normalized vectors, zero length vectors are left as they are.
+	 */
+	public static float[] normalize(float[] vectors) {
+		float[] normalized = new float[vectors.length];
+
+		for (int i = 0; i + 2 < vectors.length; i += 3) {
+			float length = (float) Math.sqrt(vectors[i] * vectors[i] + vectors[i + 1] * vectors[i + 1] + vectors[i + 2] * vectors[i + 2]);
+			float scale = length == 0.0f ? 1.0f : 1.0f / length;
+			normalized[i] = vectors[i] * scale;
+			normalized[i + 1] = vectors[i + 1] * scale;
+			normalized[i + 2] = vectors[i + 2] * scale;
+		}
+
+		return normalized;
+	}
+
+	private static short toSnorm(float value) {
+		return (short) Math.round(Math.max(-1.0f, Math.min(1.0f, value)) * SNORM_MAX);
+	}
+
+	private static float fromSnorm(short value) {
+		return Math.max(value / SNORM_MAX, -1.0f);
+	}
+
+	private static float signNotZero(float value) {
+		return value >= 0.0f ? 1.0f : -1.0f;
+	}
+}
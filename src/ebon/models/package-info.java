@@ -0,0 +1,4 @@
+/**
+ * Contains classes for processing entity meshes before they are uploaded and rendered.
+ */
+package ebon.models;
\ No newline at end of file
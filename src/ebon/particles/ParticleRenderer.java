@@ -1,6 +1,7 @@
 package ebon.particles;
 
 import ebon.particles.loading.*;
+import ebon.rendering.*;
 import flounder.camera.*;
 import flounder.devices.*;
 import flounder.helpers.*;
@@ -91,6 +92,10 @@ public class ParticleRenderer extends IRenderer {
 				FlounderLoader.updateVBO(VBO, vboData, BUFFER);
 				glDrawArraysInstanced(GL_TRIANGLE_STRIP, 0, VERTICES.length, particles.size());
 				unbindTexturedModel();
+
+				// Each instance is a quad made of two triangles.
+				RenderStatistics.drawCall(particles.size() * 2L);
+				RenderStatistics.bytesUploaded(vboData.length * 4L);
 			}
 		}
 
@@ -102,6 +107,7 @@ public class ParticleRenderer extends IRenderer {
 		shader.getUniformMat4("projectionMatrix").loadMat4(camera.getProjectionMatrix());
 		shader.getUniformMat4("viewMatrix").loadMat4(camera.getViewMatrix());
 		shader.getUniformVec4("clipPlane").loadVec4(clipPlane);
+		RenderStatistics.uniformUploads(3);
 
 		rendered = 0;
 	}
@@ -119,6 +125,8 @@ public class ParticleRenderer extends IRenderer {
 		if (particleTemplate.getTexture() != null) {
 			shader.getUniformFloat("numberOfRows").loadFloat(particleTemplate.getTexture().getNumberOfRows());
 			OpenGlUtils.bindTexture(particleTemplate.getTexture(), 0);
+			RenderStatistics.uniformUploads(1);
+			RenderStatistics.textureBinds(1);
 		}
 	}
 
@@ -0,0 +1,457 @@
+package ebon.physics;
+
+import java.util.*;
+
+/**
+ * A dynamic bounding volume tree, where each leaf holds a object's bounds fattened by a margin. A object only has to be moved in the tree once it leaves its fattened bounds, and the branches are kept balanced by rotations as leaves are inserted and removed.
+ * <p>
+ * Nodes are stored in flat arrays and reused, so moving objects around does not create garbage. Leaves are identified by the proxy id returned when they are inserted.
+ *
+ * @param <T> The type of object held by the leaves.
+ */
+public class AABBTree<T> {
+	private static final int NULL = -1;
+
+	private final float margin;
+	private final float displacementScale;
+
+	private float[] bounds;
+	private int[] parents;
+	private int[] children;
+	private int[] heights;
+	private Object[] data;
+	private int capacity;
+	private int root;
+	private int freeList;
+	private int leafCount;
+
+	private int[] stack;
+
+	/**
+	 * Creates a new AABB tree.
+	 *
+	 * @param margin How far the bounds of each leaf are fattened on every side.
+	 * @param displacementScale How far ahead of a moving object its bounds are extended, as a multiple of the distance it moved.
+	 */
+	public AABBTree(float margin, float displacementScale) {
+		this.margin = margin;
+		this.displacementScale = displacementScale;
+		this.capacity = 0;
+		this.root = NULL;
+		this.freeList = NULL;
+		this.leafCount = 0;
+		this.stack = new int[64];
+		grow(16);
+	}
+
+	/**
+	 * Inserts a object into the tree.
+	 *
+	 * @param aabb The objects bounds, as the min x, y, z followed by the max x, y, z.
+	 * @param object The object.
+	 *
+	 * @return The proxy id of the objects leaf.
+	 */
+	public int insert(float[] aabb, T object) {
+		int proxy = allocate();
+
+		for (int i = 0; i < 3; i++) {
+			bounds[proxy * 6 + i] = aabb[i] - margin;
+			bounds[proxy * 6 + i + 3] = aabb[i + 3] + margin;
+		}
+
+		data[proxy] = object;
+		heights[proxy] = 0;
+		insertLeaf(proxy);
+		leafCount++;
+		return proxy;
+	}
+
+	/**
+	 * Removes a object from the tree.
+	 *
+	 * @param proxy The proxy id of the objects leaf.
+	 */
+	public void remove(int proxy) {
+		removeLeaf(proxy);
+		release(proxy);
+		leafCount--;
+	}
+
+	/**
+	 * Moves a object in the tree, this is only done once its bounds leave the fattened bounds of its leaf. The new leaf is fattened by the margin and extended in the direction the object moved.
+	 *
+	 * @param proxy The proxy id of the objects leaf.
+	 * @param aabb The objects new bounds, as the min x, y, z followed by the max x, y, z.
+	 * @param dx The distance moved on the x axis since the last move.
+	 * @param dy The distance moved on the y axis since the last move.
+	 * @param dz The distance moved on the z axis since the last move.
+	 *
+	 * @return If the leaf was moved, false if the object is still within its fattened bounds.
+	 */
+	public boolean move(int proxy, float[] aabb, float dx, float dy, float dz) {
+		if (contains(proxy, aabb)) {
+			return false;
+		}
+
+		removeLeaf(proxy);
+		float[] displacement = {dx * displacementScale, dy * displacementScale, dz * displacementScale};
+
+		for (int i = 0; i < 3; i++) {
+			bounds[proxy * 6 + i] = aabb[i] - margin + Math.min(displacement[i], 0.0f);
+			bounds[proxy * 6 + i + 3] = aabb[i + 3] + margin + Math.max(displacement[i], 0.0f);
+		}
+
+		insertLeaf(proxy);
+		return true;
+	}
+
+	/**
+	 * Visits every leaf whose fattened bounds overlap a box.
+	 *
+	 * @param aabb The box, as the min x, y, z followed by the max x, y, z.
+	 * @param visitor The visitor called with the proxy id of each overlapping leaf.
+	 */
+	public void query(float[] aabb, ProxyVisitor visitor) {
+		if (root == NULL) {
+			return;
+		}
+
+		int size = 0;
+		stack[size++] = root;
+
+		while (size > 0) {
+			int node = stack[--size];
+
+			if (!overlaps(node, aabb)) {
+				continue;
+			}
+
+			if (children[node * 2] == NULL) {
+				visitor.visit(node);
+			} else {
+				if (size + 2 > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				}
+
+				stack[size++] = children[node * 2];
+				stack[size++] = children[node * 2 + 1];
+			}
+		}
+	}
+
+	/**
+	 * Gets the object held by a leaf.
+	 *
+	 * @param proxy The proxy id of the leaf.
+	 *
+	 * @return The object.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getObject(int proxy) {
+		return (T) data[proxy];
+	}
+
+	/**
+	 * Gets the fattened bounds of a leaf.
+	 *
+	 * @param proxy The proxy id of the leaf.
+	 * @param destination The array to write the min x, y, z followed by the max x, y, z into.
+	 *
+	 * @return The destination array.
+	 */
+	public float[] getFatBounds(int proxy, float[] destination) {
+		System.arraycopy(bounds, proxy * 6, destination, 0, 6);
+		return destination;
+	}
+
+	/**
+	 * Gets if a box is within the fattened bounds of a leaf.
+	 *
+	 * @param proxy The proxy id of the leaf.
+	 * @param aabb The box, as the min x, y, z followed by the max x, y, z.
+	 *
+	 * @return If the box is contained.
+	 */
+	public boolean contains(int proxy, float[] aabb) {
+		int offset = proxy * 6;
+		return bounds[offset] <= aabb[0] && bounds[offset + 1] <= aabb[1] && bounds[offset + 2] <= aabb[2] &&
+				bounds[offset + 3] >= aabb[3] && bounds[offset + 4] >= aabb[4] && bounds[offset + 5] >= aabb[5];
+	}
+
+	/**
+	 * Gets if the fattened bounds of two leaves overlap.
+	 *
+	 * @param proxyA The proxy id of the first leaf.
+	 * @param proxyB The proxy id of the second leaf.
+	 *
+	 * @return If the leaves overlap.
+	 */
+	public boolean overlaps(int proxyA, int proxyB) {
+		return overlaps(proxyA, bounds, proxyB * 6);
+	}
+
+	/**
+	 * Gets the number of objects in the tree.
+	 *
+	 * @return The number of leaves.
+	 */
+	public int getLeafCount() {
+		return leafCount;
+	}
+
+	/**
+	 * Gets the height of the tree, a balanced tree is around log2 of the leaf count.
+	 *
+	 * @return The height of the root.
+	 */
+	public int getHeight() {
+		return root == NULL ? 0 : heights[root];
+	}
+
+	/**
+	 * Removes every object from the tree.
+	 */
+	public void clear() {
+		capacity = 0;
+		root = NULL;
+		freeList = NULL;
+		leafCount = 0;
+		grow(16);
+	}
+
+	private boolean overlaps(int node, float[] aabb) {
+		return overlaps(node, aabb, 0);
+	}
+
+	private boolean overlaps(int node, float[] aabb, int offset) {
+		int nodeOffset = node * 6;
+		return bounds[nodeOffset] <= aabb[offset + 3] && bounds[nodeOffset + 3] >= aabb[offset] &&
+				bounds[nodeOffset + 1] <= aabb[offset + 4] && bounds[nodeOffset + 4] >= aabb[offset + 1] &&
+				bounds[nodeOffset + 2] <= aabb[offset + 5] && bounds[nodeOffset + 5] >= aabb[offset + 2];
+	}
+
+	private void insertLeaf(int leaf) {
+		if (root == NULL) {
+			root = leaf;
+			parents[leaf] = NULL;
+			return;
+		}
+
+		// Walks down to the sibling that grows the total surface area the least.
+		int sibling = root;
+
+		while (children[sibling * 2] != NULL) {
+			int left = children[sibling * 2];
+			int right = children[sibling * 2 + 1];
+			float area = getArea(sibling);
+			float combinedArea = getCombinedArea(sibling, leaf);
+
+			// The cost of making a new parent for this node and the leaf, and the least cost pushed down to the children.
+			float cost = 2.0f * combinedArea;
+			float inheritanceCost = 2.0f * (combinedArea - area);
+			float costLeft = getDescendCost(left, leaf) + inheritanceCost;
+			float costRight = getDescendCost(right, leaf) + inheritanceCost;
+
+			if (cost < costLeft && cost < costRight) {
+				break;
+			}
+
+			sibling = costLeft < costRight ? left : right;
+		}
+
+		int oldParent = parents[sibling];
+		int newParent = allocate();
+		parents[newParent] = oldParent;
+		data[newParent] = null;
+		combine(newParent, sibling, leaf);
+		heights[newParent] = heights[sibling] + 1;
+
+		if (oldParent != NULL) {
+			children[oldParent * 2 + (children[oldParent * 2] == sibling ? 0 : 1)] = newParent;
+		} else {
+			root = newParent;
+		}
+
+		children[newParent * 2] = sibling;
+		children[newParent * 2 + 1] = leaf;
+		parents[sibling] = newParent;
+		parents[leaf] = newParent;
+		refit(parents[leaf]);
+	}
+
+	private void removeLeaf(int leaf) {
+		if (leaf == root) {
+			root = NULL;
+			return;
+		}
+
+		int parent = parents[leaf];
+		int grandParent = parents[parent];
+		int sibling = children[parent * 2] == leaf ? children[parent * 2 + 1] : children[parent * 2];
+
+		if (grandParent != NULL) {
+			children[grandParent * 2 + (children[grandParent * 2] == parent ? 0 : 1)] = sibling;
+			parents[sibling] = grandParent;
+			release(parent);
+			refit(grandParent);
+		} else {
+			root = sibling;
+			parents[sibling] = NULL;
+			release(parent);
+		}
+	}
+
+	/**
+	 * Balances and recalculates the bounds and heights of every node from one up to the root.
+	 */
+	private void refit(int node) {
+		while (node != NULL) {
+			node = balance(node);
+			int left = children[node * 2];
+			int right = children[node * 2 + 1];
+			heights[node] = 1 + Math.max(heights[left], heights[right]);
+			combine(node, left, right);
+			node = parents[node];
+		}
+	}
+
+	/**
+	 * Rotates a child up in place of a node if one side is more than one level taller than the other.
+	 *
+	 * @return The node now in the position of the balanced node.
+	 */
+	private int balance(int a) {
+		if (children[a * 2] == NULL || heights[a] < 2) {
+			return a;
+		}
+
+		int b = children[a * 2];
+		int c = children[a * 2 + 1];
+		int difference = heights[c] - heights[b];
+
+		if (difference > 1) {
+			return rotate(a, c, 1, b);
+		} else if (difference < -1) {
+			return rotate(a, b, 0, c);
+		}
+
+		return a;
+	}
+
+	/**
+	 * Rotates the taller child of a node up into its place, the node takes the shorter child of the one rotated up.
+	 */
+	private int rotate(int a, int up, int upSide, int other) {
+		int f = children[up * 2];
+		int g = children[up * 2 + 1];
+
+		children[up * 2] = a;
+		parents[up] = parents[a];
+		parents[a] = up;
+
+		if (parents[up] != NULL) {
+			children[parents[up] * 2 + (children[parents[up] * 2] == a ? 0 : 1)] = up;
+		} else {
+			root = up;
+		}
+
+		int keep = heights[f] > heights[g] ? f : g;
+		int give = keep == f ? g : f;
+		children[up * 2 + 1] = keep;
+		children[a * 2 + upSide] = give;
+		parents[give] = a;
+		combine(a, other, give);
+		heights[a] = 1 + Math.max(heights[other], heights[give]);
+		combine(up, a, keep);
+		heights[up] = 1 + Math.max(heights[a], heights[keep]);
+		return up;
+	}
+
+	private float getDescendCost(int node, int leaf) {
+		float combinedArea = getCombinedArea(node, leaf);
+		return children[node * 2] == NULL ? combinedArea : combinedArea - getArea(node);
+	}
+
+	private float getArea(int node) {
+		int offset = node * 6;
+		float x = bounds[offset + 3] - bounds[offset];
+		float y = bounds[offset + 4] - bounds[offset + 1];
+		float z = bounds[offset + 5] - bounds[offset + 2];
+		return 2.0f * (x * y + y * z + z * x);
+	}
+
+	private float getCombinedArea(int a, int b) {
+		float x = Math.max(bounds[a * 6 + 3], bounds[b * 6 + 3]) - Math.min(bounds[a * 6], bounds[b * 6]);
+		float y = Math.max(bounds[a * 6 + 4], bounds[b * 6 + 4]) - Math.min(bounds[a * 6 + 1], bounds[b * 6 + 1]);
+		float z = Math.max(bounds[a * 6 + 5], bounds[b * 6 + 5]) - Math.min(bounds[a * 6 + 2], bounds[b * 6 + 2]);
+		return 2.0f * (x * y + y * z + z * x);
+	}
+
+	private void combine(int destination, int a, int b) {
+		for (int i = 0; i < 3; i++) {
+			bounds[destination * 6 + i] = Math.min(bounds[a * 6 + i], bounds[b * 6 + i]);
+			bounds[destination * 6 + i + 3] = Math.max(bounds[a * 6 + i + 3], bounds[b * 6 + i + 3]);
+		}
+	}
+
+	private int allocate() {
+		if (freeList == NULL) {
+			grow(capacity * 2);
+		}
+
+		int node = freeList;
+		freeList = parents[node];
+		parents[node] = NULL;
+		children[node * 2] = NULL;
+		children[node * 2 + 1] = NULL;
+		heights[node] = 0;
+		return node;
+	}
+
+	private void release(int node) {
+		data[node] = null;
+		heights[node] = -1;
+		parents[node] = freeList;
+		freeList = node;
+	}
+
+	private void grow(int newCapacity) {
+		int oldCapacity = capacity;
+
+		if (oldCapacity == 0) {
+			bounds = new float[newCapacity * 6];
+			parents = new int[newCapacity];
+			children = new int[newCapacity * 2];
+			heights = new int[newCapacity];
+			data = new Object[newCapacity];
+		} else {
+			bounds = Arrays.copyOf(bounds, newCapacity * 6);
+			parents = Arrays.copyOf(parents, newCapacity);
+			children = Arrays.copyOf(children, newCapacity * 2);
+			heights = Arrays.copyOf(heights, newCapacity);
+			data = Arrays.copyOf(data, newCapacity);
+		}
+
+		// The new nodes are chained onto the free list.
+		for (int i = oldCapacity; i < newCapacity; i++) {
+			parents[i] = i + 1 < newCapacity ? i + 1 : freeList;
+			heights[i] = -1;
+		}
+
+		freeList = oldCapacity;
+		capacity = newCapacity;
+	}
+
+	/**
+	 * Visits leaves found by a query.
+	 */
+	public interface ProxyVisitor {
+		/**
+		 * Called for each leaf found.
+		 *
+		 * @param proxy The proxy id of the leaf.
+		 */
+		void visit(int proxy);
+	}
+}
@@ -0,0 +1,230 @@
+package ebon.physics;
+
+import flounder.maths.matrices.*;
+import flounder.maths.vectors.*;
+import flounder.physics.*;
+
+import java.util.*;
+
+/**
+ * The corners of a convex hull placed in the world, used by {@link GJK} through its support function: the corner furthest in a direction. The corners are never transformed as a whole, only the placement is kept, so moving a hull costs the same however many corners it has. Supports are found by turning the direction into model space, and only the corners a test asks for are transformed into the world.
+ * <p>
+ * The last support found is cached, so asking for the same direction again, as happens while two hulls rest against each other, does not search the corners.
+ */
+public class ConvexHull {
+	private final float[] localPoints;
+	private final Matrix4f transform;
+	private final double[] point;
+	private float scale;
+	private int version;
+	private boolean box;
+
+	private float lastX;
+	private float lastY;
+	private float lastZ;
+	private int lastSupport;
+
+	/**
+	 * Creates a new convex hull.
+	 *
+	 * @param localPoints The x, y, z of each corner in model space, this is shared and only changed by {@link #setBox(float[])}.
+	 */
+	public ConvexHull(float[] localPoints) {
+		this.localPoints = localPoints;
+		this.transform = new Matrix4f();
+		this.point = new double[3];
+		this.scale = 1.0f;
+		this.version = 0;
+		this.box = false;
+		this.lastSupport = -1;
+	}
+
+	/**
+	 * Creates a new convex hull from the corners of a model space quick hull.
+	 *
+	 * @param hull The quick hull to copy the corners of.
+	 */
+	public ConvexHull(QuickHull hull) {
+		this(toArray(hull.getHullPoints()));
+	}
+
+	private static float[] toArray(List<Vector3f> hullPoints) {
+		float[] result = new float[hullPoints.size() * 3];
+
+		for (int i = 0; i < hullPoints.size(); i++) {
+			result[i * 3] = hullPoints.get(i).x;
+			result[i * 3 + 1] = hullPoints.get(i).y;
+			result[i * 3 + 2] = hullPoints.get(i).z;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Sets the corners to the eight corners of a box, for hulls that follow a changing box such as the bounds of a animated pose. The hull must have been created with its own array of eight corners. The version only changes if a corner moved.
+	 *
+	 * @param bounds The model space min x, y, z then max x, y, z.
+	 */
+	public void setBox(float[] bounds) {
+		boolean changed = !box;
+
+		for (int i = 0; i < 8; i++) {
+			float x = bounds[(i & 1) == 0 ? 0 : 3];
+			float y = bounds[(i & 2) == 0 ? 1 : 4];
+			float z = bounds[(i & 4) == 0 ? 2 : 5];
+			changed |= localPoints[i * 3] != x || localPoints[i * 3 + 1] != y || localPoints[i * 3 + 2] != z;
+			localPoints[i * 3] = x;
+			localPoints[i * 3 + 1] = y;
+			localPoints[i * 3 + 2] = z;
+		}
+
+		box = true;
+
+		if (changed) {
+			version++;
+			lastSupport = -1;
+		}
+	}
+
+	/**
+	 * Gets if the corners were last set by {@link #setBox(float[])}.
+	 *
+	 * @return If the hull is a box.
+	 */
+	public boolean isBox() {
+		return box;
+	}
+
+	/**
+	 * Gets the box last set by {@link #setBox(float[])}, from its first and last corners.
+	 *
+	 * @param destination The array to write the model space min x, y, z then max x, y, z into.
+	 *
+	 * @return The destination.
+	 */
+	public float[] getBox(float[] destination) {
+		System.arraycopy(localPoints, 0, destination, 0, 3);
+		System.arraycopy(localPoints, 21, destination, 3, 3);
+		return destination;
+	}
+
+	/**
+	 * Places the hull in the world. Only the transform is kept, the corners are not changed.
+	 *
+	 * @param position The world position.
+	 * @param rotation The rotation, in degrees.
+	 * @param scale The scale.
+	 */
+	public void setTransform(Vector3f position, Vector3f rotation, float scale) {
+		Matrix4f.transformationMatrix(position, rotation, scale, transform);
+		this.scale = scale;
+		lastSupport = -1;
+	}
+
+	/**
+	 * Creates a unplaced hull with a copy of this hulls corners, so it can be used on another thread while this one changes.
+	 *
+	 * @return The copied hull.
+	 */
+	public ConvexHull copy() {
+		return new ConvexHull(localPoints.clone());
+	}
+
+	/**
+	 * Gets the world space bounds of the hull, from its supports along each axis.
+	 *
+	 * @param destination The array to write the min x, y, z then max x, y, z into.
+	 *
+	 * @return The destination.
+	 */
+	public float[] getBounds(float[] destination) {
+		for (int axis = 0; axis < 3; axis++) {
+			getPoint(getSupport(axis == 0 ? -1.0f : 0.0f, axis == 1 ? -1.0f : 0.0f, axis == 2 ? -1.0f : 0.0f), point, 0);
+			destination[axis] = (float) point[axis];
+			getPoint(getSupport(axis == 0 ? 1.0f : 0.0f, axis == 1 ? 1.0f : 0.0f, axis == 2 ? 1.0f : 0.0f), point, 0);
+			destination[axis + 3] = (float) point[axis];
+		}
+
+		return destination;
+	}
+
+	/**
+	 * Gets the scale the hull was last placed with.
+	 *
+	 * @return The scale.
+	 */
+	public float getScale() {
+		return scale;
+	}
+
+	/**
+	 * Gets the number of times the corners have been changed by {@link #setBox(float[])}.
+	 *
+	 * @return The corner version.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Gets the corner furthest in a world space direction.
+	 *
+	 * @param dx The x of the direction.
+	 * @param dy The y of the direction.
+	 * @param dz The z of the direction.
+	 *
+	 * @return The index of the corner.
+	 */
+	public int getSupport(float dx, float dy, float dz) {
+		if (lastSupport != -1 && dx == lastX && dy == lastY && dz == lastZ) {
+			return lastSupport;
+		}
+
+		// The transposed transform turns the direction into model space, the uniform scale does not change which corner is furthest.
+		float lx = transform.m00 * dx + transform.m01 * dy + transform.m02 * dz;
+		float ly = transform.m10 * dx + transform.m11 * dy + transform.m12 * dz;
+		float lz = transform.m20 * dx + transform.m21 * dy + transform.m22 * dz;
+		int support = 0;
+		float furthest = Float.NEGATIVE_INFINITY;
+
+		for (int i = 0; i < localPoints.length; i += 3) {
+			float distance = localPoints[i] * lx + localPoints[i + 1] * ly + localPoints[i + 2] * lz;
+
+			if (distance > furthest) {
+				furthest = distance;
+				support = i / 3;
+			}
+		}
+
+		lastX = dx;
+		lastY = dy;
+		lastZ = dz;
+		lastSupport = support;
+		return support;
+	}
+
+	/**
+	 * Gets a corner transformed into the world.
+	 *
+	 * @param index The index of the corner.
+	 * @param destination The array to write the x, y, z into.
+	 * @param offset Where to write in the array.
+	 */
+	public void getPoint(int index, double[] destination, int offset) {
+		float x = localPoints[index * 3];
+		float y = localPoints[index * 3 + 1];
+		float z = localPoints[index * 3 + 2];
+		destination[offset] = transform.m00 * x + transform.m10 * y + transform.m20 * z + transform.m30;
+		destination[offset + 1] = transform.m01 * x + transform.m11 * y + transform.m21 * z + transform.m31;
+		destination[offset + 2] = transform.m02 * x + transform.m12 * y + transform.m22 * z + transform.m32;
+	}
+
+	/**
+	 * Gets the number of corners.
+	 *
+	 * @return The corner count.
+	 */
+	public int getPointCount() {
+		return localPoints.length / 3;
+	}
+}
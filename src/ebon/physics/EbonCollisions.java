@@ -0,0 +1,325 @@
+package ebon.physics;
+
+import ebon.entities.components.*;
+import flounder.entities.*;
+import flounder.framework.*;
+import flounder.logger.*;
+import flounder.physics.*;
+import flounder.profiling.*;
+
+import java.util.*;
+
+/**
+ * A collision broadphase that keeps every placed collider in a {@link AABBTree}, so colliders near a moving entity are found without going through the spatial structure entities are stored in.
+ * <p>
+ * Colliders are moved in the tree as they update, and only once they leave their fattened bounds. The pairs of colliders whose fattened bounds overlap are cached between updates, and only the pairs of colliders that moved in the tree are found again.
+ */
+public class EbonCollisions extends IModule {
+	private static final EbonCollisions INSTANCE = new EbonCollisions();
+	public static final String PROFILE_TAB_NAME = "Ebon Collisions";
+
+	/**
+	 * How far the bounds of each collider are fattened on every side.
+	 */
+	public static final float FAT_MARGIN = 0.5f;
+
+	/**
+	 * How far ahead of a moving collider its bounds are extended, as a multiple of the distance it moved.
+	 */
+	public static final float DISPLACEMENT_SCALE = 2.0f;
+
+	private AABBTree<ComponentCollider> tree;
+	private Map<ComponentCollider, Integer> proxies;
+	private Map<Integer, Set<Integer>> pairs;
+	private Set<Integer> moved;
+	private List<Integer> found;
+	private float[] scratch;
+	private float[] queryBounds;
+	private float[] fatBounds;
+	private boolean enabled;
+
+	private double updateTime;
+	private int pairCount;
+	private int movedCount;
+
+	/**
+	 * Creates a new collision broadphase.
+	 */
+	public EbonCollisions() {
+		super(ModuleUpdate.UPDATE_POST, PROFILE_TAB_NAME, FlounderLogger.class, FlounderProfiler.class, FlounderEntities.class);
+	}
+
+	@Override
+	public void init() {
+		this.tree = new AABBTree<>(FAT_MARGIN, DISPLACEMENT_SCALE);
+		this.proxies = new HashMap<>();
+		this.pairs = new HashMap<>();
+		this.moved = new LinkedHashSet<>();
+		this.found = new ArrayList<>();
+		this.scratch = new float[6];
+		this.queryBounds = new float[6];
+		this.fatBounds = new float[6];
+		this.enabled = true;
+	}
+
+	@Override
+	public void update() {
+		long start = System.nanoTime();
+		movedCount = moved.size();
+		updatePairs();
+		updateTime = (System.nanoTime() - start) / 1000000.0;
+	}
+
+	/**
+	 * Finds the pairs of every collider that moved in the tree since the pairs were last updated, only these can have gained or lost pairs.
+	 */
+	private void updatePairs() {
+		for (int proxy : moved) {
+			found.clear();
+			tree.query(tree.getFatBounds(proxy, fatBounds), (int other) -> {
+				if (other != proxy) {
+					found.add(other);
+				}
+			});
+
+			Set<Integer> current = getPairs(proxy);
+			Iterator<Integer> iterator = current.iterator();
+
+			while (iterator.hasNext()) {
+				int other = iterator.next();
+
+				if (!tree.overlaps(proxy, other)) {
+					iterator.remove();
+					getPairs(other).remove(proxy);
+					pairCount--;
+				}
+			}
+
+			for (int other : found) {
+				if (current.add(other)) {
+					getPairs(other).add(proxy);
+					pairCount++;
+				}
+			}
+		}
+
+		moved.clear();
+	}
+
+	private Set<Integer> getPairs(int proxy) {
+		return pairs.computeIfAbsent(proxy, k -> new HashSet<>());
+	}
+
+	@Override
+	public void profile() {
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Enabled", enabled);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Colliders", tree.getLeafCount());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Tree Height", tree.getHeight());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Pairs", pairCount);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Moved", movedCount);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Update Time", updateTime);
+	}
+
+	/**
+	 * Places a collider in the broadphase, or moves it if it has already been placed.
+	 *
+	 * @param collider The collider.
+	 * @param aabb The colliders world space bounds.
+	 * @param dx The distance the collider moved on the x axis since it was last placed.
+	 * @param dy The distance the collider moved on the y axis since it was last placed.
+	 * @param dz The distance the collider moved on the z axis since it was last placed.
+	 */
+	public static void place(ComponentCollider collider, AABB aabb, float dx, float dy, float dz) {
+		if (INSTANCE.tree == null || !INSTANCE.enabled) {
+			return;
+		}
+
+		float[] bounds = toArray(aabb, INSTANCE.scratch);
+		Integer proxy = INSTANCE.proxies.get(collider);
+
+		if (proxy == null) {
+			proxy = INSTANCE.tree.insert(bounds, collider);
+			INSTANCE.proxies.put(collider, proxy);
+			INSTANCE.moved.add(proxy);
+		} else if (INSTANCE.tree.move(proxy, bounds, dx, dy, dz)) {
+			INSTANCE.moved.add(proxy);
+		}
+	}
+
+	/**
+	 * Gets if a collider has not been placed in the broadphase yet, such as after the broadphase is enabled again.
+	 *
+	 * @param collider The collider.
+	 *
+	 * @return If the collider should be placed.
+	 */
+	public static boolean needsPlacing(ComponentCollider collider) {
+		return INSTANCE.tree != null && INSTANCE.enabled && !INSTANCE.proxies.containsKey(collider);
+	}
+
+	/**
+	 * Removes a collider from the broadphase, along with every pair it is in.
+	 *
+	 * @param collider The collider.
+	 */
+	public static void remove(ComponentCollider collider) {
+		if (INSTANCE.tree == null) {
+			return;
+		}
+
+		Integer proxy = INSTANCE.proxies.remove(collider);
+
+		if (proxy == null) {
+			return;
+		}
+
+		Set<Integer> current = INSTANCE.pairs.remove(proxy);
+
+		if (current != null) {
+			for (int other : current) {
+				INSTANCE.getPairs(other).remove(proxy);
+				INSTANCE.pairCount--;
+			}
+		}
+
+		INSTANCE.moved.remove(proxy);
+		INSTANCE.tree.remove(proxy);
+	}
+
+	/**
+	 * Visits the colliders that may overlap a range around a collider. When the range is within the colliders fattened bounds its cached pairs are visited, otherwise the tree is searched.
+	 *
+	 * @param collider The collider to search around, it is not visited itself.
+	 * @param range The range to search, such as the colliders bounds stretched by a move.
+	 * @param visitor The visitor called with each collider found, the caller still has to test their bounds.
+	 *
+	 * @return If the colliders were visited, if false the collider is not in the broadphase and the caller has to find them itself.
+	 */
+	public static boolean visitInRange(ComponentCollider collider, AABB range, ColliderVisitor visitor) {
+		if (INSTANCE.tree == null || !INSTANCE.enabled) {
+			return false;
+		}
+
+		Integer proxy = INSTANCE.proxies.get(collider);
+
+		if (proxy == null) {
+			return false;
+		}
+
+		float[] bounds = toArray(range, INSTANCE.queryBounds);
+
+		if (INSTANCE.tree.contains(proxy, bounds)) {
+			// Colliders that moved since the last update are paired first, so no pair is missed.
+			if (!INSTANCE.moved.isEmpty()) {
+				INSTANCE.updatePairs();
+			}
+
+			Set<Integer> current = INSTANCE.pairs.get(proxy);
+
+			if (current != null) {
+				for (int other : current) {
+					visitor.visit(INSTANCE.tree.getObject(other));
+				}
+			}
+		} else {
+			INSTANCE.tree.query(bounds, (int other) -> {
+				if (other != proxy) {
+					visitor.visit(INSTANCE.tree.getObject(other));
+				}
+			});
+		}
+
+		return true;
+	}
+
+	private static float[] toArray(AABB aabb, float[] destination) {
+		destination[0] = aabb.getMinExtents().x;
+		destination[1] = aabb.getMinExtents().y;
+		destination[2] = aabb.getMinExtents().z;
+		destination[3] = aabb.getMaxExtents().x;
+		destination[4] = aabb.getMaxExtents().y;
+		destination[5] = aabb.getMaxExtents().z;
+		return destination;
+	}
+
+	/**
+	 * Gets the number of colliders in the broadphase.
+	 *
+	 * @return The number of colliders.
+	 */
+	public static int getColliderCount() {
+		return INSTANCE.tree == null ? 0 : INSTANCE.tree.getLeafCount();
+	}
+
+	/**
+	 * Gets the number of cached pairs of colliders whose fattened bounds overlap.
+	 *
+	 * @return The number of pairs.
+	 */
+	public static int getPairCount() {
+		return INSTANCE.pairCount;
+	}
+
+	/**
+	 * Gets if the broadphase is enabled.
+	 *
+	 * @return If the broadphase is enabled.
+	 */
+	public static boolean isEnabled() {
+		return INSTANCE.enabled;
+	}
+
+	/**
+	 * Sets if the broadphase is enabled, when disabled every collider is removed and collisions are found through the spatial structure entities are stored in. Useful for comparing the two.
+	 *
+	 * @param enabled If the broadphase is enabled.
+	 */
+	public static void setEnabled(boolean enabled) {
+		if (INSTANCE.tree != null && !enabled) {
+			INSTANCE.tree.clear();
+			INSTANCE.proxies.clear();
+			INSTANCE.pairs.clear();
+			INSTANCE.moved.clear();
+			INSTANCE.pairCount = 0;
+		}
+
+		INSTANCE.enabled = enabled;
+	}
+
+	@Override
+	public IModule getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public void dispose() {
+		if (tree != null) {
+			tree.clear();
+			tree = null;
+		}
+
+		if (proxies != null) {
+			proxies.clear();
+			proxies = null;
+		}
+
+		if (pairs != null) {
+			pairs.clear();
+			pairs = null;
+		}
+
+		pairCount = 0;
+	}
+
+	/**
+	 * Visits colliders found by the broadphase.
+	 */
+	public interface ColliderVisitor {
+		/**
+		 * Called for each collider found.
+		 *
+		 * @param collider The collider.
+		 */
+		void visit(ComponentCollider collider);
+	}
+}
@@ -0,0 +1,653 @@
+package ebon.physics;
+
+import ebon.entities.components.*;
+import flounder.entities.*;
+import flounder.framework.*;
+import flounder.logger.*;
+import flounder.maths.vectors.*;
+import flounder.profiling.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * A physics world stepped at a fixed rate on its own thread, so collisions resolve the same way whatever the frame rate is.
+ * <p>
+ * Colliding entities hand their moves to the world instead of resolving them as they happen. Each step takes the moves handed over since the last step, resolves them against the other bodies in the order bodies were added, and publishes every body transform into a double buffer. Every update the last two published steps are interpolated into the entities, so rendering stays smooth one step behind the physics and never waits on collision work.
+ * <p>
+ * The physics thread only touches its own copy of each body, moves and shapes are passed to it through a queue. Entities moved by anything else are teleported to where they were put.
+ */
+public class EbonPhysics extends IModule {
+	private static final EbonPhysics INSTANCE = new EbonPhysics();
+	public static final String PROFILE_TAB_NAME = "Ebon Physics";
+
+	/**
+	 * The number of steps taken per second.
+	 */
+	public static final float STEP_RATE = 60.0f;
+
+	/**
+	 * The most steps taken at once to catch up after the thread falls behind, any more are dropped.
+	 */
+	public static final int MAX_CATCH_UP_STEPS = 5;
+
+	private static final int STRIDE = 6;
+	private static final long STEP_NANOS = (long) (1000000000.0 / STEP_RATE);
+
+	private static final int COMMAND_TELEPORT = 0;
+	private static final int COMMAND_SHAPE = 1;
+	private static final int COMMAND_MOVE = 2;
+	private static final int COMMAND_REMOVE = 3;
+	private static final int COMMAND_BOX = 4;
+
+	// Used from the updating thread.
+	private Map<ComponentCollider, Body> bodies;
+	private Deque<Integer> freeSlots;
+	private int slotCount;
+	private int nextGeneration;
+	private float[] previous;
+	private float[] current;
+	private int[] previousGenerations;
+	private int[] currentGenerations;
+	private long publishedNanos;
+	private float interpolation;
+
+	// Shared between threads.
+	private Queue<Command> commands;
+	private final Object publishLock;
+	private float[] frontPrevious;
+	private float[] front;
+	private int[] frontPreviousGenerations;
+	private int[] frontGenerations;
+	private long frontNanos;
+	private Thread thread;
+	private volatile boolean running;
+	private volatile long stepCount;
+	private volatile long droppedSteps;
+	private volatile double stepTime;
+
+	// Used from the physics thread.
+	private Body[] slots;
+	private AABBTree<Body> tree;
+	private Penetration penetration;
+	private List<Body> found;
+	private float[] bounds;
+	private float[] back;
+	private int[] backGenerations;
+
+	/**
+	 * Creates a new fixed rate physics world.
+	 */
+	public EbonPhysics() {
+		super(ModuleUpdate.UPDATE_POST, PROFILE_TAB_NAME, FlounderLogger.class, FlounderProfiler.class, FlounderEntities.class);
+		this.publishLock = new Object();
+	}
+
+	@Override
+	public void init() {
+		this.bodies = new LinkedHashMap<>();
+		this.freeSlots = new ArrayDeque<>();
+		this.slotCount = 0;
+		this.nextGeneration = 0;
+		this.previous = new float[0];
+		this.current = new float[0];
+		this.previousGenerations = new int[0];
+		this.currentGenerations = new int[0];
+		this.commands = new ConcurrentLinkedQueue<>();
+		this.running = false;
+	}
+
+	@Override
+	public void update() {
+		if (!running) {
+			return;
+		}
+
+		// Only the copy of the last two steps happens under the lock, the physics thread never holds it while stepping.
+		synchronized (publishLock) {
+			if (current.length != front.length) {
+				previous = new float[front.length];
+				current = new float[front.length];
+				previousGenerations = new int[frontGenerations.length];
+				currentGenerations = new int[frontGenerations.length];
+			}
+
+			System.arraycopy(frontPrevious, 0, previous, 0, frontPrevious.length);
+			System.arraycopy(front, 0, current, 0, front.length);
+			System.arraycopy(frontPreviousGenerations, 0, previousGenerations, 0, frontPreviousGenerations.length);
+			System.arraycopy(frontGenerations, 0, currentGenerations, 0, frontGenerations.length);
+			publishedNanos = frontNanos;
+		}
+
+		interpolation = Math.min(Math.max((System.nanoTime() - publishedNanos) / (float) STEP_NANOS, 0.0f), 1.0f);
+
+		for (Body body : bodies.values()) {
+			apply(body);
+		}
+	}
+
+	/**
+	 * Moves a entity to its interpolated transform, or teleports its body if something else has moved the entity.
+	 */
+	private void apply(Body body) {
+		Entity entity = body.collider.getEntity();
+		Vector3f position = entity.getPosition();
+		Vector3f rotation = entity.getRotation();
+
+		if (!equals(position, body.appliedPosition) || !equals(rotation, body.appliedRotation)) {
+			teleport(body, position, rotation);
+			return;
+		}
+
+		int slot = body.slot;
+
+		// Steps published before the body was added or last teleported are not its own.
+		if (slot >= currentGenerations.length || currentGenerations[slot] != body.generation) {
+			return;
+		}
+
+		int offset = slot * STRIDE;
+		float blend = previousGenerations[slot] == body.generation ? interpolation : 1.0f;
+		position.set(lerp(previous, current, offset, blend), lerp(previous, current, offset + 1, blend), lerp(previous, current, offset + 2, blend));
+		rotation.set(lerp(previous, current, offset + 3, blend), lerp(previous, current, offset + 4, blend), lerp(previous, current, offset + 5, blend));
+		body.appliedPosition.set(position);
+		body.appliedRotation.set(rotation);
+	}
+
+	private static float lerp(float[] previous, float[] current, int index, float blend) {
+		return previous[index] + (current[index] - previous[index]) * blend;
+	}
+
+	private static boolean equals(Vector3f a, Vector3f b) {
+		return a.x == b.x && a.y == b.y && a.z == b.z;
+	}
+
+	private void teleport(Body body, Vector3f position, Vector3f rotation) {
+		body.generation = ++nextGeneration;
+		body.appliedPosition.set(position);
+		body.appliedRotation.set(rotation);
+		commands.add(new Command(COMMAND_TELEPORT, body, new float[]{position.x, position.y, position.z, rotation.x, rotation.y, rotation.z}, null, body.generation));
+	}
+
+	@Override
+	public void profile() {
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Running", running);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Bodies", bodies.size());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Steps", stepCount);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Dropped Steps", droppedSteps);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Step Time", stepTime);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Interpolation", interpolation);
+	}
+
+	/**
+	 * Adds a collider to the world if it is not in it yet, and hands its hull over when the hull changes. Colliders that never move are synced so moving bodies collide with them.
+	 *
+	 * @param collider The collider.
+	 */
+	public static void sync(ComponentCollider collider) {
+		if (!INSTANCE.running) {
+			return;
+		}
+
+		Body body = INSTANCE.bodies.get(collider);
+
+		if (body == null) {
+			Integer slot = INSTANCE.freeSlots.poll();
+			body = new Body(collider, slot == null ? INSTANCE.slotCount++ : slot);
+			INSTANCE.bodies.put(collider, body);
+			INSTANCE.teleport(body, collider.getEntity().getPosition(), collider.getEntity().getRotation());
+		}
+
+		ConvexHull hull = collider.getConvexHull();
+
+		if (hull == null || (hull == body.shapeSource && hull.getVersion() == body.shapeVersion && hull.getScale() == body.shapeScale)) {
+			return;
+		}
+
+		if (hull == body.shapeSource && hull.getScale() == body.shapeScale && hull.isBox()) {
+			// Boxes that follow a animated pose only hand over their bounds, the world changes its own copy in place.
+			INSTANCE.commands.add(new Command(COMMAND_BOX, body, hull.getBox(new float[6]), null, 0));
+		} else {
+			INSTANCE.commands.add(new Command(COMMAND_SHAPE, body, new float[]{hull.getScale()}, hull.copy(), 0));
+		}
+
+		body.shapeSource = hull;
+		body.shapeVersion = hull.getVersion();
+		body.shapeScale = hull.getScale();
+	}
+
+	/**
+	 * Hands a move to the world, to be resolved in the next step.
+	 *
+	 * @param collider The collider of the moving entity.
+	 * @param move The amount to move.
+	 * @param rotate The amount to rotate.
+	 *
+	 * @return If the move was handed over, if false the world is not running and the caller has to resolve it itself.
+	 */
+	public static boolean move(ComponentCollider collider, Vector3f move, Vector3f rotate) {
+		if (!INSTANCE.running) {
+			return false;
+		}
+
+		sync(collider);
+		INSTANCE.commands.add(new Command(COMMAND_MOVE, INSTANCE.bodies.get(collider), new float[]{move.x, move.y, move.z, rotate.x, rotate.y, rotate.z}, null, 0));
+		return true;
+	}
+
+	/**
+	 * Removes a collider from the world.
+	 *
+	 * @param collider The collider.
+	 */
+	public static void remove(ComponentCollider collider) {
+		if (INSTANCE.bodies == null) {
+			return;
+		}
+
+		Body body = INSTANCE.bodies.remove(collider);
+
+		if (body != null) {
+			INSTANCE.freeSlots.add(body.slot);
+			INSTANCE.commands.add(new Command(COMMAND_REMOVE, body, null, null, 0));
+		}
+	}
+
+	/**
+	 * Gets if the physics thread is running.
+	 *
+	 * @return If the world is running.
+	 */
+	public static boolean isRunning() {
+		return INSTANCE.running;
+	}
+
+	/**
+	 * Starts or stops the physics thread. While stopped collisions are resolved as entities move, and entities stay where the last step put them.
+	 *
+	 * @param running If the world should run.
+	 */
+	public static void setRunning(boolean running) {
+		if (INSTANCE.commands == null || running == INSTANCE.running) {
+			return;
+		}
+
+		if (running) {
+			INSTANCE.start();
+		} else {
+			INSTANCE.stop();
+		}
+	}
+
+	private void start() {
+		this.slots = new Body[0];
+		this.tree = new AABBTree<>(EbonCollisions.FAT_MARGIN, EbonCollisions.DISPLACEMENT_SCALE);
+		this.penetration = new Penetration();
+		this.found = new ArrayList<>();
+		this.bounds = new float[6];
+		this.back = new float[0];
+		this.backGenerations = new int[0];
+		this.frontPrevious = new float[0];
+		this.front = new float[0];
+		this.frontPreviousGenerations = new int[0];
+		this.frontGenerations = new int[0];
+		this.frontNanos = System.nanoTime();
+		this.stepCount = 0;
+		this.droppedSteps = 0;
+
+		this.running = true;
+		this.thread = new Thread(this::run, "Ebon Physics");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	private void stop() {
+		running = false;
+
+		if (thread != null) {
+			LockSupport.unpark(thread);
+
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				FlounderLogger.exception(e);
+				Thread.currentThread().interrupt();
+			}
+
+			thread = null;
+		}
+
+		bodies.clear();
+		freeSlots.clear();
+		slotCount = 0;
+		commands.clear();
+	}
+
+	/**
+	 * Steps the world at the fixed rate until it is stopped. When it falls more than {@link #MAX_CATCH_UP_STEPS} behind the missed steps are dropped rather than all taken at once.
+	 */
+	private void run() {
+		long next = System.nanoTime();
+
+		while (running) {
+			long now = System.nanoTime();
+			int taken = 0;
+
+			while (now >= next && taken < MAX_CATCH_UP_STEPS) {
+				try {
+					step();
+				} catch (RuntimeException e) {
+					FlounderLogger.exception(e);
+				}
+
+				next += STEP_NANOS;
+				taken++;
+			}
+
+			if (now >= next) {
+				droppedSteps += (now - next) / STEP_NANOS + 1;
+				next = now + STEP_NANOS;
+			}
+
+			LockSupport.parkNanos(next - System.nanoTime());
+		}
+	}
+
+	/**
+	 * Takes one fixed step: applies the handed over commands, resolves every moving body in slot order, and publishes the transforms.
+	 */
+	private void step() {
+		long start = System.nanoTime();
+		Command command;
+
+		while ((command = commands.poll()) != null) {
+			execute(command);
+		}
+
+		for (Body body : slots) {
+			if (body != null && body.moving) {
+				resolve(body);
+			}
+		}
+
+		publish();
+		stepCount++;
+		stepTime = (System.nanoTime() - start) / 1000000.0;
+	}
+
+	private void execute(Command command) {
+		Body body = command.body;
+
+		switch (command.type) {
+			case COMMAND_TELEPORT:
+				body.position.set(command.values[0], command.values[1], command.values[2]);
+				body.rotation.set(command.values[3], command.values[4], command.values[5]);
+				body.publishedGeneration = command.generation;
+				body.move.set(0.0f, 0.0f, 0.0f);
+				body.rotate.set(0.0f, 0.0f, 0.0f);
+				body.moving = false;
+				add(body);
+				place(body);
+				break;
+			case COMMAND_SHAPE:
+				body.hull = command.hull;
+				body.scale = command.values[0];
+
+				// The cached simplices index the corners of the old hull.
+				body.caches.clear();
+
+				for (Body other : slots) {
+					if (other != null) {
+						other.caches.remove(body);
+					}
+				}
+
+				add(body);
+				place(body);
+				break;
+			case COMMAND_BOX:
+				if (body.hull != null) {
+					body.hull.setBox(command.values);
+					place(body);
+				}
+
+				break;
+			case COMMAND_MOVE:
+				body.move.set(body.move.x + command.values[0], body.move.y + command.values[1], body.move.z + command.values[2]);
+				body.rotate.set(body.rotate.x + command.values[3], body.rotate.y + command.values[4], body.rotate.z + command.values[5]);
+				body.moving = true;
+				break;
+			case COMMAND_REMOVE:
+				if (body.proxy != -1) {
+					tree.remove(body.proxy);
+					body.proxy = -1;
+				}
+
+				if (body.slot < slots.length && slots[body.slot] == body) {
+					slots[body.slot] = null;
+				}
+
+				for (Body other : slots) {
+					if (other != null) {
+						other.caches.remove(body);
+					}
+				}
+
+				break;
+		}
+	}
+
+	private void add(Body body) {
+		if (body.slot >= slots.length) {
+			slots = Arrays.copyOf(slots, Math.max(body.slot + 1, slots.length * 2));
+		}
+
+		slots[body.slot] = body;
+	}
+
+	/**
+	 * Places a bodies hull where the body is, and moves it in the physics threads own broadphase.
+	 */
+	private void place(Body body) {
+		if (body.hull == null) {
+			return;
+		}
+
+		float dx = body.position.x - body.placedPosition.x;
+		float dy = body.position.y - body.placedPosition.y;
+		float dz = body.position.z - body.placedPosition.z;
+		body.hull.setTransform(body.position, body.rotation, body.scale);
+		body.hull.getBounds(bounds);
+
+		if (body.proxy == -1) {
+			body.proxy = tree.insert(bounds, body);
+		} else {
+			tree.move(body.proxy, bounds, dx, dy, dz);
+		}
+
+		body.placedPosition.set(body.position);
+	}
+
+	/**
+	 * Resolves the moves handed to a body since the last step against every body its move could reach, then moves it.
+	 */
+	private void resolve(Body body) {
+		if (body.hull != null && body.proxy != -1) {
+			body.hull.getBounds(bounds);
+
+			for (int i = 0; i < 3; i++) {
+				float move = i == 0 ? body.move.x : i == 1 ? body.move.y : body.move.z;
+				bounds[i] += Math.min(move, 0.0f);
+				bounds[i + 3] += Math.max(move, 0.0f);
+			}
+
+			found.clear();
+			tree.query(bounds, (int other) -> found.add(tree.getObject(other)));
+
+			// Bodies are resolved against in slot order, so a step gives the same result whatever shape the tree is in.
+			found.sort((Body a, Body b) -> Integer.compare(a.slot, b.slot));
+
+			for (Body other : found) {
+				if (other != body && other.hull != null) {
+					GJK.resolveMove(body.hull, other.hull, body.caches.computeIfAbsent(other, k -> new GJKCache()), penetration, body.move);
+				}
+			}
+		}
+
+		body.position.set(body.position.x + body.move.x, body.position.y + body.move.y, body.position.z + body.move.z);
+		body.rotation.set(body.rotation.x + body.rotate.x, body.rotation.y + body.rotate.y, body.rotation.z + body.rotate.z);
+		body.move.set(0.0f, 0.0f, 0.0f);
+		body.rotate.set(0.0f, 0.0f, 0.0f);
+		body.moving = false;
+		place(body);
+	}
+
+	/**
+	 * Writes every body transform into the back buffer, then swaps it to the front with the step before it.
+	 */
+	private void publish() {
+		if (back.length != slots.length * STRIDE) {
+			back = new float[slots.length * STRIDE];
+			backGenerations = new int[slots.length];
+		}
+
+		for (int slot = 0; slot < slots.length; slot++) {
+			Body body = slots[slot];
+
+			if (body == null) {
+				backGenerations[slot] = 0;
+				continue;
+			}
+
+			int offset = slot * STRIDE;
+			back[offset] = body.position.x;
+			back[offset + 1] = body.position.y;
+			back[offset + 2] = body.position.z;
+			back[offset + 3] = body.rotation.x;
+			back[offset + 4] = body.rotation.y;
+			back[offset + 5] = body.rotation.z;
+			backGenerations[slot] = body.publishedGeneration;
+		}
+
+		synchronized (publishLock) {
+			if (front.length != back.length) {
+				frontPrevious = Arrays.copyOf(front, back.length);
+				frontPreviousGenerations = Arrays.copyOf(frontGenerations, backGenerations.length);
+				front = new float[back.length];
+				frontGenerations = new int[backGenerations.length];
+			} else {
+				float[] swap = frontPrevious;
+				frontPrevious = front;
+				front = swap;
+				int[] swapGenerations = frontPreviousGenerations;
+				frontPreviousGenerations = frontGenerations;
+				frontGenerations = swapGenerations;
+			}
+
+			System.arraycopy(back, 0, front, 0, back.length);
+			System.arraycopy(backGenerations, 0, frontGenerations, 0, backGenerations.length);
+			frontNanos = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Gets the number of bodies in the world.
+	 *
+	 * @return The number of bodies.
+	 */
+	public static int getBodyCount() {
+		return INSTANCE.bodies == null ? 0 : INSTANCE.bodies.size();
+	}
+
+	/**
+	 * Gets the number of steps taken since the world started running.
+	 *
+	 * @return The number of steps.
+	 */
+	public static long getStepCount() {
+		return INSTANCE.stepCount;
+	}
+
+	@Override
+	public IModule getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public void dispose() {
+		if (running) {
+			stop();
+		}
+
+		if (bodies != null) {
+			bodies.clear();
+			bodies = null;
+		}
+
+		commands = null;
+	}
+
+	/**
+	 * A collider in the physics world. The fields under the updating thread are only touched there, and the rest only on the physics thread.
+	 */
+	private static class Body {
+		// Used from the updating thread.
+		private final ComponentCollider collider;
+		private final int slot;
+		private final Vector3f appliedPosition;
+		private final Vector3f appliedRotation;
+		private int generation;
+		private ConvexHull shapeSource;
+		private int shapeVersion;
+		private float shapeScale;
+
+		// Used from the physics thread.
+		private final Vector3f position;
+		private final Vector3f rotation;
+		private final Vector3f placedPosition;
+		private final Vector3f move;
+		private final Vector3f rotate;
+		private final Map<Body, GJKCache> caches;
+		private ConvexHull hull;
+		private float scale;
+		private int proxy;
+		private int publishedGeneration;
+		private boolean moving;
+
+		private Body(ComponentCollider collider, int slot) {
+			this.collider = collider;
+			this.slot = slot;
+			this.appliedPosition = new Vector3f();
+			this.appliedRotation = new Vector3f();
+
+			this.position = new Vector3f();
+			this.rotation = new Vector3f();
+			this.placedPosition = new Vector3f();
+			this.move = new Vector3f();
+			this.rotate = new Vector3f();
+			this.caches = new HashMap<>();
+			this.scale = 1.0f;
+			this.proxy = -1;
+		}
+	}
+
+	/**
+	 * A change handed from the updating thread to the physics thread.
+	 */
+	private static class Command {
+		private final int type;
+		private final Body body;
+		private final float[] values;
+		private final ConvexHull hull;
+		private final int generation;
+
+		private Command(int type, Body body, float[] values, ConvexHull hull, int generation) {
+			this.type = type;
+			this.body = body;
+			this.values = values;
+			this.hull = hull;
+			this.generation = generation;
+		}
+	}
+}
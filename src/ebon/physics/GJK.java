@@ -0,0 +1,586 @@
+package ebon.physics;
+
+import flounder.maths.vectors.*;
+
+/**
+ * Tests between convex hulls with the Gilbert Johnson Keerthi algorithm, and finds how far overlapping hulls are pushed into each other with the expanding polytope algorithm.
+ * <p>
+ * GJK searches the Minkowski difference of the hulls (every corner of the first minus every corner of the second) for the point closest to the origin, through a simplex of up to four support points. The hulls overlap when the simplex grows to contain the origin. Only support points are ever found, so a test usually takes a few iterations rather than comparing whole hulls.
+ * <p>
+ * The first hull can be offset, so a hull can be tested where it would be after a move without being transformed again.
+ */
+public class GJK {
+	/**
+	 * The most GJK iterations a test takes.
+	 */
+	public static final int MAX_ITERATIONS = 32;
+
+	/**
+	 * The most faces EPA adds to the polytope.
+	 */
+	public static final int MAX_EPA_ITERATIONS = 64;
+
+	/**
+	 * How close a new support point has to be to the current closest point, relative to its distance, for GJK to stop.
+	 */
+	private static final double TOLERANCE = 1.0e-6;
+
+	/**
+	 * How close a new support point has to be to the closest face for EPA to stop.
+	 */
+	private static final double EPA_TOLERANCE = 1.0e-4;
+
+	/**
+	 * The directions tried when growing a simplex without volume into a tetrahedron.
+	 */
+	private static final double[][] DIRECTIONS = {{1.0, 0.0, 0.0}, {-1.0, 0.0, 0.0}, {0.0, 1.0, 0.0}, {0.0, -1.0, 0.0}, {0.0, 0.0, 1.0}, {0.0, 0.0, -1.0}};
+
+	/**
+	 * Gets the distance between two hulls.
+	 *
+	 * @param a The first hull.
+	 * @param ax The x offset of the first hull.
+	 * @param ay The y offset of the first hull.
+	 * @param az The z offset of the first hull.
+	 * @param b The second hull.
+	 * @param cache The simplex of the last test between the hulls to start from, and updated with this tests simplex. Can be null, though the test then has to allocate its scratch space.
+	 *
+	 * @return The distance between the hulls, 0 if they overlap.
+	 */
+	public static float getDistance(ConvexHull a, float ax, float ay, float az, ConvexHull b, GJKCache cache) {
+		return (float) Math.sqrt(run(a, ax, ay, az, b, cache, getSimplex(cache)));
+	}
+
+	/**
+	 * Gets if two hulls overlap.
+	 *
+	 * @param a The first hull.
+	 * @param ax The x offset of the first hull.
+	 * @param ay The y offset of the first hull.
+	 * @param az The z offset of the first hull.
+	 * @param b The second hull.
+	 * @param cache The simplex of the last test between the hulls to start from, and updated with this tests simplex. Can be null.
+	 *
+	 * @return If the hulls overlap.
+	 */
+	public static boolean intersects(ConvexHull a, float ax, float ay, float az, ConvexHull b, GJKCache cache) {
+		return getDistance(a, ax, ay, az, b, cache) == 0.0f;
+	}
+
+	/**
+	 * Finds how far two hulls are pushed into each other.
+	 *
+	 * @param a The first hull.
+	 * @param ax The x offset of the first hull.
+	 * @param ay The y offset of the first hull.
+	 * @param az The z offset of the first hull.
+	 * @param b The second hull.
+	 * @param cache The simplex of the last test between the hulls to start from, and updated with this tests simplex. Can be null.
+	 * @param destination Where to write the direction and depth to separate the first hull by.
+	 *
+	 * @return If the hulls overlap, the destination is only written when they do.
+	 */
+	public static boolean getPenetration(ConvexHull a, float ax, float ay, float az, ConvexHull b, GJKCache cache, Penetration destination) {
+		Simplex simplex = getSimplex(cache);
+
+		if (run(a, ax, ay, az, b, cache, simplex) > 0.0) {
+			return false;
+		}
+
+		// Hulls that only touch leave a simplex without volume, it is grown into a tetrahedron if they overlap at all.
+		if (!completeTetrahedron(a, ax, ay, az, b, simplex)) {
+			return false;
+		}
+
+		return expand(a, ax, ay, az, b, simplex, destination);
+	}
+
+	private static Simplex getSimplex(GJKCache cache) {
+		// The scratch simplex is kept with the cache, a test between hulls is never run by two threads at once.
+		return cache == null ? new Simplex() : cache.simplex;
+	}
+
+	/**
+	 * Shortens a move of the first hull so it does not push into the second. Only the part of the move into the second hull is taken back, so moves along or away from it still happen.
+	 *
+	 * @param a The hull being moved.
+	 * @param b The hull that may be collided with.
+	 * @param cache The simplex of the last test between the hulls to start from. Can be null.
+	 * @param penetration A scratch penetration to test with.
+	 * @param move The move to shorten.
+	 *
+	 * @return If the move was shortened.
+	 */
+	public static boolean resolveMove(ConvexHull a, ConvexHull b, GJKCache cache, Penetration penetration, Vector3f move) {
+		if (!getPenetration(a, move.x, move.y, move.z, b, cache, penetration)) {
+			return false;
+		}
+
+		Vector3f normal = penetration.getNormal();
+		float into = -(move.x * normal.x + move.y * normal.y + move.z * normal.z);
+
+		if (into <= 0.0f) {
+			return false;
+		}
+
+		float push = Math.min(penetration.getDepth(), into);
+		move.set(move.x + normal.x * push, move.y + normal.y * push, move.z + normal.z * push);
+		return true;
+	}
+
+	/**
+	 * Runs GJK, leaving the simplex closest to the origin.
+	 *
+	 * @return The squared distance between the hulls, 0 if they overlap.
+	 */
+	private static double run(ConvexHull a, float ax, float ay, float az, ConvexHull b, GJKCache cache, Simplex simplex) {
+		double[] v = simplex.closest;
+		simplex.count = 0;
+
+		if (cache != null && !cache.fits(a, b)) {
+			// The cache was made from hulls with more corners, such as before a collider changed its model.
+			cache.clear();
+		}
+
+		if (cache != null && cache.count > 0) {
+			for (int i = 0; i < cache.count; i++) {
+				simplex.add(a, ax, ay, az, b, cache.indicesA[i], cache.indicesB[i]);
+			}
+		} else {
+			simplex.add(a, ax, ay, az, b, a.getSupport(1.0f, 0.0f, 0.0f), b.getSupport(-1.0f, 0.0f, 0.0f));
+		}
+
+		double distance = Double.MAX_VALUE;
+
+		for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+			simplex.reduce(v);
+			distance = v[0] * v[0] + v[1] * v[1] + v[2] * v[2];
+
+			if (distance <= TOLERANCE * TOLERANCE * simplex.getMaxLengthSquared() || simplex.count == 4) {
+				distance = 0.0;
+				break;
+			}
+
+			int indexA = a.getSupport((float) -v[0], (float) -v[1], (float) -v[2]);
+			int indexB = b.getSupport((float) v[0], (float) v[1], (float) v[2]);
+
+			if (simplex.contains(indexA, indexB)) {
+				break;
+			}
+
+			simplex.add(a, ax, ay, az, b, indexA, indexB);
+			double[] w = simplex.points[simplex.count - 1];
+
+			// The new point is no closer to the origin than the closest point already found.
+			if (distance - (v[0] * w[0] + v[1] * w[1] + v[2] * w[2]) <= TOLERANCE * distance) {
+				simplex.count--;
+				break;
+			}
+		}
+
+		if (cache != null) {
+			cache.count = simplex.count;
+			System.arraycopy(simplex.indicesA, 0, cache.indicesA, 0, simplex.count);
+			System.arraycopy(simplex.indicesB, 0, cache.indicesB, 0, simplex.count);
+		}
+
+		return distance;
+	}
+
+	/**
+	 * Adds support points to a simplex until it is a tetrahedron with volume.
+	 *
+	 * @return If a tetrahedron was made.
+	 */
+	private static boolean completeTetrahedron(ConvexHull a, float ax, float ay, float az, ConvexHull b, Simplex simplex) {
+		while (simplex.count < 4) {
+			boolean added = false;
+			double[][] tries = DIRECTIONS;
+
+			if (simplex.count == 3) {
+				tries = simplex.normals;
+				getNormal(simplex.points[0], simplex.points[1], simplex.points[2], tries[0]);
+				tries[1][0] = -tries[0][0];
+				tries[1][1] = -tries[0][1];
+				tries[1][2] = -tries[0][2];
+			}
+
+			for (double[] d : tries) {
+				int indexA = a.getSupport((float) d[0], (float) d[1], (float) d[2]);
+				int indexB = b.getSupport((float) -d[0], (float) -d[1], (float) -d[2]);
+
+				if (simplex.contains(indexA, indexB)) {
+					continue;
+				}
+
+				simplex.add(a, ax, ay, az, b, indexA, indexB);
+
+				if (simplex.hasVolume()) {
+					added = true;
+					break;
+				}
+
+				simplex.count--;
+			}
+
+			if (!added) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Runs EPA from a tetrahedron that contains the origin, expanding it out to the Minkowski difference until its closest face to the origin is on the difference.
+	 */
+	private static boolean expand(ConvexHull a, float ax, float ay, float az, ConvexHull b, Simplex simplex, Penetration destination) {
+		Polytope polytope = destination.polytope;
+		polytope.clear();
+
+		for (int i = 0; i < 4; i++) {
+			polytope.addVertex(simplex.points[i]);
+		}
+
+		for (int i = 0; i < 4; i++) {
+			int i0 = i;
+			int i1 = (i + 1) % 4;
+			int i2 = (i + 2) % 4;
+			int opposite = (i + 3) % 4;
+			double[] normal = getNormal(simplex.points[i0], simplex.points[i1], simplex.points[i2], simplex.normals[0]);
+
+			// Faces are wound so their normal points away from the opposite corner.
+			if (dot(normal, simplex.points[opposite]) > dot(normal, simplex.points[i0])) {
+				polytope.addFace(i0, i2, i1);
+			} else {
+				polytope.addFace(i0, i1, i2);
+			}
+		}
+
+		// The origin has to be inside the tetrahedron, or the hulls only touch.
+		for (int f = 0; f < polytope.faceCount; f++) {
+			if (polytope.getDistance(f) < 0.0) {
+				return false;
+			}
+		}
+
+		// The closest faces plane is copied out, as the face may be removed on the last iteration.
+		double[] normal = polytope.closest;
+		double[] w = polytope.support;
+
+		for (int iteration = 0; iteration < MAX_EPA_ITERATIONS; iteration++) {
+			int closest = 0;
+
+			for (int f = 1; f < polytope.faceCount; f++) {
+				if (polytope.getDistance(f) < polytope.getDistance(closest)) {
+					closest = f;
+				}
+			}
+
+			System.arraycopy(polytope.planes, 4 * closest, normal, 0, 4);
+
+			if (normal[3] == Double.MAX_VALUE) {
+				return false;
+			}
+
+			int indexA = a.getSupport((float) normal[0], (float) normal[1], (float) normal[2]);
+			int indexB = b.getSupport((float) -normal[0], (float) -normal[1], (float) -normal[2]);
+			simplex.getDifference(a, ax, ay, az, b, indexA, indexB, w);
+
+			if (dot(normal, w) - normal[3] <= EPA_TOLERANCE) {
+				break;
+			}
+
+			int added = polytope.addVertex(w);
+			polytope.horizonCount = 0;
+
+			// Faces the new point can see are removed, leaving a hole bordered by the edges that are not shared between them.
+			for (int f = polytope.faceCount - 1; f >= 0; f--) {
+				if (polytope.getHeight(f, w) > EPA_TOLERANCE * 1.0e-3) {
+					for (int e = 0; e < 3; e++) {
+						polytope.addHorizonEdge(polytope.faces[3 * f + e], polytope.faces[3 * f + (e + 1) % 3]);
+					}
+
+					polytope.removeFace(f);
+				}
+			}
+
+			for (int e = 0; e < polytope.horizonCount; e++) {
+				polytope.addFace(polytope.horizon[2 * e], polytope.horizon[2 * e + 1], added);
+			}
+
+			if (polytope.faceCount == 0) {
+				return false;
+			}
+		}
+
+		destination.set((float) -normal[0], (float) -normal[1], (float) -normal[2], (float) normal[3]);
+		return true;
+	}
+
+	private static double[] getNormal(double[] p0, double[] p1, double[] p2, double[] normal) {
+		double ux = p1[0] - p0[0];
+		double uy = p1[1] - p0[1];
+		double uz = p1[2] - p0[2];
+		double vx = p2[0] - p0[0];
+		double vy = p2[1] - p0[1];
+		double vz = p2[2] - p0[2];
+		normal[0] = uy * vz - uz * vy;
+		normal[1] = uz * vx - ux * vz;
+		normal[2] = ux * vy - uy * vx;
+		double length = Math.sqrt(dot(normal, normal));
+
+		if (length > 0.0) {
+			normal[0] /= length;
+			normal[1] /= length;
+			normal[2] /= length;
+		}
+
+		return normal;
+	}
+
+	private static double dot(double[] a, double[] b) {
+		return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+	}
+
+	/**
+	 * Up to four points on the Minkowski difference, with the hull corners they were made from, and the scratch space used to test with them. One is kept in each {@link GJKCache}, so tests do not allocate.
+	 */
+	static class Simplex {
+		private final double[][] points;
+		private final int[] indicesA;
+		private final int[] indicesB;
+		private int count;
+
+		private final double[] closest;
+		private final double[] point;
+		private final double[] pointB;
+		private final double[][] normals;
+		private final double[] e1;
+		private final double[] e2;
+		private final double[] e3;
+		private final double[] cross;
+		private final int[] subset;
+		private final double[][] edges;
+		private final double[][] system;
+
+		Simplex() {
+			this.points = new double[5][3];
+			this.indicesA = new int[5];
+			this.indicesB = new int[5];
+			this.count = 0;
+
+			this.closest = new double[3];
+			this.point = new double[3];
+			this.pointB = new double[3];
+			this.normals = new double[2][3];
+			this.e1 = new double[3];
+			this.e2 = new double[3];
+			this.e3 = new double[3];
+			this.cross = new double[3];
+			this.subset = new int[4];
+			this.edges = new double[3][3];
+			this.system = new double[3][4];
+		}
+
+		private void getDifference(ConvexHull a, float ax, float ay, float az, ConvexHull b, int indexA, int indexB, double[] destination) {
+			a.getPoint(indexA, destination, 0);
+			b.getPoint(indexB, pointB, 0);
+			destination[0] += ax - pointB[0];
+			destination[1] += ay - pointB[1];
+			destination[2] += az - pointB[2];
+		}
+
+		private void add(ConvexHull a, float ax, float ay, float az, ConvexHull b, int indexA, int indexB) {
+			getDifference(a, ax, ay, az, b, indexA, indexB, points[count]);
+			indicesA[count] = indexA;
+			indicesB[count] = indexB;
+			count++;
+		}
+
+		private boolean contains(int indexA, int indexB) {
+			for (int i = 0; i < count; i++) {
+				if (indicesA[i] == indexA && indicesB[i] == indexB) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		private double getMaxLengthSquared() {
+			double max = 0.0;
+
+			for (int i = 0; i < count; i++) {
+				max = Math.max(max, dot(points[i], points[i]));
+			}
+
+			return max;
+		}
+
+		private boolean hasVolume() {
+			if (count < 2) {
+				return true;
+			}
+
+			set(e1, points[1], points[0]);
+			double scale = Math.max(getMaxLengthSquared(), 1.0e-30);
+
+			if (count == 2) {
+				return dot(e1, e1) > TOLERANCE * TOLERANCE * scale;
+			}
+
+			set(e2, points[2], points[0]);
+			cross[0] = e1[1] * e2[2] - e1[2] * e2[1];
+			cross[1] = e1[2] * e2[0] - e1[0] * e2[2];
+			cross[2] = e1[0] * e2[1] - e1[1] * e2[0];
+
+			if (count == 3) {
+				return dot(cross, cross) > TOLERANCE * TOLERANCE * scale * scale;
+			}
+
+			set(e3, points[3], points[0]);
+			return Math.abs(dot(cross, e3)) > TOLERANCE * scale * Math.sqrt(scale);
+		}
+
+		/**
+		 * Finds the point of the simplex closest to the origin, and removes the points not needed to describe it. Every subset of the points is tried, which for four points is cheap, and the closest point that lies inside its subset is kept.
+		 */
+		private void reduce(double[] closest) {
+			int bestMask = 0;
+			double bestDistance = Double.MAX_VALUE;
+
+			for (int mask = 1; mask < (1 << count); mask++) {
+				if (getAffineClosest(mask, point)) {
+					double distance = dot(point, point);
+
+					if (distance < bestDistance) {
+						bestDistance = distance;
+						bestMask = mask;
+						closest[0] = point[0];
+						closest[1] = point[1];
+						closest[2] = point[2];
+					}
+				}
+			}
+
+			if (bestMask == 0) {
+				// Every subset was degenerate, the newest point is kept.
+				bestMask = 1 << (count - 1);
+				closest[0] = points[count - 1][0];
+				closest[1] = points[count - 1][1];
+				closest[2] = points[count - 1][2];
+			}
+
+			int kept = 0;
+
+			for (int i = 0; i < count; i++) {
+				if ((bestMask & (1 << i)) != 0) {
+					double[] swap = points[kept];
+					points[kept] = points[i];
+					points[i] = swap;
+					indicesA[kept] = indicesA[i];
+					indicesB[kept] = indicesB[i];
+					kept++;
+				}
+			}
+
+			count = kept;
+		}
+
+		/**
+		 * Gets the point closest to the origin on the plane, line, or position through a subset of the points.
+		 *
+		 * @return If the point lies strictly inside the subset.
+		 */
+		private boolean getAffineClosest(int mask, double[] destination) {
+			int size = 0;
+
+			for (int i = 0; i < count; i++) {
+				if ((mask & (1 << i)) != 0) {
+					subset[size++] = i;
+				}
+			}
+
+			double[] p0 = points[subset[0]];
+
+			if (size == 1) {
+				destination[0] = p0[0];
+				destination[1] = p0[1];
+				destination[2] = p0[2];
+				return true;
+			}
+
+			// Solves the normal equations for the weights of each edge from the first point.
+			int n = size - 1;
+			double trace = 0.0;
+
+			for (int i = 0; i < n; i++) {
+				set(edges[i], points[subset[i + 1]], p0);
+			}
+
+			for (int i = 0; i < n; i++) {
+				for (int j = 0; j < n; j++) {
+					system[i][j] = dot(edges[i], edges[j]);
+				}
+
+				system[i][n] = -dot(p0, edges[i]);
+				trace += system[i][i];
+			}
+
+			for (int column = 0; column < n; column++) {
+				int pivot = column;
+
+				for (int row = column + 1; row < n; row++) {
+					if (Math.abs(system[row][column]) > Math.abs(system[pivot][column])) {
+						pivot = row;
+					}
+				}
+
+				if (Math.abs(system[pivot][column]) <= 1.0e-12 * trace) {
+					return false;
+				}
+
+				double[] swap = system[column];
+				system[column] = system[pivot];
+				system[pivot] = swap;
+
+				for (int row = 0; row < n; row++) {
+					if (row != column) {
+						double factor = system[row][column] / system[column][column];
+
+						for (int k = column; k <= n; k++) {
+							system[row][k] -= factor * system[column][k];
+						}
+					}
+				}
+			}
+
+			double first = 1.0;
+			destination[0] = p0[0];
+			destination[1] = p0[1];
+			destination[2] = p0[2];
+
+			for (int i = 0; i < n; i++) {
+				double weight = system[i][n] / system[i][i];
+
+				if (weight <= 0.0) {
+					return false;
+				}
+
+				first -= weight;
+				destination[0] += weight * edges[i][0];
+				destination[1] += weight * edges[i][1];
+				destination[2] += weight * edges[i][2];
+			}
+
+			return first > 0.0;
+		}
+
+		private static void set(double[] destination, double[] to, double[] from) {
+			destination[0] = to[0] - from[0];
+			destination[1] = to[1] - from[1];
+			destination[2] = to[2] - from[2];
+		}
+	}
+}
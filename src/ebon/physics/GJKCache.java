@@ -0,0 +1,57 @@
+package ebon.physics;
+
+/**
+ * The simplex a {@link GJK} test between two hulls finished with, kept so the next test between them starts from it. Hulls that move a little between updates are usually separated or found overlapping again in one or two iterations.
+ * <p>
+ * The simplex is kept as the indices of the corners of each hull it was made from, so it is rebuilt from wherever the hulls are now. The cache also holds the scratch simplex tests between the hulls work in.
+ */
+public class GJKCache {
+	final int[] indicesA;
+	final int[] indicesB;
+	int count;
+	final GJK.Simplex simplex;
+
+	/**
+	 * Creates a new empty cache.
+	 */
+	public GJKCache() {
+		this.indicesA = new int[4];
+		this.indicesB = new int[4];
+		this.count = 0;
+		this.simplex = new GJK.Simplex();
+	}
+
+	/**
+	 * Gets the number of points in the cached simplex.
+	 *
+	 * @return The simplex size, 0 if nothing is cached.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets if every cached corner index is inside a pair of hulls. Any corners of the right hulls make a valid starting simplex, so this is all that is needed to start from the cache.
+	 *
+	 * @param a The first hull.
+	 * @param b The second hull.
+	 *
+	 * @return If the cache can be used with the hulls.
+	 */
+	public boolean fits(ConvexHull a, ConvexHull b) {
+		for (int i = 0; i < count; i++) {
+			if (indicesA[i] < 0 || indicesA[i] >= a.getPointCount() || indicesB[i] < 0 || indicesB[i] >= b.getPointCount()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Forgets the cached simplex.
+	 */
+	public void clear() {
+		count = 0;
+	}
+}
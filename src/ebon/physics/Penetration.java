@@ -0,0 +1,44 @@
+package ebon.physics;
+
+import flounder.maths.vectors.*;
+
+/**
+ * How far two overlapping hulls are pushed into each other, found by {@link GJK#getPenetration(ConvexHull, float, float, float, ConvexHull, GJKCache, Penetration)}. The polytope expanded to find it is kept here and reused by the next test.
+ */
+public class Penetration {
+	private final Vector3f normal;
+	private float depth;
+	final Polytope polytope;
+
+	/**
+	 * Creates a new empty penetration.
+	 */
+	public Penetration() {
+		this.normal = new Vector3f();
+		this.depth = 0.0f;
+		this.polytope = new Polytope();
+	}
+
+	protected void set(float nx, float ny, float nz, float depth) {
+		this.normal.set(nx, ny, nz);
+		this.depth = depth;
+	}
+
+	/**
+	 * Gets the direction the first hull has to move to stop overlapping the second.
+	 *
+	 * @return The unit separating direction.
+	 */
+	public Vector3f getNormal() {
+		return normal;
+	}
+
+	/**
+	 * Gets how far the first hull has to move along the normal to stop overlapping the second.
+	 *
+	 * @return The penetration depth.
+	 */
+	public float getDepth() {
+		return depth;
+	}
+}
@@ -0,0 +1,135 @@
+package ebon.physics;
+
+import java.util.*;
+
+/**
+ * The polytope {@link GJK} expands to find how far two hulls overlap. It is kept in flat arrays by a {@link Penetration} and cleared for each test, so finding a penetration does not allocate once the arrays have grown to fit.
+ */
+class Polytope {
+	final double[] closest;
+	final double[] support;
+
+	double[] vertices;
+	int vertexCount;
+	int[] faces;
+	double[] planes;
+	int faceCount;
+	int[] horizon;
+	int horizonCount;
+
+	/**
+	 * Creates a new empty polytope.
+	 */
+	Polytope() {
+		this.closest = new double[4];
+		this.support = new double[3];
+		this.vertices = new double[3 * (4 + GJK.MAX_EPA_ITERATIONS)];
+		this.faces = new int[3 * 64];
+		this.planes = new double[4 * 64];
+		this.horizon = new int[2 * 32];
+	}
+
+	void clear() {
+		vertexCount = 0;
+		faceCount = 0;
+		horizonCount = 0;
+	}
+
+	int addVertex(double[] point) {
+		if (3 * (vertexCount + 1) > vertices.length) {
+			vertices = Arrays.copyOf(vertices, vertices.length * 2);
+		}
+
+		vertices[3 * vertexCount] = point[0];
+		vertices[3 * vertexCount + 1] = point[1];
+		vertices[3 * vertexCount + 2] = point[2];
+		return vertexCount++;
+	}
+
+	/**
+	 * Adds a face and works out its plane, the normal then the distance of the plane from the origin.
+	 */
+	void addFace(int i0, int i1, int i2) {
+		if (3 * (faceCount + 1) > faces.length) {
+			faces = Arrays.copyOf(faces, faces.length * 2);
+			planes = Arrays.copyOf(planes, planes.length * 2);
+		}
+
+		int p0 = 3 * i0;
+		int p1 = 3 * i1;
+		int p2 = 3 * i2;
+		double ux = vertices[p1] - vertices[p0];
+		double uy = vertices[p1 + 1] - vertices[p0 + 1];
+		double uz = vertices[p1 + 2] - vertices[p0 + 2];
+		double vx = vertices[p2] - vertices[p0];
+		double vy = vertices[p2 + 1] - vertices[p0 + 1];
+		double vz = vertices[p2 + 2] - vertices[p0 + 2];
+		double nx = uy * vz - uz * vy;
+		double ny = uz * vx - ux * vz;
+		double nz = ux * vy - uy * vx;
+		double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+
+		if (length > 0.0) {
+			nx /= length;
+			ny /= length;
+			nz /= length;
+		}
+
+		double distance = nx * vertices[p0] + ny * vertices[p0 + 1] + nz * vertices[p0 + 2];
+
+		// A face made from points in a line has no normal, it is kept to close the polytope but is never the closest or seen.
+		if (nx == 0.0 && ny == 0.0 && nz == 0.0) {
+			distance = Double.MAX_VALUE;
+		}
+
+		faces[3 * faceCount] = i0;
+		faces[3 * faceCount + 1] = i1;
+		faces[3 * faceCount + 2] = i2;
+		planes[4 * faceCount] = nx;
+		planes[4 * faceCount + 1] = ny;
+		planes[4 * faceCount + 2] = nz;
+		planes[4 * faceCount + 3] = distance;
+		faceCount++;
+	}
+
+	/**
+	 * Removes a face, keeping the faces after it in order.
+	 */
+	void removeFace(int face) {
+		System.arraycopy(faces, 3 * (face + 1), faces, 3 * face, 3 * (faceCount - face - 1));
+		System.arraycopy(planes, 4 * (face + 1), planes, 4 * face, 4 * (faceCount - face - 1));
+		faceCount--;
+	}
+
+	double getDistance(int face) {
+		return planes[4 * face + 3];
+	}
+
+	/**
+	 * Gets how far a point is in front of a faces plane.
+	 */
+	double getHeight(int face, double[] point) {
+		return planes[4 * face] * point[0] + planes[4 * face + 1] * point[1] + planes[4 * face + 2] * point[2] - planes[4 * face + 3];
+	}
+
+	/**
+	 * Adds a edge of a removed face to the horizon, or removes it if the face on its other side was also removed.
+	 */
+	void addHorizonEdge(int from, int to) {
+		for (int i = 0; i < horizonCount; i++) {
+			if (horizon[2 * i] == to && horizon[2 * i + 1] == from) {
+				System.arraycopy(horizon, 2 * (i + 1), horizon, 2 * i, 2 * (horizonCount - i - 1));
+				horizonCount--;
+				return;
+			}
+		}
+
+		if (2 * (horizonCount + 1) > horizon.length) {
+			horizon = Arrays.copyOf(horizon, horizon.length * 2);
+		}
+
+		horizon[2 * horizonCount] = from;
+		horizon[2 * horizonCount + 1] = to;
+		horizonCount++;
+	}
+}
@@ -0,0 +1,4 @@
+/**
+ * Contains classes for finding and resolving collisions between entity colliders.
+ */
+package ebon.physics;
\ No newline at end of file
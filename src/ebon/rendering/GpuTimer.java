@@ -0,0 +1,114 @@
+package ebon.rendering;
+
+import org.lwjgl.opengl.*;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * Measures the GPU time of a render pass with timer queries. Results are read a few frames late so reading them never waits on the GPU.
+ */
+public class GpuTimer {
+	/**
+	 * The number of frames of queries kept in flight.
+	 */
+	public static final int QUERY_FRAMES = 4;
+
+	private final int[] queries;
+	private final boolean[] pending;
+	private int current;
+	private boolean active;
+	private double time;
+
+	/**
+	 * Creates a new GPU timer, the queries are created the first time the timer is started.
+	 */
+	public GpuTimer() {
+		this.queries = new int[QUERY_FRAMES];
+		this.pending = new boolean[QUERY_FRAMES];
+		this.current = 0;
+		this.active = false;
+		this.time = 0.0;
+	}
+
+	/**
+	 * Gets if the current context supports timer queries.
+	 *
+	 * @return If GPU timing is supported.
+	 */
+	public static boolean isSupported() {
+		GLCapabilities capabilities = GL.getCapabilities();
+		return capabilities != null && (capabilities.OpenGL33 || capabilities.GL_ARB_timer_query);
+	}
+
+	/**
+	 * Starts timing the GPU work submitted until {@link #end()}. Timer queries can not be nested, so only one timer can be started at a time.
+	 */
+	public void begin() {
+		if (queries[0] == 0) {
+			for (int i = 0; i < QUERY_FRAMES; i++) {
+				queries[i] = glGenQueries();
+			}
+		}
+
+		// The oldest query is read before it is reused, if it is still not ready its result is dropped.
+		if (pending[current]) {
+			read(current);
+		}
+
+		glBeginQuery(GL_TIME_ELAPSED, queries[current]);
+		active = true;
+	}
+
+	/**
+	 * Stops timing, and reads any earlier results that have become available.
+	 */
+	public void end() {
+		if (!active) {
+			return;
+		}
+
+		glEndQuery(GL_TIME_ELAPSED);
+		pending[current] = true;
+		active = false;
+		current = (current + 1) % QUERY_FRAMES;
+
+		for (int i = 0; i < QUERY_FRAMES; i++) {
+			int query = (current + i) % QUERY_FRAMES;
+
+			if (pending[query] && glGetQueryObjecti(queries[query], GL_QUERY_RESULT_AVAILABLE) != 0) {
+				read(query);
+			}
+		}
+	}
+
+	private void read(int query) {
+		if (glGetQueryObjecti(queries[query], GL_QUERY_RESULT_AVAILABLE) != 0) {
+			time = glGetQueryObjectui64(queries[query], GL_QUERY_RESULT) / 1000000.0;
+		}
+
+		pending[query] = false;
+	}
+
+	/**
+	 * Gets the latest GPU time read back.
+	 *
+	 * @return The GPU time in milliseconds, from a few frames ago.
+	 */
+	public double getTime() {
+		return time;
+	}
+
+	/**
+	 * Deletes the timers queries.
+	 */
+	public void delete() {
+		if (queries[0] != 0) {
+			for (int i = 0; i < QUERY_FRAMES; i++) {
+				glDeleteQueries(queries[i]);
+				queries[i] = 0;
+				pending[i] = false;
+			}
+		}
+	}
+}
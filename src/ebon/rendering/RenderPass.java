@@ -0,0 +1,23 @@
+package ebon.rendering;
+
+/**
+ * The passes the master renderer is split into, in the order they are drawn.
+ */
+public enum RenderPass {
+	SKYBOX("Skybox"), ENTITIES("Entities"), PARTICLES("Particles"), BOUNDING("Bounding"), POST("Post"), GUIS("Guis"), FONTS("Fonts");
+
+	private final String name;
+
+	RenderPass(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Gets the name the pass is shown with in the profiler and statistics dumps.
+	 *
+	 * @return The passes name.
+	 */
+	public String getName() {
+		return name;
+	}
+}
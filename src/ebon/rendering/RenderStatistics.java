@@ -0,0 +1,341 @@
+package ebon.rendering;
+
+import flounder.framework.*;
+import flounder.logger.*;
+import flounder.profiling.*;
+import flounder.resources.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.text.*;
+import java.util.*;
+
+/**
+ * Collects per frame render statistics: the CPU and GPU time of each {@link RenderPass}, and the draw calls, triangles, texture binds, uniform uploads and bytes uploaded by the renderers.
+ * <p>
+ * The last {@link #HISTORY_FRAMES} frames are kept, and while recording they are written as CSV to {@link #DUMP_FOLDER} every time the history fills, so runs from different builds can be compared.
+ */
+public class RenderStatistics {
+	public static final String PROFILE_TAB_NAME = "Ebon Render Statistics";
+
+	/**
+	 * The number of frames of statistics kept and written to each dump.
+	 */
+	public static final int HISTORY_FRAMES = 600;
+
+	/**
+	 * The folder statistics dumps are written to.
+	 */
+	public static final MyFile DUMP_FOLDER = new MyFile(FlounderFramework.getRoamingFolder(), "statistics");
+
+	private static final RenderPass[] PASSES = RenderPass.values();
+	private static final int COUNTERS = 5;
+	private static final int COLUMNS = 1 + PASSES.length * 2 + COUNTERS;
+
+	private static final long[] passStarts = new long[PASSES.length];
+	private static final double[] cpuTimes = new double[PASSES.length];
+	private static final GpuTimer[] gpuTimers = new GpuTimer[PASSES.length];
+
+	private static final double[][] history = new double[HISTORY_FRAMES][COLUMNS];
+	private static int historyFrames = 0;
+	private static long frame = 0;
+
+	private static long frameStart;
+	private static double frameTime;
+	private static long drawCalls;
+	private static long triangles;
+	private static long textureBinds;
+	private static long uniformUploads;
+	private static long bytesUploaded;
+
+	private static boolean gpuTiming = true;
+	private static boolean recording = false;
+	private static boolean inFrame = false;
+	private static RenderPass gpuPass = null;
+
+	/**
+	 * Starts a new frame, clearing the counters of the last one.
+	 */
+	public static void beginFrame() {
+		frameStart = System.nanoTime();
+		drawCalls = 0;
+		triangles = 0;
+		textureBinds = 0;
+		uniformUploads = 0;
+		bytesUploaded = 0;
+		Arrays.fill(cpuTimes, 0.0);
+		inFrame = true;
+	}
+
+	/**
+	 * Ends the current frame, storing its statistics in the history.
+	 */
+	public static void endFrame() {
+		if (!inFrame) {
+			return;
+		}
+
+		frameTime = (System.nanoTime() - frameStart) / 1000000.0;
+		inFrame = false;
+		frame++;
+
+		double[] row = history[historyFrames++];
+		int column = 0;
+		row[column++] = frameTime;
+
+		for (int i = 0; i < PASSES.length; i++) {
+			row[column++] = cpuTimes[i];
+			row[column++] = getGpuTime(PASSES[i]);
+		}
+
+		row[column++] = drawCalls;
+		row[column++] = triangles;
+		row[column++] = textureBinds;
+		row[column++] = uniformUploads;
+		row[column] = bytesUploaded;
+
+		if (historyFrames == HISTORY_FRAMES) {
+			if (recording) {
+				dump();
+			}
+
+			historyFrames = 0;
+		}
+	}
+
+	/**
+	 * Starts timing a render pass on the CPU, and on the GPU if timer queries are supported.
+	 *
+	 * @param pass The pass being started.
+	 */
+	public static void beginPass(RenderPass pass) {
+		passStarts[pass.ordinal()] = System.nanoTime();
+
+		// Timer queries can not overlap, so a pass started inside another is only timed on the CPU.
+		if (gpuTiming && gpuPass == null && GpuTimer.isSupported()) {
+			if (gpuTimers[pass.ordinal()] == null) {
+				gpuTimers[pass.ordinal()] = new GpuTimer();
+			}
+
+			gpuTimers[pass.ordinal()].begin();
+			gpuPass = pass;
+		}
+	}
+
+	/**
+	 * Stops timing a render pass.
+	 *
+	 * @param pass The pass being ended.
+	 */
+	public static void endPass(RenderPass pass) {
+		cpuTimes[pass.ordinal()] += (System.nanoTime() - passStarts[pass.ordinal()]) / 1000000.0;
+
+		if (gpuPass == pass) {
+			gpuTimers[pass.ordinal()].end();
+			gpuPass = null;
+		}
+	}
+
+	/**
+	 * Counts a draw call.
+	 *
+	 * @param triangleCount The number of triangles drawn by the call.
+	 */
+	public static void drawCall(long triangleCount) {
+		drawCalls++;
+		triangles += triangleCount;
+	}
+
+	/**
+	 * Counts texture binds.
+	 *
+	 * @param count The number of textures bound.
+	 */
+	public static void textureBinds(int count) {
+		textureBinds += count;
+	}
+
+	/**
+	 * Counts uniform uploads.
+	 *
+	 * @param count The number of uniforms loaded.
+	 */
+	public static void uniformUploads(int count) {
+		uniformUploads += count;
+	}
+
+	/**
+	 * Counts bytes uploaded to the GPU, from buffer updates or large uniform arrays.
+	 *
+	 * @param bytes The number of bytes uploaded.
+	 */
+	public static void bytesUploaded(long bytes) {
+		bytesUploaded += bytes;
+	}
+
+	/**
+	 * Adds the last frames statistics to the profiler.
+	 */
+	public static void profile() {
+		if (historyFrames == 0 && frame == 0) {
+			return;
+		}
+
+		double[] row = history[(historyFrames + HISTORY_FRAMES - 1) % HISTORY_FRAMES];
+		int column = 0;
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Frame CPU Time", row[column++]);
+
+		for (RenderPass pass : PASSES) {
+			FlounderProfiler.add(PROFILE_TAB_NAME, pass.getName() + " CPU Time", row[column++]);
+			FlounderProfiler.add(PROFILE_TAB_NAME, pass.getName() + " GPU Time", row[column++]);
+		}
+
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Draw Calls", (long) row[column++]);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Triangles", (long) row[column++]);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Texture Binds", (long) row[column++]);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Uniform Uploads", (long) row[column++]);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Uploaded (KB)", row[column] / 1024.0);
+		FlounderProfiler.add(PROFILE_TAB_NAME, "GPU Timing", gpuTiming && GpuTimer.isSupported());
+		FlounderProfiler.add(PROFILE_TAB_NAME, "Recording", recording);
+	}
+
+	/**
+	 * Writes the frames in the history as a CSV file in {@link #DUMP_FOLDER}, one row per frame with times in milliseconds.
+	 *
+	 * @return The file written, or null if it could not be written.
+	 */
+	public static File dump() {
+		StringBuilder csv = new StringBuilder("frame,frameCpu");
+
+		for (RenderPass pass : PASSES) {
+			csv.append(',').append(pass.getName().toLowerCase()).append("Cpu");
+			csv.append(',').append(pass.getName().toLowerCase()).append("Gpu");
+		}
+
+		csv.append(",drawCalls,triangles,textureBinds,uniformUploads,bytesUploaded\n");
+		long firstFrame = frame - historyFrames;
+
+		for (int f = 0; f < historyFrames; f++) {
+			csv.append(firstFrame + f);
+
+			for (int column = 0; column < COLUMNS; column++) {
+				double value = history[f][column];
+				csv.append(',');
+
+				// Times keep their fractions, counters are written as whole numbers.
+				if (column < 1 + PASSES.length * 2) {
+					csv.append(String.format(Locale.ROOT, "%.4f", value));
+				} else {
+					csv.append((long) value);
+				}
+			}
+
+			csv.append('\n');
+		}
+
+		try {
+			File folder = new File(DUMP_FOLDER.getPath());
+			Files.createDirectories(folder.toPath());
+			File file = new File(folder, "render_" + new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date()) + ".csv");
+			Files.write(file.toPath(), csv.toString().getBytes(StandardCharsets.UTF_8));
+			FlounderLogger.log("Render statistics written to " + file.getPath());
+			return file;
+		} catch (IOException e) {
+			FlounderLogger.error("Could not write render statistics!");
+			FlounderLogger.exception(e);
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the latest GPU time of a pass.
+	 *
+	 * @param pass The pass.
+	 *
+	 * @return The GPU time in milliseconds from a few frames ago, or 0 if it is not timed.
+	 */
+	public static double getGpuTime(RenderPass pass) {
+		GpuTimer timer = gpuTimers[pass.ordinal()];
+		return timer == null ? 0.0 : timer.getTime();
+	}
+
+	/**
+	 * Gets the CPU time of a pass in the current or last frame.
+	 *
+	 * @param pass The pass.
+	 *
+	 * @return The CPU time in milliseconds.
+	 */
+	public static double getCpuTime(RenderPass pass) {
+		return cpuTimes[pass.ordinal()];
+	}
+
+	/**
+	 * Gets the number of draw calls made so far this frame.
+	 *
+	 * @return The number of draw calls.
+	 */
+	public static long getDrawCalls() {
+		return drawCalls;
+	}
+
+	/**
+	 * Gets the number of triangles drawn so far this frame.
+	 *
+	 * @return The number of triangles.
+	 */
+	public static long getTriangles() {
+		return triangles;
+	}
+
+	/**
+	 * Gets if passes are timed on the GPU when timer queries are supported.
+	 *
+	 * @return If GPU timing is enabled.
+	 */
+	public static boolean isGpuTiming() {
+		return gpuTiming;
+	}
+
+	/**
+	 * Sets if passes are timed on the GPU when timer queries are supported.
+	 *
+	 * @param gpuTiming If GPU timing is enabled.
+	 */
+	public static void setGpuTiming(boolean gpuTiming) {
+		RenderStatistics.gpuTiming = gpuTiming;
+	}
+
+	/**
+	 * Gets if the history is written to a file every time it fills.
+	 *
+	 * @return If statistics are being recorded.
+	 */
+	public static boolean isRecording() {
+		return recording;
+	}
+
+	/**
+	 * Sets if the history is written to a file every time it fills.
+	 *
+	 * @param recording If statistics are being recorded.
+	 */
+	public static void setRecording(boolean recording) {
+		RenderStatistics.recording = recording;
+	}
+
+	/**
+	 * Deletes the GPU timers queries.
+	 */
+	public static void dispose() {
+		for (int i = 0; i < gpuTimers.length; i++) {
+			if (gpuTimers[i] != null) {
+				gpuTimers[i].delete();
+				gpuTimers[i] = null;
+			}
+		}
+
+		gpuPass = null;
+	}
+}
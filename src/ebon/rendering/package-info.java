@@ -0,0 +1,4 @@
+/**
+ * Contains classes for measuring how long each render pass takes and how much work it submits.
+ */
+package ebon.rendering;
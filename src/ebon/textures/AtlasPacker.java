@@ -0,0 +1,281 @@
+package ebon.textures;
+
+import javax.imageio.*;
+import java.awt.image.*;
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.*;
+
+/**
+ * A asset time tool that packs the diffuse and normal maps of the entities under res/entities into shared atlas pages, and writes the descriptor {@link TextureRegistry} reads them back with.
+ * <p>
+ * A entity is only packed if its texture is not a sprite sheet, its texture coordinates stay inside 0 to 1 (so it does not rely on the texture repeating), and its normal map is the same size as its diffuse texture. Everything else keeps its own textures.
+ * <p>
+ * Run with the resources folder that contains res/entities as the argument, defaulting to "res".
+ */
+public class AtlasPacker {
+	/**
+	 * The width and height of each atlas page.
+	 */
+	public static final int PAGE_SIZE = 4096;
+
+	/**
+	 * The texels of edge around each region, filled from the regions border so filtering does not bleed between regions.
+	 */
+	public static final int PADDING = 4;
+
+	private static final Pattern VALUE = Pattern.compile("^\\s*(\\w+):\\s*(.*);\\s*$", Pattern.MULTILINE);
+	private static final int FLAT_NORMAL = 0xFF8080FF;
+
+	private final Path root;
+	private final List<Entry> entries;
+	private final List<Page> pages;
+
+	private AtlasPacker(Path root) {
+		this.root = root;
+		this.entries = new ArrayList<>();
+		this.pages = new ArrayList<>();
+	}
+
+	public static void main(String[] args) throws IOException {
+		AtlasPacker packer = new AtlasPacker(Paths.get(args.length > 0 ? args[0] : "res"));
+		packer.collect();
+		packer.pack();
+		packer.write();
+
+		// Pages and regions already read in this process are from the old atlas.
+		TextureRegistry.clear();
+	}
+
+	/**
+	 * Finds every entity texture that can be packed.
+	 */
+	private void collect() throws IOException {
+		Map<String, Entry> byPath = new HashMap<>();
+
+		try (DirectoryStream<Path> folders = Files.newDirectoryStream(root.resolve("res").resolve("entities"))) {
+			for (Path folder : folders) {
+				Path entityFile = folder.resolve(folder.getFileName() + ".entity");
+
+				if (!Files.isDirectory(folder) || !Files.exists(entityFile)) {
+					continue;
+				}
+
+				String entity = new String(Files.readAllBytes(entityFile), StandardCharsets.UTF_8);
+				int start = entity.indexOf("ebon.entities.components.ComponentModel {");
+
+				if (start == -1) {
+					continue;
+				}
+
+				String component = entity.substring(start, Math.max(entity.indexOf("\n\t};", start), start));
+				Map<String, String> values = new HashMap<>();
+				Matcher matcher = VALUE.matcher(component.substring(0, Math.max(component.indexOf('{', component.indexOf('{') + 1), 0)));
+
+				while (matcher.find()) {
+					values.put(matcher.group(1), matcher.group(2).trim());
+				}
+
+				String texture = values.get("Texture");
+				String normalMap = values.get("NormalMap");
+
+				if (texture == null || texture.equals("null") || !"1".equals(values.get("TextureNumRows"))) {
+					continue;
+				}
+
+				if (!textureCoordsInRange(component)) {
+					System.out.println("Skipping " + texture + ", its texture coordinates repeat.");
+					continue;
+				}
+
+				BufferedImage diffuse = ImageIO.read(root.resolve(texture).toFile());
+				BufferedImage normal = normalMap == null || normalMap.equals("null") ? null : ImageIO.read(root.resolve(normalMap).toFile());
+
+				if (diffuse == null || diffuse.getWidth() + PADDING * 2 > PAGE_SIZE || diffuse.getHeight() + PADDING * 2 > PAGE_SIZE ||
+						(normal != null && (normal.getWidth() != diffuse.getWidth() || normal.getHeight() != diffuse.getHeight()))) {
+					System.out.println("Skipping " + texture + ", it is too large or its normal map is a different size.");
+					continue;
+				}
+
+				if (!byPath.containsKey(texture)) {
+					Entry entry = new Entry(texture, diffuse, normal);
+					byPath.put(texture, entry);
+					entries.add(entry);
+				}
+			}
+		}
+	}
+
+	private static boolean textureCoordsInRange(String component) {
+		int start = component.indexOf("TextureCoords {");
+
+		if (start == -1) {
+			return false;
+		}
+
+		String[] values = component.substring(component.indexOf('{', start) + 1, component.indexOf('}', start)).split(",");
+
+		for (String value : values) {
+			value = value.trim();
+
+			if (!value.isEmpty()) {
+				float v = Float.parseFloat(value);
+
+				if (v < 0.0f || v > 1.0f) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Places every entry into pages with a shelf packer, tallest textures first.
+	 */
+	private void pack() {
+		entries.sort((Entry a, Entry b) -> Integer.compare(b.diffuse.getHeight(), a.diffuse.getHeight()));
+
+		for (Entry entry : entries) {
+			int width = entry.diffuse.getWidth() + PADDING * 2;
+			int height = entry.diffuse.getHeight() + PADDING * 2;
+			boolean placed = false;
+
+			for (Page page : pages) {
+				if (page.place(entry, width, height)) {
+					placed = true;
+					break;
+				}
+			}
+
+			if (!placed) {
+				Page page = new Page(pages.size());
+				pages.add(page);
+				page.place(entry, width, height);
+			}
+		}
+
+		for (Page page : pages) {
+			page.trim();
+		}
+	}
+
+	/**
+	 * Draws and writes each page, and the descriptor.
+	 */
+	private void write() throws IOException {
+		Path folder = root.resolve("res").resolve("entities").resolve("atlas");
+		Files.createDirectories(folder);
+		StringBuilder descriptor = new StringBuilder("# Generated by ebon.textures.AtlasPacker, do not edit.\n");
+
+		for (Page page : pages) {
+			BufferedImage diffuse = new BufferedImage(page.width, page.height, BufferedImage.TYPE_INT_ARGB);
+			BufferedImage normal = new BufferedImage(page.width, page.height, BufferedImage.TYPE_INT_ARGB);
+			String diffusePath = "res/entities/atlas/entitiesDiffuse" + page.index + ".png";
+			String normalPath = "res/entities/atlas/entitiesNormal" + page.index + ".png";
+
+			for (Entry entry : page.entries) {
+				int regionWidth = entry.diffuse.getWidth() + PADDING * 2;
+				int regionHeight = entry.diffuse.getHeight() + PADDING * 2;
+				blit(entry.diffuse, diffuse, entry.x, entry.y, regionWidth, regionHeight, 0);
+				blit(entry.normal, normal, entry.x, entry.y, regionWidth, regionHeight, FLAT_NORMAL);
+
+				float scaleX = (float) entry.diffuse.getWidth() / page.width;
+				float scaleY = (float) entry.diffuse.getHeight() / page.height;
+				float offsetX = (float) (entry.x + PADDING) / page.width;
+				float offsetY = (float) (entry.y + PADDING) / page.height;
+				descriptor.append(entry.path).append(',').append(diffusePath).append(',').append(normalPath).append(',')
+						.append(scaleX).append(',').append(scaleY).append(',').append(offsetX).append(',').append(offsetY).append('\n');
+			}
+
+			ImageIO.write(diffuse, "png", folder.resolve("entitiesDiffuse" + page.index + ".png").toFile());
+			ImageIO.write(normal, "png", folder.resolve("entitiesNormal" + page.index + ".png").toFile());
+		}
+
+		Files.write(folder.resolve("entities.atlas"), descriptor.toString().getBytes(StandardCharsets.UTF_8));
+		System.out.println("Packed " + entries.size() + " entity textures into " + pages.size() + " atlas pages.");
+	}
+
+	/**
+	 * Copies a image into a page with its border repeated into the padding, or fills the region with a colour if there is no image.
+	 */
+	private static void blit(BufferedImage source, BufferedImage destination, int x, int y, int regionWidth, int regionHeight, int fill) {
+		for (int dy = 0; dy < regionHeight; dy++) {
+			for (int dx = 0; dx < regionWidth; dx++) {
+				if (source == null) {
+					destination.setRGB(x + dx, y + dy, fill);
+				} else {
+					int sx = Math.min(Math.max(dx - PADDING, 0), source.getWidth() - 1);
+					int sy = Math.min(Math.max(dy - PADDING, 0), source.getHeight() - 1);
+					destination.setRGB(x + dx, y + dy, source.getRGB(sx, sy));
+				}
+			}
+		}
+	}
+
+	private static class Entry {
+		private final String path;
+		private final BufferedImage diffuse;
+		private final BufferedImage normal;
+		private int x;
+		private int y;
+
+		private Entry(String path, BufferedImage diffuse, BufferedImage normal) {
+			this.path = path;
+			this.diffuse = diffuse;
+			this.normal = normal;
+		}
+	}
+
+	private static class Page {
+		private final int index;
+		private final int width;
+		private int height;
+		private final List<Entry> entries;
+		private int shelfX;
+		private int shelfY;
+		private int shelfHeight;
+
+		private Page(int index) {
+			this.index = index;
+			this.width = PAGE_SIZE;
+			this.height = PAGE_SIZE;
+			this.entries = new ArrayList<>();
+		}
+
+		private boolean place(Entry entry, int entryWidth, int entryHeight) {
+			boolean newShelf = shelfX + entryWidth > width;
+			int x = newShelf ? 0 : shelfX;
+			int y = newShelf ? shelfY + shelfHeight : shelfY;
+
+			if (y + entryHeight > height) {
+				return false;
+			}
+
+			if (newShelf) {
+				shelfY = y;
+				shelfHeight = 0;
+			}
+
+			entry.x = x;
+			entry.y = y;
+			shelfX = x + entryWidth;
+			shelfHeight = Math.max(shelfHeight, entryHeight);
+			entries.add(entry);
+			return true;
+		}
+
+		/**
+		 * Shrinks the page to the smallest power of two height that fits every shelf.
+		 */
+		private void trim() {
+			int used = shelfY + shelfHeight;
+
+			while (height / 2 >= used && height > 1) {
+				height /= 2;
+			}
+		}
+	}
+}
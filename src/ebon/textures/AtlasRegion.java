@@ -0,0 +1,56 @@
+package ebon.textures;
+
+/**
+ * Where a entity texture was packed into a atlas page, as a transform from the textures own coordinates to the pages coordinates.
+ */
+public class AtlasRegion {
+	private final String diffusePage;
+	private final String normalPage;
+	private final float scaleX;
+	private final float scaleY;
+	private final float offsetX;
+	private final float offsetY;
+
+	/**
+	 * Creates a new atlas region.
+	 *
+	 * @param diffusePage The path of the diffuse atlas page.
+	 * @param normalPage The path of the normal map atlas page, laid out the same as the diffuse page.
+	 * @param scaleX The width of the region in the page, from 0 to 1.
+	 * @param scaleY The height of the region in the page, from 0 to 1.
+	 * @param offsetX The left of the region in the page, from 0 to 1.
+	 * @param offsetY The top of the region in the page, from 0 to 1.
+	 */
+	public AtlasRegion(String diffusePage, String normalPage, float scaleX, float scaleY, float offsetX, float offsetY) {
+		this.diffusePage = diffusePage;
+		this.normalPage = normalPage;
+		this.scaleX = scaleX;
+		this.scaleY = scaleY;
+		this.offsetX = offsetX;
+		this.offsetY = offsetY;
+	}
+
+	public String getDiffusePage() {
+		return diffusePage;
+	}
+
+	public String getNormalPage() {
+		return normalPage;
+	}
+
+	public float getScaleX() {
+		return scaleX;
+	}
+
+	public float getScaleY() {
+		return scaleY;
+	}
+
+	public float getOffsetX() {
+		return offsetX;
+	}
+
+	public float getOffsetY() {
+		return offsetY;
+	}
+}
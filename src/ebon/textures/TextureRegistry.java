@@ -0,0 +1,140 @@
+package ebon.textures;
+
+import flounder.logger.*;
+import flounder.resources.*;
+import flounder.textures.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Shares entity textures by path so every entity using a texture binds the same one, and looks up where entity textures were packed by {@link AtlasPacker}.
+ */
+public class TextureRegistry {
+	/**
+	 * The atlas descriptor written by the packer.
+	 */
+	public static final MyFile ATLAS_FILE = new MyFile(MyFile.RES_FOLDER, "entities", "atlas", "entities.atlas");
+
+	private static final Map<String, Texture> TEXTURES = new HashMap<>();
+	private static final Map<String, Map<String, AtlasRegion>> ATLASES = new HashMap<>();
+	private static boolean atlasEnabled = true;
+
+	/**
+	 * Gets a texture, loading it the first time the path is used.
+	 *
+	 * @param path The textures path.
+	 * @param numberOfRows The number of rows in the textures sprite sheet.
+	 *
+	 * @return The shared texture.
+	 */
+	public static synchronized Texture get(String path, int numberOfRows) {
+		Texture texture = TEXTURES.get(path);
+
+		if (texture == null) {
+			texture = Texture.newTexture(new MyFile(path)).create();
+			texture.setNumberOfRows(numberOfRows);
+			TEXTURES.put(path, texture);
+		}
+
+		return texture;
+	}
+
+	/**
+	 * Gets where a entity texture was packed into the entity atlas.
+	 *
+	 * @param path The original textures path.
+	 *
+	 * @return The atlas region, or null if the texture is not in a atlas.
+	 */
+	public static AtlasRegion getRegion(String path) {
+		return getRegion(ATLAS_FILE, path);
+	}
+
+	/**
+	 * Gets where a texture was packed into a atlas. Regions are kept per atlas descriptor, so textures packed into more than one atlas do not mix up their regions.
+	 *
+	 * @param atlas The atlas descriptor written by the packer.
+	 * @param path The original textures path.
+	 *
+	 * @return The atlas region, or null if the texture is not in the atlas.
+	 */
+	public static synchronized AtlasRegion getRegion(MyFile atlas, String path) {
+		if (!atlasEnabled) {
+			return null;
+		}
+
+		Map<String, AtlasRegion> regions = ATLASES.get(atlas.getPath());
+
+		if (regions == null) {
+			regions = loadRegions(atlas);
+			ATLASES.put(atlas.getPath(), regions);
+		}
+
+		return regions.get(path);
+	}
+
+	private static Map<String, AtlasRegion> loadRegions(MyFile atlas) {
+		Map<String, AtlasRegion> result = new HashMap<>();
+
+		try (BufferedReader reader = atlas.getReader()) {
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+
+				// path, diffuse page, normal page, scale x, scale y, offset x, offset y.
+				String[] values = line.split(",");
+				result.put(values[0], new AtlasRegion(values[1], values[2], Float.parseFloat(values[3]), Float.parseFloat(values[4]), Float.parseFloat(values[5]), Float.parseFloat(values[6])));
+			}
+
+			FlounderLogger.log("Loaded " + result.size() + " texture atlas regions from " + atlas.getPath() + ".");
+		} catch (Exception e) {
+			// Without a atlas every entity uses its own textures.
+			FlounderLogger.log("No entity texture atlas could be loaded, entities will use their own textures.");
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gets if entity textures are replaced by their atlas pages.
+	 *
+	 * @return If the atlas is enabled.
+	 */
+	public static boolean isAtlasEnabled() {
+		return atlasEnabled;
+	}
+
+	/**
+	 * Sets if entity textures are replaced by their atlas pages, the editor disables this so entities are saved with their own textures.
+	 *
+	 * @param atlasEnabled If the atlas is enabled.
+	 */
+	public static void setAtlasEnabled(boolean atlasEnabled) {
+		TextureRegistry.atlasEnabled = atlasEnabled;
+	}
+
+	/**
+	 * Gets the number of textures shared.
+	 *
+	 * @return The number of textures.
+	 */
+	public static synchronized int getTextureCount() {
+		return TEXTURES.size();
+	}
+
+	/**
+	 * Deletes every shared texture and forgets every atlas, so a rebuilt atlas is read again the next time a region is looked up.
+	 */
+	public static synchronized void clear() {
+		for (Texture texture : TEXTURES.values()) {
+			texture.delete();
+		}
+
+		TEXTURES.clear();
+		ATLASES.clear();
+	}
+}
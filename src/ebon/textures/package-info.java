@@ -0,0 +1,4 @@
+/**
+ * Contains classes for sharing and packing entity textures.
+ */
+package ebon.textures;
\ No newline at end of file
@@ -1,7 +1,13 @@
 package ebon.world;
 
+import ebon.animation.*;
+import ebon.batching.*;
+import ebon.culling.*;
 import ebon.entities.*;
+import ebon.entities.components.*;
+import ebon.entities.loading.*;
 import ebon.particles.*;
+import ebon.physics.*;
 import flounder.animation.*;
 import flounder.devices.*;
 import flounder.entities.*;
@@ -13,17 +19,33 @@ import flounder.maths.vectors.*;
 import flounder.profiling.*;
 import flounder.space.*;
 
+import java.util.*;
+
 public class EbonWorld extends IModule {
 	private static final EbonWorld INSTANCE = new EbonWorld();
 	public static final String PROFILE_TAB_NAME = "Ebon World";
 
+	private static final boolean ANIMATION_STRESS_TEST = false;
+	private static final int ANIMATION_STRESS_COUNT = 200;
+
+	private static final boolean OCCLUSION_STRESS_TEST = false;
+	private static final int OCCLUSION_STRESS_COUNT = 5000;
+	private static final boolean STATIC_BATCHING_TEST = false;
+
+	private static final boolean COLLISION_STRESS_TEST = false;
+	private static final int COLLISION_STRESS_COUNT = 1000;
+
+	private static final boolean PHYSICS_THREAD = true;
+
 	private StructureBasic<Light> lights;
 	private Fog fog;
 
 	private EbonTesting ebonTesting;
+	private List<Entity> collisionStress;
+	private float collisionStressTime;
 
 	public EbonWorld() {
-		super(ModuleUpdate.UPDATE_POST, PROFILE_TAB_NAME, FlounderLogger.class, FlounderProfiler.class, FlounderEntities.class, FlounderAnimation.class, EbonParticles.class);
+		super(ModuleUpdate.UPDATE_POST, PROFILE_TAB_NAME, FlounderLogger.class, FlounderProfiler.class, FlounderEntities.class, FlounderAnimation.class, EbonAnimations.class, EbonBatches.class, EbonLoading.class, EbonOcclusion.class, EbonParticles.class, EbonCollisions.class, EbonPhysics.class);
 	}
 
 	@Override
@@ -32,10 +54,58 @@ public class EbonWorld extends IModule {
 		this.lights = new StructureBasic<>();
 
 		if (FlounderDisplay.getTitle().equals("Ebon Universe")) {
+			// Collisions are stepped at a fixed rate on the physics thread, turn this off to resolve them as entities move.
+			EbonPhysics.setRunning(PHYSICS_THREAD);
+
 			//	this.ebonTesting = new EbonTesting();
 			//	 FlounderEntities.load("dragon").createEntity(FlounderEntities.getEntities(), new Vector3f(0.0f, -5.0f, 10.0f), new Vector3f());
 			InstanceCowboy e = new InstanceCowboy(FlounderEntities.getEntities(), new Vector3f(0.0f, -5.0f, 10.0f), new Vector3f(0, 180, 0));
 			// EbonEntities.load("cowboy").createEntity(EbonEntities.getEntities(), new Vector3f(0.0f, -5.0f, 10.0f), new Vector3f(0, 180, 0));
+
+			if (ANIMATION_STRESS_TEST) {
+				// Fills a grid with cowboys, the Ebon Animations profiler tab shows how evaluation scales with EbonAnimations.setWorkerCount.
+				int rows = (int) Math.ceil(Math.sqrt(ANIMATION_STRESS_COUNT));
+
+				for (int i = 0; i < ANIMATION_STRESS_COUNT; i++) {
+					new InstanceCowboy(FlounderEntities.getEntities(), new Vector3f((i % rows) * 3.0f - rows * 1.5f, -5.0f, 20.0f + (i / rows) * 3.0f), new Vector3f(0, 180, 0));
+				}
+			}
+
+			if (OCCLUSION_STRESS_TEST) {
+				// A field of crates behind a wall of boulders, the Ebon Occlusion profiler tab shows how many are culled as the camera moves. With STATIC_BATCHING_TEST the crates are also batched.
+				// They are streamed in through EbonLoading, so the Ebon Loading profiler tab shows how the spawns are spread over frames.
+				int rows = (int) Math.ceil(Math.sqrt(OCCLUSION_STRESS_COUNT));
+
+				for (int i = 0; i < OCCLUSION_STRESS_COUNT; i++) {
+					EbonLoading.spawn("crate", new Vector3f((i % rows) * 4.0f - rows * 2.0f, -5.0f, 60.0f + (i / rows) * 4.0f), new Vector3f()).thenAccept(crate -> {
+						ComponentModel componentModel = (ComponentModel) crate.getComponent(ComponentModel.ID);
+
+						if (componentModel != null) {
+							componentModel.setStatic(STATIC_BATCHING_TEST);
+						}
+					});
+				}
+
+				for (int i = 0; i < 12; i++) {
+					EbonLoading.spawn("boulder", new Vector3f(i * 12.0f - 66.0f, -5.0f, 40.0f), new Vector3f()).thenAccept(boulder -> {
+						ComponentModel componentModel = (ComponentModel) boulder.getComponent(ComponentModel.ID);
+
+						if (componentModel != null) {
+							componentModel.setOccluder(true);
+						}
+					});
+				}
+			}
+
+			if (COLLISION_STRESS_TEST) {
+				// A cloud of barrels drifting into each other, try counts of 100, 1000 and 10000. The Ebon Collisions profiler tab shows the broadphase, and EbonCollisions.setEnabled(false) falls back to the entities spatial structure to compare against.
+				this.collisionStress = new ArrayList<>();
+				int side = (int) Math.ceil(Math.cbrt(COLLISION_STRESS_COUNT));
+
+				for (int i = 0; i < COLLISION_STRESS_COUNT; i++) {
+					EbonLoading.spawn("barrel", new Vector3f((i % side) * 12.0f, (i / side % side) * 12.0f, 40.0f + (i / (side * side)) * 12.0f), new Vector3f()).thenAccept(collisionStress::add);
+				}
+			}
 		}
 
 		System.out.println("Helvete!");
@@ -46,6 +116,15 @@ public class EbonWorld extends IModule {
 		if (ebonTesting != null) {
 			ebonTesting.update();
 		}
+
+		if (collisionStress != null) {
+			collisionStressTime += FlounderFramework.getDelta();
+
+			for (int i = 0; i < collisionStress.size(); i++) {
+				float phase = collisionStressTime + i;
+				collisionStress.get(i).move(new Vector3f((float) Math.sin(phase) * 0.2f, (float) Math.cos(phase * 1.3f) * 0.2f, (float) Math.sin(phase * 0.7f) * 0.2f), new Vector3f());
+			}
+		}
 	}
 
 	@Override
@@ -1,7 +1,10 @@
 package editors.entities;
 
 import ebon.entities.components.*;
+import ebon.entities.loading.*;
+import ebon.models.*;
 import ebon.particles.*;
+import ebon.textures.*;
 import ebon.world.*;
 import editors.editor.*;
 import flounder.camera.*;
@@ -42,6 +45,12 @@ public class ExtensionEntities extends IEditorType {
 		OpenGlUtils.goWireframe(false);
 		FlounderBounding.toggle(true);
 
+		// Entities are edited and saved with their own textures and float text sections, not the packed atlas pages, compiled files or quantized meshes, and are loaded again after saving.
+		TextureRegistry.setAtlasEnabled(false);
+		CompiledEntity.setEnabled(false);
+		MeshRegistry.setEnabled(false);
+		PreparedMesh.setQuantized(false);
+
 		// Sets the world to constant fog and a sun.
 		EbonWorld.addFog(new Fog(new Colour(1.0f, 1.0f, 1.0f), 0.003f, 2.0f, 0.0f, 50.0f));
 		EbonWorld.addSun(new Light(new Colour(1.0f, 1.0f, 1.0f), new Vector3f(0.0f, 2000.0f, 2000.0f)));
@@ -73,7 +82,7 @@ public class ExtensionEntities extends IEditorType {
 				focusEntity.forceRemove();
 			}
 
-			focusEntity = FlounderEntities.load(loadFromEntity).createEntity(FlounderEntities.getEntities(), new Vector3f(), new Vector3f());
+			focusEntity = EbonLoading.loadTemplate(loadFromEntity).createEntity(FlounderEntities.getEntities(), new Vector3f(), new Vector3f());
 
 			for (IComponentEntity component : focusEntity.getComponents()) {
 				IComponentEditor editorComponent = null;
@@ -1,5 +1,8 @@
 package editors.entities;
 
+import ebon.animation.*;
+import ebon.entities.editing.*;
+import ebon.entities.loading.*;
 import editors.editor.*;
 import flounder.devices.*;
 import flounder.entities.*;
@@ -17,6 +20,7 @@ import java.io.*;
 import java.lang.reflect.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.*;
 
 public class FrameEntities extends IStandard {
 	private static JFrame frame;
@@ -35,11 +39,14 @@ public class FrameEntities extends IStandard {
 	public static JCheckBox polygonMode;
 	public static JCheckBox rotateEntity;
 	public static JButton resetButton;
+	public static JCheckBox saveCompiled;
 	public static JButton saveButton;
+	public static JProgressBar saveProgress;
 
 	public static List<IComponentEditor> editorComponents;
 
 	private static List<String> addedTabs = new ArrayList<>();
+	private static ExecutorService saver;
 
 	public FrameEntities() {
 		super(FlounderStandard.class, FlounderDisplayJPanel.class);
@@ -75,6 +82,7 @@ public class FrameEntities extends IStandard {
 		}
 
 		editorComponents = new ArrayList<>();
+		saver = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "Entity Saver"));
 
 		menuBar = new JMenuBar();
 		JMenu menuFile = new JMenu("File");
@@ -336,20 +344,105 @@ public class FrameEntities extends IStandard {
 	}
 
 	private void save() {
+		saveCompiled = new JCheckBox("Save Compiled");
+		saveCompiled.setSelected(false);
+		mainPanel.add(saveCompiled);
+
 		saveButton = new JButton("Save Entity");
 		saveButton.addActionListener(new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent e) {
 				if (((ExtensionEntities) FlounderEditor.getEditorType()).focusEntity != null) {
-					FlounderEntities.save(((ExtensionEntities) FlounderEditor.getEditorType()).focusEntity, editorComponents, ((ExtensionEntities) FlounderEditor.getEditorType()).entityName);
+					saveInBackground(((ExtensionEntities) FlounderEditor.getEditorType()).focusEntity, ((ExtensionEntities) FlounderEditor.getEditorType()).entityName, saveCompiled.isSelected());
 				}
 			}
 		});
 		mainPanel.add(saveButton);
+
+		saveProgress = new JProgressBar(0, 2);
+		saveProgress.setStringPainted(true);
+		saveProgress.setString("");
+		mainPanel.add(saveProgress);
+	}
+
+	/**
+	 * Saves a entity on a background thread, so large meshes do not hold up the editor while they are written. Only the raw data each component saves is copied here, so the editor can keep changing the components while the copy is optimised and written.
+	 *
+	 * @param entity The entity to save.
+	 * @param entityName The name to save the entity as.
+	 * @param compile If a compiled file should also be written next to the text file.
+	 */
+	private void saveInBackground(Entity entity, String entityName, boolean compile) {
+		List<EditorSnapshot> components = new ArrayList<>(editorComponents.size());
+		List<EditorSnapshot.Step> steps = new ArrayList<>();
+
+		try {
+			for (IComponentEditor editorComponent : editorComponents) {
+				EditorSnapshot snapshot = EditorSnapshot.of(editorComponent, entityName);
+				components.add(snapshot);
+				steps.addAll(snapshot.getSteps());
+			}
+		} catch (Exception ex) {
+			FlounderLogger.error("Could not save the entity " + entityName + "!");
+			FlounderLogger.exception(ex);
+			saveProgress.setValue(0);
+			saveProgress.setString("Could not save " + entityName);
+			return;
+		}
+
+		// Every step, then writing and compiling, moves the progress bar on by one.
+		saveButton.setEnabled(false);
+		saveProgress.setMaximum(steps.size() + (compile ? 2 : 1));
+		saveProgress.setValue(0);
+		saveProgress.setString("Saving " + entityName);
+
+		saver.execute(() -> {
+			long start = System.currentTimeMillis();
+			boolean saved = false;
+
+			try {
+				for (int i = 0; i < steps.size(); i++) {
+					setSaveProgress(i, steps.get(i).getName());
+					steps.get(i).run();
+				}
+
+				setSaveProgress(steps.size(), "Writing " + entityName);
+				FlounderEntities.save(entity, new ArrayList<>(components), entityName);
+				// Instances spawned after this load the saved file, not the data mapped or shared from the old one.
+				CompiledEntity.invalidate(entityName);
+				EbonAnimations.invalidate(entityName);
+
+				if (compile) {
+					setSaveProgress(steps.size() + 1, "Compiling " + entityName);
+				}
+
+				saved = !compile || EntityWriter.compile(entityName);
+			} catch (Exception ex) {
+				FlounderLogger.error("Could not save the entity " + entityName + "!");
+				FlounderLogger.exception(ex);
+			}
+
+			boolean success = saved;
+			long time = System.currentTimeMillis() - start;
+			SwingUtilities.invokeLater(() -> {
+				saveProgress.setValue(success ? saveProgress.getMaximum() : 0);
+				saveProgress.setString(success ? "Saved " + entityName + " in " + time + "ms" : "Could not save " + entityName);
+				saveButton.setEnabled(true);
+			});
+		});
+	}
+
+	private static void setSaveProgress(int value, String text) {
+		SwingUtilities.invokeLater(() -> {
+			saveProgress.setValue(value);
+			saveProgress.setString(text);
+		});
 	}
 
 	@Override
 	public void dispose() {
+		// Saves already started are finished, the saver thread is not a daemon.
+		saver.shutdown();
 		frame.setVisible(false);
 		frame.dispose();
 	}